@@ -0,0 +1,122 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.AccountsRepositoryOffHeap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Compares the on-heap and off-heap account stores at 10M and 50M accounts.
+ * Setup prints the heap and direct memory each store retains and how long a
+ * full collection takes with the store live; the benchmark itself times a
+ * locked transfer between two random accounts, and is best run with the gc
+ * profiler to compare collection counts and times under load:
+ * <pre>
+ * ./gradlew jmh -PjmhIncludes=AccountStoreFootprintBenchmark -PjmhProfilers=gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms24g", "-Xmx24g", "-XX:MaxDirectMemorySize=16g"})
+@Threads(8)
+@State(Scope.Benchmark)
+public class AccountStoreFootprintBenchmark {
+
+  private static final long AMOUNT = AtomicBalance.encode(BigDecimal.ONE);
+
+  @Param({"heap", "off-heap"})
+  private String store;
+
+  @Param({"10000000", "50000000"})
+  private int accountCount;
+
+  private AccountsRepository repository;
+
+  private String[] accountIds;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    // The ids looked up are on the heap whichever the store, so they are
+    // left out of its footprint.
+    accountIds = BenchmarkAccounts.accountIds(accountCount);
+    long heapBefore = usedHeapAfterGc();
+    long directBefore = usedDirectMemory();
+
+    repository = store.equals("heap")
+            ? new AccountsRepositoryInMemory(accountCount)
+            : new AccountsRepositoryOffHeap(accountCount);
+    for (String accountId : accountIds) {
+      repository.createAccount(new Account(accountId, BenchmarkAccounts.INITIAL_BALANCE));
+    }
+
+    long started = System.nanoTime();
+    long heapAfter = usedHeapAfterGc();
+    long fullGcMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    System.out.printf("%n%s store, %,d accounts: %,d MB heap, %,d MB direct, full GC %,d ms%n",
+            store, accountCount, (heapAfter - heapBefore) >> 20,
+            (usedDirectMemory() - directBefore) >> 20, fullGcMillis);
+  }
+
+  @Benchmark
+  public boolean transfer() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int from = random.nextInt(accountCount);
+    int to = random.nextInt(accountCount);
+    if (from == to) {
+      return false;
+    }
+    Account fromAccount = repository.getAccount(accountIds[from]);
+    Account toAccount = repository.getAccount(accountIds[to]);
+    Lock first = (from < to ? fromAccount : toAccount).getLock();
+    Lock second = (from < to ? toAccount : fromAccount).getLock();
+    first.lock();
+    try {
+      second.lock();
+      try {
+        return AtomicBalance.transfer(fromAccount.getBalanceState(),
+                toAccount.getBalanceState(), AMOUNT);
+      } finally {
+        second.unlock();
+      }
+    } finally {
+      first.unlock();
+    }
+  }
+
+  private static long usedHeapAfterGc() {
+    System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  private static long usedDirectMemory() {
+    for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+      if (pool.getName().equals("direct")) {
+        return pool.getMemoryUsed();
+      }
+    }
+    return 0;
+  }
+}
@@ -0,0 +1,151 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Compares the BigDecimal + fair ReentrantLock balance the service used to
+ * keep with {@link AtomicBalance}, both for single-account updates and for
+ * transfers between random pairs of a small set of accounts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class BalanceEngineBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  private static final long ENCODED_AMOUNT = AtomicBalance.encode(AMOUNT);
+
+  @Param({"16"})
+  private int accountCount;
+
+  private LegacyBalance legacyBalance;
+
+  private AtomicBalance atomicBalance;
+
+  private String[] accountIds;
+
+  private AccountsService lockingService;
+
+  private AccountsService lockFreeService;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    legacyBalance = new LegacyBalance(BenchmarkAccounts.INITIAL_BALANCE);
+    atomicBalance = new AtomicBalance(BenchmarkAccounts.INITIAL_BALANCE);
+
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    lockingService = BenchmarkAccounts.newService(TransferMode.LOCKING, dispatcher,
+            accountCount);
+    lockFreeService = BenchmarkAccounts.newService(TransferMode.LOCK_FREE, dispatcher,
+            accountCount);
+    accountIds = BenchmarkAccounts.accountIds(accountCount);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    dispatcher.shutdown();
+  }
+
+  @Benchmark
+  public void legacyCredit() {
+    legacyBalance.credit(AMOUNT);
+  }
+
+  @Benchmark
+  public void atomicCredit() {
+    atomicBalance.credit(ENCODED_AMOUNT);
+  }
+
+  @Benchmark
+  public boolean legacyDebit() {
+    return legacyBalance.tryDebit(AMOUNT);
+  }
+
+  @Benchmark
+  public boolean atomicDebit() {
+    return atomicBalance.tryDebit(ENCODED_AMOUNT);
+  }
+
+  @Benchmark
+  public void lockingTransfer() {
+    transfer(lockingService);
+  }
+
+  @Benchmark
+  public void lockFreeTransfer() {
+    transfer(lockFreeService);
+  }
+
+  private void transfer(AccountsService service) {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int from = random.nextInt(accountCount);
+    int to = random.nextInt(accountCount - 1);
+    if (to >= from) {
+      to++;
+    }
+    service.makeTransfer(accountIds[from], accountIds[to], AMOUNT);
+  }
+
+  // The balance representation Account used before AtomicBalance.
+  private static final class LegacyBalance {
+
+    private final ReentrantLock lock = new ReentrantLock(true);
+
+    private BigDecimal balance;
+
+    private LegacyBalance(BigDecimal balance) {
+      this.balance = balance;
+    }
+
+    private void credit(BigDecimal amount) {
+      lock.lock();
+      try {
+        balance = balance.add(amount);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private boolean tryDebit(BigDecimal amount) {
+      lock.lock();
+      try {
+        if (balance.compareTo(amount) < 0) {
+          return false;
+        }
+        balance = balance.subtract(amount);
+        return true;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.BalanceQueryResult;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Multi-get balance queries of {@code queryAccounts} accounts at a time,
+ * running alongside transfers between the very same accounts. Queries take
+ * no lock, so their throughput should hardly depend on the transfers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Group)
+public class BalanceQueryBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"1000"})
+  private int queryAccounts;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private String[] accountIds;
+
+  private List<String> query;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    service = BenchmarkAccounts.newService(TransferMode.LOCKING, dispatcher, queryAccounts);
+    accountIds = BenchmarkAccounts.accountIds(queryAccounts);
+    query = Arrays.asList(accountIds);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Benchmark
+  @Group("queriesWithTransfers")
+  @GroupThreads(4)
+  public BalanceQueryResult query() {
+    return service.getBalances(query);
+  }
+
+  @Benchmark
+  @Group("queriesWithTransfers")
+  @GroupThreads(4)
+  public void transfer() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int from = random.nextInt(queryAccounts);
+    int to = random.nextInt(queryAccounts - 1);
+    if (to >= from) {
+      to++;
+    }
+    service.tryTransfer(accountIds[from], accountIds[to], AMOUNT);
+  }
+}
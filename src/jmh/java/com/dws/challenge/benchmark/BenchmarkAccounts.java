@@ -0,0 +1,85 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+
+import java.math.BigDecimal;
+
+final class BenchmarkAccounts {
+
+  static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000");
+
+  private BenchmarkAccounts() {
+  }
+
+  static String accountId(int index) {
+    return "Id-" + index;
+  }
+
+  static String[] accountIds(int count) {
+    String[] ids = new String[count];
+    for (int i = 0; i < count; i++) {
+      ids[i] = accountId(i);
+    }
+    return ids;
+  }
+
+  // Created through a repository, which gives each account its handle.
+  static Account[] accounts(int count) {
+    AccountsRepositoryInMemory repository = new AccountsRepositoryInMemory();
+    Account[] accounts = new Account[count];
+    for (int i = 0; i < count; i++) {
+      accounts[i] = new Account(accountId(i), INITIAL_BALANCE);
+      repository.createAccount(accounts[i]);
+    }
+    return accounts;
+  }
+
+  // Notifications are dropped rather than queued once the queue is full, so
+  // the dispatcher never applies backpressure to the code being measured.
+  static TransferNotificationDispatcher discardingDispatcher() {
+    return new TransferNotificationDispatcher((account, description) -> { },
+            1, 1 << 16, 1024, 0);
+  }
+
+  // A smaller ring than the default, so that long runs keep reusing the same
+  // direct memory instead of growing to the production size.
+  static TransactionLedger newLedger() {
+    LedgerProperties properties = new LedgerProperties();
+    properties.setMaxEntries(1 << 20);
+    return new TransactionLedger(properties);
+  }
+
+  static AccountsService newService(TransferMode mode,
+                                    TransferNotificationDispatcher dispatcher,
+                                    int accountCount) {
+    return newService(mode, dispatcher, TransferMetrics.disabled(), accountCount);
+  }
+
+  static AccountsService newService(TransferMode mode,
+                                    TransferNotificationDispatcher dispatcher,
+                                    TransferMetrics metrics, int accountCount) {
+    TransferProperties properties = new TransferProperties();
+    properties.setMode(mode);
+    return newService(properties, dispatcher, metrics, accountCount);
+  }
+
+  static AccountsService newService(TransferProperties properties,
+                                    TransferNotificationDispatcher dispatcher,
+                                    TransferMetrics metrics, int accountCount) {
+    AccountsService service = new AccountsService(new AccountsRepositoryInMemory(),
+            dispatcher, properties, new NoOpTransactionJournal(), newLedger(), metrics);
+    for (int i = 0; i < accountCount; i++) {
+      service.createAccount(new Account(accountId(i), INITIAL_BALANCE));
+    }
+    return service;
+  }
+}
@@ -0,0 +1,70 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.FundTransferRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// Request and response binding as done by AccountsController through Jackson.
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBindingBenchmark {
+
+  private static final byte[] TRANSFER_REQUEST = ("{\"fromAccountId\":\"Id-123\"," +
+          "\"toAccountId\":\"Id-456\",\"amount\":100.25}").getBytes();
+
+  private static final byte[] CREATE_ACCOUNT_REQUEST =
+          "{\"accountId\":\"Id-123\",\"balance\":1000}".getBytes();
+
+  private ObjectReader transferReader;
+
+  private ObjectReader accountReader;
+
+  private ObjectWriter accountWriter;
+
+  private Account account;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    transferReader = objectMapper.readerFor(FundTransferRequest.class);
+    accountReader = objectMapper.readerFor(Account.class);
+    accountWriter = objectMapper.writerFor(Account.class);
+    account = new Account("Id-123", new BigDecimal("123.45"));
+  }
+
+  @Benchmark
+  public FundTransferRequest readTransferRequest() throws IOException {
+    return transferReader.readValue(TRANSFER_REQUEST);
+  }
+
+  @Benchmark
+  public Account readAccount() throws IOException {
+    return accountReader.readValue(CREATE_ACCOUNT_REQUEST);
+  }
+
+  @Benchmark
+  public byte[] writeAccount() throws IOException {
+    return accountWriter.writeValueAsBytes(account);
+  }
+}
@@ -0,0 +1,86 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.TransactionPage;
+import com.dws.challenge.repository.TransactionLedger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Appends to, and reads pages from, a ledger preloaded with
+ * {@code entries} transfers spread over {@code accountCount} accounts. Each
+ * entry takes 48 bytes of direct memory, hence the raised limit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-XX:MaxDirectMemorySize=4g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class LedgerBenchmark {
+
+  private static final long AMOUNT = AtomicBalance.encode(new BigDecimal("0.01"));
+
+  @Param({"10000000"})
+  private int entries;
+
+  @Param({"100000"})
+  private int accountCount;
+
+  @Param({"100"})
+  private int pageSize;
+
+  private TransactionLedger ledger;
+
+  private Account[] accounts;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    LedgerProperties properties = new LedgerProperties();
+    properties.setMaxEntries(entries);
+    ledger = new TransactionLedger(properties);
+    accounts = BenchmarkAccounts.accounts(accountCount);
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    for (int i = 0; i < entries; i++) {
+      append(random);
+    }
+  }
+
+  @Benchmark
+  public long append() {
+    return append(ThreadLocalRandom.current());
+  }
+
+  @Benchmark
+  public TransactionPage readLatestPage() {
+    Account account = accounts[ThreadLocalRandom.current().nextInt(accountCount)];
+    return ledger.read(account.getAccountId(), null, null, null, pageSize);
+  }
+
+  private long append(ThreadLocalRandom random) {
+    int from = random.nextInt(accountCount);
+    int to = random.nextInt(accountCount - 1);
+    if (to >= from) {
+      to++;
+    }
+    return ledger.append(accounts[from], accounts[to], AMOUNT);
+  }
+}
@@ -0,0 +1,91 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of transfer metrics: the same transfers with meters attached to a
+ * registry, and with {@link TransferMetrics#disabled()}. The contended
+ * variant also exercises lock-wait timing and hot account tracking.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"true", "false"})
+  private boolean metricsEnabled;
+
+  @Param({"100000"})
+  private int accountCount;
+
+  @Param({"8"})
+  private int hotAccountCount;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private String[] accountIds;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    TransferMetrics metrics = metricsEnabled
+            ? new TransferMetrics(new SimpleMeterRegistry(), 128) : TransferMetrics.disabled();
+    service = BenchmarkAccounts.newService(TransferMode.LOCKING, dispatcher, metrics,
+            accountCount);
+    accountIds = BenchmarkAccounts.accountIds(accountCount);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    dispatcher.shutdown();
+  }
+
+  @Benchmark
+  public void randomPair() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int from = random.nextInt(accountCount);
+    int to = random.nextInt(accountCount - 1);
+    if (to >= from) {
+      to++;
+    }
+    service.makeTransfer(accountIds[from], accountIds[to], AMOUNT);
+  }
+
+  @Benchmark
+  public void hotAccount() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int to = random.nextInt(hotAccountCount);
+    int from = random.nextInt(hotAccountCount, accountCount);
+    service.makeTransfer(accountIds[from], accountIds[to], AMOUNT);
+  }
+}
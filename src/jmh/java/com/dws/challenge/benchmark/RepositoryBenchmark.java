@@ -0,0 +1,96 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class RepositoryBenchmark {
+
+  @Param({"1000000"})
+  private int accountCount;
+
+  private final AtomicLong nextNewAccount = new AtomicLong();
+
+  private AccountsRepository lookupRepository;
+
+  private AccountsRepository createRepository;
+
+  private String[] accountIds;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    lookupRepository = new AccountsRepositoryInMemory();
+    accountIds = BenchmarkAccounts.accountIds(accountCount);
+    for (String accountId : accountIds) {
+      lookupRepository.createAccount(new Account(accountId, BenchmarkAccounts.INITIAL_BALANCE));
+    }
+    createRepository = new AccountsRepositoryInMemory();
+  }
+
+  // Start every iteration from an empty map so that growth of the map does
+  // not skew later iterations.
+  @Setup(Level.Iteration)
+  public void clearCreatedAccounts() {
+    createRepository.clearAccounts();
+  }
+
+  @Benchmark
+  public void createAccount() {
+    createRepository.createAccount(new Account("New-" + nextNewAccount.getAndIncrement(),
+            BenchmarkAccounts.INITIAL_BALANCE));
+  }
+
+  @Benchmark
+  public Account getAccount() {
+    return lookupRepository.getAccount(
+            accountIds[ThreadLocalRandom.current().nextInt(accountCount)]);
+  }
+
+  // The accounts of a transfer as the service used to resolve them: once to
+  // validate the request and again under the locks.
+  @Benchmark
+  public int resolveTransferByIdTwice() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    String fromAccountId = accountIds[random.nextInt(accountCount)];
+    String toAccountId = accountIds[random.nextInt(accountCount)];
+    Account from = lookupRepository.getAccount(fromAccountId);
+    Account to = lookupRepository.getAccount(toAccountId);
+    from = lookupRepository.getAccount(from.getAccountId());
+    to = lookupRepository.getAccount(to.getAccountId());
+    return from.getHandle() ^ to.getHandle();
+  }
+
+  // The accounts of a transfer as the service resolves them now: once, after
+  // which the ledger goes by their handles.
+  @Benchmark
+  public int resolveTransferOnce() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    Account from = lookupRepository.getAccount(accountIds[random.nextInt(accountCount)]);
+    Account to = lookupRepository.getAccount(accountIds[random.nextInt(accountCount)]);
+    return from.getHandle() ^ to.getHandle();
+  }
+}
@@ -0,0 +1,86 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many-to-one transfers: every transfer goes from one of many senders to the
+ * same collector account. With {@code stripes} at 0 the collector is an
+ * ordinary account, whose lock every transfer queues up for; otherwise it is
+ * striped, and throughput should grow with the number of stripes until
+ * credits no longer contend.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class StripedAccountBenchmark {
+
+  private static final String COLLECTOR = "Collector";
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"0", "1", "2", "4", "8", "16"})
+  private int stripes;
+
+  @Param({"1024"})
+  private int senders;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private String[] senderIds;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    TransferProperties properties = new TransferProperties();
+    if (stripes > 0) {
+      properties.getStriping().setAccountIds(Set.of(COLLECTOR));
+      properties.getStriping().setStripes(stripes);
+    }
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    service = BenchmarkAccounts.newService(properties, dispatcher, TransferMetrics.disabled(),
+            senders);
+    service.createAccount(new Account(COLLECTOR, BigDecimal.ZERO));
+    senderIds = BenchmarkAccounts.accountIds(senders);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Benchmark
+  public TransferStatus transfer() {
+    String sender = senderIds[ThreadLocalRandom.current().nextInt(senders)];
+    return service.tryTransfer(sender, COLLECTOR, AMOUNT);
+  }
+}
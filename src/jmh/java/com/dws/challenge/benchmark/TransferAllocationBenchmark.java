@@ -0,0 +1,89 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single transfers between two accounts of one thread, meant to be run with
+ * the gc profiler to see what a transfer allocates:
+ * <pre>
+ *   ./gradlew jmh -PjmhIncludes=TransferAllocationBenchmark -PjmhProfilers=gc
+ * </pre>
+ * {@code gc.alloc.rate.norm} is the number of bytes allocated per transfer.
+ * A successful transfer allocates the two queued notifications, and a
+ * refused transfer should allocate close to nothing. Converting the amount
+ * to its encoded form can also allocate, unless the JIT removes it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+@State(Scope.Benchmark)
+public class TransferAllocationBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"LOCKING", "LOCK_FREE"})
+  private TransferMode mode;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private String first;
+
+  private String second;
+
+  private boolean forward;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    service = BenchmarkAccounts.newService(mode, dispatcher, 2);
+    service.createAccount(new Account("Empty"));
+    first = BenchmarkAccounts.accountId(0);
+    second = BenchmarkAccounts.accountId(1);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Benchmark
+  public TransferStatus transfer() {
+    // Alternate direction so neither account ever runs dry.
+    forward = !forward;
+    return forward
+            ? service.tryTransfer(first, second, AMOUNT)
+            : service.tryTransfer(second, first, AMOUNT);
+  }
+
+  @Benchmark
+  public TransferStatus insufficientFunds() {
+    return service.tryTransfer("Empty", first, AMOUNT);
+  }
+}
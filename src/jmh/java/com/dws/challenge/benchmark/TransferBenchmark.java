@@ -0,0 +1,131 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.loadgen.ZipfDistribution;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfer throughput for three workloads:
+ * <ul>
+ *   <li>uncontended: every thread moves money between its own two accounts,</li>
+ *   <li>hotAccount: random senders pay receivers drawn from a Zipf
+ *   distribution over {@code hotAccountCount} accounts,</li>
+ *   <li>randomPair: uniformly random pairs over {@code accountCount} accounts.</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TransferBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"LOCKING", "LOCK_FREE", "SHARDED"})
+  private TransferMode mode;
+
+  @Param({"1000000"})
+  private int accountCount;
+
+  @Param({"1000"})
+  private int hotAccountCount;
+
+  @Param({"1.1"})
+  private double zipfExponent;
+
+  private final AtomicInteger nextPrivateAccount = new AtomicInteger();
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private String[] accountIds;
+
+  private ZipfDistribution zipf;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    service = BenchmarkAccounts.newService(mode, dispatcher, accountCount);
+    accountIds = BenchmarkAccounts.accountIds(accountCount);
+    zipf = new ZipfDistribution(hotAccountCount, zipfExponent);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @State(Scope.Thread)
+  public static class PrivatePair {
+
+    private String first;
+
+    private String second;
+
+    private boolean forward;
+
+    @Setup(Level.Trial)
+    public void setUp(TransferBenchmark benchmark) {
+      int pair = benchmark.nextPrivateAccount.getAndIncrement();
+      first = "Private-" + pair + "-a";
+      second = "Private-" + pair + "-b";
+      benchmark.service.createAccount(new Account(first, BenchmarkAccounts.INITIAL_BALANCE));
+      benchmark.service.createAccount(new Account(second, BenchmarkAccounts.INITIAL_BALANCE));
+    }
+  }
+
+  @Benchmark
+  public void uncontended(PrivatePair pair) {
+    // Alternate direction so neither account ever runs dry.
+    pair.forward = !pair.forward;
+    if (pair.forward) {
+      service.makeTransfer(pair.first, pair.second, AMOUNT);
+    } else {
+      service.makeTransfer(pair.second, pair.first, AMOUNT);
+    }
+  }
+
+  @Benchmark
+  public void hotAccount() {
+    int to = zipf.next();
+    int from = ThreadLocalRandom.current().nextInt(hotAccountCount, accountCount);
+    service.makeTransfer(accountIds[from], accountIds[to], AMOUNT);
+  }
+
+  @Benchmark
+  public void randomPair() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int from = random.nextInt(accountCount);
+    int to = random.nextInt(accountCount - 1);
+    if (to >= from) {
+      to++;
+    }
+    service.makeTransfer(accountIds[from], accountIds[to], AMOUNT);
+  }
+}
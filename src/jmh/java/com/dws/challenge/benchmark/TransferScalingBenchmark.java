@@ -0,0 +1,95 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.loadgen.ZipfDistribution;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Locking versus sharded transfers on a few hot accounts, at 1, 8 and 64
+ * client threads. Every transfer pays one of {@code hotAccountCount}
+ * accounts, chosen from a Zipf distribution.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransferScalingBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"LOCKING", "SHARDED"})
+  private TransferMode mode;
+
+  @Param({"100000"})
+  private int accountCount;
+
+  @Param({"16"})
+  private int hotAccountCount;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private String[] accountIds;
+
+  private ZipfDistribution zipf;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    service = BenchmarkAccounts.newService(mode, dispatcher, accountCount);
+    accountIds = BenchmarkAccounts.accountIds(accountCount);
+    zipf = new ZipfDistribution(hotAccountCount, 1.1);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public void hotAccount1Thread() {
+    transfer();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void hotAccount8Threads() {
+    transfer();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public void hotAccount64Threads() {
+    transfer();
+  }
+
+  private void transfer() {
+    int to = zipf.next();
+    int from = ThreadLocalRandom.current().nextInt(hotAccountCount, accountCount);
+    service.makeTransfer(accountIds[from], accountIds[to], AMOUNT);
+  }
+}
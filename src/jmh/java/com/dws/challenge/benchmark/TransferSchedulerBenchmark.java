@@ -0,0 +1,87 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.config.ScheduleProperties;
+import com.dws.challenge.domain.ScheduleRequest;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import com.dws.challenge.service.TransferScheduler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Creating and cancelling a standing order while {@code pending} others are
+// waiting to fall due.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class TransferSchedulerBenchmark {
+
+  private static final int ACCOUNTS = 1000;
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"1000", "1000000"})
+  private int pending;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private TransferScheduler scheduler;
+
+  private String[] accountIds;
+
+  private Instant start;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    service = BenchmarkAccounts.newService(TransferMode.LOCKING, dispatcher, ACCOUNTS);
+    accountIds = BenchmarkAccounts.accountIds(ACCOUNTS);
+    ScheduleProperties properties = new ScheduleProperties();
+    properties.setPollInterval(Duration.ZERO);
+    scheduler = new TransferScheduler(service, properties);
+    start = Instant.now().plus(Duration.ofDays(1));
+    for (int i = 0; i < pending; i++) {
+      scheduler.schedule(request(i));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    scheduler.shutdown();
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Benchmark
+  public boolean scheduleAndCancel() {
+    int i = ThreadLocalRandom.current().nextInt(pending);
+    return scheduler.cancel(scheduler.schedule(request(i)).getId());
+  }
+
+  private ScheduleRequest request(int i) {
+    return new ScheduleRequest(accountIds[i % ACCOUNTS], accountIds[(i + 1) % ACCOUNTS],
+            AMOUNT, start.plusSeconds(i % 86_400), Duration.ofDays(30), null);
+  }
+}
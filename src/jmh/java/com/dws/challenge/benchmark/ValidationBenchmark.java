@@ -0,0 +1,112 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.RequestValidator;
+import com.dws.challenge.domain.ValidationError;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost per request of checking a transfer request. {@code beanValidation}
+ * is what the controllers would pay had their {@code @Valid} annotations
+ * ever been enforced: bean validation of the request, followed by the
+ * checks the service needed anyway. {@code requestValidator} is the single
+ * stage that replaced both.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+  @Param({"true", "false"})
+  private boolean valid;
+
+  private ValidatorFactory factory;
+
+  private Validator validator;
+
+  private AnnotatedTransferRequest annotated;
+
+  private FundTransferRequest request;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    factory = Validation.buildDefaultValidatorFactory();
+    validator = factory.getValidator();
+    BigDecimal amount = valid ? new BigDecimal("100.25") : new BigDecimal("-1");
+    annotated = new AnnotatedTransferRequest("Id-123", "Id-456", amount);
+    request = new FundTransferRequest("Id-123", "Id-456", amount);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    factory.close();
+  }
+
+  @Benchmark
+  public Object beanValidation() {
+    Set<ConstraintViolation<AnnotatedTransferRequest>> violations =
+            validator.validate(annotated);
+    if (!violations.isEmpty()) {
+      return violations;
+    }
+    return RequestValidator.validateTransfer(annotated.fromAccountId,
+            annotated.toAccountId, annotated.amount);
+  }
+
+  @Benchmark
+  public ValidationError requestValidator() {
+    return RequestValidator.validateTransfer(request.getFromAccountId(),
+            request.getToAccountId(), request.getAmount());
+  }
+
+  // FundTransferRequest as it was annotated, with jakarta constraints that
+  // bean validation actually enforces.
+  static class AnnotatedTransferRequest {
+
+    @NotNull
+    @NotEmpty
+    final String fromAccountId;
+
+    @NotNull
+    @NotEmpty
+    final String toAccountId;
+
+    @NotNull
+    @DecimalMin(value = "0", inclusive = false)
+    @Digits(integer = 15, fraction = 4)
+    final BigDecimal amount;
+
+    AnnotatedTransferRequest(String fromAccountId, String toAccountId, BigDecimal amount) {
+      this.fromAccountId = fromAccountId;
+      this.toAccountId = toAccountId;
+      this.amount = amount;
+    }
+  }
+}
@@ -0,0 +1,139 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Throughput of transfers between idle accounts while a hot account is
+ * saturated, with requests served by a pool of 200 platform threads, as
+ * Tomcat's default, or by a virtual thread each. The hot account's lock is
+ * held throughout, and {@code hotRequests} transfers from it are kept
+ * waiting for it, each giving up after the lock wait deadline and being
+ * replaced at once.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VirtualThreadsBenchmark {
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  private static final int PLATFORM_THREADS = 200;
+
+  private static final int COLD_ACCOUNTS = 8;
+
+  public enum Workers {
+    PLATFORM, VIRTUAL
+  }
+
+  @Param({"PLATFORM", "VIRTUAL"})
+  private Workers workers;
+
+  @Param({"400"})
+  private int hotRequests;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private String[] accountIds;
+
+  private ExecutorService executor;
+
+  private Thread lockHolder;
+
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private volatile boolean running;
+
+  @Setup(Level.Trial)
+  public void setUp() throws InterruptedException {
+    TransferProperties properties = new TransferProperties();
+    properties.getLockWait().setDeadline(Duration.ofMillis(50));
+    dispatcher = BenchmarkAccounts.discardingDispatcher();
+    service = BenchmarkAccounts.newService(properties, dispatcher, TransferMetrics.disabled(),
+            COLD_ACCOUNTS + 1);
+    accountIds = BenchmarkAccounts.accountIds(COLD_ACCOUNTS + 1);
+    executor = workers == Workers.PLATFORM ? Executors.newFixedThreadPool(PLATFORM_THREADS)
+            : Executors.newVirtualThreadPerTaskExecutor();
+
+    Lock hotLock = service.getAccount(accountIds[0]).getLock();
+    CountDownLatch locked = new CountDownLatch(1);
+    lockHolder = new Thread(() -> {
+      hotLock.lock();
+      try {
+        locked.countDown();
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        hotLock.unlock();
+      }
+    });
+    lockHolder.start();
+    locked.await();
+
+    running = true;
+    for (int i = 0; i < hotRequests; i++) {
+      submitHotTransfer();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws InterruptedException {
+    running = false;
+    release.countDown();
+    lockHolder.join();
+    executor.shutdownNow();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Benchmark
+  @Threads(8)
+  public void coldTransfer() {
+    int from = 1 + ThreadLocalRandom.current().nextInt(COLD_ACCOUNTS);
+    int to = 1 + from % COLD_ACCOUNTS;
+    CompletableFuture.runAsync(() -> service.tryTransfer(accountIds[from], accountIds[to],
+            AMOUNT), executor).join();
+  }
+
+  private void submitHotTransfer() {
+    CompletableFuture.runAsync(() -> service.tryTransfer(accountIds[0], accountIds[1], AMOUNT),
+            executor).whenComplete((ignored, e) -> {
+              if (running) {
+                submitHotTransfer();
+              }
+            });
+  }
+}
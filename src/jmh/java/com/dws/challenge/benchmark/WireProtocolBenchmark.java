@@ -0,0 +1,154 @@
+package com.dws.challenge.benchmark;
+
+import com.dws.challenge.ChallengeApplication;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.web.BinaryProtocol;
+import com.dws.challenge.web.BinaryTransferClient;
+import com.dws.challenge.web.BinaryTransferServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers through the JSON endpoint against the binary protocol, both
+ * served by the whole application on local ports: one request at a time,
+ * and for the binary protocol also {@value #PIPELINE_DEPTH} requests in
+ * flight per connection. Logging is turned down, so that the per-request
+ * log lines of the controller are not what is measured.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class WireProtocolBenchmark {
+
+  private static final int PIPELINE_DEPTH = 64;
+
+  private static final BigDecimal AMOUNT = new BigDecimal("0.01");
+
+  @Param({"1000"})
+  private int accountCount;
+
+  private ConfigurableApplicationContext context;
+
+  private int httpPort;
+
+  private int binaryPort;
+
+  private String[] accountIds;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    context = new SpringApplicationBuilder(ChallengeApplication.class).run(
+            "--server.port=0", "--accounts.binary.enabled=true", "--accounts.binary.port=0",
+            "--logging.level.root=WARN");
+    httpPort = Integer.parseInt(context.getEnvironment().getProperty("local.server.port"));
+    binaryPort = context.getBean(BinaryTransferServer.class).getPort();
+    AccountsService service = context.getBean(AccountsService.class);
+    accountIds = BenchmarkAccounts.accountIds(accountCount);
+    for (String accountId : accountIds) {
+      service.createAccount(new Account(accountId, BenchmarkAccounts.INITIAL_BALANCE));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    context.close();
+  }
+
+  @State(Scope.Thread)
+  public static class Clients {
+
+    private HttpClient http;
+
+    private URI transferUri;
+
+    private BinaryTransferClient binary;
+
+    private long correlationId;
+
+    @Setup(Level.Trial)
+    public void setUp(WireProtocolBenchmark benchmark) throws IOException {
+      http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+      transferUri = URI.create("http://localhost:" + benchmark.httpPort +
+              "/v1/accounts/transferFunds");
+      binary = new BinaryTransferClient("localhost", benchmark.binaryPort, 64 * 1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+      http.close();
+      binary.close();
+    }
+  }
+
+  @Benchmark
+  public int json(Clients clients) throws IOException, InterruptedException {
+    int[] pair = pair();
+    String body = "{\"fromAccountId\":\"" + accountIds[pair[0]] + "\",\"toAccountId\":\"" +
+            accountIds[pair[1]] + "\",\"amount\":" + AMOUNT + "}";
+    HttpRequest request = HttpRequest.newBuilder(clients.transferUri)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    return clients.http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+
+  @Benchmark
+  public TransferStatus binary(Clients clients) throws IOException {
+    int[] pair = pair();
+    clients.binary.transfer(clients.correlationId++, accountIds[pair[0]],
+            accountIds[pair[1]], AMOUNT);
+    return clients.binary.read().status();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PIPELINE_DEPTH)
+  public void binaryPipelined(Clients clients, Blackhole blackhole) throws IOException {
+    for (int i = 0; i < PIPELINE_DEPTH; i++) {
+      int[] pair = pair();
+      clients.binary.transfer(clients.correlationId++, accountIds[pair[0]],
+              accountIds[pair[1]], AMOUNT);
+    }
+    for (int i = 0; i < PIPELINE_DEPTH; i++) {
+      BinaryProtocol.Response response = clients.binary.read();
+      blackhole.consume(response.status());
+    }
+  }
+
+  private int[] pair() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int from = random.nextInt(accountCount);
+    int to = random.nextInt(accountCount - 1);
+    return new int[] {from, to >= from ? to + 1 : to};
+  }
+}
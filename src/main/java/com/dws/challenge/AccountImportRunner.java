@@ -0,0 +1,62 @@
+package com.dws.challenge;
+
+import com.dws.challenge.config.ImportProperties;
+import com.dws.challenge.domain.AccountImportResult;
+import com.dws.challenge.service.AccountImporter;
+import com.dws.challenge.service.ImportFormat;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Imports the file given with {@code --accounts.import.file=<path>} on
+ * startup, for instance to load accounts migrated from another system:
+ * <pre>
+ * java -jar challenge.jar --accounts.import.file=accounts.csv
+ * </pre>
+ */
+@Component
+@ConditionalOnProperty(name = "accounts.import.file")
+@Slf4j
+public class AccountImportRunner implements ApplicationRunner {
+
+  private final AccountImporter importer;
+
+  private final ImportProperties properties;
+
+  @Autowired
+  public AccountImportRunner(AccountImporter importer, ImportProperties properties) {
+    this.importer = importer;
+    this.properties = properties;
+  }
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    Path file = properties.getFile();
+    ImportFormat format = properties.getFormat() != null ? properties.getFormat()
+            : file.getFileName().toString().toLowerCase().endsWith(".csv")
+            ? ImportFormat.CSV : ImportFormat.NDJSON;
+    log.info("Importing accounts from {} as {}", file, format);
+    long started = System.nanoTime();
+    AccountImportResult result;
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      result = importer.importAccounts(reader, format);
+    }
+    log.info("Imported {} of {} accounts from {} in {} ms", result.getCreated(), result.getRead(),
+            file, (System.nanoTime() - started) / 1_000_000);
+    for (AccountImportResult.LineError error : result.getErrors()) {
+      log.warn("Line {}: {}", error.line(), error.message());
+    }
+    if (result.getFailed() > result.getErrors().size()) {
+      log.warn("{} more lines failed", result.getFailed() - result.getErrors().size());
+    }
+  }
+}
@@ -0,0 +1,23 @@
+package com.dws.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.events")
+public class BalanceEventProperties {
+
+  // Number of transfers the event ring holds, a power of two; zero turns
+  // events off. Each takes about 50 bytes of heap.
+  private int capacity = 262_144;
+
+  // How long a consumer that has caught up waits before looking again.
+  private Duration pollInterval = Duration.ofMillis(20);
+
+  private int maxSubscribers = 1_000;
+
+  // Longest time a long-poll request may wait for events.
+  private Duration maxWait = Duration.ofSeconds(30);
+}
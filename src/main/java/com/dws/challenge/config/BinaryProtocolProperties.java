@@ -0,0 +1,19 @@
+package com.dws.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.binary")
+public class BinaryProtocolProperties {
+
+  private boolean enabled;
+
+  // 0 picks a free port.
+  private int port = 18090;
+
+  // Size of the read and write buffers of each connection; responses to
+  // pipelined requests are written out when the write buffer fills up, or
+  // once every request read so far has been answered.
+  private int bufferSize = 64 * 1024;
+}
@@ -0,0 +1,22 @@
+package com.dws.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.idempotency")
+public class IdempotencyProperties {
+
+  // How long the outcome of a transfer is replayed to retries carrying the
+  // same Idempotency-Key.
+  private Duration ttl = Duration.ofHours(24);
+
+  // Estimated heap taken by stored outcomes; the oldest are evicted first
+  // once it is exceeded.
+  private DataSize maxMemory = DataSize.ofMegabytes(64);
+
+  private int maxKeyLength = 255;
+}
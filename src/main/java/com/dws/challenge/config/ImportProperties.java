@@ -0,0 +1,26 @@
+package com.dws.challenge.config;
+
+import com.dws.challenge.service.ImportFormat;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.import")
+public class ImportProperties {
+
+  // File imported at startup, if any; its format is taken from its extension
+  // unless set explicitly.
+  private Path file;
+
+  private ImportFormat format;
+
+  private int parallelism = Runtime.getRuntime().availableProcessors();
+
+  // Accounts are handed to the workers, and journaled, this many at a time.
+  private int chunkSize = 1_024;
+
+  // Lines that fail beyond this many are counted but not listed.
+  private int maxReportedErrors = 1_000;
+}
@@ -0,0 +1,30 @@
+package com.dws.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.journal")
+public class JournalProperties {
+
+  private boolean enabled = false;
+
+  private Path directory = Path.of("journal");
+
+  // Turning this off keeps the journal ordered but lets the OS decide when it
+  // reaches the disk; only meant for tests and benchmarks.
+  private boolean fsync = true;
+
+  private int queueCapacity = 65_536;
+
+  // Upper bound on the number of records written and forced to disk by one
+  // group commit.
+  private int maxBatchSize = 4_096;
+
+  private long segmentSize = 256L * 1024 * 1024;
+
+  private Duration snapshotInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,17 @@
+package com.dws.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.ledger")
+public class LedgerProperties {
+
+  // Entries are kept off-heap in chunks of this many entries, allocated as
+  // the ledger grows.
+  private int chunkEntries = 65_536;
+
+  // Once this many entries are held, the oldest chunk is overwritten. Each
+  // entry takes 48 bytes of direct memory.
+  private long maxEntries = 10_000_000;
+}
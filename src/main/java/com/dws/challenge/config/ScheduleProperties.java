@@ -0,0 +1,47 @@
+package com.dws.challenge.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.schedule")
+public class ScheduleProperties {
+
+  // How often the scheduler looks for transfers that have fallen due. Zero
+  // turns the polling thread off.
+  private Duration pollInterval = Duration.ofMillis(100);
+
+  // Transfers falling due together are executed as batches of this many.
+  private int batchSize = 512;
+
+  // Upper bound on the number of pending schedules, each of which takes
+  // roughly 200 bytes of heap besides its account ids.
+  private int maxSchedules = 10_000_000;
+
+  // Shortest interval a recurring transfer can be scheduled with.
+  private Duration minInterval = Duration.ofSeconds(1);
+
+  // How far in the past a transfer can be scheduled to start, so that a
+  // client whose clock is slightly behind is not turned away.
+  private Duration maxLateness = Duration.ofMinutes(1);
+
+  private final Retry retry = new Retry();
+
+  @Data
+  public static class Retry {
+
+    // Attempts made at an occurrence whose transfer gave up waiting for a
+    // lock, the first one included.
+    private int maxAttempts = 5;
+
+    // Wait before the first retry, multiplied by multiplier for every
+    // further one, up to max-backoff.
+    private Duration initialBackoff = Duration.ofSeconds(1);
+
+    private int multiplier = 2;
+
+    private Duration maxBackoff = Duration.ofMinutes(1);
+  }
+}
@@ -0,0 +1,71 @@
+package com.dws.challenge.config;
+
+import com.dws.challenge.service.LockWaitPolicy;
+import com.dws.challenge.service.TransferMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+@Data
+@ConfigurationProperties(prefix = "accounts.transfer")
+public class TransferProperties {
+
+  private TransferMode mode = TransferMode.LOCKING;
+
+  // Number of single-threaded shards accounts are spread over in the sharded
+  // transfer mode.
+  private int shards = Runtime.getRuntime().availableProcessors();
+
+  private final Batch batch = new Batch();
+
+  private final LockWait lockWait = new LockWait();
+
+  private final Striping striping = new Striping();
+
+  @Data
+  public static class Batch {
+
+    // Per-item batches are executed, and locked, this many transfers at a time.
+    private int chunkSize = 512;
+
+    // All-or-nothing batches lock every account they touch at once, so their
+    // size is capped.
+    private int maxAllOrNothingSize = 10_000;
+  }
+
+  @Data
+  public static class LockWait {
+
+    private LockWaitPolicy policy = LockWaitPolicy.DEADLINE;
+
+    // Longest time a transfer waits for the locks of its accounts, all locks
+    // together.
+    private Duration deadline = Duration.ofSeconds(10);
+
+    // Number of times the spin-then-park policy retries a lock before parking.
+    private int spins = 128;
+
+    // The adaptive policy waits for multiplier times the usual wait for an
+    // account's lock, but never less than min-timeout.
+    private int multiplier = 4;
+
+    private Duration minTimeout = Duration.ofMillis(20);
+
+    // Sent as Retry-After with transfers that gave up waiting for a lock.
+    private Duration retryAfter = Duration.ofSeconds(1);
+  }
+
+  @Data
+  public static class Striping {
+
+    // Accounts whose balance is spread over stripes, so that the many
+    // transfers crediting them do not queue up for their lock.
+    private Set<String> accountIds = new HashSet<>();
+
+    // Must be a power of two.
+    private int stripes = 8;
+  }
+}
@@ -0,0 +1,32 @@
+package com.dws.challenge.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.Executors;
+
+/**
+ * Serves each request, and each async task, on its own virtual thread
+ * instead of a pooled platform thread. A request waiting for a contended
+ * account lock then only parks its virtual thread, so requests for other
+ * accounts are not left queueing for a free worker.
+ */
+@Configuration
+@ConditionalOnProperty(name = "accounts.web.virtual-threads", havingValue = "true")
+public class VirtualThreadsConfig {
+
+  @Bean
+  public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer() {
+    return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+  }
+
+  @Bean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+  public AsyncTaskExecutor applicationTaskExecutor() {
+    return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+  }
+}
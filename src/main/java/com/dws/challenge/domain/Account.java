@@ -7,35 +7,94 @@ import java.math.BigDecimal;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 
-import javax.validation.constraints.Min;
-import javax.validation.constraints.NotEmpty;
-import javax.validation.constraints.NotNull;
-
+// Checked by RequestValidator when the repository creates the account.
 @Data
-@JsonIgnoreProperties({"lock"})
+@JsonIgnoreProperties({"lock", "balanceState", "journalSequence", "snapshotEpoch", "handle"})
 public class Account {
 
-  @NotNull
-  @NotEmpty
   private final String accountId;
 
-  @NotNull
-  @Min(value = 0, message = "Initial balance must be positive.")
-  private BigDecimal balance;
+  private final Balance balance;
+
+  // Locks are always taken in account id order, so the FIFO hand-off of a
+  // fair lock buys nothing but extra context switches.
+  private final Lock lock;
+
+  // Sequence number of the last journal record that touched this account,
+  // guarded by the lock.
+  private long journalSequence;
+
+  // Dense number the repository gives the account when it is created, so
+  // that per-account state elsewhere can be kept in arrays rather than maps
+  // keyed by id; -1 until then.
+  private int handle = -1;
+
+  // Epoch of the last balance snapshot that has a copy of this account's
+  // balance, guarded by the lock.
+  private long snapshotEpoch;
 
-  private final Lock lock = new ReentrantLock(true);
+  // Balance of an account bound from a request, as given, until the
+  // repository has checked it and encodes it; null once encoded.
+  @Getter(AccessLevel.NONE)
+  @Setter(AccessLevel.NONE)
+  private transient BigDecimal requestedBalance;
 
   public Account(String accountId) {
-    this.accountId = accountId;
-    this.balance = BigDecimal.ZERO;
+    this(accountId, new AtomicBalance(BigDecimal.ZERO), new ReentrantLock());
+  }
+
+  public Account(String accountId, BigDecimal balance) {
+    this(accountId, new AtomicBalance(balance), new ReentrantLock());
   }
 
+  // Encoding the balance would reject too many decimal places or a balance
+  // out of range while the body is bound, before the request is validated
+  // and with no field named, so it is left to encodeBalance.
   @JsonCreator
-  public Account(@JsonProperty("accountId") String accountId,
-    @JsonProperty("balance") BigDecimal balance) {
+  public static Account requested(@JsonProperty("accountId") String accountId,
+                                  @JsonProperty("balance") BigDecimal balance) {
+    Account account = new Account(accountId, new AtomicBalance(), new ReentrantLock());
+    account.requestedBalance = balance == null ? BigDecimal.ZERO : balance;
+    return account;
+  }
+
+  // For hot accounts that nearly every transfer credits.
+  public static Account striped(String accountId, BigDecimal balance, int stripes) {
+    return new Account(accountId, new StripedBalance(balance, stripes), new ReentrantLock());
+  }
+
+  // For accounts whose state is kept by the repository rather than in the
+  // account object itself.
+  protected Account(String accountId, Balance balance, Lock lock) {
     this.accountId = accountId;
     this.balance = balance;
+    this.lock = lock;
+  }
+
+  public BigDecimal getBalance() {
+    BigDecimal requested = requestedBalance;
+    return requested != null ? requested : balance.toBigDecimal();
+  }
+
+  public void setBalance(BigDecimal balance) {
+    this.balance.set(AtomicBalance.encode(balance));
+    this.requestedBalance = null;
+  }
+
+  // Called by the repository once the balance has passed validation.
+  public void encodeBalance() {
+    BigDecimal requested = requestedBalance;
+    if (requested != null) {
+      setBalance(requested);
+    }
+  }
+
+  public Balance getBalanceState() {
+    return balance;
   }
 }
@@ -0,0 +1,82 @@
+package com.dws.challenge.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Updated by the import as it goes, so it doubles as its progress report.
+public class AccountImportResult {
+
+  private final int maxReportedErrors;
+
+  private final AtomicLong read = new AtomicLong();
+
+  private final AtomicLong created = new AtomicLong();
+
+  private final AtomicLong failed = new AtomicLong();
+
+  private final AtomicLong notDurable = new AtomicLong();
+
+  private final List<LineError> errors = new ArrayList<>();
+
+  public AccountImportResult(int maxReportedErrors) {
+    this.maxReportedErrors = maxReportedErrors;
+  }
+
+  public void addRead() {
+    read.incrementAndGet();
+  }
+
+  public void addCreated(int count) {
+    created.addAndGet(count);
+  }
+
+  public void addError(long line, String message) {
+    failed.incrementAndGet();
+    report(line, message);
+  }
+
+  // The account was created, but may not survive a restart.
+  public void addNotDurable(long line, String message) {
+    created.incrementAndGet();
+    notDurable.incrementAndGet();
+    report(line, message);
+  }
+
+  public long getRead() {
+    return read.get();
+  }
+
+  public long getCreated() {
+    return created.get();
+  }
+
+  public long getFailed() {
+    return failed.get();
+  }
+
+  public long getNotDurable() {
+    return notDurable.get();
+  }
+
+  public List<LineError> getErrors() {
+    List<LineError> sorted;
+    synchronized (errors) {
+      sorted = new ArrayList<>(errors);
+    }
+    sorted.sort(Comparator.comparingLong(LineError::line));
+    return sorted;
+  }
+
+  private void report(long line, String message) {
+    synchronized (errors) {
+      if (errors.size() < maxReportedErrors) {
+        errors.add(new LineError(line, message));
+      }
+    }
+  }
+
+  public record LineError(long line, String message) {
+  }
+}
@@ -0,0 +1,20 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// One side of a transfer as seen from an account: the amount is negative
+// when the account was debited.
+@Data
+public class AccountTransaction {
+
+  private final long id;
+
+  private final Instant timestamp;
+
+  private final String counterpartyAccountId;
+
+  private final BigDecimal amount;
+}
@@ -0,0 +1,169 @@
+package com.dws.challenge.domain;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Lock-free account balance. The balance is held in a single {@code long} as
+ * a count of minor units (1/10,000) shifted left by three bits, the low bits
+ * carrying the decimal scale the balance is displayed with. Keeping the scale
+ * next to the units lets {@link #toBigDecimal()} reproduce exactly what
+ * {@link BigDecimal#add} and {@link BigDecimal#subtract} would have returned,
+ * and lets a single CAS update both.
+ * <p>
+ * Amounts passed to {@link #credit(long)} and {@link #tryDebit(long)} use the
+ * same encoding (see {@link #encode(BigDecimal)}), so once an amount has been
+ * encoded no further allocation happens on the update path.
+ * <p>
+ * Subclasses may keep the balance elsewhere, off-heap for instance, by
+ * overriding {@link #load()}, {@link #store(long)} and
+ * {@link #compareAndSet(long, long)}, which must all act on a single word.
+ */
+public class AtomicBalance extends Balance {
+
+  public static final int MAX_SCALE = 4;
+
+  private static final int SCALE_BITS = 3;
+
+  private static final long SCALE_MASK = (1L << SCALE_BITS) - 1;
+
+  static final long MAX_UNITS = Long.MAX_VALUE >> SCALE_BITS;
+
+  private static final long MIN_UNITS = Long.MIN_VALUE >> SCALE_BITS;
+
+  // Largest amount a balance can hold.
+  public static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(MAX_UNITS, MAX_SCALE);
+
+  private static final VarHandle STATE;
+
+  static {
+    try {
+      STATE = MethodHandles.lookup().findVarHandle(AtomicBalance.class, "state",
+              long.class);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private volatile long state;
+
+  public AtomicBalance(BigDecimal initialBalance) {
+    this.state = encode(initialBalance == null ? BigDecimal.ZERO : initialBalance);
+  }
+
+  protected AtomicBalance() {
+  }
+
+  public static long encode(BigDecimal value) {
+    int scale = Math.max(value.scale(), 0);
+    if (scale > MAX_SCALE) {
+      throw new IllegalArgumentException("Amount cannot have more than " +
+              MAX_SCALE + " decimal places.");
+    }
+    long units;
+    try {
+      units = value.movePointRight(MAX_SCALE).longValueExact();
+    } catch (ArithmeticException e) {
+      throw new IllegalArgumentException("Amount " + value + " is out of range.");
+    }
+    return pack(units, scale);
+  }
+
+  public static long encode(long units, int scale) {
+    if (scale < 0 || scale > MAX_SCALE) {
+      throw new IllegalArgumentException("Amount cannot have more than " +
+              MAX_SCALE + " decimal places.");
+    }
+    return pack(units, scale);
+  }
+
+  public static BigDecimal decode(long encoded) {
+    return BigDecimal.valueOf(units(encoded), MAX_SCALE)
+            .setScale(scale(encoded), RoundingMode.UNNECESSARY);
+  }
+
+  public static long units(long encoded) {
+    return encoded >> SCALE_BITS;
+  }
+
+  public static int scale(long encoded) {
+    return (int) (encoded & SCALE_MASK);
+  }
+
+  /**
+   * Moves {@code amount} from one balance to the other without taking any
+   * lock. The debit happens first and is the only step that can fail for lack
+   * of funds, so the transfer is all-or-nothing; a concurrent reader may
+   * however observe the amount as debited but not yet credited.
+   */
+  public static boolean transfer(Balance from, Balance to, long amount) {
+    if (!from.tryDebit(amount)) {
+      return false;
+    }
+    try {
+      to.credit(amount);
+    } catch (IllegalArgumentException e) {
+      from.credit(amount);
+      throw e;
+    }
+    return true;
+  }
+
+  @Override
+  public long get() {
+    return load();
+  }
+
+  @Override
+  public void set(long encoded) {
+    store(encoded);
+  }
+
+  @Override
+  public void credit(long amount) {
+    long current;
+    long next;
+    do {
+      current = load();
+      next = add(current, units(amount), scale(amount));
+    } while (!compareAndSet(current, next));
+  }
+
+  @Override
+  public boolean tryDebit(long amount) {
+    long debit = units(amount);
+    long current;
+    do {
+      current = load();
+      if (units(current) < debit) {
+        return false;
+      }
+    } while (!compareAndSet(current, add(current, -debit, scale(amount))));
+    return true;
+  }
+
+  protected long load() {
+    return state;
+  }
+
+  protected void store(long encoded) {
+    state = encoded;
+  }
+
+  protected boolean compareAndSet(long expected, long next) {
+    return STATE.compareAndSet(this, expected, next);
+  }
+
+  private static long pack(long units, int scale) {
+    if (units > MAX_UNITS || units < MIN_UNITS) {
+      throw new IllegalArgumentException("Amount is out of range.");
+    }
+    return (units << SCALE_BITS) | scale;
+  }
+
+  private static long add(long encoded, long units, int scale) {
+    return pack(units(encoded) + units, Math.max(scale(encoded), scale));
+  }
+}
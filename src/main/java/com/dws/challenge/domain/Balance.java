@@ -0,0 +1,43 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Balance of an account, updated without the account lock. Balances and the
+ * amounts they are updated by are encoded as by
+ * {@link AtomicBalance#encode(BigDecimal)}.
+ * <p>
+ * {@link AtomicBalance} holds the balance in a single word, updated with
+ * compare-and-set; {@link StripedBalance} spreads it over stripes for
+ * accounts that nearly every transfer credits, and is never read in one
+ * atomic load.
+ */
+public abstract class Balance {
+
+  public abstract long get();
+
+  // Replaces the balance, as when the account is created or restored.
+  public abstract void set(long encoded);
+
+  public abstract void credit(long amount);
+
+  public abstract boolean tryDebit(long amount);
+
+  // Whether crediting the given units would keep the balance in range.
+  public boolean canCredit(long units) {
+    return units <= AtomicBalance.MAX_UNITS - getUnits();
+  }
+
+  public long getUnits() {
+    return AtomicBalance.units(get());
+  }
+
+  public BigDecimal toBigDecimal() {
+    return AtomicBalance.decode(get());
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toPlainString();
+  }
+}
@@ -0,0 +1,25 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// The change a transfer made to one account: the amount is negative when the
+// account was debited, and balance is the account's balance right after it.
+// Both sides of a transfer share its offset.
+@Data
+public class BalanceChangeEvent {
+
+  private final long offset;
+
+  private final String accountId;
+
+  private final String counterpartyAccountId;
+
+  private final BigDecimal amount;
+
+  private final BigDecimal balance;
+
+  private final Instant timestamp;
+}
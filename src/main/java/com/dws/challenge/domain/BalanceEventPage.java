@@ -0,0 +1,26 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Events are listed oldest first. lastOffset is the offset to read after
+// next time, and missed is the number of transfers that were overwritten in
+// the ring before they could be read; a consumer that misses any should
+// refresh the balances it tracks. Offsets are only comparable within an
+// epoch: reset is set when the offset asked for was of another one, from
+// before a restart, and the page starts from the oldest event instead, so
+// the consumer should refresh its balances as well.
+@Data
+public class BalanceEventPage {
+
+  private final List<BalanceChangeEvent> events;
+
+  private final long lastOffset;
+
+  private final long missed;
+
+  private final long epoch;
+
+  private final boolean reset;
+}
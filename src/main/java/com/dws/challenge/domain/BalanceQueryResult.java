@@ -0,0 +1,32 @@
+package com.dws.challenge.domain;
+
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Balances are listed in the order they were asked for, and ids of accounts
+// that do not exist apart from them.
+@Getter
+public class BalanceQueryResult {
+
+  private final List<AccountBalance> balances;
+
+  private final List<String> unknownAccountIds = new ArrayList<>();
+
+  public BalanceQueryResult(int expectedSize) {
+    this.balances = new ArrayList<>(expectedSize);
+  }
+
+  public void add(String accountId, BigDecimal balance) {
+    balances.add(new AccountBalance(accountId, balance));
+  }
+
+  public void addUnknown(String accountId) {
+    unknownAccountIds.add(accountId);
+  }
+
+  public record AccountBalance(String accountId, BigDecimal balance) {
+  }
+}
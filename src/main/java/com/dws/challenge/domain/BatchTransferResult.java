@@ -0,0 +1,35 @@
+package com.dws.challenge.domain;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Only transfers that did not succeed are listed individually; every other
+// index of the batch succeeded, or was not executed when an all-or-nothing
+// batch was rejected.
+@Getter
+public class BatchTransferResult {
+
+  private int total;
+
+  private int succeeded;
+
+  private final List<ItemStatus> failures = new ArrayList<>();
+
+  public void add(int index, TransferStatus status) {
+    total++;
+    if (status == TransferStatus.OK) {
+      succeeded++;
+    } else {
+      failures.add(new ItemStatus(index, status));
+    }
+  }
+
+  public void addNotExecuted(int count) {
+    total += count;
+  }
+
+  public record ItemStatus(int index, TransferStatus status) {
+  }
+}
@@ -4,24 +4,16 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 
-import javax.validation.constraints.Min;
-import javax.validation.constraints.NotEmpty;
-import javax.validation.constraints.NotNull;
 import java.math.BigDecimal;
 
+// Checked by RequestValidator when the transfer is made.
 @Data
 public class FundTransferRequest {
 
-  @NotNull
-  @NotEmpty
   private final String fromAccountId;
 
-  @NotNull
-  @NotEmpty
   private final String toAccountId;
 
-  @NotNull
-  @Min(value = 0, message = "Transfer amount must be positive.")
   private BigDecimal amount;
 
 //  public MoneyTranferRequest(String fromAccountId, String toAccountId,
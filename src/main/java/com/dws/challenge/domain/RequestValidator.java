@@ -0,0 +1,78 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+
+/**
+ * Checks of transfer and account requests, written out as plain comparisons
+ * rather than declared as bean validation constraints, so that they need no
+ * reflection and allocate nothing unless they fail. Each request is checked
+ * once, here, before any account is looked up, and the first check it fails
+ * is returned; null means the request is valid.
+ */
+public final class RequestValidator {
+
+  private static final String EMPTY_ACCOUNT_ID = "From account id and or to account id " +
+          "cannot be empty.";
+
+  private static final String NOT_POSITIVE = "Amount cannot be less than or equal to zero.";
+
+  private static final String TOO_MANY_DECIMAL_PLACES = "Amount cannot have more than " +
+          AtomicBalance.MAX_SCALE + " decimal places.";
+
+  private RequestValidator() {
+  }
+
+  /**
+   * A transfer whose amount passes can be encoded with
+   * {@link AtomicBalance#encode(BigDecimal)} without failing.
+   */
+  public static ValidationError validateTransfer(String fromAccountId, String toAccountId,
+                                                 BigDecimal amount) {
+    if (fromAccountId == null || fromAccountId.isBlank()) {
+      return new ValidationError(TransferStatus.INVALID_ACCOUNT, "fromAccountId",
+              EMPTY_ACCOUNT_ID);
+    }
+    if (toAccountId == null || toAccountId.isBlank()) {
+      return new ValidationError(TransferStatus.INVALID_ACCOUNT, "toAccountId",
+              EMPTY_ACCOUNT_ID);
+    }
+    if (amount == null || amount.signum() <= 0) {
+      return new ValidationError(TransferStatus.INVALID_AMOUNT, "amount", NOT_POSITIVE);
+    }
+    if (fromAccountId.equals(toAccountId)) {
+      return new ValidationError(TransferStatus.INVALID_ACCOUNT, "toAccountId",
+              "From account id and to account id cannot be the same.");
+    }
+    return validateAmount("amount", amount);
+  }
+
+  /**
+   * An account whose balance passes can have it encoded with
+   * {@link AtomicBalance#encode(BigDecimal)} without failing.
+   */
+  public static ValidationError validateAccount(String accountId, BigDecimal balance) {
+    if (accountId == null || accountId.isEmpty()) {
+      return new ValidationError(TransferStatus.INVALID_ACCOUNT, "accountId",
+              "Account id cannot be null or empty.");
+    }
+    if (balance == null) {
+      return null;
+    }
+    if (balance.signum() < 0) {
+      return new ValidationError(TransferStatus.INVALID_ACCOUNT, "balance",
+              "Account balance cannot be negative.");
+    }
+    return validateAmount("balance", balance);
+  }
+
+  private static ValidationError validateAmount(String field, BigDecimal amount) {
+    if (amount.scale() > AtomicBalance.MAX_SCALE) {
+      return new ValidationError(TransferStatus.INVALID_AMOUNT, field, TOO_MANY_DECIMAL_PLACES);
+    }
+    if (amount.compareTo(AtomicBalance.MAX_AMOUNT) > 0) {
+      return new ValidationError(TransferStatus.INVALID_AMOUNT, field,
+              "Amount " + amount + " is out of range.");
+    }
+    return null;
+  }
+}
@@ -0,0 +1,43 @@
+package com.dws.challenge.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+// A transfer to execute at executeAt, or right away when it is null. With an
+// interval it is repeated every interval, occurrences times in all or until
+// cancelled when occurrences is null.
+@Data
+public class ScheduleRequest {
+
+  private final String fromAccountId;
+
+  private final String toAccountId;
+
+  private final BigDecimal amount;
+
+  private final Instant executeAt;
+
+  private final Duration interval;
+
+  private final Integer occurrences;
+
+  @JsonCreator
+  public ScheduleRequest(@JsonProperty("fromAccountId") String fromAccountId,
+                         @JsonProperty("toAccountId") String toAccountId,
+                         @JsonProperty("amount") BigDecimal amount,
+                         @JsonProperty("executeAt") Instant executeAt,
+                         @JsonProperty("interval") Duration interval,
+                         @JsonProperty("occurrences") Integer occurrences) {
+    this.fromAccountId = fromAccountId;
+    this.toAccountId = toAccountId;
+    this.amount = amount;
+    this.executeAt = executeAt;
+    this.interval = interval;
+    this.occurrences = occurrences;
+  }
+}
@@ -0,0 +1,37 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+
+// State of a pending schedule. remainingOccurrences is null for a recurring
+// transfer that runs until cancelled, and lastStatus is null until the first
+// attempt. missedOccurrences counts the occurrences skipped because they had
+// long fallen due by the time the scheduler got to them.
+@Data
+public class ScheduledTransfer {
+
+  private final long id;
+
+  private final String fromAccountId;
+
+  private final String toAccountId;
+
+  private final BigDecimal amount;
+
+  private final Duration interval;
+
+  private final Integer remainingOccurrences;
+
+  private final Instant nextExecution;
+
+  private final long executions;
+
+  private final long missedOccurrences;
+
+  private final int attempts;
+
+  private final TransferStatus lastStatus;
+}
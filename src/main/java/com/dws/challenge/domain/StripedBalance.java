@@ -0,0 +1,132 @@
+package com.dws.challenge.domain;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Balance of a hot account, spread over a number of stripes, each holding
+ * part of it in the encoding of {@link AtomicBalance}. A credit goes to the
+ * stripe of the calling thread, or the next one if that stripe is being
+ * updated, so that credits from many threads do not contend with each other.
+ * A debit takes what it can from each stripe in turn until it has the whole
+ * amount; debits are taken one at a time.
+ * <p>
+ * The balance is the sum of the stripes, read one after the other, so a read
+ * racing a debit may see part of the debit taken and part not yet. The scale
+ * is the largest scale of the stripes, which is what a single balance would
+ * have been left with by the same updates. Having no single word to
+ * compare-and-set, it is a {@link Balance} but not an {@link AtomicBalance}.
+ */
+public class StripedBalance extends Balance {
+
+  // Stripes are a cache line apart, so that credits to different stripes do
+  // not keep taking the same line from one another.
+  private static final int SPACING = 8;
+
+  private final AtomicLongArray stripes;
+
+  private final int mask;
+
+  private final Lock debitLock = new ReentrantLock();
+
+  public StripedBalance(BigDecimal initialBalance, int stripes) {
+    if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+      throw new IllegalArgumentException("The number of stripes must be a power of two.");
+    }
+    this.stripes = new AtomicLongArray(stripes * SPACING);
+    this.mask = stripes - 1;
+    this.stripes.set(0, AtomicBalance.encode(initialBalance == null
+            ? BigDecimal.ZERO : initialBalance));
+  }
+
+  public int getStripes() {
+    return mask + 1;
+  }
+
+  // Only checks the sum for range when it is read, as a credit only sees its
+  // own stripe.
+  @Override
+  public void credit(long amount) {
+    int stripe = stripe();
+    for (;;) {
+      int index = stripe * SPACING;
+      long current = stripes.get(index);
+      if (stripes.compareAndSet(index, current, add(current, AtomicBalance.units(amount),
+              AtomicBalance.scale(amount)))) {
+        return;
+      }
+      stripe = (stripe + 1) & mask;
+    }
+  }
+
+  @Override
+  public boolean tryDebit(long amount) {
+    long debit = AtomicBalance.units(amount);
+    debitLock.lock();
+    try {
+      if (AtomicBalance.units(get()) < debit) {
+        return false;
+      }
+      // Credits only ever add to the stripes and no other debit runs
+      // meanwhile, so the funds just counted are all still there.
+      int stripe = stripe();
+      long remaining = debit;
+      do {
+        int index = stripe * SPACING;
+        long current;
+        long taken;
+        do {
+          current = stripes.get(index);
+          taken = Math.min(Math.max(AtomicBalance.units(current), 0), remaining);
+        } while (!stripes.compareAndSet(index, current,
+                add(current, -taken, AtomicBalance.scale(amount))));
+        remaining -= taken;
+        stripe = (stripe + 1) & mask;
+      } while (remaining > 0);
+      return true;
+    } finally {
+      debitLock.unlock();
+    }
+  }
+
+  @Override
+  public long get() {
+    long units = 0;
+    int scale = 0;
+    for (int i = 0; i <= mask; i++) {
+      long stripe = stripes.get(i * SPACING);
+      units += AtomicBalance.units(stripe);
+      scale = Math.max(scale, AtomicBalance.scale(stripe));
+    }
+    return AtomicBalance.encode(units, scale);
+  }
+
+  // Debits are held off meanwhile. A credit racing the reset of its stripe is
+  // either overwritten, as if it came before, or kept, as if it came after.
+  @Override
+  public void set(long encoded) {
+    debitLock.lock();
+    try {
+      stripes.set(0, encoded);
+      for (int i = 1; i <= mask; i++) {
+        stripes.set(i * SPACING, 0);
+      }
+    } finally {
+      debitLock.unlock();
+    }
+  }
+
+  // Threads keep to the same stripe, so the stripe of a thread that mostly
+  // credits stays in its core's cache.
+  private int stripe() {
+    long id = Thread.currentThread().threadId();
+    return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+  }
+
+  private static long add(long encoded, long units, int scale) {
+    return AtomicBalance.encode(AtomicBalance.units(encoded) + units,
+            Math.max(AtomicBalance.scale(encoded), scale));
+  }
+}
@@ -0,0 +1,14 @@
+package com.dws.challenge.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Transactions are listed newest first. nextCursor is null on the last page.
+@Data
+public class TransactionPage {
+
+  private final List<AccountTransaction> transactions;
+
+  private final Long nextCursor;
+}
@@ -0,0 +1,15 @@
+package com.dws.challenge.domain;
+
+// The binary protocol sends statuses as their ordinal, so new ones go last.
+public enum TransferStatus {
+  OK,
+  MALFORMED,
+  INVALID_ACCOUNT,
+  INVALID_AMOUNT,
+  UNKNOWN_ACCOUNT,
+  INSUFFICIENT_FUNDS,
+  TIMED_OUT,
+  BUSY,
+  // Applied, but not journaled, so it may not survive a restart.
+  NOT_DURABLE
+}
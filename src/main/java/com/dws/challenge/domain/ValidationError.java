@@ -0,0 +1,16 @@
+package com.dws.challenge.domain;
+
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.exception.InvalidAmountException;
+
+/**
+ * The first check a request failed: the status it is reported with in
+ * batches, the request field at fault and a message for the client.
+ */
+public record ValidationError(TransferStatus status, String field, String message) {
+
+  public RuntimeException toException() {
+    return status == TransferStatus.INVALID_AMOUNT
+            ? new InvalidAmountException(this) : new InvalidAccountException(this);
+  }
+}
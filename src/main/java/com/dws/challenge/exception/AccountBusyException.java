@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class AccountBusyException extends RuntimeException {
+
+  public AccountBusyException(String message) {
+    super(message);
+  }
+}
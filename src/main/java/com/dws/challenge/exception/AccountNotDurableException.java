@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class AccountNotDurableException extends RuntimeException {
+
+  public AccountNotDurableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class AccountStoreFullException extends RuntimeException {
+
+  public AccountStoreFullException(String message) {
+    super(message);
+  }
+}
@@ -1,8 +1,24 @@
 package com.dws.challenge.exception;
 
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.domain.ValidationError;
+
 public class InvalidAmountException extends RuntimeException {
 
+  private final ValidationError error;
+
   public InvalidAmountException(String message) {
-    super(message);
+    this(new ValidationError(TransferStatus.INVALID_AMOUNT, null, message));
+  }
+
+  public InvalidAmountException(ValidationError error) {
+    super(error.message());
+    this.error = error;
+  }
+
+  // What is reported to clients; the field is null unless the exception
+  // comes from a request check.
+  public ValidationError getError() {
+    return error;
   }
 }
@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class InvalidBatchException extends RuntimeException {
+
+  public InvalidBatchException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class SnapshotUnavailableException extends RuntimeException {
+
+  public SnapshotUnavailableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,8 @@
+package com.dws.challenge.exception;
+
+public class TransferNotDurableException extends RuntimeException {
+
+  public TransferNotDurableException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,123 @@
+package com.dws.challenge.loadgen;
+
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.service.AccountsService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+
+// Calls the HTTP API of a running server, one request per operation.
+public class HttpLoadTarget implements LoadTarget {
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  // Balances are read as BigDecimal, not double, so that the total is exact.
+  private final ObjectMapper objectMapper = new ObjectMapper()
+          .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+  private final URI accounts;
+
+  public HttpLoadTarget(String host, int port) {
+    this.accounts = URI.create("http://" + host + ":" + port + "/v1/accounts");
+  }
+
+  // Through the import endpoint, a single request for all the accounts.
+  @Override
+  public void createAccounts(Map<String, BigDecimal> accounts) throws IOException {
+    StringBuilder lines = new StringBuilder();
+    for (Map.Entry<String, BigDecimal> account : accounts.entrySet()) {
+      lines.append(objectMapper.writeValueAsString(Map.of("accountId", account.getKey(),
+              "balance", account.getValue()))).append('\n');
+    }
+    HttpResponse<String> response = send(HttpRequest.newBuilder(resolve("/import"))
+            .header("Content-Type", "application/x-ndjson")
+            .POST(HttpRequest.BodyPublishers.ofString(lines.toString())).build());
+    JsonNode result = objectMapper.readTree(response.body());
+    if (response.statusCode() != 200 || result.path("failed").asLong() != 0) {
+      throw new IOException("Accounts were not all created: " + response.body());
+    }
+  }
+
+  @Override
+  public TransferStatus transfer(String fromAccountId, String toAccountId, BigDecimal amount)
+          throws IOException {
+    HttpResponse<String> response = send(post("/transferFunds",
+            new FundTransferRequest(fromAccountId, toAccountId, amount)));
+    return switch (response.statusCode()) {
+      case 200 -> TransferStatus.OK;
+      case 429 -> TransferStatus.BUSY;
+      case 503 -> TransferStatus.TIMED_OUT;
+      default -> {
+        if (response.statusCode() == 400
+                && response.body().equals(AccountsService.INSUFFICIENT_FUNDS_MESSAGE)) {
+          yield TransferStatus.INSUFFICIENT_FUNDS;
+        }
+        throw new IOException("Transfer failed with " + response.statusCode() + ": " +
+                response.body());
+      }
+    };
+  }
+
+  @Override
+  public BigDecimal getBalance(String accountId) throws IOException {
+    HttpResponse<String> response = send(HttpRequest.newBuilder(resolve("/" + accountId))
+            .GET().build());
+    if (response.statusCode() != 200 || response.body().isEmpty()) {
+      throw new IOException("Account " + accountId + " could not be read: " +
+              response.statusCode());
+    }
+    return objectMapper.readTree(response.body()).path("balance").decimalValue();
+  }
+
+  @Override
+  public BigDecimal getTotalBalance(List<String> accountIds) throws IOException {
+    BigDecimal total = BigDecimal.ZERO;
+    for (int from = 0; from < accountIds.size(); from += AccountsService.MAX_BALANCE_QUERY_SIZE) {
+      HttpResponse<String> response = send(post("/balances", accountIds.subList(from,
+              Math.min(accountIds.size(), from + AccountsService.MAX_BALANCE_QUERY_SIZE))));
+      JsonNode result = objectMapper.readTree(response.body());
+      if (response.statusCode() != 200 || !result.path("unknownAccountIds").isEmpty()) {
+        throw new IOException("Balances could not all be read: " + response.body());
+      }
+      for (JsonNode balance : result.path("balances")) {
+        total = total.add(balance.path("balance").decimalValue());
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public void close() {
+    client.close();
+  }
+
+  private URI resolve(String path) {
+    return URI.create(accounts + path);
+  }
+
+  private HttpRequest post(String path, Object body) throws IOException {
+    return HttpRequest.newBuilder(resolve(path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+            .build();
+  }
+
+  private HttpResponse<String> send(HttpRequest request) throws IOException {
+    try {
+      return client.send(request, HttpResponse.BodyHandlers.ofString());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while waiting for " + request.uri(), e);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package com.dws.challenge.loadgen;
+
+/**
+ * Histogram of latencies in nanoseconds, with buckets 1/16 of a power of two
+ * wide, so a percentile is off by less than 7% of its value. Not thread-safe:
+ * each thread of a run records into a histogram of its own, and the
+ * histograms are merged at the end.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  // Values below 2 * SUB_BUCKETS have a bucket each; every power of two
+  // above has SUB_BUCKETS of them.
+  private final long[] counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+
+  private long total;
+
+  private long max;
+
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    counts[index(value)]++;
+    total++;
+    max = Math.max(max, value);
+  }
+
+  public void add(LatencyHistogram other) {
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += other.counts[i];
+    }
+    total += other.total;
+    max = Math.max(max, other.max);
+  }
+
+  public long getCount() {
+    return total;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  /**
+   * Returns the latency that {@code percentile} percent of the recorded
+   * latencies do not exceed, rounded up to the top of its bucket.
+   */
+  public long getPercentile(double percentile) {
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(highestValue(i), max);
+      }
+    }
+    return max;
+  }
+
+  private static int index(long value) {
+    int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1);
+    return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+  }
+
+  private static long highestValue(int index) {
+    int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+    long bucket = index - ((long) shift << SUB_BUCKET_BITS);
+    return ((bucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,191 @@
+package com.dws.challenge.loadgen;
+
+import com.dws.challenge.domain.TransferStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.bind.BindHandler;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.bind.handler.NoUnboundElementsBindHandler;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Runs a generated or recorded {@link Scenario} against an in-process
+ * service or a running server, and reports throughput, latency percentiles
+ * and whether money was conserved. Options are given as
+ * {@code --name=value}, named as the properties of {@link LoadOptions} in
+ * kebab case, for example
+ * <pre>
+ *   ./gradlew loadgen --args='--accounts=10000 --skew=1.1 --read-ratio=0.2 --threads=32'
+ * </pre>
+ * The process exits with status 1 if money was not conserved.
+ */
+@Slf4j
+public final class LoadGenerator {
+
+  private LoadGenerator() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    LoadOptions options = parse(args);
+    LoadReport report;
+    try (LoadTarget target = options.getTarget() == LoadTarget.Kind.HTTP
+            ? new HttpLoadTarget(options.getHost(), options.getPort())
+            : new ServiceLoadTarget(options.getMode())) {
+      report = run(options, target);
+    }
+    System.out.print(report);
+    if (!report.isMoneyConserved()) {
+      System.exit(1);
+    }
+  }
+
+  public static LoadOptions parse(String... args) {
+    Map<String, String> properties = new HashMap<>();
+    for (String arg : args) {
+      int separator = arg.indexOf('=');
+      if (!arg.startsWith("--") || separator < 0) {
+        throw new IllegalArgumentException("Options are given as --name=value, not " + arg);
+      }
+      properties.put("loadgen." + arg.substring(2, separator), arg.substring(separator + 1));
+    }
+    LoadOptions options = new LoadOptions();
+    new Binder(new MapConfigurationPropertySource(properties)).bind("loadgen",
+            Bindable.ofInstance(options), new NoUnboundElementsBindHandler(BindHandler.DEFAULT));
+    return options;
+  }
+
+  /**
+   * Creates the accounts of the scenario on the target, runs its operations
+   * from {@code threads} threads started at once, and checks the total
+   * balance of the accounts once they are all done.
+   */
+  public static LoadReport run(LoadOptions options, LoadTarget target)
+          throws IOException, InterruptedException {
+    if (options.getThreads() < 1) {
+      throw new IllegalArgumentException("A load run needs at least one thread.");
+    }
+    Scenario scenario = options.getReplay() != null
+            ? Scenario.read(Path.of(options.getReplay())) : Scenario.generate(options);
+    if (options.getRecord() != null) {
+      scenario.write(Path.of(options.getRecord()));
+    }
+    target.createAccounts(scenario.getAccounts());
+
+    CountDownLatch start = new CountDownLatch(1);
+    Thread.Builder builder = options.isVirtualThreads()
+            ? Thread.ofVirtual().name("loadgen-", 0) : Thread.ofPlatform().name("loadgen-", 0);
+    Worker[] workers = new Worker[options.getThreads()];
+    Thread[] threads = new Thread[workers.length];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new Worker(target, scenario.getOperations(), i, workers.length, start);
+      threads[i] = builder.start(workers[i]);
+    }
+    long started = System.nanoTime();
+    start.countDown();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    long elapsedNanos = System.nanoTime() - started;
+
+    LatencyHistogram latencies = new LatencyHistogram();
+    long[] statuses = new long[TransferStatus.values().length];
+    long reads = 0;
+    long errors = 0;
+    Exception firstError = null;
+    for (Worker worker : workers) {
+      latencies.add(worker.latencies);
+      for (int i = 0; i < statuses.length; i++) {
+        statuses[i] += worker.statuses[i];
+      }
+      reads += worker.reads;
+      errors += worker.errors;
+      firstError = firstError == null ? worker.firstError : firstError;
+    }
+    if (firstError != null) {
+      log.warn("{} operations failed, the first one with", errors, firstError);
+    }
+    Map<TransferStatus, Long> transfers = new EnumMap<>(TransferStatus.class);
+    for (TransferStatus status : TransferStatus.values()) {
+      if (statuses[status.ordinal()] > 0) {
+        transfers.put(status, statuses[status.ordinal()]);
+      }
+    }
+    BigDecimal actualTotal = target.getTotalBalance(
+            new ArrayList<>(scenario.getAccounts().keySet()));
+    return new LoadReport(elapsedNanos, transfers, reads, errors, latencies,
+            scenario.getTotalBalance(), actualTotal);
+  }
+
+  // Executes every stride-th operation of the scenario, starting at index,
+  // and keeps its own counts so that threads share nothing while measured.
+  private static final class Worker implements Runnable {
+
+    private final LoadTarget target;
+
+    private final List<Operation> operations;
+
+    private final int index;
+
+    private final int stride;
+
+    private final CountDownLatch start;
+
+    private final LatencyHistogram latencies = new LatencyHistogram();
+
+    private final long[] statuses = new long[TransferStatus.values().length];
+
+    private long reads;
+
+    private long errors;
+
+    private Exception firstError;
+
+    private Worker(LoadTarget target, List<Operation> operations, int index, int stride,
+                   CountDownLatch start) {
+      this.target = target;
+      this.operations = operations;
+      this.index = index;
+      this.stride = stride;
+      this.start = start;
+    }
+
+    @Override
+    public void run() {
+      try {
+        start.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      for (int i = index; i < operations.size(); i += stride) {
+        Operation operation = operations.get(i);
+        long began = System.nanoTime();
+        try {
+          if (operation.isRead()) {
+            target.getBalance(operation.accountId());
+            reads++;
+          } else {
+            statuses[target.transfer(operation.accountId(), operation.toAccountId(),
+                    operation.amount()).ordinal()]++;
+          }
+        } catch (IOException | RuntimeException e) {
+          errors++;
+          if (firstError == null) {
+            firstError = e;
+          }
+        }
+        latencies.record(System.nanoTime() - began);
+      }
+    }
+  }
+}
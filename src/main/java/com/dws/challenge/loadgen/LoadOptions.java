@@ -0,0 +1,55 @@
+package com.dws.challenge.loadgen;
+
+import com.dws.challenge.service.TransferMode;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+// Bound from --kebab-case=value arguments of the load generator.
+@Data
+public class LoadOptions {
+
+  // Where to send the load: straight to an in-process AccountsService, or to
+  // the HTTP API of a running server.
+  private LoadTarget.Kind target = LoadTarget.Kind.SERVICE;
+
+  private String host = "localhost";
+
+  private int port = 18080;
+
+  // Transfer mode of the in-process service.
+  private TransferMode mode = TransferMode.LOCKING;
+
+  private int accounts = 1000;
+
+  // Account ids are the prefix followed by a number, so that runs against a
+  // server do not clash with its other accounts or with each other.
+  private String accountPrefix = "Load-";
+
+  private BigDecimal initialBalance = new BigDecimal("1000");
+
+  // Zipf exponent of the accounts transfers pick; 0 picks them uniformly.
+  private double skew;
+
+  // Share of the operations that read a balance rather than transfer.
+  private double readRatio;
+
+  // Transfer amounts are picked uniformly from 0.01 up to this.
+  private BigDecimal maxAmount = BigDecimal.TEN;
+
+  private int operations = 100_000;
+
+  private int threads = 8;
+
+  private boolean virtualThreads;
+
+  // The same seed generates the same operations.
+  private long seed = 1;
+
+  // Writes the accounts and operations of the run to this trace file.
+  private String record;
+
+  // Runs the accounts and operations of this trace file instead of
+  // generating them.
+  private String replay;
+}
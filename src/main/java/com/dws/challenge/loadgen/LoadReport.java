@@ -0,0 +1,75 @@
+package com.dws.challenge.loadgen;
+
+import com.dws.challenge.domain.TransferStatus;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Outcome of a load run, printed by the load generator when it is done.
+@Getter
+public class LoadReport {
+
+  private final long elapsedNanos;
+
+  private final Map<TransferStatus, Long> transfers;
+
+  private final long reads;
+
+  // Operations that failed with an error rather than with a status.
+  private final long errors;
+
+  private final LatencyHistogram latencies;
+
+  private final BigDecimal expectedTotal;
+
+  private final BigDecimal actualTotal;
+
+  public LoadReport(long elapsedNanos, Map<TransferStatus, Long> transfers, long reads,
+                    long errors, LatencyHistogram latencies, BigDecimal expectedTotal,
+                    BigDecimal actualTotal) {
+    this.elapsedNanos = elapsedNanos;
+    this.transfers = new EnumMap<>(transfers);
+    this.reads = reads;
+    this.errors = errors;
+    this.latencies = latencies;
+    this.expectedTotal = expectedTotal;
+    this.actualTotal = actualTotal;
+  }
+
+  public long getOperations() {
+    return latencies.getCount();
+  }
+
+  public double getThroughput() {
+    return elapsedNanos == 0 ? 0 : getOperations() * 1e9 / elapsedNanos;
+  }
+
+  // Transfers move money between the accounts of the run and never create
+  // or destroy any, whatever their outcome.
+  public boolean isMoneyConserved() {
+    return expectedTotal.compareTo(actualTotal) == 0;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder report = new StringBuilder();
+    report.append(String.format("%d operations in %d ms, %.0f/s%n", getOperations(),
+            TimeUnit.NANOSECONDS.toMillis(elapsedNanos), getThroughput()));
+    report.append(String.format("transfers %s, reads %d, errors %d%n", transfers, reads,
+            errors));
+    report.append(String.format("latency us p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, " +
+                    "max %.1f%n", micros(50), micros(90), micros(99), micros(99.9),
+            latencies.getMax() / 1e3));
+    report.append(String.format("total balance %s, expected %s: %s%n",
+            actualTotal.toPlainString(), expectedTotal.toPlainString(),
+            isMoneyConserved() ? "conserved" : "NOT CONSERVED"));
+    return report.toString();
+  }
+
+  private double micros(double percentile) {
+    return latencies.getPercentile(percentile) / 1e3;
+  }
+}
@@ -0,0 +1,34 @@
+package com.dws.challenge.loadgen;
+
+import com.dws.challenge.domain.TransferStatus;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What a load run drives. Calls come from all the threads of the run at
+ * once.
+ */
+public interface LoadTarget extends AutoCloseable {
+
+  enum Kind {
+    SERVICE,
+    HTTP
+  }
+
+  // Fails unless every account was created.
+  void createAccounts(Map<String, BigDecimal> accounts) throws IOException;
+
+  TransferStatus transfer(String fromAccountId, String toAccountId, BigDecimal amount)
+          throws IOException;
+
+  BigDecimal getBalance(String accountId) throws IOException;
+
+  // Sum of the balances of the given accounts, which must all exist.
+  BigDecimal getTotalBalance(List<String> accountIds) throws IOException;
+
+  @Override
+  void close() throws IOException, InterruptedException;
+}
@@ -0,0 +1,45 @@
+package com.dws.challenge.loadgen;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * A transfer or a balance read of a load run, as written in a trace file:
+ * <pre>
+ *   transfer &lt;fromAccountId&gt; &lt;toAccountId&gt; &lt;amount&gt;
+ *   read &lt;accountId&gt;
+ * </pre>
+ */
+public record Operation(String accountId, String toAccountId, BigDecimal amount) {
+
+  static final String TRANSFER = "transfer";
+
+  static final String READ = "read";
+
+  public static Operation transfer(String fromAccountId, String toAccountId,
+                                   BigDecimal amount) {
+    return new Operation(fromAccountId, toAccountId, amount);
+  }
+
+  public static Operation read(String accountId) {
+    return new Operation(accountId, null, null);
+  }
+
+  public boolean isRead() {
+    return toAccountId == null;
+  }
+
+  static Operation parse(String[] fields) throws IOException {
+    if (fields[0].equals(TRANSFER) && fields.length == 4) {
+      return transfer(fields[1], fields[2], new BigDecimal(fields[3]));
+    } else if (fields[0].equals(READ) && fields.length == 2) {
+      return read(fields[1]);
+    }
+    throw new IOException("Not an operation: " + String.join(" ", fields));
+  }
+
+  String format() {
+    return isRead() ? READ + " " + accountId
+            : TRANSFER + " " + accountId + " " + toAccountId + " " + amount.toPlainString();
+  }
+}
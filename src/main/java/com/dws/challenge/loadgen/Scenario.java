@@ -0,0 +1,124 @@
+package com.dws.challenge.loadgen;
+
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * The accounts a load run starts with and the operations it executes, in
+ * order. With n threads, thread t executes operations t, t + n, t + 2n and so
+ * on, so a scenario replayed with the same number of threads gives every
+ * thread the very same operations in the very same order.
+ * <p>
+ * A trace file holds a scenario as lines of text, the accounts first:
+ * <pre>
+ *   account &lt;accountId&gt; &lt;balance&gt;
+ * </pre>
+ * followed by the operations as written by {@link Operation}. Blank lines and
+ * lines starting with {@code #} are skipped.
+ */
+@Getter
+public class Scenario {
+
+  private static final String ACCOUNT = "account";
+
+  private final Map<String, BigDecimal> accounts;
+
+  private final List<Operation> operations;
+
+  public Scenario(Map<String, BigDecimal> accounts, List<Operation> operations) {
+    this.accounts = accounts;
+    this.operations = operations;
+  }
+
+  public static Scenario generate(LoadOptions options) {
+    if (options.getAccounts() < 2) {
+      throw new IllegalArgumentException("Transfers need at least two accounts.");
+    }
+    Map<String, BigDecimal> accounts = new LinkedHashMap<>();
+    String[] accountIds = new String[options.getAccounts()];
+    for (int i = 0; i < accountIds.length; i++) {
+      accountIds[i] = options.getAccountPrefix() + i;
+      accounts.put(accountIds[i], options.getInitialBalance());
+    }
+
+    SplittableRandom random = new SplittableRandom(options.getSeed());
+    ZipfDistribution zipf = new ZipfDistribution(accountIds.length, options.getSkew());
+    long maxCents = options.getMaxAmount().movePointRight(2).longValue();
+    if (maxCents < 1) {
+      throw new IllegalArgumentException("The maximum amount must be at least 0.01.");
+    }
+    List<Operation> operations = new ArrayList<>(options.getOperations());
+    for (int i = 0; i < options.getOperations(); i++) {
+      String accountId = accountIds[zipf.next(random)];
+      if (random.nextDouble() < options.getReadRatio()) {
+        operations.add(Operation.read(accountId));
+        continue;
+      }
+      String toAccountId;
+      do {
+        toAccountId = accountIds[zipf.next(random)];
+      } while (toAccountId.equals(accountId));
+      BigDecimal amount = BigDecimal.valueOf(random.nextLong(maxCents) + 1, 2);
+      operations.add(Operation.transfer(accountId, toAccountId, amount));
+    }
+    return new Scenario(accounts, operations);
+  }
+
+  public static Scenario read(Path path) throws IOException {
+    Map<String, BigDecimal> accounts = new LinkedHashMap<>();
+    List<Operation> operations = new ArrayList<>();
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      String line;
+      int lineNumber = 0;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        line = line.strip();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        String[] fields = line.split("\\s+");
+        try {
+          if (fields[0].equals(ACCOUNT) && fields.length == 3) {
+            accounts.put(fields[1], new BigDecimal(fields[2]));
+          } else {
+            operations.add(Operation.parse(fields));
+          }
+        } catch (IOException | NumberFormatException e) {
+          throw new IOException("Invalid trace line " + lineNumber + " of " + path + ": " +
+                  line, e);
+        }
+      }
+    }
+    return new Scenario(accounts, operations);
+  }
+
+  public void write(Path path) throws IOException {
+    try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+      for (Map.Entry<String, BigDecimal> account : accounts.entrySet()) {
+        writer.write(ACCOUNT + " " + account.getKey() + " " +
+                account.getValue().toPlainString());
+        writer.newLine();
+      }
+      for (Operation operation : operations) {
+        writer.write(operation.format());
+        writer.newLine();
+      }
+    }
+  }
+
+  public BigDecimal getTotalBalance() {
+    return accounts.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+  }
+}
@@ -0,0 +1,95 @@
+package com.dws.challenge.loadgen;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BalanceQueryResult;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+// Calls an AccountsService in the same process, which takes the network and
+// the web layer out of the measurements.
+public class ServiceLoadTarget implements LoadTarget {
+
+  private final AccountsService service;
+
+  // Only set if the service was created here, and is to be shut down here.
+  private final TransferNotificationDispatcher dispatcher;
+
+  public ServiceLoadTarget(AccountsService service) {
+    this.service = service;
+    this.dispatcher = null;
+  }
+
+  // A service of its own, on an in-memory store, with neither journal nor
+  // metrics.
+  public ServiceLoadTarget(TransferMode mode) {
+    TransferProperties properties = new TransferProperties();
+    properties.setMode(mode);
+    // Notifications are dropped once the queue is full, so they never hold
+    // the transfers back.
+    this.dispatcher = new TransferNotificationDispatcher((account, description) -> { },
+            1, 1 << 16, 1024, 0);
+    this.service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            properties, new NoOpTransactionJournal(), new TransactionLedger(new LedgerProperties()),
+            TransferMetrics.disabled());
+  }
+
+  @Override
+  public void createAccounts(Map<String, BigDecimal> accounts) {
+    List<Account> created = new ArrayList<>(accounts.size());
+    accounts.forEach((accountId, balance) -> created.add(new Account(accountId, balance)));
+    String[] errors = service.createAccounts(created);
+    for (int i = 0; i < errors.length; i++) {
+      if (errors[i] != null) {
+        throw new IllegalStateException("Account " + created.get(i).getAccountId() +
+                " was not created: " + errors[i]);
+      }
+    }
+  }
+
+  @Override
+  public TransferStatus transfer(String fromAccountId, String toAccountId, BigDecimal amount) {
+    return service.tryTransfer(fromAccountId, toAccountId, amount);
+  }
+
+  @Override
+  public BigDecimal getBalance(String accountId) {
+    return service.getAccount(accountId).getBalance();
+  }
+
+  @Override
+  public BigDecimal getTotalBalance(List<String> accountIds) {
+    BigDecimal total = BigDecimal.ZERO;
+    for (int from = 0; from < accountIds.size(); from += AccountsService.MAX_BALANCE_QUERY_SIZE) {
+      BalanceQueryResult result = service.getBalances(accountIds.subList(from,
+              Math.min(accountIds.size(), from + AccountsService.MAX_BALANCE_QUERY_SIZE)));
+      if (!result.getUnknownAccountIds().isEmpty()) {
+        throw new IllegalStateException("Unknown accounts " + result.getUnknownAccountIds());
+      }
+      for (BalanceQueryResult.AccountBalance balance : result.getBalances()) {
+        total = total.add(balance.balance());
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public void close() throws InterruptedException {
+    if (dispatcher != null) {
+      service.shutdown();
+      dispatcher.shutdown();
+    }
+  }
+}
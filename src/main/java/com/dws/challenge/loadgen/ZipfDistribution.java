@@ -0,0 +1,36 @@
+package com.dws.challenge.loadgen;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
+
+// Samples ranks 0..n-1 with probability proportional to 1 / (rank + 1)^s,
+// so rank 0 is the hottest account. An exponent of 0 samples uniformly.
+public final class ZipfDistribution {
+
+  private final double[] cumulative;
+
+  public ZipfDistribution(int n, double exponent) {
+    cumulative = new double[n];
+    double sum = 0;
+    for (int i = 0; i < n; i++) {
+      sum += 1.0 / Math.pow(i + 1, exponent);
+      cumulative[i] = sum;
+    }
+    for (int i = 0; i < n; i++) {
+      cumulative[i] /= sum;
+    }
+  }
+
+  public int next() {
+    return next(ThreadLocalRandom.current());
+  }
+
+  // The same sequence of ranks for the same sequence of the generator.
+  public int next(RandomGenerator random) {
+    double u = random.nextDouble();
+    int index = Arrays.binarySearch(cumulative, u);
+    int rank = index >= 0 ? index : -index - 1;
+    return Math.min(rank, cumulative.length - 1);
+  }
+}
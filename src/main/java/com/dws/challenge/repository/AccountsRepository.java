@@ -3,11 +3,25 @@ package com.dws.challenge.repository;
 import com.dws.challenge.domain.Account;
 import com.dws.challenge.exception.DuplicateAccountIdException;
 
+import java.util.function.Consumer;
+
 public interface AccountsRepository {
 
+  // Also gives the account its handle.
   void createAccount(Account account) throws DuplicateAccountIdException;
 
+  /**
+   * Same as {@link #createAccount}, but returns the account as it is kept,
+   * which is not always the instance passed in, with its lock already held
+   * by the calling thread: nothing can update the account before the caller
+   * unlocks it.
+   */
+  Account createLockedAccount(Account account) throws DuplicateAccountIdException;
+
   Account getAccount(String accountId);
 
+  // Weakly consistent: accounts created while iterating may or may not be seen.
+  void forEachAccount(Consumer<Account> action);
+
   void clearAccounts();
 }
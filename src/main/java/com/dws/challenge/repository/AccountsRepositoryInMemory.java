@@ -1,34 +1,63 @@
 package com.dws.challenge.repository;
 
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.RequestValidator;
+import com.dws.challenge.domain.ValidationError;
 import com.dws.challenge.exception.DuplicateAccountIdException;
-import com.dws.challenge.exception.InvalidAccountException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Repository
+@Profile("!off-heap")
 public class AccountsRepositoryInMemory implements AccountsRepository {
 
-    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Account> accounts;
+
+    // Handles are never reused, not even once the accounts are cleared.
+    private final AtomicInteger nextHandle = new AtomicInteger();
+
+    public AccountsRepositoryInMemory() {
+        this(16);
+    }
+
+    // Sizing the map for the accounts expected up front saves rehashing it
+    // over and over during a bulk import.
+    @Autowired
+    public AccountsRepositoryInMemory(@Value("${accounts.repository.initial-capacity:16}") int initialCapacity) {
+        this.accounts = new ConcurrentHashMap<>(initialCapacity);
+    }
 
     @Override
     public void createAccount(Account account) throws DuplicateAccountIdException {
-        if (account.getAccountId() == null || account.getAccountId().isEmpty()) {
-            throw new InvalidAccountException(
-                    "Account id cannot be null or empty.");
+        createLockedAccount(account).getLock().unlock();
+    }
+
+    @Override
+    public Account createLockedAccount(Account account) throws DuplicateAccountIdException {
+        ValidationError error = RequestValidator.validateAccount(account.getAccountId(),
+                account.getBalance());
+        if (error != null) {
+            throw error.toException();
         }
-        if (account.getBalance() != null && account.getBalance().compareTo(BigDecimal.ZERO) == -1) {
-            throw new InvalidAccountException(
-                    "Account balance cannot be negative.");
+        account.encodeBalance();
+        if (account.getHandle() < 0) {
+            account.setHandle(nextHandle.getAndIncrement());
         }
+        account.getLock().lock();
         Account previousAccount = accounts.putIfAbsent(account.getAccountId(), account);
         if (previousAccount != null) {
+            account.getLock().unlock();
             throw new DuplicateAccountIdException(
                     "Account id " + account.getAccountId() + " already exists!");
         }
+        return account;
     }
 
     @Override
@@ -36,6 +65,11 @@ public class AccountsRepositoryInMemory implements AccountsRepository {
         return accounts.get(accountId);
     }
 
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        accounts.values().forEach(action);
+    }
+
     @Override
     public void clearAccounts() {
         accounts.clear();
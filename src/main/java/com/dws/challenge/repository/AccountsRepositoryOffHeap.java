@@ -0,0 +1,587 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.RequestValidator;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.domain.ValidationError;
+import com.dws.challenge.exception.AccountStoreFullException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.InvalidAccountException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Date;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Account store that keeps nothing on the heap for accounts that are not
+ * looked up, for tens of millions of accounts. Enabled with the
+ * {@code off-heap} profile.
+ * <p>
+ * Every account has a fixed-size slot in direct memory holding its balance,
+ * its lock word and its id's location and hash; ids are stored as chars in
+ * a separate append-only arena. An open-addressing index of slot numbers,
+ * also off-heap and sized once for {@code accounts.repository.off-heap.capacity}
+ * accounts at a load factor of at most one half, maps ids to slots. Looking
+ * up an id hashes it, which {@link String} caches, and compares it char by
+ * char with the arena. The {@link Account} returned is a view of the slot,
+ * made the first time the account is looked up and handed out from then on,
+ * so that lookups of accounts in use allocate nothing; balance updates and
+ * locking through it are compare-and-set operations on the slot. The slot
+ * number is the account's handle.
+ * <p>
+ * Account locks are not reentrant and have no queue of waiters: a thread
+ * finding a lock taken spins briefly, then parks for up to 100 microseconds
+ * at a time until the lock is free. Their conditions do queue their waiters,
+ * which park until signalled.
+ * <p>
+ * Accounts are never removed, except all at once by {@link #clearAccounts()},
+ * which must not run concurrently with anything else and does not make
+ * their slots available again, so that handles are never reused. The
+ * transaction journal cannot be used with this store, as it relies on the
+ * lock of the account object being created.
+ */
+@Repository
+@Profile("off-heap")
+public class AccountsRepositoryOffHeap implements AccountsRepository {
+
+    public static final int MAX_ID_LENGTH = 256;
+
+    // Keeps the index within a single buffer.
+    private static final int MAX_CAPACITY = (1 << 28) - 1;
+
+    // Slot layout.
+    private static final int LOCK = 0;
+    private static final int BALANCE = 8;
+    private static final int JOURNAL_SEQUENCE = 16;
+    private static final int SNAPSHOT_EPOCH = 24;
+    private static final int ID_OFFSET = 32;
+    private static final int ID_LENGTH = 40;
+    private static final int ID_HASH = 44;
+    private static final int SLOT_SIZE = 48;
+
+    private static final int SLOT_CHUNK_SHIFT = 20;
+
+    private static final int SLOTS_PER_CHUNK = 1 << SLOT_CHUNK_SHIFT;
+
+    private static final int VIEW_CHUNK_SHIFT = 12;
+
+    private static final int VIEWS_PER_CHUNK = 1 << VIEW_CHUNK_SHIFT;
+
+    private static final int ARENA_CHUNK_SIZE = 1 << 24;
+
+    private static final int SPINS = 64;
+
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final VarHandle LONGS =
+            MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final VarHandle INTS =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+
+    private final int capacity;
+
+    private final int indexMask;
+
+    // Slot number plus one for each entry, zero when empty.
+    private final ByteBuffer index;
+
+    private final AtomicReferenceArray<ByteBuffer> slotChunks;
+
+    private final AtomicReferenceArray<ByteBuffer> arenaChunks;
+
+    // Views of the slots that have been looked up, by slot number.
+    private final AtomicReferenceArray<AtomicReferenceArray<SlotAccount>> views;
+
+    private final AtomicInteger slotCount = new AtomicInteger();
+
+    private final AtomicLong arenaTop = new AtomicLong();
+
+    @Autowired
+    public AccountsRepositoryOffHeap(@Value("${accounts.repository.off-heap.capacity:1048576}") int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + MAX_CAPACITY + ".");
+        }
+        this.capacity = capacity;
+        int indexSize = Integer.highestOneBit(capacity) << 2;
+        this.indexMask = indexSize - 1;
+        this.index = ByteBuffer.allocateDirect(indexSize * Integer.BYTES).order(ByteOrder.nativeOrder());
+        this.slotChunks = new AtomicReferenceArray<>((capacity - 1) / SLOTS_PER_CHUNK + 1);
+        long maxArenaBytes = (long) capacity * MAX_ID_LENGTH * Character.BYTES;
+        this.arenaChunks = new AtomicReferenceArray<>((int) (maxArenaBytes / ARENA_CHUNK_SIZE) + 1);
+        this.views = new AtomicReferenceArray<>((capacity - 1) / VIEWS_PER_CHUNK + 1);
+    }
+
+    @Override
+    public void createAccount(Account account) throws DuplicateAccountIdException {
+        createLockedAccount(account).getLock().unlock();
+    }
+
+    // The slot is published with its lock word already set.
+    @Override
+    public Account createLockedAccount(Account account) throws DuplicateAccountIdException {
+        String accountId = account.getAccountId();
+        ValidationError error = RequestValidator.validateAccount(accountId, account.getBalance());
+        if (error != null) {
+            throw error.toException();
+        }
+        account.encodeBalance();
+        if (accountId.length() > MAX_ID_LENGTH) {
+            throw new InvalidAccountException(new ValidationError(TransferStatus.INVALID_ACCOUNT,
+                    "accountId", "Account id cannot be longer than " + MAX_ID_LENGTH + " characters."));
+        }
+        if (find(accountId) >= 0) {
+            throw duplicate(accountId);
+        }
+
+        int slot = claimSlot();
+        long idOffset = allocateId(accountId.length() * Character.BYTES);
+        ByteBuffer arena = chunk(arenaChunks, (int) (idOffset / ARENA_CHUNK_SIZE), ARENA_CHUNK_SIZE);
+        int arenaPosition = (int) (idOffset % ARENA_CHUNK_SIZE);
+        for (int i = 0; i < accountId.length(); i++) {
+            arena.putChar(arenaPosition + i * Character.BYTES, accountId.charAt(i));
+        }
+        ByteBuffer chunk = chunk(slotChunks, slot >>> SLOT_CHUNK_SHIFT, SLOTS_PER_CHUNK * SLOT_SIZE);
+        int base = base(slot);
+        chunk.putLong(base + LOCK, Thread.currentThread().threadId());
+        chunk.putLong(base + BALANCE, account.getBalanceState().get());
+        chunk.putLong(base + JOURNAL_SEQUENCE, account.getJournalSequence());
+        chunk.putLong(base + SNAPSHOT_EPOCH, account.getSnapshotEpoch());
+        chunk.putLong(base + ID_OFFSET, idOffset);
+        chunk.putInt(base + ID_LENGTH, accountId.length());
+        chunk.putInt(base + ID_HASH, accountId.hashCode());
+
+        // The compare-and-set publishes the slot written above. The slot is
+        // wasted if another thread creates the same id first.
+        for (int i = spread(accountId.hashCode()) & indexMask; ; i = (i + 1) & indexMask) {
+            int entry = (int) INTS.getAcquire(index, i * Integer.BYTES);
+            if (entry == 0) {
+                if (INTS.compareAndSet(index, i * Integer.BYTES, 0, slot + 1)) {
+                    account.setHandle(slot);
+                    return view(accountId, slot);
+                }
+                entry = (int) INTS.getAcquire(index, i * Integer.BYTES);
+            }
+            if (matches(entry - 1, accountId)) {
+                throw duplicate(accountId);
+            }
+        }
+    }
+
+    @Override
+    public Account getAccount(String accountId) {
+        int slot = accountId == null ? -1 : find(accountId);
+        return slot < 0 ? null : view(accountId, slot);
+    }
+
+    @Override
+    public void forEachAccount(Consumer<Account> action) {
+        for (int i = 0; i <= indexMask; i++) {
+            int entry = (int) INTS.getAcquire(index, i * Integer.BYTES);
+            if (entry != 0) {
+                action.accept(view(null, entry - 1));
+            }
+        }
+    }
+
+    @Override
+    public void clearAccounts() {
+        for (int i = 0; i <= indexMask; i++) {
+            INTS.setVolatile(index, i * Integer.BYTES, 0);
+        }
+        for (int i = 0; i < views.length(); i++) {
+            views.set(i, null);
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int find(String accountId) {
+        for (int i = spread(accountId.hashCode()) & indexMask; ; i = (i + 1) & indexMask) {
+            int entry = (int) INTS.getAcquire(index, i * Integer.BYTES);
+            if (entry == 0) {
+                return -1;
+            }
+            if (matches(entry - 1, accountId)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private boolean matches(int slot, String accountId) {
+        ByteBuffer chunk = slotChunks.get(slot >>> SLOT_CHUNK_SHIFT);
+        int base = base(slot);
+        if (chunk.getInt(base + ID_HASH) != accountId.hashCode()
+                || chunk.getInt(base + ID_LENGTH) != accountId.length()) {
+            return false;
+        }
+        long idOffset = chunk.getLong(base + ID_OFFSET);
+        ByteBuffer arena = arenaChunks.get((int) (idOffset / ARENA_CHUNK_SIZE));
+        int arenaPosition = (int) (idOffset % ARENA_CHUNK_SIZE);
+        for (int i = 0; i < accountId.length(); i++) {
+            if (arena.getChar(arenaPosition + i * Character.BYTES) != accountId.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String idOf(int slot) {
+        ByteBuffer chunk = slotChunks.get(slot >>> SLOT_CHUNK_SHIFT);
+        int base = base(slot);
+        long idOffset = chunk.getLong(base + ID_OFFSET);
+        ByteBuffer arena = arenaChunks.get((int) (idOffset / ARENA_CHUNK_SIZE));
+        int arenaPosition = (int) (idOffset % ARENA_CHUNK_SIZE);
+        char[] id = new char[chunk.getInt(base + ID_LENGTH)];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = arena.getChar(arenaPosition + i * Character.BYTES);
+        }
+        return new String(id);
+    }
+
+    // Slots are never handed out again once the store is full, so the count
+    // stops at the capacity rather than wrapping around.
+    private int claimSlot() {
+        while (true) {
+            int slot = slotCount.get();
+            if (slot >= capacity) {
+                throw new AccountStoreFullException("No more than " + capacity +
+                        " accounts can be created.");
+            }
+            if (slotCount.compareAndSet(slot, slot + 1)) {
+                return slot;
+            }
+        }
+    }
+
+    // The id is read from the arena if the caller does not have it.
+    private Account view(String accountId, int slot) {
+        AtomicReferenceArray<SlotAccount> chunk = views.get(slot >>> VIEW_CHUNK_SHIFT);
+        if (chunk == null) {
+            views.compareAndSet(slot >>> VIEW_CHUNK_SHIFT, null,
+                    new AtomicReferenceArray<>(VIEWS_PER_CHUNK));
+            chunk = views.get(slot >>> VIEW_CHUNK_SHIFT);
+        }
+        int i = slot & (VIEWS_PER_CHUNK - 1);
+        SlotAccount view = chunk.get(i);
+        if (view == null) {
+            view = new SlotAccount(accountId != null ? accountId : idOf(slot), slot,
+                    new SlotState(slotChunks.get(slot >>> SLOT_CHUNK_SHIFT), base(slot)));
+            if (!chunk.compareAndSet(i, null, view)) {
+                view = chunk.get(i);
+            }
+        }
+        return view;
+    }
+
+    // Ids never straddle two arena chunks.
+    private long allocateId(int bytes) {
+        while (true) {
+            long top = arenaTop.get();
+            long start = top;
+            if (start % ARENA_CHUNK_SIZE + bytes > ARENA_CHUNK_SIZE) {
+                start = (start / ARENA_CHUNK_SIZE + 1) * ARENA_CHUNK_SIZE;
+            }
+            if (arenaTop.compareAndSet(top, start + bytes)) {
+                return start;
+            }
+        }
+    }
+
+    private static ByteBuffer chunk(AtomicReferenceArray<ByteBuffer> chunks, int i, int size) {
+        ByteBuffer chunk = chunks.get(i);
+        if (chunk == null) {
+            chunk = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+            if (!chunks.compareAndSet(i, null, chunk)) {
+                chunk = chunks.get(i);
+            }
+        }
+        return chunk;
+    }
+
+    private static int base(int slot) {
+        return (slot & (SLOTS_PER_CHUNK - 1)) * SLOT_SIZE;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static DuplicateAccountIdException duplicate(String accountId) {
+        return new DuplicateAccountIdException(
+                "Account id " + accountId + " already exists!");
+    }
+
+    // Balance and lock of one slot.
+    private static final class SlotState extends AtomicBalance implements Lock {
+
+        private final ByteBuffer chunk;
+
+        private final int base;
+
+        private SlotState(ByteBuffer chunk, int base) {
+            this.chunk = chunk;
+            this.base = base;
+        }
+
+        @Override
+        protected long load() {
+            return (long) LONGS.getVolatile(chunk, base + BALANCE);
+        }
+
+        @Override
+        protected void store(long encoded) {
+            LONGS.setVolatile(chunk, base + BALANCE, encoded);
+        }
+
+        @Override
+        protected boolean compareAndSet(long expected, long next) {
+            return LONGS.compareAndSet(chunk, base + BALANCE, expected, next);
+        }
+
+        @Override
+        public boolean tryLock() {
+            return LONGS.compareAndSet(chunk, base + LOCK, 0L, Thread.currentThread().threadId());
+        }
+
+        @Override
+        public void lock() {
+            for (int attempt = 0; !tryLock(); attempt++) {
+                backOff(attempt, MAX_PARK_NANOS);
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            for (int attempt = 0; !tryLock(); attempt++) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                backOff(attempt, MAX_PARK_NANOS);
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            for (int attempt = 0; !tryLock(); attempt++) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                backOff(attempt, remaining);
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            checkOwner();
+            LONGS.setRelease(chunk, base + LOCK, 0L);
+        }
+
+        @Override
+        public Condition newCondition() {
+            return new SlotCondition(this);
+        }
+
+        private void checkOwner() {
+            if ((long) LONGS.getVolatile(chunk, base + LOCK) != Thread.currentThread().threadId()) {
+                throw new IllegalMonitorStateException();
+            }
+        }
+
+        private static void backOff(int attempt, long maxNanos) {
+            if (attempt < SPINS) {
+                Thread.onSpinWait();
+            } else {
+                long nanos = TimeUnit.MICROSECONDS.toNanos(1) << Math.min(attempt - SPINS, 7);
+                LockSupport.parkNanos(Math.min(Math.min(nanos, MAX_PARK_NANOS), maxNanos));
+            }
+        }
+    }
+
+    // Waiters are signalled in the order they started waiting. A waiter
+    // that times out or is interrupted withdraws, unless it was signalled
+    // first, so that no signal is lost on it.
+    private static final class SlotCondition implements Condition {
+
+        private static final int WAITING = 0;
+        private static final int SIGNALLED = 1;
+        private static final int WITHDRAWN = 2;
+
+        private final SlotState lock;
+
+        private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+        private SlotCondition(SlotState lock) {
+            this.lock = lock;
+        }
+
+        @Override
+        public void await() throws InterruptedException {
+            await(false, 0, true);
+        }
+
+        @Override
+        public void awaitUninterruptibly() {
+            try {
+                await(false, 0, false);
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+        }
+
+        @Override
+        public long awaitNanos(long nanosTimeout) throws InterruptedException {
+            return await(true, nanosTimeout, true);
+        }
+
+        @Override
+        public boolean await(long time, TimeUnit unit) throws InterruptedException {
+            return await(true, unit.toNanos(time), true) > 0;
+        }
+
+        @Override
+        public boolean awaitUntil(Date deadline) throws InterruptedException {
+            return await(TimeUnit.MILLISECONDS.toNanos(
+                    deadline.getTime() - System.currentTimeMillis()), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void signal() {
+            lock.checkOwner();
+            for (Waiter waiter; (waiter = waiters.poll()) != null; ) {
+                if (waiter.compareAndSet(WAITING, SIGNALLED)) {
+                    LockSupport.unpark(waiter.thread);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public void signalAll() {
+            lock.checkOwner();
+            for (Waiter waiter; (waiter = waiters.poll()) != null; ) {
+                if (waiter.compareAndSet(WAITING, SIGNALLED)) {
+                    LockSupport.unpark(waiter.thread);
+                }
+            }
+        }
+
+        // Returns the nanoseconds left when timed, and at most zero once the
+        // wait timed out without a signal.
+        private long await(boolean timed, long nanos, boolean interruptible)
+                throws InterruptedException {
+            lock.checkOwner();
+            Waiter waiter = new Waiter(Thread.currentThread());
+            waiters.add(waiter);
+            lock.unlock();
+            long deadline = timed ? System.nanoTime() + nanos : 0;
+            boolean interrupted = false;
+            try {
+                while (waiter.get() == WAITING) {
+                    if (Thread.interrupted()) {
+                        interrupted = true;
+                        if (interruptible && waiter.compareAndSet(WAITING, WITHDRAWN)) {
+                            break;
+                        }
+                    } else if (!timed) {
+                        LockSupport.park(this);
+                    } else if ((nanos = deadline - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(this, nanos);
+                    } else if (waiter.compareAndSet(WAITING, WITHDRAWN)) {
+                        break;
+                    }
+                }
+            } finally {
+                if (waiter.get() == WITHDRAWN) {
+                    waiters.remove(waiter);
+                }
+                lock.lock();
+            }
+            if (interrupted && interruptible && waiter.get() == WITHDRAWN) {
+                throw new InterruptedException();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (!timed) {
+                return 1;
+            }
+            return waiter.get() == WITHDRAWN ? 0 : Math.max(1, deadline - System.nanoTime());
+        }
+
+        private static final class Waiter extends AtomicInteger {
+
+            private final transient Thread thread;
+
+            private Waiter(Thread thread) {
+                this.thread = thread;
+            }
+        }
+    }
+
+    // Journal sequence and snapshot epoch are guarded by the account lock,
+    // like the balance they go with, and kept in the slot too.
+    private static final class SlotAccount extends Account {
+
+        private final int slot;
+
+        private final SlotState state;
+
+        private SlotAccount(String accountId, int slot, SlotState state) {
+            super(accountId, state, state);
+            this.slot = slot;
+            this.state = state;
+        }
+
+        @Override
+        public int getHandle() {
+            return slot;
+        }
+
+        @Override
+        public long getJournalSequence() {
+            return state.chunk.getLong(state.base + JOURNAL_SEQUENCE);
+        }
+
+        @Override
+        public void setJournalSequence(long journalSequence) {
+            state.chunk.putLong(state.base + JOURNAL_SEQUENCE, journalSequence);
+        }
+
+        @Override
+        public long getSnapshotEpoch() {
+            return state.chunk.getLong(state.base + SNAPSHOT_EPOCH);
+        }
+
+        @Override
+        public void setSnapshotEpoch(long snapshotEpoch) {
+            state.chunk.putLong(state.base + SNAPSHOT_EPOCH, snapshotEpoch);
+        }
+    }
+}
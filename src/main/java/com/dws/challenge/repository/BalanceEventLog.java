@@ -0,0 +1,241 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.config.BalanceEventProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.BalanceChangeEvent;
+import com.dws.challenge.domain.BalanceEventPage;
+import com.dws.challenge.exception.InvalidPageRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ring of the most recent transfers, read by consumers of balance-change
+ * events. Every transfer takes the next offset and the slot that offset
+ * maps to, overwriting the transfer {@code capacity} offsets older, so the
+ * ring never holds more than its capacity however far behind a consumer is.
+ * A consumer keeps nothing but the offset it has read up to and is told how
+ * many transfers it missed when that offset has been overwritten.
+ * <p>
+ * Slots are written like a seqlock: a writer clears the slot's offset,
+ * fills in the transfer and then publishes the offset, and a reader checks
+ * the offset both before and after copying the slot. Publishing takes no
+ * lock, so it adds no contention between transfers of unrelated accounts.
+ * Transfers are published in the order they claim offsets, and a reader
+ * stops at the first one that is still being written.
+ * <p>
+ * A transfer only takes an offset once the journal has made it durable, so
+ * consumers never see one that would not survive a restart. Offsets start
+ * from zero again with every process; the log's epoch, the time it was
+ * created, tells offsets of one process from those of another.
+ */
+@Repository
+public class BalanceEventLog {
+
+    private static final VarHandle OFFSET = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final long NONE = -1;
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final long[] offsets;
+
+    private final long[] timestamps;
+
+    private final long[] amounts;
+
+    private final long[] fromBalances;
+
+    private final long[] toBalances;
+
+    private final String[] fromAccountIds;
+
+    private final String[] toAccountIds;
+
+    private final AtomicLong nextOffset = new AtomicLong();
+
+    private final long pollIntervalMillis;
+
+    private final Clock clock;
+
+    private final long epoch;
+
+    @Autowired
+    public BalanceEventLog(BalanceEventProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    public BalanceEventLog(BalanceEventProperties properties, Clock clock) {
+        int capacity = properties.getCapacity();
+        if (capacity < 0 || (capacity > 0 && Integer.bitCount(capacity) != 1)) {
+            throw new IllegalStateException("The event capacity must be zero or a power of two.");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.offsets = new long[capacity];
+        Arrays.fill(offsets, NONE);
+        this.timestamps = new long[capacity];
+        this.amounts = new long[capacity];
+        this.fromBalances = new long[capacity];
+        this.toBalances = new long[capacity];
+        this.fromAccountIds = new String[capacity];
+        this.toAccountIds = new String[capacity];
+        this.pollIntervalMillis = Math.max(1, properties.getPollInterval().toMillis());
+        this.clock = clock;
+        this.epoch = clock.millis();
+    }
+
+    // Holds no events, for services built outside of Spring.
+    public static BalanceEventLog disabled() {
+        BalanceEventProperties properties = new BalanceEventProperties();
+        properties.setCapacity(0);
+        return new BalanceEventLog(properties);
+    }
+
+    public boolean isEnabled() {
+        return capacity > 0;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Publishes a transfer of {@code amount}, encoded as by
+     * {@link AtomicBalance#encode(BigDecimal)}, that has just been applied,
+     * once {@code durable} completes, and not at all if it fails. The
+     * balances are read now, so the caller should still hold the locks of
+     * both accounts if it wants them to be exactly those left by the
+     * transfer.
+     */
+    public void publish(Account fromAccount, Account toAccount, long amount,
+                        CompletableFuture<Void> durable) {
+        if (capacity == 0) {
+            return;
+        }
+        long timestamp = clock.millis();
+        long fromBalance = fromAccount.getBalanceState().get();
+        long toBalance = toAccount.getBalanceState().get();
+        String fromAccountId = fromAccount.getAccountId();
+        String toAccountId = toAccount.getAccountId();
+        if (!durable.isDone()) {
+            durable.thenRun(() -> append(timestamp, amount, fromBalance, toBalance,
+                    fromAccountId, toAccountId));
+        } else if (!durable.isCompletedExceptionally()) {
+            append(timestamp, amount, fromBalance, toBalance, fromAccountId, toAccountId);
+        }
+    }
+
+    private void append(long timestamp, long amount, long fromBalance, long toBalance,
+                        String fromAccountId, String toAccountId) {
+        long offset = nextOffset.getAndIncrement();
+        int slot = (int) offset & mask;
+        OFFSET.setOpaque(offsets, slot, NONE);
+        VarHandle.storeStoreFence();
+        timestamps[slot] = timestamp;
+        amounts[slot] = amount;
+        fromBalances[slot] = fromBalance;
+        toBalances[slot] = toBalance;
+        fromAccountIds[slot] = fromAccountId;
+        toAccountIds[slot] = toAccountId;
+        OFFSET.setRelease(offsets, slot, offset);
+    }
+
+    // Offset of the last transfer published, or -1 if there is none yet.
+    public long getLastOffset() {
+        return nextOffset.get() - 1;
+    }
+
+    /**
+     * Returns the events of the transfers after offset {@code after}, oldest
+     * first, keeping only those of {@code accountIds} unless it is null or
+     * empty. At most {@code limit} events are returned, and never only one
+     * side of a transfer.
+     */
+    public BalanceEventPage read(long after, Set<String> accountIds, int limit) {
+        if (after < NONE || after > getLastOffset()) {
+            throw new InvalidPageRequestException("Invalid cursor " + after + ".");
+        }
+        if (capacity == 0) {
+            return new BalanceEventPage(List.of(), after, 0, epoch, false);
+        }
+        boolean all = accountIds == null || accountIds.isEmpty();
+        List<BalanceChangeEvent> events = new ArrayList<>(Math.min(limit, 256));
+        long offset = after + 1;
+        long missed = 0;
+        while (events.size() <= limit - 2) {
+            long oldest = nextOffset.get() - capacity;
+            if (offset < oldest) {
+                missed += oldest - offset;
+                offset = oldest;
+            }
+            int slot = (int) offset & mask;
+            if ((long) OFFSET.getAcquire(offsets, slot) != offset) {
+                // Either still being written, or overwritten since oldest
+                // was read, which the next round finds out.
+                if (offset >= nextOffset.get() - capacity) {
+                    break;
+                }
+                continue;
+            }
+            long timestamp = timestamps[slot];
+            long amount = amounts[slot];
+            long fromBalance = fromBalances[slot];
+            long toBalance = toBalances[slot];
+            String fromAccountId = fromAccountIds[slot];
+            String toAccountId = toAccountIds[slot];
+            VarHandle.loadLoadFence();
+            if ((long) OFFSET.getOpaque(offsets, slot) != offset) {
+                continue;
+            }
+
+            Instant instant = Instant.ofEpochMilli(timestamp);
+            BigDecimal credit = AtomicBalance.decode(amount);
+            if (all || accountIds.contains(fromAccountId)) {
+                events.add(new BalanceChangeEvent(offset, fromAccountId, toAccountId,
+                        credit.negate(), AtomicBalance.decode(fromBalance), instant));
+            }
+            if (all || accountIds.contains(toAccountId)) {
+                events.add(new BalanceChangeEvent(offset, toAccountId, fromAccountId,
+                        credit, AtomicBalance.decode(toBalance), instant));
+            }
+            offset++;
+        }
+        return new BalanceEventPage(events, offset - 1, missed, epoch, false);
+    }
+
+    /**
+     * Same as {@link #read}, except that while there are neither events nor
+     * missed transfers it waits for some, for at most {@code timeout}.
+     */
+    public BalanceEventPage await(long after, Set<String> accountIds, int limit,
+                                  Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (true) {
+            BalanceEventPage page = read(after, accountIds, limit);
+            long remaining = deadline - System.nanoTime();
+            if (!page.getEvents().isEmpty() || page.getMissed() > 0 || remaining <= 0) {
+                return page;
+            }
+            // Transfers of other accounts need not be looked at again.
+            after = page.getLastOffset();
+            Thread.sleep(Math.min(pollIntervalMillis, TimeUnit.NANOSECONDS.toMillis(remaining) + 1));
+        }
+    }
+}
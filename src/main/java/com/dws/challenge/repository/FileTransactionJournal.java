@@ -0,0 +1,514 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.config.JournalProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.service.TransferMode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal of account creations and transfers, kept as a sequence
+ * of segment files next to periodic snapshots of every balance.
+ * <p>
+ * Each record gets a sequence number while the locks of its accounts are
+ * held, and every account remembers the sequence number of the last record
+ * that touched it. A snapshot can therefore be taken account by account
+ * while transfers carry on: on recovery a record is only applied to the
+ * accounts whose snapshotted sequence number is lower than its own.
+ * <p>
+ * Records are written by a single thread that drains whatever has been
+ * queued, writes it with one call and forces it to disk once (group commit),
+ * so the cost of fsync is shared by all the transfers committed meanwhile.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "accounts.journal.enabled", havingValue = "true")
+public class FileTransactionJournal implements TransactionJournal {
+
+    private static final byte CREATE = 1;
+
+    private static final byte TRANSFER = 2;
+
+    private static final int SNAPSHOT_MAGIC = 0x534e4150;
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("journal-(\\d+)\\.log");
+
+    private static final Pattern SNAPSHOT_NAME = Pattern.compile("snapshot-(\\d+)\\.snap");
+
+    private final AccountsRepository accountsRepository;
+
+    private final JournalProperties properties;
+
+    private final Path directory;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final BlockingQueue<Entry> queue;
+
+    private final Thread writer;
+
+    private final ScheduledExecutorService snapshotter;
+
+    private volatile long activeSegment;
+
+    private FileChannel channel;
+
+    private volatile boolean running = true;
+
+    // Set after the first failed write: from then on nothing is acknowledged,
+    // so no acknowledged record can follow a lost one.
+    private volatile IOException failure;
+
+    @Autowired
+    public FileTransactionJournal(AccountsRepository accountsRepository,
+                                  JournalProperties properties,
+                                  TransferProperties transferProperties) throws IOException {
+        if (transferProperties.getMode() != TransferMode.LOCKING) {
+            throw new IllegalStateException("The transaction journal relies on account " +
+                    "locks and can only be used with the locking transfer mode.");
+        }
+        if (!transferProperties.getStriping().getAccountIds().isEmpty()) {
+            throw new IllegalStateException("The transaction journal relies on account " +
+                    "locks and cannot be used with striped accounts.");
+        }
+        if (accountsRepository instanceof AccountsRepositoryOffHeap) {
+            throw new IllegalStateException("The transaction journal cannot be used with " +
+                    "the off-heap account store.");
+        }
+        this.accountsRepository = accountsRepository;
+        this.properties = properties;
+        this.directory = properties.getDirectory();
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+
+        Files.createDirectories(directory);
+        long started = System.nanoTime();
+        long lastSegment = recover();
+        log.info("Recovered journal up to sequence {} in {} ms", sequence.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        this.activeSegment = lastSegment + 1;
+        this.channel = openSegment(activeSegment);
+
+        this.writer = new Thread(this::writeLoop, "transaction-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+
+        this.snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transaction-journal-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getSnapshotInterval().toMillis();
+        this.snapshotter.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to write balance snapshot", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<Void> recordCreate(Account account) {
+        long seq = sequence.incrementAndGet();
+        account.setJournalSequence(seq);
+        return enqueue(new Entry(CREATE, seq, account.getAccountId(), null,
+                account.getBalanceState().get()));
+    }
+
+    @Override
+    public CompletableFuture<Void> recordTransfer(Account fromAccount, Account toAccount,
+                                                  long amount) {
+        long seq = sequence.incrementAndGet();
+        fromAccount.setJournalSequence(seq);
+        toAccount.setJournalSequence(seq);
+        return enqueue(new Entry(TRANSFER, seq, fromAccount.getAccountId(),
+                toAccount.getAccountId(), amount));
+    }
+
+    /**
+     * Writes every balance to a new snapshot and deletes the segments and
+     * snapshots it makes obsolete. Accounts are locked one at a time, so
+     * transfers are never held up for longer than one account read.
+     */
+    public synchronized void snapshot() throws IOException {
+        // Every record numbered after startSequence is written to the segment
+        // active now or to a later one.
+        long firstSegment = activeSegment;
+        long startSequence = sequence.get();
+
+        Path target = directory.resolve(String.format("snapshot-%020d.snap", startSequence));
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        long[] count = new long[1];
+        try (FileChannel file = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(file), 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(startSequence);
+            out.writeLong(firstSegment);
+            accountsRepository.forEachAccount(account -> {
+                long balance;
+                long journalSequence;
+                account.getLock().lock();
+                try {
+                    balance = account.getBalanceState().get();
+                    journalSequence = account.getJournalSequence();
+                } finally {
+                    account.getLock().unlock();
+                }
+                try {
+                    out.writeBoolean(true);
+                    out.writeUTF(account.getAccountId());
+                    out.writeLong(balance);
+                    out.writeLong(journalSequence);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                count[0]++;
+            });
+            out.writeBoolean(false);
+            out.writeLong(count[0]);
+            out.flush();
+            file.force(true);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Path path : listFiles(SNAPSHOT_NAME).values()) {
+            if (!path.equals(target)) {
+                Files.deleteIfExists(path);
+            }
+        }
+        for (var segment : listFiles(SEGMENT_NAME).headMap(firstSegment).values()) {
+            Files.deleteIfExists(segment);
+        }
+        log.info("Wrote snapshot of {} accounts at journal sequence {}", count[0],
+                startSequence);
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        snapshotter.shutdownNow();
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        channel.close();
+    }
+
+    private CompletableFuture<Void> enqueue(Entry entry) {
+        try {
+            // Blocks transfers once the writer falls behind by a full queue.
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.durable.completeExceptionally(e);
+        }
+        return entry.durable;
+    }
+
+    private void writeLoop() {
+        List<Entry> batch = new ArrayList<>(properties.getMaxBatchSize());
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        CRC32C crc = new CRC32C();
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getMaxBatchSize() - 1);
+                if (failure != null) {
+                    throw failure;
+                }
+
+                buffer.clear();
+                for (Entry entry : batch) {
+                    if (buffer.remaining() < entry.maxSize()) {
+                        buffer = flush(buffer);
+                    }
+                    entry.writeTo(buffer, crc);
+                }
+                flush(buffer);
+                if (properties.isFsync()) {
+                    channel.force(false);
+                }
+                for (Entry entry : batch) {
+                    entry.durable.complete(null);
+                }
+                if (channel.size() >= properties.getSegmentSize()) {
+                    channel.close();
+                    channel = openSegment(activeSegment + 1);
+                    activeSegment++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException | RuntimeException e) {
+                if (failure == null) {
+                    log.error("Failed to write journal records, no further transfers " +
+                            "will be acknowledged", e);
+                    failure = e instanceof IOException io ? io : new IOException(e);
+                }
+                for (Entry entry : batch) {
+                    entry.durable.completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private ByteBuffer flush(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private FileChannel openSegment(long index) throws IOException {
+        return FileChannel.open(directory.resolve(String.format("journal-%010d.log", index)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    // Loads the latest snapshot and replays the segments written after it.
+    // Returns the index of the last existing segment.
+    private long recover() throws IOException {
+        long firstSegment = 0;
+        TreeMap<Long, Path> snapshots = listFiles(SNAPSHOT_NAME);
+        if (!snapshots.isEmpty()) {
+            firstSegment = loadSnapshot(snapshots.lastEntry().getValue());
+        }
+
+        TreeMap<Long, Path> segments = listFiles(SEGMENT_NAME);
+        long replayed = 0;
+        for (var segment : segments.tailMap(firstSegment).entrySet()) {
+            boolean last = segment.getKey().equals(segments.lastKey());
+            replayed += replaySegment(segment.getValue(), last);
+        }
+        log.info("Replayed {} journal records from {} segments", replayed,
+                segments.tailMap(firstSegment).size());
+        return segments.isEmpty() ? firstSegment - 1
+                : Math.max(firstSegment - 1, segments.lastKey());
+    }
+
+    private long loadSnapshot(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a balance snapshot: " + path);
+            }
+            long startSequence = in.readLong();
+            long firstSegment = in.readLong();
+            long count = 0;
+            while (in.readBoolean()) {
+                Account account = new Account(in.readUTF());
+                account.getBalanceState().set(in.readLong());
+                account.setJournalSequence(in.readLong());
+                accountsRepository.createAccount(account);
+                count++;
+            }
+            if (in.readLong() != count) {
+                throw new IOException("Incomplete balance snapshot: " + path);
+            }
+            sequence.set(startSequence);
+            log.info("Loaded snapshot of {} accounts at journal sequence {}", count,
+                    startSequence);
+            return firstSegment;
+        }
+    }
+
+    private long replaySegment(Path path, boolean last) throws IOException {
+        long replayed = 0;
+        long position = 0;
+        CRC32C crc = new CRC32C();
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(path), 1 << 16);
+             DataInputStream in = new DataInputStream(stream)) {
+            byte[] payload = new byte[256];
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return replayed;
+                }
+                try {
+                    int checksum = in.readInt();
+                    if (length < 0 || length > 1 << 20) {
+                        throw new IOException("Invalid record length " + length);
+                    }
+                    if (payload.length < length) {
+                        payload = new byte[length];
+                    }
+                    in.readFully(payload, 0, length);
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        throw new IOException("Checksum mismatch");
+                    }
+                } catch (IOException e) {
+                    if (!last) {
+                        throw new IOException("Corrupt journal segment " + path +
+                                " at offset " + position, e);
+                    }
+                    // A torn write at the end of the last segment: the record
+                    // was never acknowledged, so it is dropped.
+                    log.warn("Truncating journal segment {} at offset {}", path, position);
+                    try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                        file.truncate(position);
+                    }
+                    return replayed;
+                }
+                apply(ByteBuffer.wrap(payload, 0, length));
+                position += 8 + length;
+                replayed++;
+            }
+        }
+    }
+
+    private void apply(ByteBuffer record) {
+        byte type = record.get();
+        long seq = record.getLong();
+        sequence.accumulateAndGet(seq, Math::max);
+        if (type == CREATE) {
+            String accountId = readString(record);
+            long balance = record.getLong();
+            if (accountsRepository.getAccount(accountId) == null) {
+                Account account = new Account(accountId);
+                account.getBalanceState().set(balance);
+                account.setJournalSequence(seq);
+                accountsRepository.createAccount(account);
+            }
+        } else if (type == TRANSFER) {
+            Account fromAccount = accountsRepository.getAccount(readString(record));
+            Account toAccount = accountsRepository.getAccount(readString(record));
+            long amount = record.getLong();
+            // Netted batches may take an account below zero between two of
+            // their records, so the debit is replayed as a negative credit.
+            if (seq > fromAccount.getJournalSequence()) {
+                fromAccount.getBalanceState().credit(AtomicBalance.encode(
+                        -AtomicBalance.units(amount), AtomicBalance.scale(amount)));
+                fromAccount.setJournalSequence(seq);
+            }
+            if (seq > toAccount.getJournalSequence()) {
+                toAccount.getBalanceState().credit(amount);
+                toAccount.setJournalSequence(seq);
+            }
+        } else {
+            throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private TreeMap<Long, Path> listFiles(Pattern pattern) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (var paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                Matcher matcher = pattern.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    files.put(Long.parseLong(matcher.group(1)), path);
+                }
+            });
+        }
+        return files;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xffff];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Entry {
+
+        private final byte type;
+
+        private final long sequence;
+
+        private final String accountId;
+
+        private final String otherAccountId;
+
+        private final long amount;
+
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private Entry(byte type, long sequence, String accountId, String otherAccountId,
+                      long amount) {
+            this.type = type;
+            this.sequence = sequence;
+            this.accountId = accountId;
+            this.otherAccountId = otherAccountId;
+            this.amount = amount;
+        }
+
+        // Ids are at most 3 bytes per char once encoded.
+        private int maxSize() {
+            int ids = accountId.length() + (otherAccountId == null ? 0 : otherAccountId.length());
+            return 8 + 1 + 8 + 4 + 3 * ids + 8;
+        }
+
+        // Layout: length, CRC32C of the payload, then the payload itself:
+        // type, sequence, account id(s) and the balance or amount.
+        private void writeTo(ByteBuffer buffer, CRC32C crc) {
+            int start = buffer.position();
+            buffer.position(start + 8);
+            buffer.put(type);
+            buffer.putLong(sequence);
+            writeString(buffer, accountId);
+            if (otherAccountId != null) {
+                writeString(buffer, otherAccountId);
+            }
+            buffer.putLong(amount);
+            int end = buffer.position();
+
+            crc.reset();
+            crc.update(buffer.duplicate().position(start + 8).limit(end));
+            buffer.putInt(start, end - start - 8);
+            buffer.putInt(start + 4, (int) crc.getValue());
+        }
+
+        private static void writeString(ByteBuffer buffer, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+}
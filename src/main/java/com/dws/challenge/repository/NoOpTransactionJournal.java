@@ -0,0 +1,26 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.concurrent.CompletableFuture;
+
+@Repository
+@ConditionalOnProperty(name = "accounts.journal.enabled", havingValue = "false",
+        matchIfMissing = true)
+public class NoOpTransactionJournal implements TransactionJournal {
+
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    @Override
+    public CompletableFuture<Void> recordCreate(Account account) {
+        return DONE;
+    }
+
+    @Override
+    public CompletableFuture<Void> recordTransfer(Account fromAccount, Account toAccount,
+                                                  long amount) {
+        return DONE;
+    }
+}
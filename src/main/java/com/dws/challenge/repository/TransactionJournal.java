@@ -0,0 +1,19 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.domain.Account;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Durable record of account creations and transfers. Both methods must be
+ * called while holding the lock of every account involved, after the
+ * balances have been updated; the returned future completes once the record
+ * is on disk and should be waited on only after the locks are released.
+ */
+public interface TransactionJournal {
+
+  CompletableFuture<Void> recordCreate(Account account);
+
+  CompletableFuture<Void> recordTransfer(Account fromAccount, Account toAccount,
+                                         long amount);
+}
@@ -0,0 +1,295 @@
+package com.dws.challenge.repository;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountTransaction;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.TransactionPage;
+import com.dws.challenge.exception.InvalidPageRequestException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only history of transfers, kept off-heap so that tens of millions of
+ * entries cost no Java object each.
+ * <p>
+ * Every transfer is one fixed-size entry in a ring of direct buffers, which
+ * also records the previous entry of each of its two accounts. The history of
+ * an account is therefore a linked list running backwards from the newest
+ * entry, and a page of it is read without looking at any other account's
+ * entries. Once {@link LedgerProperties#getMaxEntries()} entries are held the
+ * oldest chunk is reused and the histories running into it end there.
+ * <p>
+ * Entries carry their own id, written before anything else and checked after
+ * everything else has been read, so a reader racing with the reuse of a
+ * chunk notices it instead of returning a mix of two entries.
+ */
+@Repository
+public class TransactionLedger {
+
+    private static final int ENTRY_SIZE = 48;
+
+    private static final int ID = 0;
+
+    private static final int TIMESTAMP = 8;
+
+    private static final int AMOUNT = 16;
+
+    private static final int FROM = 24;
+
+    private static final int TO = 28;
+
+    private static final int PREVIOUS_FROM = 32;
+
+    private static final int PREVIOUS_TO = 40;
+
+    private static final long NONE = -1;
+
+    private static final VarHandle HEAD;
+
+    static {
+        try {
+            HEAD = MethodHandles.lookup().findVarHandle(History.class, "head", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ConcurrentHashMap<String, History> histories = new ConcurrentHashMap<>();
+
+    // Indexed by account handle, which also stands for the account in entries.
+    private volatile History[] byHandle = new History[1024];
+
+    private final AtomicReferenceArray<ByteBuffer> chunks;
+
+    private final int chunkEntries;
+
+    private final long capacity;
+
+    private final AtomicLong nextId = new AtomicLong();
+
+    private final Clock clock;
+
+    @Autowired
+    public TransactionLedger(LedgerProperties properties) {
+        this(properties, Clock.systemUTC());
+    }
+
+    public TransactionLedger(LedgerProperties properties, Clock clock) {
+        this.chunkEntries = properties.getChunkEntries();
+        int chunkCount = (int) Math.max(2, (properties.getMaxEntries() + chunkEntries - 1)
+                / chunkEntries);
+        this.chunks = new AtomicReferenceArray<>(chunkCount);
+        this.capacity = (long) chunkCount * chunkEntries;
+        this.clock = clock;
+    }
+
+    /**
+     * Appends a transfer of {@code amount}, encoded as by
+     * {@link AtomicBalance#encode(BigDecimal)}, and returns its id. Both
+     * accounts must have been given their handle by the repository. Safe to
+     * call concurrently, including for the same accounts.
+     */
+    public long append(Account fromAccount, Account toAccount, long amount) {
+        History from = history(fromAccount);
+        History to = history(toAccount);
+        long id = nextId.getAndIncrement();
+        ByteBuffer chunk = chunk(id);
+        int offset = offset(id);
+
+        chunk.putLong(offset + ID, id);
+        VarHandle.storeStoreFence();
+        chunk.putLong(offset + TIMESTAMP, clock.millis());
+        chunk.putLong(offset + AMOUNT, amount);
+        chunk.putInt(offset + FROM, from.handle);
+        chunk.putInt(offset + TO, to.handle);
+        link(from, chunk, offset + PREVIOUS_FROM, id);
+        link(to, chunk, offset + PREVIOUS_TO, id);
+        return id;
+    }
+
+    /**
+     * Returns up to {@code limit} transactions of an account, newest first,
+     * starting after {@code cursor} when it is not null and keeping only those
+     * between {@code from} and {@code to}, both inclusive and optional.
+     */
+    public TransactionPage read(String accountId, Long cursor, Instant from, Instant to,
+                                int limit) {
+        History history = histories.get(accountId);
+        if (history == null) {
+            if (cursor != null) {
+                throw new InvalidPageRequestException("Invalid cursor " + cursor + ".");
+            }
+            return new TransactionPage(List.of(), null);
+        }
+        long fromMillis = from == null ? Long.MIN_VALUE : from.toEpochMilli();
+        long toMillis = to == null ? Long.MAX_VALUE : to.toEpochMilli();
+
+        Entry entry = new Entry();
+        long id = (long) HEAD.getVolatile(history);
+        if (cursor != null) {
+            if (!entry.read(this, cursor) || !entry.involves(history.handle)) {
+                throw new InvalidPageRequestException("Invalid cursor " + cursor + ".");
+            }
+            id = entry.previous(history.handle);
+        }
+
+        List<AccountTransaction> transactions = new ArrayList<>(Math.min(limit, 256));
+        long lastId = NONE;
+        while (id != NONE && transactions.size() < limit && entry.read(this, id)) {
+            long previous = entry.previous(history.handle);
+            if (entry.timestamp < fromMillis) {
+                id = NONE;
+                break;
+            }
+            if (entry.timestamp <= toMillis) {
+                transactions.add(entry.toTransaction(this, history.handle));
+                lastId = id;
+            }
+            id = previous;
+        }
+        boolean more = id != NONE && transactions.size() == limit;
+        return new TransactionPage(transactions, more ? lastId : null);
+    }
+
+    public long getEntryCount() {
+        return Math.min(nextId.get(), capacity);
+    }
+
+    private History history(Account account) {
+        int handle = account.getHandle();
+        History[] current = byHandle;
+        History history = handle < current.length ? current[handle] : null;
+        return history != null ? history : register(account);
+    }
+
+    private synchronized History register(Account account) {
+        int handle = account.getHandle();
+        if (handle < 0) {
+            throw new IllegalArgumentException("Account " + account.getAccountId() +
+                    " has no handle.");
+        }
+        History history = histories.computeIfAbsent(account.getAccountId(),
+                accountId -> new History(accountId, handle));
+        History[] current = byHandle;
+        if (handle >= current.length) {
+            current = Arrays.copyOf(current, Math.max(current.length * 2, handle + 1));
+        }
+        current[handle] = history;
+        byHandle = current;
+        return history;
+    }
+
+    private ByteBuffer chunk(long id) {
+        int index = (int) ((id / chunkEntries) % chunks.length());
+        ByteBuffer chunk = chunks.get(index);
+        if (chunk == null) {
+            synchronized (chunks) {
+                chunk = chunks.get(index);
+                if (chunk == null) {
+                    chunk = ByteBuffer.allocateDirect(chunkEntries * ENTRY_SIZE);
+                    chunks.set(index, chunk);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private int offset(long id) {
+        return (int) (id % chunkEntries) * ENTRY_SIZE;
+    }
+
+    // Publishes the entry as the newest of the account once its link to the
+    // previous newest is in place.
+    private static void link(History history, ByteBuffer chunk, int position, long id) {
+        long previous;
+        do {
+            previous = (long) HEAD.getVolatile(history);
+            chunk.putLong(position, previous);
+        } while (!HEAD.compareAndSet(history, previous, id));
+    }
+
+    private static final class History {
+
+        private final String accountId;
+
+        private final int handle;
+
+        private volatile long head = NONE;
+
+        private History(String accountId, int handle) {
+            this.accountId = accountId;
+            this.handle = handle;
+        }
+    }
+
+    // Reusable copy of one entry, taken by a reader.
+    private static final class Entry {
+
+        private long id;
+
+        private long timestamp;
+
+        private long amount;
+
+        private int from;
+
+        private int to;
+
+        private long previousFrom;
+
+        private long previousTo;
+
+        // Returns false if the entry does not exist or has been overwritten.
+        private boolean read(TransactionLedger ledger, long id) {
+            long next = ledger.nextId.get();
+            if (id < 0 || id >= next || id < next - ledger.capacity) {
+                return false;
+            }
+            ByteBuffer chunk = ledger.chunks.get((int) ((id / ledger.chunkEntries)
+                    % ledger.chunks.length()));
+            if (chunk == null) {
+                return false;
+            }
+            int offset = ledger.offset(id);
+            this.id = id;
+            timestamp = chunk.getLong(offset + TIMESTAMP);
+            amount = chunk.getLong(offset + AMOUNT);
+            from = chunk.getInt(offset + FROM);
+            to = chunk.getInt(offset + TO);
+            previousFrom = chunk.getLong(offset + PREVIOUS_FROM);
+            previousTo = chunk.getLong(offset + PREVIOUS_TO);
+            VarHandle.loadLoadFence();
+            return chunk.getLong(offset + ID) == id;
+        }
+
+        private boolean involves(int handle) {
+            return from == handle || to == handle;
+        }
+
+        private long previous(int handle) {
+            return from == handle ? previousFrom : previousTo;
+        }
+
+        private AccountTransaction toTransaction(TransactionLedger ledger, int handle) {
+            boolean debit = from == handle;
+            History[] histories = ledger.byHandle;
+            BigDecimal value = AtomicBalance.decode(amount);
+            return new AccountTransaction(id, Instant.ofEpochMilli(timestamp),
+                    histories[debit ? to : from].accountId, debit ? value.negate() : value);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.config.ImportProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountImportResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Imports accounts from a stream of NDJSON or CSV lines. Lines are parsed on
+ * the calling thread and the accounts handed in chunks to a pool of workers
+ * that create them in parallel; at most two chunks per worker are in flight,
+ * so the input is never held in memory as a whole.
+ * <p>
+ * Each line is imported on its own: lines that cannot be parsed or whose
+ * account cannot be created are reported with their line number and
+ * skipped. When the same account id appears twice, which of the lines is
+ * reported is not defined. Accounts that were created but could not be
+ * journaled count as created, and are reported as not durable.
+ */
+@Component
+@Slf4j
+public class AccountImporter {
+
+  private static final long PROGRESS_INTERVAL = 1_000_000;
+
+  private final AccountsService accountsService;
+
+  private final ObjectReader accountReader;
+
+  private final ImportProperties properties;
+
+  @Autowired
+  public AccountImporter(AccountsService accountsService, ObjectMapper objectMapper,
+                         ImportProperties properties) {
+    this.accountsService = accountsService;
+    this.accountReader = objectMapper.readerFor(Account.class);
+    this.properties = properties;
+  }
+
+  public AccountImportResult importAccounts(Reader input, ImportFormat format) throws IOException {
+    AccountImportResult result = new AccountImportResult(properties.getMaxReportedErrors());
+    int parallelism = properties.getParallelism();
+    ExecutorService workers = Executors.newFixedThreadPool(parallelism);
+    Semaphore inFlight = new Semaphore(2 * parallelism);
+    BufferedReader reader = new BufferedReader(input, 1 << 16);
+    try {
+      Chunk chunk = new Chunk(properties.getChunkSize());
+      long lineNumber = 0;
+      String line;
+      while ((line = reader.readLine()) != null) {
+        lineNumber++;
+        if (line.isBlank() || (lineNumber == 1 && format == ImportFormat.CSV && isHeader(line))) {
+          continue;
+        }
+        result.addRead();
+        if (result.getRead() % PROGRESS_INTERVAL == 0) {
+          log.info("Import progress: {} accounts read, {} created, {} failed",
+                  result.getRead(), result.getCreated(), result.getFailed());
+        }
+        Account account;
+        try {
+          account = format == ImportFormat.CSV ? parseCsv(line) : parseJson(line);
+        } catch (IllegalArgumentException e) {
+          result.addError(lineNumber, e.getMessage());
+          continue;
+        }
+        chunk.add(lineNumber, account);
+        if (chunk.isFull()) {
+          submit(chunk, workers, inFlight, result);
+          chunk = new Chunk(properties.getChunkSize());
+        }
+      }
+      if (!chunk.accounts.isEmpty()) {
+        submit(chunk, workers, inFlight, result);
+      }
+      // Waits for every chunk still in flight.
+      inFlight.acquire(2 * parallelism);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      workers.shutdownNow();
+    }
+    return result;
+  }
+
+  private void submit(Chunk chunk, ExecutorService workers, Semaphore inFlight,
+                      AccountImportResult result) throws InterruptedException {
+    inFlight.acquire();
+    workers.execute(() -> {
+      try {
+        String[] errors = accountsService.createAccounts(chunk.accounts);
+        int created = 0;
+        for (int i = 0; i < errors.length; i++) {
+          if (errors[i] == null) {
+            created++;
+          } else if (AccountsService.ACCOUNT_NOT_DURABLE_MESSAGE.equals(errors[i])) {
+            result.addNotDurable(chunk.lineNumbers[i], errors[i]);
+          } else {
+            result.addError(chunk.lineNumbers[i], errors[i]);
+          }
+        }
+        result.addCreated(created);
+      } catch (RuntimeException e) {
+        for (int i = 0; i < chunk.accounts.size(); i++) {
+          result.addError(chunk.lineNumbers[i], AccountsService.ACCOUNT_ERROR_MESSAGE);
+        }
+        log.error("Failed to import a chunk of accounts", e);
+      } finally {
+        inFlight.release();
+      }
+    });
+  }
+
+  private Account parseJson(String line) {
+    try {
+      Account account = accountReader.readValue(line);
+      if (account == null) {
+        throw new IllegalArgumentException("Malformed account: null is not an account.");
+      }
+      return account;
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("Malformed account: " + e.getOriginalMessage());
+    }
+  }
+
+  private static Account parseCsv(String line) {
+    int comma = line.indexOf(',');
+    String accountId = (comma < 0 ? line : line.substring(0, comma)).trim();
+    String balance = comma < 0 ? "" : line.substring(comma + 1).trim();
+    try {
+      return new Account(accountId, balance.isEmpty() ? null : new BigDecimal(balance));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Malformed balance " + balance + ".");
+    }
+  }
+
+  private static boolean isHeader(String line) {
+    return line.trim().toLowerCase().startsWith("accountid");
+  }
+
+  private static final class Chunk {
+
+    private final List<Account> accounts;
+
+    private final long[] lineNumbers;
+
+    private Chunk(int size) {
+      this.accounts = new ArrayList<>(size);
+      this.lineNumbers = new long[size];
+    }
+
+    private void add(long lineNumber, Account account) {
+      lineNumbers[accounts.size()] = lineNumber;
+      accounts.add(account);
+    }
+
+    private boolean isFull() {
+      return accounts.size() == lineNumbers.length;
+    }
+  }
+}
@@ -1,110 +1,1020 @@
 package com.dws.challenge.service;
 
+import com.dws.challenge.config.TransferProperties;
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.BalanceEventPage;
+import com.dws.challenge.domain.BalanceQueryResult;
+import com.dws.challenge.domain.BatchTransferResult;
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.RequestValidator;
+import com.dws.challenge.domain.StripedBalance;
+import com.dws.challenge.domain.TransactionPage;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.domain.ValidationError;
+import com.dws.challenge.exception.AccountBusyException;
+import com.dws.challenge.exception.AccountNotDurableException;
+import com.dws.challenge.exception.AccountStoreFullException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
 import com.dws.challenge.exception.InsufficientFundsException;
 import com.dws.challenge.exception.InvalidAccountException;
 import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.exception.InvalidBatchException;
+import com.dws.challenge.exception.InvalidPageRequestException;
+import com.dws.challenge.exception.SnapshotUnavailableException;
 import com.dws.challenge.exception.TransactionTimeoutException;
+import com.dws.challenge.exception.TransferNotDurableException;
 import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryOffHeap;
+import com.dws.challenge.repository.BalanceEventLog;
+import com.dws.challenge.repository.TransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import jakarta.annotation.PreDestroy;
 import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
 
 @Service
+@Slf4j
 public class AccountsService {
 
+  public static final int MAX_BALANCE_QUERY_SIZE = 10_000;
+
+  public static final String INSUFFICIENT_FUNDS_MESSAGE = "Insufficient funds. Check the " +
+          "fund balance before making fund transfer.";
+
+  public static final String TIMED_OUT_MESSAGE = "Your transaction has timed out. Money " +
+          "will not be debited from your account. Please try again in some time.";
+
+  public static final String UNKNOWN_ACCOUNT_MESSAGE = "Account does not exist.";
+
+  public static final String BUSY_MESSAGE = "The account is busy with another transaction. " +
+          "Money will not be debited from your account. Please try again in some time.";
+
+  public static final String NOT_DURABLE_MESSAGE = "The transfer was made but could not be " +
+          "saved, so it may be lost if the service restarts. Do not retry it; check the " +
+          "balances first.";
+
+  public static final String ACCOUNT_NOT_DURABLE_MESSAGE = "Account was created but could " +
+          "not be saved, so it may be lost if the service restarts.";
+
+  public static final String ACCOUNT_ERROR_MESSAGE = "Account could not be created.";
+
+  public static final String TRANSFER_ERROR_MESSAGE = "An error occurred while transferring " +
+          "funds. Check the balances before trying again.";
+
   @Getter
   private final AccountsRepository accountsRepository;
 
-  private final NotificationService notificationService;
+  private final TransferNotificationDispatcher notificationDispatcher;
+
+  @Getter
+  private final TransferMode transferMode;
+
+  private final TransferProperties.Batch batchProperties;
+
+  private final TransactionJournal journal;
+
+  private final TransactionLedger ledger;
+
+  private final BalanceEventLog events;
+
+  private final TransferMetrics metrics;
+
+  @Getter
+  private final LockWaiter lockWaiter;
+
+  private final Set<String> stripedAccountIds;
+
+  private final int stripes;
+
+  // Only set in the sharded transfer mode.
+  private final ShardedTransferExecutor shardedExecutor;
+
+  private final AtomicReference<BalanceSnapshot> openSnapshot = new AtomicReference<>();
+
+  private final AtomicLong snapshotEpochs = new AtomicLong();
+
+  public AccountsService(AccountsRepository accountsRepository,
+                         TransferNotificationDispatcher notificationDispatcher,
+                         TransferProperties transferProperties,
+                         TransactionJournal journal,
+                         TransactionLedger ledger,
+                         TransferMetrics metrics) {
+    this(accountsRepository, notificationDispatcher, transferProperties, journal, ledger,
+            BalanceEventLog.disabled(), metrics);
+  }
 
   @Autowired
   public AccountsService(AccountsRepository accountsRepository,
-                         NotificationService notificationService) {
+                         TransferNotificationDispatcher notificationDispatcher,
+                         TransferProperties transferProperties,
+                         TransactionJournal journal,
+                         TransactionLedger ledger,
+                         BalanceEventLog events,
+                         TransferMetrics metrics) {
     this.accountsRepository = accountsRepository;
-    this.notificationService = notificationService;
+    this.notificationDispatcher = notificationDispatcher;
+    this.journal = journal;
+    this.ledger = ledger;
+    this.events = events;
+    this.metrics = metrics;
+    this.transferMode = transferProperties.getMode();
+    this.batchProperties = transferProperties.getBatch();
+    this.lockWaiter = LockWaiter.create(transferProperties.getLockWait());
+    this.stripedAccountIds = new HashSet<>(transferProperties.getStriping().getAccountIds());
+    this.stripes = transferProperties.getStriping().getStripes();
+    if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+      throw new IllegalStateException("The number of stripes must be a power of two.");
+    }
+    if (!stripedAccountIds.isEmpty() && accountsRepository instanceof AccountsRepositoryOffHeap) {
+      throw new IllegalStateException("The off-heap account store keeps a single balance " +
+              "word per account and cannot be used with striped accounts.");
+    }
+    this.shardedExecutor = transferMode == TransferMode.SHARDED
+            ? new ShardedTransferExecutor(transferProperties.getShards()) : null;
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    if (shardedExecutor != null) {
+      shardedExecutor.shutdown();
+    }
   }
 
-  public void createAccount(Account account) {
-    this.accountsRepository.createAccount(account);
+  /**
+   * Creates the account and returns it as it is kept, which is not always
+   * the instance passed in: a striped account is swapped for one with a
+   * {@link StripedBalance}, and the repository may keep accounts in a form
+   * of its own. Only the returned account sees later transfers.
+   * <p>
+   * Throws {@link AccountNotDurableException} if the account was created but
+   * could not be journaled: it exists all the same, so it must not be
+   * created again.
+   */
+  public Account createAccount(Account account) {
+    CompletableFuture<Void> durable = insert(account);
+    Account created = this.accountsRepository.getAccount(account.getAccountId());
+    if (!isDurable(durable)) {
+      throw new AccountNotDurableException(ACCOUNT_NOT_DURABLE_MESSAGE);
+    }
+    return created;
+  }
+
+  /**
+   * Creates accounts one after the other, but only waits once for all of
+   * them to be journaled. Returns, for each account in order, null if it was
+   * created or the reason it was not; a failure only ever fails its own
+   * account. Accounts that were created but could
+   * not be journaled are reported with {@link #ACCOUNT_NOT_DURABLE_MESSAGE}.
+   */
+  public String[] createAccounts(List<Account> accounts) {
+    String[] errors = new String[accounts.size()];
+    CompletableFuture<Void> durable = null;
+    for (int i = 0; i < errors.length; i++) {
+      try {
+        durable = insert(accounts.get(i));
+      } catch (InvalidAccountException | DuplicateAccountIdException
+               | AccountStoreFullException e) {
+        errors[i] = e.getMessage();
+      } catch (RuntimeException e) {
+        log.error("Failed to create account {}", accounts.get(i).getAccountId(), e);
+        errors[i] = ACCOUNT_ERROR_MESSAGE;
+      }
+    }
+    // Records are written in order, so the last one being durable implies
+    // all the others are too.
+    if (durable != null && !isDurable(durable)) {
+      for (int i = 0; i < errors.length; i++) {
+        if (errors[i] == null) {
+          errors[i] = ACCOUNT_NOT_DURABLE_MESSAGE;
+        }
+      }
+    }
+    return errors;
+  }
+
+  private CompletableFuture<Void> insert(Account account) {
+    if (stripedAccountIds.contains(account.getAccountId())
+            && !(account.getBalanceState() instanceof StripedBalance)) {
+      // The balance is encoded as the account is swapped, so it is checked
+      // here rather than by the repository.
+      ValidationError error = RequestValidator.validateAccount(account.getAccountId(),
+              account.getBalance());
+      if (error != null) {
+        throw error.toException();
+      }
+      account = Account.striped(account.getAccountId(), account.getBalance(), stripes);
+    }
+    // The repository may keep the account in a form of its own, and hands it
+    // back locked: holding the lock keeps transfers on the new account from
+    // being journaled ahead of its creation, and from reaching an open
+    // snapshot before it knows of the account.
+    Account created = this.accountsRepository.createLockedAccount(account);
+    try {
+      BalanceSnapshot snapshot = openSnapshot.get();
+      if (snapshot != null) {
+        snapshot.created(created);
+      }
+      return journal.recordCreate(created);
+    } finally {
+      created.getLock().unlock();
+    }
   }
 
   public Account getAccount(String accountId) {
     return this.accountsRepository.getAccount(accountId);
   }
 
+  /**
+   * Reads the balances of the given accounts without taking any lock. Each
+   * balance is a single word read in one atomic load, so it is always a
+   * balance the account really had, however many transfers are updating it;
+   * balances of different accounts are not read at the same instant though,
+   * for which see {@link #openSnapshot()}. Striped accounts are the exception,
+   * see {@link StripedBalance}.
+   */
+  public BalanceQueryResult getBalances(List<String> accountIds) {
+    if (accountIds.size() > MAX_BALANCE_QUERY_SIZE) {
+      throw new InvalidBatchException("Balance queries cannot have more than " +
+              MAX_BALANCE_QUERY_SIZE + " account ids.");
+    }
+    BalanceQueryResult result = new BalanceQueryResult(accountIds.size());
+    for (String accountId : accountIds) {
+      Account account = accountId == null ? null : this.accountsRepository.getAccount(accountId);
+      if (account == null) {
+        result.addUnknown(accountId);
+      } else {
+        result.add(accountId, AtomicBalance.decode(account.getBalanceState().get()));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Takes a snapshot of every balance, to be streamed with
+   * {@link #exportBalances}. Only one snapshot can be open at a time, and
+   * only in the locking transfer mode, where every balance update happens
+   * under the locks the snapshot relies on. Striped accounts are credited
+   * without their lock, so they rule snapshots out too.
+   */
+  public BalanceSnapshot openSnapshot() {
+    if (transferMode != TransferMode.LOCKING) {
+      throw new SnapshotUnavailableException("Balance snapshots require the locking " +
+              "transfer mode.");
+    }
+    if (!stripedAccountIds.isEmpty()) {
+      throw new SnapshotUnavailableException("Balance snapshots cannot be taken with " +
+              "striped accounts.");
+    }
+    BalanceSnapshot snapshot = new BalanceSnapshot(snapshotEpochs.incrementAndGet(),
+            Instant.now());
+    if (!openSnapshot.compareAndSet(null, snapshot)) {
+      throw new SnapshotUnavailableException("A balance export is already running.");
+    }
+    return snapshot;
+  }
+
+  /**
+   * Hands the balance of every account as of the snapshot to the sink, one
+   * account at a time, and closes the snapshot. Transfers carry on
+   * meanwhile; each account is only locked for as long as it takes to read
+   * its balance. Returns the number of accounts exported.
+   */
+  public long exportBalances(BalanceSnapshot snapshot, BalanceSnapshot.Sink sink)
+          throws IOException {
+    long[] exported = new long[1];
+    try {
+      this.accountsRepository.forEachAccount(account -> {
+        long balance;
+        account.getLock().lock();
+        try {
+          balance = snapshot.export(account);
+        } finally {
+          account.getLock().unlock();
+        }
+        if (balance != BalanceSnapshot.ABSENT) {
+          try {
+            sink.accept(account.getAccountId(), balance);
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          exported[0]++;
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      closeSnapshot(snapshot);
+    }
+    return exported[0];
+  }
+
+  // Closes a snapshot that may never have been exported. Closing it again is
+  // harmless, as is closing it once another snapshot has been opened.
+  public void closeSnapshot(BalanceSnapshot snapshot) {
+    openSnapshot.compareAndSet(snapshot, null);
+  }
+
+  public TransactionPage getTransactions(String accountId, Long cursor, Instant from,
+                                         Instant to, int limit) {
+    if (this.accountsRepository.getAccount(accountId) == null) {
+      throw new InvalidAccountException("Account id " + accountId + " does not exist.");
+    }
+    if (limit < 1 || limit > 1000) {
+      throw new InvalidPageRequestException("Limit must be between 1 and 1000.");
+    }
+    if (from != null && to != null && from.isAfter(to)) {
+      throw new InvalidPageRequestException("From cannot be after to.");
+    }
+    return ledger.read(accountId, cursor, from, to, limit);
+  }
+
+  /**
+   * Returns balance changes made by transfers after offset {@code after}, or
+   * after the last transfer made so far when it is null, waiting up to
+   * {@code wait} for some if there are none yet. Balances are those read
+   * right after each transfer was applied: exact in the locking mode, while
+   * in the other modes they may already include later transfers.
+   * <p>
+   * {@code epoch} is that of the page the offset came from, if known. An
+   * offset of another epoch, taken before a restart, is not looked up: the
+   * page starts from the oldest event instead and is marked as reset.
+   */
+  public BalanceEventPage getBalanceEvents(Long epoch, Long after, Set<String> accountIds,
+                                           int limit, Duration wait)
+          throws InterruptedException {
+    if (!events.isEnabled()) {
+      throw new InvalidPageRequestException("Balance events are disabled.");
+    }
+    if (limit < 2 || limit > 1000) {
+      throw new InvalidPageRequestException("Limit must be between 2 and 1000.");
+    }
+    if (after != null && epoch != null && epoch != events.getEpoch()) {
+      BalanceEventPage page = events.read(-1, accountIds, limit);
+      return new BalanceEventPage(page.getEvents(), page.getLastOffset(), page.getMissed(),
+              page.getEpoch(), true);
+    }
+    long start = after == null ? events.getLastOffset() : after;
+    return wait.isPositive() ? events.await(start, accountIds, limit, wait)
+            : events.read(start, accountIds, limit);
+  }
+
   public void makeTransfer(String fromAccountId, String toAccountId,
                            BigDecimal amount) {
-    if (fromAccountId == null || fromAccountId.isBlank()
-            || toAccountId == null || toAccountId.isBlank()) {
-      throw new InvalidAccountException("From account id and or to account id" +
-              " cannot be empty.");
+    TransferStatus status = tryTransfer(fromAccountId, toAccountId, amount);
+    if (status == TransferStatus.INSUFFICIENT_FUNDS) {
+      throw new InsufficientFundsException(INSUFFICIENT_FUNDS_MESSAGE);
+    } else if (status == TransferStatus.TIMED_OUT) {
+      throw new TransactionTimeoutException(TIMED_OUT_MESSAGE);
+    } else if (status == TransferStatus.BUSY) {
+      throw new AccountBusyException(BUSY_MESSAGE);
+    } else if (status == TransferStatus.UNKNOWN_ACCOUNT) {
+      throw new InvalidAccountException(UNKNOWN_ACCOUNT_MESSAGE);
+    } else if (status == TransferStatus.NOT_DURABLE) {
+      throw new TransferNotDurableException(NOT_DURABLE_MESSAGE);
+    }
+  }
+
+  /**
+   * Same as {@link #makeTransfer}, except that a sender short of funds, an
+   * account that does not exist and a transfer that gave up waiting for a
+   * lock are reported by returning {@link TransferStatus#INSUFFICIENT_FUNDS},
+   * {@link TransferStatus#UNKNOWN_ACCOUNT}, {@link TransferStatus#TIMED_OUT}
+   * or {@link TransferStatus#BUSY} rather than by throwing, as they are
+   * ordinary outcomes of a transfer. So is a transfer that was applied but
+   * could not be journaled, {@link TransferStatus#NOT_DURABLE}, which must
+   * not be retried. Invalid requests still throw.
+   */
+  public TransferStatus tryTransfer(String fromAccountId, String toAccountId,
+                                    BigDecimal amount) {
+    long started = System.nanoTime();
+    TransferStatus status = null;
+    try {
+      status = transfer(fromAccountId, toAccountId, amount);
+      return status;
+    } catch (InvalidAccountException e) {
+      status = TransferStatus.INVALID_ACCOUNT;
+      throw e;
+    } catch (InvalidAmountException e) {
+      status = TransferStatus.INVALID_AMOUNT;
+      throw e;
+    } finally {
+      metrics.recordTransfer(status, System.nanoTime() - started);
     }
+  }
 
-    if (amount == null || amount.compareTo(BigDecimal.ZERO) == -1
-            || amount.compareTo(BigDecimal.ZERO) == 0) {
-      throw new InvalidAmountException("Amount cannot be less than or equal " +
-              "to zero.");
+  private TransferStatus transfer(String fromAccountId, String toAccountId,
+                                  BigDecimal amount) {
+    ValidationError error = RequestValidator.validateTransfer(fromAccountId, toAccountId,
+            amount);
+    if (error != null) {
+      throw error.toException();
     }
+    long encodedAmount = AtomicBalance.encode(amount);
 
     Account fromAccount = this.accountsRepository.getAccount(fromAccountId);
     Account toAccount = this.accountsRepository.getAccount(toAccountId);
+    if (fromAccount == null || toAccount == null) {
+      return TransferStatus.UNKNOWN_ACCOUNT;
+    }
+
+    TransferStatus status;
+    if (transferMode == TransferMode.LOCK_FREE) {
+      if (!AtomicBalance.transfer(fromAccount.getBalanceState(),
+              toAccount.getBalanceState(), encodedAmount)) {
+        return TransferStatus.INSUFFICIENT_FUNDS;
+      }
+      ledger.append(fromAccount, toAccount, encodedAmount);
+      CompletableFuture<Void> durable = journal.recordTransfer(fromAccount, toAccount,
+              encodedAmount);
+      events.publish(fromAccount, toAccount, encodedAmount, durable);
+      status = isDurable(durable) ? TransferStatus.OK : TransferStatus.NOT_DURABLE;
+    } else if (transferMode == TransferMode.SHARDED) {
+      status = shardedExecutor.transfer(fromAccount, toAccount, encodedAmount).join();
+      if (status == TransferStatus.INSUFFICIENT_FUNDS) {
+        return status;
+      } else if (status == TransferStatus.INVALID_AMOUNT) {
+        throw new InvalidAmountException("Amount is out of range.");
+      }
+      ledger.append(fromAccount, toAccount, encodedAmount);
+      CompletableFuture<Void> durable = journal.recordTransfer(fromAccount, toAccount,
+              encodedAmount);
+      events.publish(fromAccount, toAccount, encodedAmount, durable);
+      status = isDurable(durable) ? TransferStatus.OK : TransferStatus.NOT_DURABLE;
+    } else {
+      status = transferUnderLocks(fromAccount, toAccount, encodedAmount);
+      if (!isApplied(status)) {
+        return status;
+      }
+    }
+
+    // Notifications are only queued once both locks are released, so a slow
+    // notification backend never extends the time the accounts stay locked.
+    notificationDispatcher.dispatchDebit(fromAccount, amount);
+    notificationDispatcher.dispatchCredit(toAccount, amount);
+    return status;
+  }
+
+  // Returns once the transfer is durable, or with the reason it was not made
+  // or not made durable.
+  private TransferStatus transferUnderLocks(Account fromAccount, Account toAccount,
+                                            long encodedAmount) {
+    if (toAccount.getBalanceState() instanceof StripedBalance) {
+      return transferToStriped(fromAccount, toAccount, encodedAmount);
+    }
+    String fromAccountId = fromAccount.getAccountId();
+    String toAccountId = toAccount.getAccountId();
+
+    // Locks are always taken in account id order, whatever the direction of
+    // the transfer, so that opposing transfers (A -> B and B -> A) can never
+    // wait on each other.
+    boolean fromAccountLockedFirst = fromAccountId.compareTo(toAccountId) < 0;
+    Account firstAccount = fromAccountLockedFirst ? fromAccount : toAccount;
+    Account secondAccount = fromAccountLockedFirst ? toAccount : fromAccount;
 
-    boolean isLockAcquiredOnFromAccount = false;
+    CompletableFuture<Void> durable;
+    boolean isLockAcquiredOnFirstAccount = false;
     try {
-      // Try to acquire lock on from account
-      isLockAcquiredOnFromAccount = fromAccount.getLock().tryLock(10,
-              TimeUnit.SECONDS);
+      // Try to acquire lock on the account with the lower id
+      long waited = lock(firstAccount, lockWaiter.getDeadlineNanos());
+      isLockAcquiredOnFirstAccount = waited >= 0;
+      if (!isLockAcquiredOnFirstAccount) {
+        return lockWaiter.getGiveUpStatus();
+      }
 
-      if (isLockAcquiredOnFromAccount) {
-        boolean isLockAcquiredOnToAccount = false;
-        try {
-          // Try to acquire lock on to account
-          isLockAcquiredOnToAccount = toAccount.getLock().tryLock(10,
-                  TimeUnit.SECONDS);
-
-          if (isLockAcquiredOnToAccount) {
-            // If both locks are acquired, fetch the updated from and to
-            // accounts from DB so that we can work on updated balance.
-            fromAccount = this.accountsRepository.getAccount(fromAccountId);
-            toAccount = this.accountsRepository.getAccount(toAccountId);
-
-            if (fromAccount.getBalance().compareTo(amount) == -1) {
-              throw new InsufficientFundsException("Insufficient funds. Check the " +
-                      "fund balance before making fund transfer.");
-            }
+      boolean isLockAcquiredOnSecondAccount = false;
+      try {
+        // Try to acquire lock on the account with the higher id, within
+        // what is left of the deadline
+        isLockAcquiredOnSecondAccount = lock(secondAccount,
+                lockWaiter.getDeadlineNanos() - waited) >= 0;
+        if (!isLockAcquiredOnSecondAccount) {
+          return lockWaiter.getGiveUpStatus();
+        }
 
-            fromAccount.setBalance(fromAccount.getBalance().subtract(amount));
-            toAccount.setBalance(toAccount.getBalance().add(amount));
-
-            notificationService.notifyAboutTransfer(fromAccount,
-                    "Funds " + amount + " has been debited from your account.");
-            notificationService.notifyAboutTransfer(toAccount,
-                    "Funds " + amount + " has been credited to your account.");
-          } else {
-            throw new TransactionTimeoutException("Your transaction has timed" +
-                    " out. Money will not be debited from your account. Please try " +
-                    "again in some time.");
-          }
-        } finally {
-          if (isLockAcquiredOnToAccount) {
-            toAccount.getLock().unlock();
-          }
+        // The accounts resolved by the caller are worked on directly:
+        // their balances are only read through them under the locks.
+        BalanceSnapshot snapshot = openSnapshot.get();
+        if (snapshot != null) {
+          snapshot.beforeUpdate(fromAccount);
+          snapshot.beforeUpdate(toAccount);
+        }
+
+        if (!AtomicBalance.transfer(fromAccount.getBalanceState(),
+                toAccount.getBalanceState(), encodedAmount)) {
+          return TransferStatus.INSUFFICIENT_FUNDS;
+        }
+        ledger.append(fromAccount, toAccount, encodedAmount);
+        durable = journal.recordTransfer(fromAccount, toAccount, encodedAmount);
+        events.publish(fromAccount, toAccount, encodedAmount, durable);
+      } finally {
+        if (isLockAcquiredOnSecondAccount) {
+          secondAccount.getLock().unlock();
         }
-      } else {
-        throw new TransactionTimeoutException("Your transaction has timed out" +
-                ". Money will not be debited from your account. Please try " +
-                "again in some time.");
       }
     } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
         throw new RuntimeException(e);
     } finally {
-      if (isLockAcquiredOnFromAccount) {
-        fromAccount.getLock().unlock();
+      if (isLockAcquiredOnFirstAccount) {
+        firstAccount.getLock().unlock();
+      }
+    }
+    return isDurable(durable) ? TransferStatus.OK : TransferStatus.NOT_DURABLE;
+  }
+
+  // A striped account takes credits without its lock, so a transfer to one
+  // only locks the sender and no longer queues up behind every other
+  // transfer to the same account.
+  private TransferStatus transferToStriped(Account fromAccount, Account toAccount,
+                                           long encodedAmount) {
+    CompletableFuture<Void> durable;
+    try {
+      if (lock(fromAccount, lockWaiter.getDeadlineNanos()) < 0) {
+        return lockWaiter.getGiveUpStatus();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+    try {
+      if (!AtomicBalance.transfer(fromAccount.getBalanceState(),
+              toAccount.getBalanceState(), encodedAmount)) {
+        return TransferStatus.INSUFFICIENT_FUNDS;
+      }
+      ledger.append(fromAccount, toAccount, encodedAmount);
+      durable = journal.recordTransfer(fromAccount, toAccount, encodedAmount);
+      events.publish(fromAccount, toAccount, encodedAmount, durable);
+    } finally {
+      fromAccount.getLock().unlock();
+    }
+    return isDurable(durable) ? TransferStatus.OK : TransferStatus.NOT_DURABLE;
+  }
+
+  // Waits at most timeoutNanos, as the lock wait policy sees fit, for the
+  // account lock and returns how long it waited, or -1 if it gave up. Only a
+  // lock that is not free at once is timed, which keeps the clock off the
+  // uncontended path. Waiting parks the thread, so a virtual thread leaves
+  // its carrier free meanwhile.
+  private long lock(Account account, long timeoutNanos) throws InterruptedException {
+    if (account.getLock().tryLock()) {
+      return 0;
+    }
+    long started = System.nanoTime();
+    boolean acquired = lockWaiter.await(account, timeoutNanos);
+    long waited = System.nanoTime() - started;
+    metrics.recordLockWait(account.getAccountId(), waited);
+    if (!acquired) {
+      metrics.recordLockGiveUp(lockWaiter.getPolicy());
+      return -1;
+    }
+    return waited;
+  }
+
+  /**
+   * Executes a batch of transfers. In per-item mode transfers are executed in
+   * chunks, each chunk taking the locks of all the accounts it touches once
+   * and then applying its transfers in order; every transfer succeeds or
+   * fails on its own, and a lock given up on only fails the transfers of
+   * that account. In all-or-nothing mode the whole batch is netted down to
+   * one debit or credit per account and applied under a single acquisition
+   * of all its locks, or not at all. It is only applied if every transfer
+   * would have been, executed in order: a sender may spend what it receives
+   * earlier in the batch, not what it receives later. The sharded transfer
+   * mode only takes per-item batches.
+   * <p>
+   * A {@code null} element stands for a transfer the caller could not parse
+   * and is reported as {@link TransferStatus#MALFORMED}.
+   */
+  public BatchTransferResult makeTransfers(Iterator<FundTransferRequest> transfers,
+                                           boolean allOrNothing) {
+    long started = System.nanoTime();
+    try {
+      return executeTransfers(transfers, allOrNothing);
+    } finally {
+      metrics.recordBatch(System.nanoTime() - started);
+    }
+  }
+
+  private BatchTransferResult executeTransfers(Iterator<FundTransferRequest> transfers,
+                                               boolean allOrNothing) {
+    BatchTransferResult result = new BatchTransferResult();
+    if (allOrNothing) {
+      // Balances belong to their shard's thread, which a netted batch
+      // spanning shards cannot be applied on.
+      if (transferMode == TransferMode.SHARDED) {
+        throw new InvalidBatchException("All-or-nothing batches are not supported in the " +
+                "sharded transfer mode.");
+      }
+      List<FundTransferRequest> batch = new ArrayList<>();
+      while (transfers.hasNext()) {
+        if (batch.size() == batchProperties.getMaxAllOrNothingSize()) {
+          throw new InvalidBatchException("All-or-nothing batches cannot have " +
+                  "more than " + batchProperties.getMaxAllOrNothingSize() + " transfers.");
+        }
+        batch.add(transfers.next());
+      }
+      executeBatch(batch, 0, true, result);
+    } else {
+      List<FundTransferRequest> chunk = new ArrayList<>(batchProperties.getChunkSize());
+      int offset = 0;
+      while (transfers.hasNext()) {
+        chunk.add(transfers.next());
+        if (chunk.size() == batchProperties.getChunkSize() || !transfers.hasNext()) {
+          executeBatch(chunk, offset, false, result);
+          offset += chunk.size();
+          chunk.clear();
+        }
+      }
+    }
+    return result;
+  }
+
+  private void executeBatch(List<FundTransferRequest> batch, int offset,
+                            boolean allOrNothing, BatchTransferResult result) {
+    int size = batch.size();
+    Account[] fromAccounts = new Account[size];
+    Account[] toAccounts = new Account[size];
+    long[] amounts = new long[size];
+    TransferStatus[] statuses = new TransferStatus[size];
+
+    boolean allValid = true;
+    for (int i = 0; i < size; i++) {
+      statuses[i] = resolve(batch.get(i), i, fromAccounts, toAccounts, amounts);
+      allValid &= statuses[i] == null;
+    }
+
+    if (allOrNothing && allValid) {
+      transferAllOrNothing(fromAccounts, toAccounts, amounts, statuses);
+    } else if (!allOrNothing) {
+      transferEach(fromAccounts, toAccounts, amounts, statuses);
+    }
+
+    for (int i = 0; i < size; i++) {
+      if (statuses[i] == null) {
+        // Not executed because another item of its all-or-nothing batch failed.
+        result.addNotExecuted(1);
+        continue;
+      }
+      result.add(offset + i, statuses[i]);
+      metrics.recordOutcome(statuses[i]);
+      if (isApplied(statuses[i])) {
+        BigDecimal amount = batch.get(i).getAmount();
+        notificationDispatcher.dispatchDebit(fromAccounts[i], amount);
+        notificationDispatcher.dispatchCredit(toAccounts[i], amount);
+      }
+    }
+  }
+
+  // Returns null if the transfer can be executed, its failure status otherwise.
+  private TransferStatus resolve(FundTransferRequest transfer, int index,
+                                 Account[] fromAccounts, Account[] toAccounts,
+                                 long[] amounts) {
+    if (transfer == null) {
+      return TransferStatus.MALFORMED;
+    }
+    String fromAccountId = transfer.getFromAccountId();
+    String toAccountId = transfer.getToAccountId();
+    ValidationError error = RequestValidator.validateTransfer(fromAccountId, toAccountId,
+            transfer.getAmount());
+    if (error != null) {
+      return error.status();
+    }
+    amounts[index] = AtomicBalance.encode(transfer.getAmount());
+    fromAccounts[index] = this.accountsRepository.getAccount(fromAccountId);
+    toAccounts[index] = this.accountsRepository.getAccount(toAccountId);
+    if (fromAccounts[index] == null || toAccounts[index] == null) {
+      return TransferStatus.UNKNOWN_ACCOUNT;
+    }
+    return null;
+  }
+
+  private void transferEach(Account[] fromAccounts, Account[] toAccounts,
+                            long[] amounts, TransferStatus[] statuses) {
+    if (transferMode == TransferMode.SHARDED) {
+      transferEachOnShards(fromAccounts, toAccounts, amounts, statuses);
+      return;
+    }
+    TreeMap<String, Account> accounts = new TreeMap<>();
+    for (int i = 0; i < statuses.length; i++) {
+      if (statuses[i] == null) {
+        accounts.put(fromAccounts[i].getAccountId(), fromAccounts[i]);
+        accounts.put(toAccounts[i].getAccountId(), toAccounts[i]);
+      }
+    }
+
+    boolean locking = transferMode == TransferMode.LOCKING;
+    Collection<Account> locked = locking ? lockAvailable(accounts.values()) : accounts.values();
+    if (locked.size() < accounts.size()) {
+      // Only the transfers touching an account whose lock was given up on
+      // fail, the rest of the chunk goes ahead.
+      Set<String> lockedAccountIds = new HashSet<>();
+      for (Account account : locked) {
+        lockedAccountIds.add(account.getAccountId());
+      }
+      for (int i = 0; i < statuses.length; i++) {
+        if (statuses[i] == null && (!lockedAccountIds.contains(fromAccounts[i].getAccountId())
+                || !lockedAccountIds.contains(toAccounts[i].getAccountId()))) {
+          statuses[i] = lockWaiter.getGiveUpStatus();
+        }
+      }
+    }
+    beforeUpdate(locked);
+    CompletableFuture<Void> durable = null;
+    try {
+      for (int i = 0; i < statuses.length; i++) {
+        if (statuses[i] == null) {
+          statuses[i] = applyTransfer(fromAccounts[i], toAccounts[i], amounts[i]);
+          if (statuses[i] == TransferStatus.OK) {
+            ledger.append(fromAccounts[i], toAccounts[i], amounts[i]);
+            durable = journal.recordTransfer(fromAccounts[i], toAccounts[i], amounts[i]);
+            events.publish(fromAccounts[i], toAccounts[i], amounts[i], durable);
+          }
+        }
+      }
+    } finally {
+      if (locking) {
+        unlockAll(locked);
+      }
+    }
+    markNotDurable(durable, statuses);
+  }
+
+  // Transfers are all handed to the shards before any is waited for, so they
+  // are only applied in order per sending account.
+  private void transferEachOnShards(Account[] fromAccounts, Account[] toAccounts,
+                                    long[] amounts, TransferStatus[] statuses) {
+    List<CompletableFuture<TransferStatus>> results = new ArrayList<>(statuses.length);
+    for (int i = 0; i < statuses.length; i++) {
+      results.add(statuses[i] == null
+              ? shardedExecutor.transfer(fromAccounts[i], toAccounts[i], amounts[i]) : null);
+    }
+    CompletableFuture<Void> durable = null;
+    for (int i = 0; i < statuses.length; i++) {
+      if (results.get(i) != null) {
+        statuses[i] = results.get(i).join();
+        if (statuses[i] == TransferStatus.OK) {
+          ledger.append(fromAccounts[i], toAccounts[i], amounts[i]);
+          durable = journal.recordTransfer(fromAccounts[i], toAccounts[i], amounts[i]);
+          events.publish(fromAccounts[i], toAccounts[i], amounts[i], durable);
+        }
+      }
+    }
+    markNotDurable(durable, statuses);
+  }
+
+  private void transferAllOrNothing(Account[] fromAccounts, Account[] toAccounts,
+                                    long[] amounts, TransferStatus[] statuses) {
+    // Net the batch down to a single debit or credit per account, keyed and
+    // therefore locked in account id order, keeping track of how far each
+    // account would be drawn down at any point of the batch.
+    TreeMap<String, NetPosition> positions = new TreeMap<>();
+    for (int i = 0; i < statuses.length; i++) {
+      Account fromAccount = fromAccounts[i];
+      Account toAccount = toAccounts[i];
+      try {
+        positions.computeIfAbsent(fromAccount.getAccountId(), id -> new NetPosition(fromAccount))
+                .add(-AtomicBalance.units(amounts[i]), AtomicBalance.scale(amounts[i]))
+                .markLow();
+        positions.computeIfAbsent(toAccount.getAccountId(), id -> new NetPosition(toAccount))
+                .add(AtomicBalance.units(amounts[i]), AtomicBalance.scale(amounts[i]));
+      } catch (ArithmeticException e) {
+        statuses[i] = TransferStatus.INVALID_AMOUNT;
+        return;
+      }
+    }
+    List<Account> accounts = new ArrayList<>(positions.size());
+    for (NetPosition position : positions.values()) {
+      accounts.add(position.account);
+    }
+
+    boolean locking = transferMode == TransferMode.LOCKING;
+    if (locking && !lockAll(accounts)) {
+      Arrays.fill(statuses, lockWaiter.getGiveUpStatus());
+      return;
+    }
+    CompletableFuture<Void> durable = null;
+    try {
+      // Credits are checked for range before anything is debited, as the
+      // batch could not be undone past its debits. Without the locks, a
+      // concurrent credit can still take up the room in between.
+      for (NetPosition position : positions.values()) {
+        if (position.units > position.low && !position.canCredit()) {
+          for (int i = 0; i < statuses.length; i++) {
+            if (toAccounts[i].getAccountId().equals(position.account.getAccountId())) {
+              statuses[i] = TransferStatus.INVALID_AMOUNT;
+            }
+          }
+          return;
+        }
+      }
+      beforeUpdate(accounts);
+      // Debits first: they are the only step that can fail, and undoing a
+      // debit is a credit, which cannot. Each account is debited its lowest
+      // point in the batch rather than its net position, so that the batch
+      // only goes through if every transfer would have in order; what the
+      // account gets back later in the batch is credited with the rest.
+      List<NetPosition> debited = new ArrayList<>();
+      for (NetPosition position : positions.values()) {
+        if (position.low < 0) {
+          if (!position.account.getBalanceState().tryDebit(
+                  AtomicBalance.encode(-position.low, position.scale))) {
+            for (NetPosition undo : debited) {
+              undo.account.getBalanceState().credit(
+                      AtomicBalance.encode(-undo.low, undo.scale));
+            }
+            for (int i = 0; i < statuses.length; i++) {
+              if (fromAccounts[i].getAccountId().equals(position.account.getAccountId())) {
+                statuses[i] = TransferStatus.INSUFFICIENT_FUNDS;
+              }
+            }
+            return;
+          }
+          debited.add(position);
+        }
+      }
+      for (NetPosition position : positions.values()) {
+        if (position.units > position.low) {
+          position.account.getBalanceState().credit(
+                  AtomicBalance.encode(position.units - position.low, position.scale));
+        }
+      }
+      Arrays.fill(statuses, TransferStatus.OK);
+      for (int i = 0; i < statuses.length; i++) {
+        ledger.append(fromAccounts[i], toAccounts[i], amounts[i]);
+        durable = journal.recordTransfer(fromAccounts[i], toAccounts[i], amounts[i]);
+        events.publish(fromAccounts[i], toAccounts[i], amounts[i], durable);
+      }
+    } finally {
+      if (locking) {
+        unlockAll(accounts);
+      }
+    }
+    markNotDurable(durable, statuses);
+  }
+
+  private static boolean isApplied(TransferStatus status) {
+    return status == TransferStatus.OK || status == TransferStatus.NOT_DURABLE;
+  }
+
+  // The change has been applied by then, so a journal failure cannot undo it
+  // any more: it is reported instead, for the caller not to retry it.
+  private static boolean isDurable(CompletableFuture<Void> durable) {
+    try {
+      durable.join();
+      return true;
+    } catch (CompletionException e) {
+      log.error("Failed to journal a change that has been applied", e.getCause());
+      return false;
+    }
+  }
+
+  // Records are written in order, so the last one being durable implies all
+  // the others are too, and its failure puts them all in doubt.
+  private static void markNotDurable(CompletableFuture<Void> durable,
+                                     TransferStatus[] statuses) {
+    if (durable == null || isDurable(durable)) {
+      return;
+    }
+    for (int i = 0; i < statuses.length; i++) {
+      if (statuses[i] == TransferStatus.OK) {
+        statuses[i] = TransferStatus.NOT_DURABLE;
+      }
+    }
+  }
+
+  private static TransferStatus applyTransfer(Account fromAccount, Account toAccount,
+                                              long amount) {
+    try {
+      return AtomicBalance.transfer(fromAccount.getBalanceState(),
+              toAccount.getBalanceState(), amount)
+              ? TransferStatus.OK : TransferStatus.INSUFFICIENT_FUNDS;
+    } catch (IllegalArgumentException e) {
+      return TransferStatus.INVALID_AMOUNT;
+    }
+  }
+
+  // The snapshot is read once for all the accounts, so that either all of
+  // them or none have their balances saved.
+  private void beforeUpdate(Collection<Account> accounts) {
+    BalanceSnapshot snapshot = openSnapshot.get();
+    if (snapshot != null) {
+      for (Account account : accounts) {
+        snapshot.beforeUpdate(account);
+      }
+    }
+  }
+
+  // Accounts must be passed in account id order. Either all locks are taken,
+  // or none is held when this returns false.
+  private boolean lockAll(Collection<Account> accounts) {
+    long budget = lockWaiter.getDeadlineNanos();
+    List<Lock> acquired = new ArrayList<>(accounts.size());
+    try {
+      for (Account account : accounts) {
+        long waited = lock(account, budget);
+        if (waited < 0) {
+          acquired.forEach(Lock::unlock);
+          return false;
+        }
+        budget -= waited;
+        acquired.add(account.getLock());
+      }
+      return true;
+    } catch (InterruptedException e) {
+      acquired.forEach(Lock::unlock);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  // Accounts must be passed in account id order. Takes the lock of every
+  // account it can within the lock wait budget and returns those accounts;
+  // once the budget is spent, only locks that are free at once are taken.
+  // Skipping an account keeps the order, so it cannot deadlock either.
+  private List<Account> lockAvailable(Collection<Account> accounts) {
+    long budget = lockWaiter.getDeadlineNanos();
+    List<Account> locked = new ArrayList<>(accounts.size());
+    try {
+      for (Account account : accounts) {
+        long waited = lock(account, Math.max(budget, 0));
+        if (waited >= 0) {
+          budget -= waited;
+          locked.add(account);
+        } else {
+          budget = 0;
+        }
+      }
+      return locked;
+    } catch (InterruptedException e) {
+      unlockAll(locked);
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static void unlockAll(Collection<Account> accounts) {
+    for (Account account : accounts) {
+      account.getLock().unlock();
+    }
+  }
+
+  private static final class NetPosition {
+
+    private final Account account;
+
+    private long units;
+
+    // Lowest the running position has been, never above zero.
+    private long low;
+
+    private int scale;
+
+    private NetPosition(Account account) {
+      this.account = account;
+    }
+
+    private NetPosition add(long units, int scale) {
+      this.units = Math.addExact(this.units, units);
+      this.scale = Math.max(this.scale, scale);
+      return this;
+    }
+
+    private void markLow() {
+      low = Math.min(low, units);
+    }
+
+    // Whether what the account gets back above its lowest point fits in its
+    // balance.
+    private boolean canCredit() {
+      long credit;
+      try {
+        credit = Math.subtractExact(units, low);
+      } catch (ArithmeticException e) {
+        return false;
       }
+      return account.getBalanceState().canCredit(credit);
     }
   }
 }
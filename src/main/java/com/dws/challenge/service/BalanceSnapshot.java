@@ -0,0 +1,72 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A point-in-time view of every balance, kept copy-on-write: while the
+ * snapshot is open, the first transfer to touch an account since the
+ * snapshot was taken saves the balance the account had before, unless the
+ * account has been exported already. Only the accounts touched during the
+ * export are ever copied, and each is dropped again once exported.
+ * <p>
+ * Every step runs under the lock of the account concerned, which is what
+ * makes the view consistent: a transfer holding the locks of both its
+ * accounts either sees the snapshot open and saves both balances, or does
+ * not and is part of the snapshot on both sides.
+ */
+public final class BalanceSnapshot {
+
+  // Stands for an account created after the snapshot was taken.
+  static final long ABSENT = Long.MIN_VALUE;
+
+  @Getter
+  private final long epoch;
+
+  @Getter
+  private final Instant takenAt;
+
+  private final Map<String, Long> savedBalances = new ConcurrentHashMap<>();
+
+  BalanceSnapshot(long epoch, Instant takenAt) {
+    this.epoch = epoch;
+    this.takenAt = takenAt;
+  }
+
+  // Called with the account lock held, before its balance changes.
+  void beforeUpdate(Account account) {
+    if (account.getSnapshotEpoch() != epoch) {
+      account.setSnapshotEpoch(epoch);
+      savedBalances.put(account.getAccountId(), account.getBalanceState().get());
+    }
+  }
+
+  // Called with the account lock held, once it has been created.
+  void created(Account account) {
+    account.setSnapshotEpoch(epoch);
+    savedBalances.put(account.getAccountId(), ABSENT);
+  }
+
+  // Called with the account lock held. Returns the balance of the account
+  // as of the snapshot, or ABSENT if it did not exist yet.
+  long export(Account account) {
+    if (account.getSnapshotEpoch() != epoch) {
+      account.setSnapshotEpoch(epoch);
+      return account.getBalanceState().get();
+    }
+    Long saved = savedBalances.remove(account.getAccountId());
+    return saved == null ? ABSENT : saved;
+  }
+
+  @FunctionalInterface
+  public interface Sink {
+
+    // The balance is encoded as by AtomicBalance.encode.
+    void accept(String accountId, long balance) throws IOException;
+  }
+}
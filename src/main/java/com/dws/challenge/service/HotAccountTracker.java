@@ -0,0 +1,85 @@
+package com.dws.challenge.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps track of the accounts whose locks are waited on the most, in bounded
+ * memory, with the Space-Saving algorithm: once {@code capacity} accounts are
+ * tracked, a new one replaces the least counted and inherits its count, so
+ * the counts of the accounts reported may be overestimated but a truly hot
+ * account is never missed.
+ * <p>
+ * Recording never blocks: a sample arriving while another is being recorded
+ * is dropped, which only makes the counts approximate.
+ */
+public class HotAccountTracker {
+
+  private final int capacity;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Map<String, Entry> entries;
+
+  public HotAccountTracker(int capacity) {
+    this.capacity = capacity;
+    this.entries = new HashMap<>(Math.max(16, capacity * 2));
+  }
+
+  public void record(String accountId, long waitNanos) {
+    if (capacity == 0 || !lock.tryLock()) {
+      return;
+    }
+    try {
+      Entry entry = entries.get(accountId);
+      if (entry == null) {
+        entry = new Entry(accountId);
+        if (entries.size() == capacity) {
+          Entry evicted = entries.values().stream()
+                  .min(Comparator.comparingLong(candidate -> candidate.count)).orElseThrow();
+          entries.remove(evicted.accountId);
+          entry.count = evicted.count;
+        }
+        entries.put(accountId, entry);
+      }
+      entry.count++;
+      entry.waitNanos += waitNanos;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  public List<HotAccount> top(int limit) {
+    List<HotAccount> top = new ArrayList<>();
+    lock.lock();
+    try {
+      for (Entry entry : entries.values()) {
+        top.add(new HotAccount(entry.accountId, entry.count, entry.waitNanos / 1_000_000));
+      }
+    } finally {
+      lock.unlock();
+    }
+    top.sort(Comparator.comparingLong(HotAccount::contendedAcquisitions).reversed());
+    return top.subList(0, Math.min(limit, top.size()));
+  }
+
+  public record HotAccount(String accountId, long contendedAcquisitions, long waitMillis) {
+  }
+
+  private static final class Entry {
+
+    private final String accountId;
+
+    private long count;
+
+    private long waitNanos;
+
+    private Entry(String accountId) {
+      this.accountId = accountId;
+    }
+  }
+}
@@ -0,0 +1,10 @@
+package com.dws.challenge.service;
+
+public enum ImportFormat {
+
+  // One JSON account per line, as accepted by the create account endpoint.
+  NDJSON,
+
+  // One "accountId,balance" line per account, after an optional header.
+  CSV
+}
@@ -0,0 +1,19 @@
+package com.dws.challenge.service;
+
+// How a transfer waits for an account lock that is not free at once. Every
+// policy gives up once the transfer's deadline has passed.
+public enum LockWaitPolicy {
+
+  // Parks until the lock is free or the deadline has passed.
+  DEADLINE,
+
+  // Does not wait at all: the transfer is rejected as busy.
+  FAIL_FAST,
+
+  // Retries the lock a bounded number of times before parking.
+  SPIN_THEN_PARK,
+
+  // Parks for at most a multiple of the usual wait for the account's lock,
+  // so that a lock held for much longer than usual is given up on early.
+  ADAPTIVE
+}
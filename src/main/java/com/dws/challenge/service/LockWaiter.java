@@ -0,0 +1,143 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import lombok.Getter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Waits for account locks that were not free at once, as set by a
+ * {@link LockWaitPolicy}. A transfer has a budget of
+ * {@link #getDeadlineNanos()} for all of its locks together, and each wait
+ * is given what is left of it.
+ */
+public abstract class LockWaiter {
+
+  @Getter
+  private final LockWaitPolicy policy;
+
+  @Getter
+  private final long deadlineNanos;
+
+  protected LockWaiter(LockWaitPolicy policy, long deadlineNanos) {
+    this.policy = policy;
+    this.deadlineNanos = deadlineNanos;
+  }
+
+  public static LockWaiter create(TransferProperties.LockWait properties) {
+    long deadlineNanos = properties.getDeadline().toNanos();
+    return switch (properties.getPolicy()) {
+      case DEADLINE -> new Deadline(deadlineNanos);
+      case FAIL_FAST -> new FailFast();
+      case SPIN_THEN_PARK -> new SpinThenPark(deadlineNanos, properties.getSpins());
+      case ADAPTIVE -> new Adaptive(deadlineNanos, properties.getMultiplier(),
+              properties.getMinTimeout().toNanos());
+    };
+  }
+
+  /**
+   * Waits for at most {@code budgetNanos} for the lock of the account, which
+   * was just found taken, and returns whether it was acquired.
+   */
+  public abstract boolean await(Account account, long budgetNanos) throws InterruptedException;
+
+  // What a transfer that gave up waiting is reported as.
+  public TransferStatus getGiveUpStatus() {
+    return TransferStatus.TIMED_OUT;
+  }
+
+  private static final class Deadline extends LockWaiter {
+
+    private Deadline(long deadlineNanos) {
+      super(LockWaitPolicy.DEADLINE, deadlineNanos);
+    }
+
+    @Override
+    public boolean await(Account account, long budgetNanos) throws InterruptedException {
+      return account.getLock().tryLock(budgetNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static final class FailFast extends LockWaiter {
+
+    private FailFast() {
+      super(LockWaitPolicy.FAIL_FAST, 0);
+    }
+
+    @Override
+    public boolean await(Account account, long budgetNanos) {
+      return false;
+    }
+
+    @Override
+    public TransferStatus getGiveUpStatus() {
+      return TransferStatus.BUSY;
+    }
+  }
+
+  // Locks are mostly held for well under a microsecond, so a few retries
+  // usually get the lock without the cost of parking and being woken up.
+  private static final class SpinThenPark extends LockWaiter {
+
+    private final int spins;
+
+    private SpinThenPark(long deadlineNanos, int spins) {
+      super(LockWaitPolicy.SPIN_THEN_PARK, deadlineNanos);
+      this.spins = spins;
+    }
+
+    @Override
+    public boolean await(Account account, long budgetNanos) throws InterruptedException {
+      Lock lock = account.getLock();
+      long started = System.nanoTime();
+      for (int i = 0; i < spins; i++) {
+        Thread.onSpinWait();
+        if (lock.tryLock()) {
+          return true;
+        }
+      }
+      return lock.tryLock(budgetNanos - (System.nanoTime() - started), TimeUnit.NANOSECONDS);
+    }
+  }
+
+  // The usual wait is a moving average of the waits that ended with the lock
+  // acquired, kept per stripe of accounts by handle. Waits that were given up
+  // on are left out, or a lock held for long would raise the timeout of the
+  // very waiters it is meant to let go.
+  private static final class Adaptive extends LockWaiter {
+
+    private static final int STRIPES = 4096;
+
+    private final AtomicLongArray usualWaits = new AtomicLongArray(STRIPES);
+
+    private final int multiplier;
+
+    private final long minTimeoutNanos;
+
+    private Adaptive(long deadlineNanos, int multiplier, long minTimeoutNanos) {
+      super(LockWaitPolicy.ADAPTIVE, deadlineNanos);
+      this.multiplier = multiplier;
+      this.minTimeoutNanos = minTimeoutNanos;
+    }
+
+    @Override
+    public boolean await(Account account, long budgetNanos) throws InterruptedException {
+      int stripe = account.getHandle() & (STRIPES - 1);
+      long usualWait = usualWaits.get(stripe);
+      long timeout = Math.min(budgetNanos, Math.max(minTimeoutNanos, usualWait * multiplier));
+      long started = System.nanoTime();
+      if (!account.getLock().tryLock(timeout, TimeUnit.NANOSECONDS)) {
+        return false;
+      }
+      long waited = System.nanoTime() - started;
+      // Racing updates may lose one another's sample, which an average can
+      // afford.
+      usualWaits.set(stripe, usualWait + ((waited - usualWait) >> 3));
+      return true;
+    }
+  }
+}
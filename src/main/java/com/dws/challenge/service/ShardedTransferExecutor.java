@@ -0,0 +1,86 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs transfers on a fixed set of single-threaded shards. Every account
+ * belongs to the shard its id hashes to, and its balance is only ever
+ * updated from that shard's thread, so no lock is taken and threads never
+ * contend on a hot account: its updates simply queue up on one thread.
+ * <p>
+ * A transfer between two shards is passed on as a message: the debit runs on
+ * the sender's shard which, if it succeeds, hands the credit over to the
+ * receiver's shard. The returned future completes once the transfer has been
+ * fully applied or rejected.
+ */
+public class ShardedTransferExecutor {
+
+  private final ExecutorService[] shards;
+
+  public ShardedTransferExecutor(int shardCount) {
+    if (shardCount < 1) {
+      throw new IllegalArgumentException("At least one transfer shard is needed.");
+    }
+    this.shards = new ExecutorService[shardCount];
+    for (int i = 0; i < shardCount; i++) {
+      String name = "transfer-shard-" + i;
+      this.shards[i] = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+
+  public CompletableFuture<TransferStatus> transfer(Account fromAccount, Account toAccount,
+                                                    long amount) {
+    ExecutorService fromShard = shardOf(fromAccount);
+    ExecutorService toShard = shardOf(toAccount);
+    CompletableFuture<TransferStatus> result = new CompletableFuture<>();
+    fromShard.execute(() -> {
+      if (!fromAccount.getBalanceState().tryDebit(amount)) {
+        result.complete(TransferStatus.INSUFFICIENT_FUNDS);
+      } else if (fromShard == toShard) {
+        credit(fromAccount, toAccount, amount, fromShard, result);
+      } else {
+        toShard.execute(() -> credit(fromAccount, toAccount, amount, fromShard, result));
+      }
+    });
+    return result;
+  }
+
+  public void shutdown() throws InterruptedException {
+    for (ExecutorService shard : shards) {
+      shard.shutdown();
+    }
+    for (ExecutorService shard : shards) {
+      shard.awaitTermination(10, TimeUnit.SECONDS);
+    }
+  }
+
+  private ExecutorService shardOf(Account account) {
+    return shards[Math.floorMod(account.getAccountId().hashCode(), shards.length)];
+  }
+
+  // Runs on the receiver's shard. A credit that would overflow the balance is
+  // refunded on the sender's shard before the transfer is reported failed.
+  private static void credit(Account fromAccount, Account toAccount, long amount,
+                             ExecutorService fromShard,
+                             CompletableFuture<TransferStatus> result) {
+    try {
+      toAccount.getBalanceState().credit(amount);
+      result.complete(TransferStatus.OK);
+    } catch (IllegalArgumentException e) {
+      fromShard.execute(() -> {
+        fromAccount.getBalanceState().credit(amount);
+        result.complete(TransferStatus.INVALID_AMOUNT);
+      });
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.BatchTransferResult;
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.RequestValidator;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.domain.ValidationError;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Queues transfers per sending account and executes whatever has queued up
+ * for an account as one per-item batch, so that a busy account has its lock
+ * taken once for many debits rather than once per transfer. At most one
+ * batch per sending account runs at a time; transfers arriving meanwhile
+ * make up the next one.
+ * <p>
+ * Each transfer still succeeds or fails on its own, and its subscriber is
+ * told its own status. A transfer that fails its request checks is never
+ * queued; its subscriber gets the exception of the failed check instead.
+ * Each transfer's latency, from when it was handed in, is recorded with the
+ * single transfers' in {@link TransferMetrics}.
+ */
+@Component
+public class TransferCoalescer {
+
+  private final AccountsService accountsService;
+
+  private final TransferMetrics metrics;
+
+  private final int maxBatchSize;
+
+  private final Map<String, SenderQueue> queues = new ConcurrentHashMap<>();
+
+  // Batches block on account locks, which only parks a virtual thread.
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  @Autowired
+  public TransferCoalescer(AccountsService accountsService, TransferProperties transferProperties,
+                           TransferMetrics metrics) {
+    this.accountsService = accountsService;
+    this.metrics = metrics;
+    this.maxBatchSize = transferProperties.getBatch().getChunkSize();
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    executor.shutdown();
+    executor.awaitTermination(30, TimeUnit.SECONDS);
+  }
+
+  public Mono<TransferStatus> transfer(FundTransferRequest transfer) {
+    long started = System.nanoTime();
+    String fromAccountId = transfer.getFromAccountId();
+    ValidationError error = RequestValidator.validateTransfer(fromAccountId,
+            transfer.getToAccountId(), transfer.getAmount());
+    if (error != null) {
+      metrics.recordTransfer(error.status(), System.nanoTime() - started);
+      return Mono.error(error.toException());
+    }
+    // Only known accounts get a queue, so that the map stays bounded.
+    if (accountsService.getAccount(fromAccountId) == null) {
+      metrics.recordTransfer(TransferStatus.UNKNOWN_ACCOUNT, System.nanoTime() - started);
+      return Mono.just(TransferStatus.UNKNOWN_ACCOUNT);
+    }
+    return Mono.create(sink -> {
+      SenderQueue queue = queues.computeIfAbsent(fromAccountId, id -> new SenderQueue());
+      queue.pending.add(new PendingTransfer(transfer, sink, started));
+      if (queue.draining.compareAndSet(false, true)) {
+        executor.execute(() -> drain(queue));
+      }
+    });
+  }
+
+  private void drain(SenderQueue queue) {
+    List<PendingTransfer> batch = new ArrayList<>();
+    while (true) {
+      PendingTransfer next;
+      while (batch.size() < maxBatchSize && (next = queue.pending.poll()) != null) {
+        batch.add(next);
+      }
+      if (batch.isEmpty()) {
+        queue.draining.set(false);
+        // A transfer queued after the last poll but before the flag was
+        // cleared found the queue still draining and is now ours to run.
+        if (queue.pending.isEmpty() || !queue.draining.compareAndSet(false, true)) {
+          return;
+        }
+        continue;
+      }
+      execute(batch);
+      batch.clear();
+    }
+  }
+
+  private void execute(List<PendingTransfer> batch) {
+    List<FundTransferRequest> transfers = new ArrayList<>(batch.size());
+    for (PendingTransfer pending : batch) {
+      transfers.add(pending.transfer);
+    }
+    TransferStatus[] statuses = new TransferStatus[batch.size()];
+    try {
+      BatchTransferResult result = accountsService.makeTransfers(transfers.iterator(), false);
+      Arrays.fill(statuses, TransferStatus.OK);
+      for (BatchTransferResult.ItemStatus failure : result.getFailures()) {
+        statuses[failure.index()] = failure.status();
+      }
+    } catch (RuntimeException e) {
+      long now = System.nanoTime();
+      for (PendingTransfer pending : batch) {
+        metrics.recordTransfer(null, now - pending.started);
+        pending.sink.error(e);
+      }
+      return;
+    }
+    long now = System.nanoTime();
+    for (int i = 0; i < statuses.length; i++) {
+      PendingTransfer pending = batch.get(i);
+      metrics.recordLatency(statuses[i], now - pending.started);
+      pending.sink.success(statuses[i]);
+    }
+  }
+
+  private static final class SenderQueue {
+
+    private final Queue<PendingTransfer> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+  }
+
+  private record PendingTransfer(FundTransferRequest transfer, MonoSink<TransferStatus> sink,
+                                 long started) {
+  }
+}
@@ -0,0 +1,158 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.TransferStatus;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer metrics, registered once so that recording on the transfer path
+ * is a plain update of an existing meter:
+ * <ul>
+ *   <li>{@code transfers.latency}: end-to-end latency histogram of single
+ *   transfers, coalesced ones included, tagged with their outcome,</li>
+ *   <li>{@code transfers.batch.latency}: the same for whole batches,</li>
+ *   <li>{@code transfers.lock.wait}: time spent waiting for an account lock
+ *   that was not free at once; free locks are not timed at all,</li>
+ *   <li>{@code transfers.lock.giveups}: lock waits given up on, tagged with
+ *   the {@link LockWaitPolicy} that gave up,</li>
+ *   <li>{@code transfers.timeouts} and {@code transfers.insufficient.funds},
+ *   counting single and batched transfers alike.</li>
+ * </ul>
+ * Accounts whose locks are waited on are also fed to a
+ * {@link HotAccountTracker}.
+ */
+@Component
+public class TransferMetrics {
+
+  private final Map<TransferStatus, Timer> latencies = new EnumMap<>(TransferStatus.class);
+
+  private final Timer failedLatency;
+
+  private final Timer batchLatency;
+
+  private final Timer lockWait;
+
+  private final Map<LockWaitPolicy, Counter> lockGiveUps = new EnumMap<>(LockWaitPolicy.class);
+
+  private final Counter timeouts;
+
+  private final Counter insufficientFunds;
+
+  @Getter
+  private final HotAccountTracker hotAccounts;
+
+  @Autowired
+  public TransferMetrics(MeterRegistry registry,
+                         @Value("${accounts.metrics.hot-accounts:128}") int hotAccountCapacity) {
+    for (TransferStatus status : TransferStatus.values()) {
+      latencies.put(status, latencyTimer("transfers.latency", registry,
+              "outcome", status.name().toLowerCase()));
+    }
+    this.failedLatency = latencyTimer("transfers.latency", registry, "outcome", "error");
+    this.batchLatency = latencyTimer("transfers.batch.latency", registry);
+    this.lockWait = Timer.builder("transfers.lock.wait")
+            .description("Time spent waiting for a contended account lock")
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(100))
+            .maximumExpectedValue(Duration.ofSeconds(10))
+            .register(registry);
+    for (LockWaitPolicy policy : LockWaitPolicy.values()) {
+      lockGiveUps.put(policy, Counter.builder("transfers.lock.giveups")
+              .description("Waits for an account lock given up on")
+              .tag("policy", policy.name().toLowerCase())
+              .register(registry));
+    }
+    this.timeouts = Counter.builder("transfers.timeouts")
+            .description("Transfers that timed out waiting for account locks")
+            .register(registry);
+    this.insufficientFunds = Counter.builder("transfers.insufficient.funds")
+            .description("Transfers rejected for insufficient funds")
+            .register(registry);
+    this.hotAccounts = new HotAccountTracker(hotAccountCapacity);
+  }
+
+  // Records into meters no registry is attached to, and tracks no account.
+  public static TransferMetrics disabled() {
+    return new TransferMetrics(new CompositeMeterRegistry(), 0);
+  }
+
+  /**
+   * Records a single transfer. {@code status} is null when the transfer failed
+   * with an unexpected error.
+   */
+  public void recordTransfer(TransferStatus status, long nanos) {
+    recordLatency(status, nanos);
+    recordOutcome(status);
+  }
+
+  // For transfers executed as part of a batch, whose outcome the batch
+  // records.
+  public void recordLatency(TransferStatus status, long nanos) {
+    (status == null ? failedLatency : latencies.get(status)).record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordBatch(long nanos) {
+    batchLatency.record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void recordOutcome(TransferStatus status) {
+    if (status == TransferStatus.TIMED_OUT) {
+      timeouts.increment();
+    } else if (status == TransferStatus.INSUFFICIENT_FUNDS) {
+      insufficientFunds.increment();
+    }
+  }
+
+  public void recordLockWait(String accountId, long nanos) {
+    lockWait.record(nanos, TimeUnit.NANOSECONDS);
+    hotAccounts.record(accountId, nanos);
+  }
+
+  public void recordLockGiveUp(LockWaitPolicy policy) {
+    lockGiveUps.get(policy).increment();
+  }
+
+  public long getLockGiveUpCount(LockWaitPolicy policy) {
+    return (long) lockGiveUps.get(policy).count();
+  }
+
+  public long getTransferCount(TransferStatus status) {
+    return latencies.get(status).count();
+  }
+
+  public long getFailedTransferCount() {
+    return failedLatency.count();
+  }
+
+  public long getContendedLockCount() {
+    return lockWait.count();
+  }
+
+  public double getLockWaitMillis() {
+    return lockWait.totalTime(TimeUnit.MILLISECONDS);
+  }
+
+  public double getMeanLatencyMicros(TransferStatus status) {
+    return latencies.get(status).mean(TimeUnit.MICROSECONDS);
+  }
+
+  private static Timer latencyTimer(String name, MeterRegistry registry, String... tags) {
+    return Timer.builder(name)
+            .tags(tags)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofNanos(500))
+            .maximumExpectedValue(Duration.ofSeconds(30))
+            .register(registry);
+  }
+}
@@ -0,0 +1,14 @@
+package com.dws.challenge.service;
+
+public enum TransferMode {
+
+  // Both account locks are held while the balances are updated.
+  LOCKING,
+
+  // Balances are updated with compare-and-set only, debit first.
+  LOCK_FREE,
+
+  // Each account is owned by one single-threaded shard, which alone updates
+  // its balance; see ShardedTransferExecutor.
+  SHARDED
+}
@@ -0,0 +1,252 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.domain.Account;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Delivers transfer notifications outside of the transfer critical section.
+ * Notifications are partitioned by account id onto a fixed number of worker
+ * queues, so messages for one account are always delivered in order, and
+ * each worker groups whatever it drains into a single notification per
+ * account. Queues are bounded: when a queue stays full for longer than the
+ * offer timeout the notification is dropped and counted.
+ */
+@Slf4j
+@Component
+public class TransferNotificationDispatcher implements MeterBinder {
+
+  private final NotificationService notificationService;
+
+  private final List<BlockingQueue<PendingNotification>> queues;
+
+  private final int batchSize;
+
+  private final long offerTimeoutMillis;
+
+  private final ExecutorService workers;
+
+  private final LongAdder enqueued = new LongAdder();
+
+  private final LongAdder dropped = new LongAdder();
+
+  private final LongAdder delivered = new LongAdder();
+
+  private final LongAdder failed = new LongAdder();
+
+  private volatile boolean running = true;
+
+  @Autowired
+  public TransferNotificationDispatcher(NotificationService notificationService,
+                                        @Value("${notification.dispatcher.workers:2}") int workerCount,
+                                        @Value("${notification.dispatcher.queue-capacity:10000}") int queueCapacity,
+                                        @Value("${notification.dispatcher.batch-size:256}") int batchSize,
+                                        @Value("${notification.dispatcher.offer-timeout-ms:50}") long offerTimeoutMillis) {
+    if (workerCount < 1 || queueCapacity < workerCount || batchSize < 1) {
+      throw new IllegalArgumentException("Notification dispatcher needs at " +
+              "least one worker, one queue slot per worker and a positive batch size.");
+    }
+    this.notificationService = notificationService;
+    this.batchSize = batchSize;
+    this.offerTimeoutMillis = offerTimeoutMillis;
+    this.queues = new ArrayList<>(workerCount);
+    for (int i = 0; i < workerCount; i++) {
+      this.queues.add(new ArrayBlockingQueue<>(queueCapacity / workerCount));
+    }
+
+    AtomicInteger threadCount = new AtomicInteger();
+    this.workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+      Thread thread = new Thread(runnable,
+              "notification-dispatcher-" + threadCount.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    for (BlockingQueue<PendingNotification> queue : this.queues) {
+      this.workers.execute(() -> drain(queue));
+    }
+  }
+
+  /**
+   * Queues a notification for delivery. Blocks for at most the configured
+   * offer timeout when the account's queue is full and returns {@code false}
+   * if the notification had to be dropped.
+   */
+  public boolean dispatch(Account account, String transferDescription) {
+    return enqueue(new PendingNotification(account, transferDescription, null, false));
+  }
+
+  /**
+   * Same as {@link #dispatch}, for a debit of {@code amount} from the account.
+   * The description is only written out once the notification is delivered.
+   */
+  public boolean dispatchDebit(Account account, BigDecimal amount) {
+    return enqueue(new PendingNotification(account, null, amount, true));
+  }
+
+  /**
+   * Same as {@link #dispatch}, for a credit of {@code amount} to the account.
+   * The description is only written out once the notification is delivered.
+   */
+  public boolean dispatchCredit(Account account, BigDecimal amount) {
+    return enqueue(new PendingNotification(account, null, amount, false));
+  }
+
+  private boolean enqueue(PendingNotification notification) {
+    BlockingQueue<PendingNotification> queue = queueFor(notification.account().getAccountId());
+    try {
+      if (running && queue.offer(notification, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        enqueued.increment();
+        return true;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    dropped.increment();
+    if (log.isDebugEnabled()) {
+      log.debug("Dropping notification to owner of {}: {}",
+              notification.account().getAccountId(), notification.transferDescription());
+    }
+    return false;
+  }
+
+  public int getQueueDepth() {
+    int depth = 0;
+    for (BlockingQueue<PendingNotification> queue : queues) {
+      depth += queue.size();
+    }
+    return depth;
+  }
+
+  public long getEnqueuedCount() {
+    return enqueued.sum();
+  }
+
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  public long getDeliveredCount() {
+    return delivered.sum();
+  }
+
+  public long getFailedCount() {
+    return failed.sum();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    Gauge.builder("notifications.queue.depth", this, TransferNotificationDispatcher::getQueueDepth)
+            .register(registry);
+    FunctionCounter.builder("notifications", this, TransferNotificationDispatcher::getEnqueuedCount)
+            .tag("outcome", "enqueued").register(registry);
+    FunctionCounter.builder("notifications", this, TransferNotificationDispatcher::getDroppedCount)
+            .tag("outcome", "dropped").register(registry);
+    FunctionCounter.builder("notifications", this, TransferNotificationDispatcher::getDeliveredCount)
+            .tag("outcome", "delivered").register(registry);
+    FunctionCounter.builder("notifications", this, TransferNotificationDispatcher::getFailedCount)
+            .tag("outcome", "failed").register(registry);
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    running = false;
+    workers.shutdown();
+    if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+      log.warn("Notification dispatcher stopped with {} notifications still queued",
+              getQueueDepth());
+      workers.shutdownNow();
+    }
+  }
+
+  private BlockingQueue<PendingNotification> queueFor(String accountId) {
+    return queues.get(Math.floorMod(accountId.hashCode(), queues.size()));
+  }
+
+  private void drain(BlockingQueue<PendingNotification> queue) {
+    List<PendingNotification> batch = new ArrayList<>(batchSize);
+    Map<String, List<PendingNotification>> byAccount = new LinkedHashMap<>();
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingNotification first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        queue.drainTo(batch, batchSize - 1);
+
+        for (PendingNotification notification : batch) {
+          byAccount.computeIfAbsent(notification.account().getAccountId(),
+                  id -> new ArrayList<>()).add(notification);
+        }
+        for (List<PendingNotification> notifications : byAccount.values()) {
+          deliver(notifications);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } finally {
+        batch.clear();
+        byAccount.clear();
+      }
+    }
+  }
+
+  private void deliver(List<PendingNotification> notifications) {
+    Account account = notifications.get(0).account();
+    String description;
+    if (notifications.size() == 1) {
+      description = notifications.get(0).transferDescription();
+    } else {
+      StringBuilder builder = new StringBuilder();
+      for (PendingNotification notification : notifications) {
+        if (builder.length() > 0) {
+          builder.append('\n');
+        }
+        builder.append(notification.transferDescription());
+      }
+      description = builder.toString();
+    }
+
+    try {
+      notificationService.notifyAboutTransfer(account, description);
+      delivered.add(notifications.size());
+    } catch (RuntimeException e) {
+      failed.add(notifications.size());
+      log.error("Failed to notify owner of {}", account.getAccountId(), e);
+    }
+  }
+
+  // Either a description given by the caller, or a debit or credit of an
+  // amount, described on delivery.
+  private record PendingNotification(Account account, String description, BigDecimal amount,
+                                     boolean debit) {
+
+    String transferDescription() {
+      if (description != null) {
+        return description;
+      }
+      return "Funds " + amount + " has been " + (debit ? "debited from" : "credited to") +
+              " your account.";
+    }
+  }
+}
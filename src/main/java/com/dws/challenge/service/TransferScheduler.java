@@ -0,0 +1,532 @@
+package com.dws.challenge.service;
+
+import com.dws.challenge.config.ScheduleProperties;
+import com.dws.challenge.domain.BatchTransferResult;
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.RequestValidator;
+import com.dws.challenge.domain.ScheduleRequest;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.domain.ValidationError;
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.exception.InvalidScheduleException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Future-dated and recurring transfers. Pending schedules are kept in a
+ * binary heap ordered by the time they are next due, which a single thread
+ * polls; whatever has fallen due is executed through
+ * {@link AccountsService#makeTransfers} as per-item batches.
+ * <p>
+ * A transfer that gave up waiting for a lock is retried with exponential
+ * backoff, up to the configured number of attempts. Any other outcome, or
+ * running out of attempts, ends the occurrence: its status is kept as the
+ * last status and a recurring transfer moves on to its next occurrence. A
+ * recurring transfer that is more than an interval behind, such as after the
+ * scheduler was not running, skips to its latest occurrence that has fallen
+ * due: only that one is executed, and the ones before it are counted as
+ * missed and used up. Schedules are forgotten once their last occurrence has
+ * ended or they are cancelled; cancelling a schedule whose transfer is being
+ * executed does not undo that transfer.
+ */
+@Component
+@Slf4j
+public class TransferScheduler {
+
+  private final AccountsService accountsService;
+
+  private final Clock clock;
+
+  private final int batchSize;
+
+  private final int maxSchedules;
+
+  private final long minIntervalMillis;
+
+  private final long maxLatenessMillis;
+
+  private final int maxAttempts;
+
+  private final long initialBackoffMillis;
+
+  private final int backoffMultiplier;
+
+  private final long maxBackoffMillis;
+
+  private final AtomicLong nextId = new AtomicLong();
+
+  private final Map<Long, Schedule> schedules = new ConcurrentHashMap<>();
+
+  private final Map<String, Set<Schedule>> schedulesBySender = new ConcurrentHashMap<>();
+
+  // Guards the queue and the mutable state of every schedule.
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final DueQueue queue = new DueQueue();
+
+  private final ScheduledExecutorService poller;
+
+  @Autowired
+  public TransferScheduler(AccountsService accountsService, ScheduleProperties properties) {
+    this(accountsService, properties, Clock.systemUTC());
+  }
+
+  public TransferScheduler(AccountsService accountsService, ScheduleProperties properties,
+                           Clock clock) {
+    ScheduleProperties.Retry retry = properties.getRetry();
+    // Intervals and backoffs are kept in whole milliseconds; one that
+    // rounds down to zero would fall due again at once, forever.
+    if (properties.getBatchSize() < 1 || retry.getMaxAttempts() < 1
+            || retry.getMultiplier() < 1 || retry.getInitialBackoff().toMillis() < 1
+            || properties.getMinInterval().toMillis() < 1
+            || properties.getMaxLateness().isNegative()) {
+      throw new IllegalStateException("Schedule batch size, retry attempts and multiplier " +
+              "must be positive, initial backoff and minimum interval at least a " +
+              "millisecond, and maximum lateness not negative.");
+    }
+    this.accountsService = accountsService;
+    this.clock = clock;
+    this.batchSize = properties.getBatchSize();
+    this.maxSchedules = properties.getMaxSchedules();
+    this.minIntervalMillis = properties.getMinInterval().toMillis();
+    this.maxLatenessMillis = properties.getMaxLateness().toMillis();
+    this.maxAttempts = retry.getMaxAttempts();
+    this.initialBackoffMillis = retry.getInitialBackoff().toMillis();
+    this.backoffMultiplier = retry.getMultiplier();
+    this.maxBackoffMillis = retry.getMaxBackoff().toMillis();
+
+    long interval = properties.getPollInterval().toMillis();
+    if (interval <= 0) {
+      this.poller = null;
+      return;
+    }
+    this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "transfer-scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.poller.scheduleWithFixedDelay(() -> {
+      try {
+        executeDue();
+      } catch (RuntimeException e) {
+        log.error("Failed to execute scheduled transfers", e);
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    if (poller != null) {
+      poller.shutdown();
+      poller.awaitTermination(30, TimeUnit.SECONDS);
+    }
+  }
+
+  public ScheduledTransfer schedule(ScheduleRequest request) {
+    ValidationError error = RequestValidator.validateTransfer(request.getFromAccountId(),
+            request.getToAccountId(), request.getAmount());
+    if (error != null) {
+      throw error.toException();
+    }
+    Duration interval = request.getInterval();
+    Integer occurrences = request.getOccurrences();
+    if (interval != null && interval.compareTo(Duration.ofMillis(minIntervalMillis)) < 0) {
+      throw new InvalidScheduleException("Interval must be at least " + minIntervalMillis +
+              " milliseconds.");
+    }
+    Instant executeAt = request.getExecuteAt();
+    long now = clock.millis();
+    if (executeAt != null && executeAt.toEpochMilli() < now - maxLatenessMillis) {
+      throw new InvalidScheduleException("Execution time cannot be more than " +
+              maxLatenessMillis + " milliseconds in the past.");
+    }
+    if (occurrences != null && occurrences < 1) {
+      throw new InvalidScheduleException("Occurrences must be at least 1.");
+    }
+    if (interval == null && occurrences != null && occurrences > 1) {
+      throw new InvalidScheduleException("A transfer that occurs more than once needs " +
+              "an interval.");
+    }
+    if (accountsService.getAccount(request.getFromAccountId()) == null
+            || accountsService.getAccount(request.getToAccountId()) == null) {
+      throw new InvalidAccountException(AccountsService.UNKNOWN_ACCOUNT_MESSAGE);
+    }
+    if (schedules.size() >= maxSchedules) {
+      throw new InvalidScheduleException("No more than " + maxSchedules +
+              " transfers can be scheduled.");
+    }
+
+    Schedule schedule = new Schedule(nextId.incrementAndGet(), request.getFromAccountId(),
+            request.getToAccountId(), request.getAmount(),
+            interval == null ? 0 : interval.toMillis(),
+            interval == null ? 1 : occurrences == null ? -1 : occurrences,
+            executeAt == null ? now : executeAt.toEpochMilli());
+    schedules.put(schedule.id, schedule);
+    schedulesBySender.compute(schedule.fromAccountId, (accountId, sent) -> {
+      Set<Schedule> result = sent == null ? ConcurrentHashMap.newKeySet() : sent;
+      result.add(schedule);
+      return result;
+    });
+    // Ids are sequential, so the schedule can be cancelled as soon as it is
+    // in schedules: a cancel that gets in before it is queued keeps it out
+    // of the queue, and leaves it to be forgotten here.
+    boolean cancelled;
+    ScheduledTransfer scheduled;
+    lock.lock();
+    try {
+      cancelled = schedule.cancelled;
+      if (!cancelled) {
+        queue.add(schedule);
+      }
+      scheduled = schedule.toScheduledTransfer();
+    } finally {
+      lock.unlock();
+    }
+    if (cancelled) {
+      forget(schedule);
+    }
+    return scheduled;
+  }
+
+  public ScheduledTransfer getSchedule(long id) {
+    Schedule schedule = schedules.get(id);
+    if (schedule == null) {
+      return null;
+    }
+    lock.lock();
+    try {
+      return schedule.toScheduledTransfer();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // Schedules sending from the account, soonest due first.
+  public List<ScheduledTransfer> getSchedules(String fromAccountId) {
+    Set<Schedule> sent = schedulesBySender.get(fromAccountId);
+    if (sent == null) {
+      return List.of();
+    }
+    List<ScheduledTransfer> result = new ArrayList<>(sent.size());
+    lock.lock();
+    try {
+      for (Schedule schedule : sent) {
+        result.add(schedule.toScheduledTransfer());
+      }
+    } finally {
+      lock.unlock();
+    }
+    result.sort(Comparator.comparing(ScheduledTransfer::getNextExecution)
+            .thenComparingLong(ScheduledTransfer::getId));
+    return result;
+  }
+
+  public boolean cancel(long id) {
+    Schedule schedule = schedules.remove(id);
+    if (schedule == null) {
+      return false;
+    }
+    lock.lock();
+    try {
+      schedule.cancelled = true;
+      queue.remove(schedule);
+    } finally {
+      lock.unlock();
+    }
+    forget(schedule);
+    return true;
+  }
+
+  public int getPendingCount() {
+    return schedules.size();
+  }
+
+  /**
+   * Executes every transfer due by now, once each, and returns the number
+   * of attempts made. Called by the polling thread, if any.
+   */
+  public int executeDue() {
+    long now = clock.millis();
+    int executed = 0;
+    List<Schedule> batch;
+    while (!(batch = pollDue(now)).isEmpty()) {
+      execute(batch);
+      executed += batch.size();
+    }
+    return executed;
+  }
+
+  private List<Schedule> pollDue(long now) {
+    List<Schedule> batch = new ArrayList<>();
+    lock.lock();
+    try {
+      while (batch.size() < batchSize && !queue.isEmpty() && queue.peek().dueMillis <= now) {
+        Schedule schedule = queue.poll();
+        skipMissed(schedule, now);
+        batch.add(schedule);
+      }
+    } finally {
+      lock.unlock();
+    }
+    return batch;
+  }
+
+  // Moves a recurring transfer that is more than an interval behind on to
+  // its latest occurrence due by now, short of its last one. Occurrences
+  // being retried are left alone.
+  private void skipMissed(Schedule schedule, long now) {
+    if (schedule.intervalMillis == 0 || schedule.attempts > 0
+            || now - schedule.occurrenceMillis < schedule.intervalMillis) {
+      return;
+    }
+    long skipped = (now - schedule.occurrenceMillis) / schedule.intervalMillis;
+    if (schedule.remaining > 0) {
+      skipped = Math.min(skipped, schedule.remaining - 1);
+      schedule.remaining -= skipped;
+    }
+    if (skipped == 0) {
+      return;
+    }
+    schedule.occurrenceMillis += skipped * schedule.intervalMillis;
+    schedule.dueMillis = schedule.occurrenceMillis;
+    schedule.missed += skipped;
+    log.info("Scheduled transfer {} skipped {} missed occurrences", schedule.id, skipped);
+  }
+
+  private void execute(List<Schedule> batch) {
+    List<FundTransferRequest> transfers = new ArrayList<>(batch.size());
+    for (Schedule schedule : batch) {
+      transfers.add(new FundTransferRequest(schedule.fromAccountId, schedule.toAccountId,
+              schedule.amount));
+    }
+    TransferStatus[] statuses = new TransferStatus[batch.size()];
+    Arrays.fill(statuses, TransferStatus.OK);
+    BatchTransferResult result = accountsService.makeTransfers(transfers.iterator(), false);
+    for (BatchTransferResult.ItemStatus failure : result.getFailures()) {
+      statuses[failure.index()] = failure.status();
+    }
+
+    long now = clock.millis();
+    List<Schedule> finished = new ArrayList<>();
+    lock.lock();
+    try {
+      for (int i = 0; i < statuses.length; i++) {
+        Schedule schedule = batch.get(i);
+        if (!complete(schedule, statuses[i], now)) {
+          finished.add(schedule);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+    for (Schedule schedule : finished) {
+      if (schedules.remove(schedule.id, schedule)) {
+        forget(schedule);
+      }
+    }
+  }
+
+  // Returns false once the schedule has nothing left to execute.
+  private boolean complete(Schedule schedule, TransferStatus status, long now) {
+    schedule.lastStatus = status;
+    schedule.attempts++;
+    if (schedule.cancelled) {
+      return false;
+    }
+    boolean gaveUp = status == TransferStatus.TIMED_OUT || status == TransferStatus.BUSY;
+    if (gaveUp && schedule.attempts < maxAttempts) {
+      schedule.dueMillis = now + backoff(schedule.attempts);
+      queue.add(schedule);
+      return true;
+    }
+    if (gaveUp) {
+      log.warn("Scheduled transfer {} gave up after {} attempts", schedule.id,
+              schedule.attempts);
+    }
+    schedule.attempts = 0;
+    schedule.executions++;
+    if (schedule.remaining > 0 && --schedule.remaining == 0) {
+      return false;
+    }
+    schedule.occurrenceMillis += schedule.intervalMillis;
+    schedule.dueMillis = schedule.occurrenceMillis;
+    queue.add(schedule);
+    return true;
+  }
+
+  private long backoff(int retry) {
+    long backoff = initialBackoffMillis;
+    for (int i = 1; i < retry && backoff < maxBackoffMillis; i++) {
+      backoff *= backoffMultiplier;
+    }
+    return Math.min(backoff, maxBackoffMillis);
+  }
+
+  private void forget(Schedule schedule) {
+    schedulesBySender.computeIfPresent(schedule.fromAccountId, (accountId, sent) -> {
+      sent.remove(schedule);
+      return sent.isEmpty() ? null : sent;
+    });
+  }
+
+  private static final class Schedule {
+
+    private final long id;
+
+    private final String fromAccountId;
+
+    private final String toAccountId;
+
+    private final BigDecimal amount;
+
+    // Zero for a transfer that occurs once.
+    private final long intervalMillis;
+
+    // Occurrences left, including the one due next; -1 when unlimited.
+    private long remaining;
+
+    private long occurrenceMillis;
+
+    // Later than occurrenceMillis while the occurrence is being retried.
+    private long dueMillis;
+
+    private int attempts;
+
+    private long executions;
+
+    private long missed;
+
+    private TransferStatus lastStatus;
+
+    private boolean cancelled;
+
+    // Position in the due queue, or -1 while not queued.
+    private int index = -1;
+
+    private Schedule(long id, String fromAccountId, String toAccountId, BigDecimal amount,
+                     long intervalMillis, long remaining, long dueMillis) {
+      this.id = id;
+      this.fromAccountId = fromAccountId;
+      this.toAccountId = toAccountId;
+      this.amount = amount;
+      this.intervalMillis = intervalMillis;
+      this.remaining = remaining;
+      this.occurrenceMillis = dueMillis;
+      this.dueMillis = dueMillis;
+    }
+
+    private boolean isDueBefore(Schedule other) {
+      return dueMillis < other.dueMillis || (dueMillis == other.dueMillis && id < other.id);
+    }
+
+    private ScheduledTransfer toScheduledTransfer() {
+      return new ScheduledTransfer(id, fromAccountId, toAccountId, amount,
+              intervalMillis == 0 ? null : Duration.ofMillis(intervalMillis),
+              remaining < 0 ? null : (int) remaining, Instant.ofEpochMilli(dueMillis),
+              executions, missed, attempts, lastStatus);
+    }
+  }
+
+  // Binary min-heap of schedules by due time that knows where each schedule
+  // is, so that a cancelled schedule is taken out at once rather than left
+  // taking up memory until it falls due.
+  private static final class DueQueue {
+
+    private Schedule[] heap = new Schedule[1024];
+
+    private int size;
+
+    private boolean isEmpty() {
+      return size == 0;
+    }
+
+    private Schedule peek() {
+      return heap[0];
+    }
+
+    private void add(Schedule schedule) {
+      if (size == heap.length) {
+        heap = Arrays.copyOf(heap, size * 2);
+      }
+      siftUp(size++, schedule);
+    }
+
+    private Schedule poll() {
+      Schedule first = heap[0];
+      removeAt(0);
+      return first;
+    }
+
+    private void remove(Schedule schedule) {
+      if (schedule.index >= 0) {
+        removeAt(schedule.index);
+      }
+    }
+
+    private void removeAt(int index) {
+      heap[index].index = -1;
+      Schedule last = heap[--size];
+      heap[size] = null;
+      if (index < size) {
+        siftDown(index, last);
+        if (heap[index] == last) {
+          siftUp(index, last);
+        }
+      }
+    }
+
+    private void siftUp(int index, Schedule schedule) {
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (!schedule.isDueBefore(heap[parent])) {
+          break;
+        }
+        place(index, heap[parent]);
+        index = parent;
+      }
+      place(index, schedule);
+    }
+
+    private void siftDown(int index, Schedule schedule) {
+      int half = size >>> 1;
+      while (index < half) {
+        int child = 2 * index + 1;
+        int right = child + 1;
+        if (right < size && heap[right].isDueBefore(heap[child])) {
+          child = right;
+        }
+        if (!heap[child].isDueBefore(schedule)) {
+          break;
+        }
+        place(index, heap[child]);
+        index = child;
+      }
+      place(index, schedule);
+    }
+
+    private void place(int index, Schedule schedule) {
+      heap[index] = schedule;
+      schedule.index = index;
+    }
+  }
+}
@@ -1,11 +1,21 @@
 package com.dws.challenge.web;
 
+import com.dws.challenge.config.IdempotencyProperties;
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountImportResult;
+import com.dws.challenge.domain.BatchTransferResult;
 import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.TransferStatus;
 import com.dws.challenge.exception.*;
+import com.dws.challenge.service.AccountImporter;
 import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.ImportFormat;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -13,10 +23,18 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1/accounts")
@@ -25,49 +43,238 @@ public class AccountsController {
 
   private final AccountsService accountsService;
 
+  private final ObjectReader transferReader;
+
+  private final IdempotencyCache idempotencyCache;
+
+  private final int maxIdempotencyKeyLength;
+
+  private final AccountImporter accountImporter;
+
+  private final LockWaitResponses lockWaitResponses;
+
   @Autowired
-  public AccountsController(AccountsService accountsService) {
+  public AccountsController(AccountsService accountsService, ObjectMapper objectMapper,
+                            IdempotencyCache idempotencyCache,
+                            IdempotencyProperties idempotencyProperties,
+                            AccountImporter accountImporter,
+                            LockWaitResponses lockWaitResponses) {
     this.accountsService = accountsService;
+    this.accountImporter = accountImporter;
+    this.lockWaitResponses = lockWaitResponses;
+    this.transferReader = objectMapper.readerFor(FundTransferRequest.class);
+    this.idempotencyCache = idempotencyCache;
+    this.maxIdempotencyKeyLength = idempotencyProperties.getMaxKeyLength();
   }
 
   @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Object> createAccount(@RequestBody @Valid Account account) {
+  public ResponseEntity<Object> createAccount(@RequestBody Account account) {
     log.info("Creating account {}", account);
 
     try {
       this.accountsService.createAccount(account);
-    } catch (InvalidAccountException | DuplicateAccountIdException e) {
+    } catch (InvalidAccountException iae) {
+      return new ResponseEntity<>(iae.getError(), HttpStatus.BAD_REQUEST);
+    } catch (DuplicateAccountIdException e) {
       return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
+    } catch (AccountNotDurableException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR);
+    } catch (AccountStoreFullException e) {
+      return new ResponseEntity<>(e.getMessage(), HttpStatus.INSUFFICIENT_STORAGE);
     }
 
     return new ResponseEntity<>(HttpStatus.CREATED);
   }
 
+  @PostMapping(path = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<AccountImportResult> importAccountsNdjson(InputStream body) throws IOException {
+    return importAccounts(body, ImportFormat.NDJSON);
+  }
+
+  @PostMapping(path = "/import", consumes = "text/csv")
+  public ResponseEntity<AccountImportResult> importAccountsCsv(InputStream body) throws IOException {
+    return importAccounts(body, ImportFormat.CSV);
+  }
+
+  private ResponseEntity<AccountImportResult> importAccounts(InputStream body, ImportFormat format)
+          throws IOException {
+    log.info("Importing accounts as {}", format);
+    AccountImportResult result = this.accountImporter.importAccounts(
+            new InputStreamReader(body, StandardCharsets.UTF_8), format);
+    log.info("Imported {} of {} accounts", result.getCreated(), result.getRead());
+    return new ResponseEntity<>(result, HttpStatus.OK);
+  }
+
   @GetMapping(path = "/{accountId}")
   public Account getAccount(@PathVariable String accountId) {
     log.info("Retrieving account for id {}", accountId);
     return this.accountsService.getAccount(accountId);
   }
 
+  @PostMapping(path = "/balances", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> getBalances(@RequestBody List<String> accountIds) {
+    log.info("Retrieving balances of {} accounts", accountIds.size());
+    try {
+      return new ResponseEntity<>(this.accountsService.getBalances(accountIds), HttpStatus.OK);
+    } catch (InvalidBatchException ibe) {
+      return new ResponseEntity<>(ibe.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  @GetMapping(path = "/{accountId}/transactions")
+  public ResponseEntity<Object> getTransactions(@PathVariable String accountId,
+                                                @RequestParam(required = false) Long cursor,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                Instant from,
+                                                @RequestParam(required = false)
+                                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+                                                Instant to,
+                                                @RequestParam(defaultValue = "50") int limit) {
+    log.info("Retrieving transactions for id {}", accountId);
+    try {
+      return new ResponseEntity<>(this.accountsService.getTransactions(accountId, cursor,
+              from, to, limit), HttpStatus.OK);
+    } catch (InvalidAccountException iae) {
+      return new ResponseEntity<>(iae.getMessage(), HttpStatus.NOT_FOUND);
+    } catch (InvalidPageRequestException ipe) {
+      return new ResponseEntity<>(ipe.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
   @PostMapping(path = "/transferFunds", consumes = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<Object> transferFunds(@RequestBody @Valid FundTransferRequest fundTransferRequest) {
+  public ResponseEntity<Object> transferFunds(@RequestBody FundTransferRequest fundTransferRequest,
+                                              @RequestHeader(name = "Idempotency-Key", required = false)
+                                              String idempotencyKey) {
     log.info("Making money transfer of amount {} from account id {} to " +
                     "account id {}", fundTransferRequest.getAmount(),
             fundTransferRequest.getFromAccountId(), fundTransferRequest.getToAccountId());
+    if (idempotencyKey == null) {
+      return transfer(fundTransferRequest);
+    }
+    if (idempotencyKey.isBlank() || idempotencyKey.length() > maxIdempotencyKeyLength) {
+      return new ResponseEntity<>("Idempotency key must be between 1 and " +
+              maxIdempotencyKeyLength + " characters.", HttpStatus.BAD_REQUEST);
+    }
+    // 10, 10.0 and 1E+1 are the same transfer.
+    String fingerprint = fundTransferRequest.getFromAccountId() + '\n' +
+            fundTransferRequest.getToAccountId() + '\n' + (fundTransferRequest.getAmount() == null
+            ? null : fundTransferRequest.getAmount().stripTrailingZeros().toPlainString());
+    return this.idempotencyCache.execute(idempotencyKey, fingerprint,
+            () -> transfer(fundTransferRequest));
+  }
+
+  private ResponseEntity<Object> transfer(FundTransferRequest fundTransferRequest) {
     try {
-      this.accountsService.makeTransfer(fundTransferRequest.getFromAccountId(),
-              fundTransferRequest.getToAccountId(), fundTransferRequest.getAmount());
-    } catch (InvalidAccountException | InvalidAmountException | InsufficientFundsException ie) {
-      return new ResponseEntity<>(ie.getMessage(), HttpStatus.BAD_REQUEST);
-    } catch (TransactionTimeoutException tte) {
-      return new ResponseEntity<>(tte.getMessage(),
-              HttpStatus.INTERNAL_SERVER_ERROR);
+      TransferStatus status = this.accountsService.tryTransfer(
+              fundTransferRequest.getFromAccountId(), fundTransferRequest.getToAccountId(),
+              fundTransferRequest.getAmount());
+      if (status == TransferStatus.INSUFFICIENT_FUNDS) {
+        return new ResponseEntity<>(AccountsService.INSUFFICIENT_FUNDS_MESSAGE,
+                HttpStatus.BAD_REQUEST);
+      } else if (status == TransferStatus.UNKNOWN_ACCOUNT) {
+        return new ResponseEntity<>(AccountsService.UNKNOWN_ACCOUNT_MESSAGE,
+                HttpStatus.BAD_REQUEST);
+      } else if (LockWaitResponses.gaveUp(status)) {
+        return lockWaitResponses.response(status, status == TransferStatus.BUSY
+                ? AccountsService.BUSY_MESSAGE : AccountsService.TIMED_OUT_MESSAGE);
+      } else if (status == TransferStatus.NOT_DURABLE) {
+        return new ResponseEntity<>(AccountsService.NOT_DURABLE_MESSAGE,
+                HttpStatus.INTERNAL_SERVER_ERROR);
+      }
+    } catch (InvalidAccountException iae) {
+      return new ResponseEntity<>(iae.getError(), HttpStatus.BAD_REQUEST);
+    } catch (InvalidAmountException iae) {
+      return new ResponseEntity<>(iae.getError(), HttpStatus.BAD_REQUEST);
     } catch (Exception e) {
-      return new ResponseEntity<>("An error occurred while transferring " +
-              "funds. Funds are not debited from your account.",
-              HttpStatus.INTERNAL_SERVER_ERROR);
+      log.error("Transfer failed", e);
+      return new ResponseEntity<>(AccountsService.TRANSFER_ERROR_MESSAGE, HttpStatus.INTERNAL_SERVER_ERROR);
     }
 
     return new ResponseEntity<>(HttpStatus.OK);
   }
+
+  @PostMapping(path = "/transferFunds/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> transferFundsBatch(@RequestBody List<FundTransferRequest> transfers,
+                                                   @RequestParam(defaultValue = "false") boolean atomic) {
+    log.info("Making batch of {} money transfers, all-or-nothing: {}", transfers.size(), atomic);
+    try {
+      return batchResponse(this.accountsService.makeTransfers(transfers.iterator(), atomic),
+              atomic);
+    } catch (InvalidBatchException ibe) {
+      return new ResponseEntity<>(ibe.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  @PostMapping(path = "/transferFunds/batch", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<Object> transferFundsStream(InputStream body,
+                                                    @RequestParam(defaultValue = "false") boolean atomic)
+          throws IOException {
+    log.info("Making streamed batch of money transfers, all-or-nothing: {}", atomic);
+    try (MappingIterator<FundTransferRequest> transfers = this.transferReader.readValues(body)) {
+      return batchResponse(this.accountsService.makeTransfers(
+              new UntilMalformedIterator(transfers), atomic), atomic);
+    } catch (InvalidBatchException ibe) {
+      return new ResponseEntity<>(ibe.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  private ResponseEntity<Object> batchResponse(BatchTransferResult result,
+                                               boolean allOrNothing) {
+    if (!allOrNothing || result.getFailures().isEmpty()) {
+      return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+    if (result.getFailures().get(0).status() == TransferStatus.NOT_DURABLE) {
+      // The whole batch was applied, and every item is reported as such.
+      return new ResponseEntity<>(result, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+    return result.getFailures().stream()
+            .map(BatchTransferResult.ItemStatus::status)
+            .filter(LockWaitResponses::gaveUp)
+            .findFirst()
+            .map(status -> lockWaitResponses.<Object>response(status, result))
+            .orElseGet(() -> new ResponseEntity<>(result, HttpStatus.BAD_REQUEST));
+  }
+
+  // Streams transfers one line at a time. The first line that cannot be
+  // parsed is returned as null, which the service reports as malformed, and
+  // ends the stream.
+  private static final class UntilMalformedIterator implements Iterator<FundTransferRequest> {
+
+    private final MappingIterator<FundTransferRequest> lines;
+
+    private boolean malformed;
+
+    private boolean stopped;
+
+    private UntilMalformedIterator(MappingIterator<FundTransferRequest> lines) {
+      this.lines = lines;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (stopped) {
+        return false;
+      }
+      try {
+        return malformed || lines.hasNextValue();
+      } catch (IOException | RuntimeException e) {
+        malformed = true;
+        return true;
+      }
+    }
+
+    @Override
+    public FundTransferRequest next() {
+      if (!malformed) {
+        try {
+          return lines.nextValue();
+        } catch (IOException | RuntimeException e) {
+          // Reported below as a malformed transfer.
+        }
+      }
+      stopped = true;
+      return null;
+    }
+  }
 }
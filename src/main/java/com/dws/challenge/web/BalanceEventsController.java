@@ -0,0 +1,185 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.config.BalanceEventProperties;
+import com.dws.challenge.domain.BalanceChangeEvent;
+import com.dws.challenge.domain.BalanceEventPage;
+import com.dws.challenge.exception.InvalidPageRequestException;
+import com.dws.challenge.service.AccountsService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Balance changes for downstream consumers, either polled, optionally
+ * waiting for changes to happen, or streamed as server-sent events. Both
+ * resume from an offset: the lastOffset and epoch of the previous page, or
+ * the id of the last event received, "epoch-offset", which browsers send
+ * back as Last-Event-ID when they reconnect. An offset of another epoch,
+ * from before a restart, resumes from the oldest event, with the page marked
+ * as reset or a lag event saying so.
+ * <p>
+ * Consumers read the event ring at their own pace and nothing is buffered
+ * for them. A consumer that falls so far behind that the transfers it was
+ * about to read have been overwritten is told how many it missed: in the
+ * page's missed count, or with a lag event on the stream.
+ */
+@RestController
+@RequestMapping("/v1/accounts")
+@Slf4j
+public class BalanceEventsController {
+
+  private static final int STREAM_BATCH_SIZE = 1000;
+
+  // A stream that has had nothing to send for this long sends a comment, so
+  // that a consumer that went away is noticed.
+  private static final Duration KEEP_ALIVE = Duration.ofSeconds(15);
+
+  private final AccountsService accountsService;
+
+  private final int maxSubscribers;
+
+  private final Duration maxWait;
+
+  private final AtomicInteger subscribers = new AtomicInteger();
+
+  // Streams mostly wait for events or on slow consumers, which only parks a
+  // virtual thread.
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  @Autowired
+  public BalanceEventsController(AccountsService accountsService,
+                                 BalanceEventProperties properties) {
+    this.accountsService = accountsService;
+    this.maxSubscribers = properties.getMaxSubscribers();
+    this.maxWait = properties.getMaxWait();
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    executor.shutdownNow();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+  }
+
+  @GetMapping(path = "/events", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> getEvents(@RequestParam(required = false) Set<String> accountId,
+                                          @RequestParam(required = false) Long epoch,
+                                          @RequestParam(required = false) Long after,
+                                          @RequestParam(defaultValue = "100") int limit,
+                                          @RequestParam(defaultValue = "0") int wait)
+          throws InterruptedException {
+    if (wait < 0 || wait > maxWait.toSeconds()) {
+      return new ResponseEntity<>("Wait must be between 0 and " + maxWait.toSeconds() +
+              " seconds.", HttpStatus.BAD_REQUEST);
+    }
+    boolean waiting = wait > 0;
+    if (waiting && !subscribe()) {
+      return new ResponseEntity<>("Too many event subscribers.", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+    try {
+      return new ResponseEntity<>(this.accountsService.getBalanceEvents(epoch, after, accountId,
+              limit, Duration.ofSeconds(wait)), HttpStatus.OK);
+    } catch (InvalidPageRequestException ipe) {
+      return new ResponseEntity<>(ipe.getMessage(), HttpStatus.BAD_REQUEST);
+    } finally {
+      if (waiting) {
+        subscribers.decrementAndGet();
+      }
+    }
+  }
+
+  // Errors have no body, as the body of a successful response is the stream.
+  @GetMapping(path = "/events/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public ResponseEntity<SseEmitter> streamEvents(@RequestParam(required = false) Set<String> accountId,
+                                                 @RequestParam(required = false) Long epoch,
+                                                 @RequestParam(required = false) Long after,
+                                                 @RequestHeader(name = "Last-Event-ID", required = false)
+                                                 String lastEventId) throws InterruptedException {
+    Long start = after;
+    if (lastEventId != null) {
+      int separator = lastEventId.indexOf('-');
+      try {
+        epoch = Long.parseLong(lastEventId.substring(0, separator));
+        start = Long.parseLong(lastEventId.substring(separator + 1));
+      } catch (IndexOutOfBoundsException | NumberFormatException e) {
+        return ResponseEntity.badRequest().build();
+      }
+    }
+    BalanceEventPage first;
+    try {
+      first = this.accountsService.getBalanceEvents(epoch, start, accountId, STREAM_BATCH_SIZE,
+              Duration.ZERO);
+    } catch (InvalidPageRequestException ipe) {
+      return ResponseEntity.badRequest().build();
+    }
+    if (!subscribe()) {
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+    log.info("Streaming balance events for {}", accountId == null ? "all accounts" : accountId);
+    SseEmitter emitter = new SseEmitter();
+    AtomicBoolean open = new AtomicBoolean(true);
+    emitter.onCompletion(() -> open.set(false));
+    emitter.onTimeout(() -> open.set(false));
+    emitter.onError(e -> open.set(false));
+    executor.execute(() -> stream(emitter, open, accountId, first));
+    return ResponseEntity.ok(emitter);
+  }
+
+  private boolean subscribe() {
+    if (subscribers.incrementAndGet() > maxSubscribers) {
+      subscribers.decrementAndGet();
+      return false;
+    }
+    return true;
+  }
+
+  private void stream(SseEmitter emitter, AtomicBoolean open, Set<String> accountIds,
+                      BalanceEventPage page) {
+    try {
+      while (open.get()) {
+        boolean lagging = page.getMissed() > 0 || page.isReset();
+        if (lagging) {
+          emitter.send(SseEmitter.event().name("lag")
+                  .data(Map.of("missed", page.getMissed(), "reset", page.isReset()),
+                          MediaType.APPLICATION_JSON));
+        }
+        for (BalanceChangeEvent event : page.getEvents()) {
+          emitter.send(SseEmitter.event().id(page.getEpoch() + "-" + event.getOffset())
+                  .name("balance").data(event, MediaType.APPLICATION_JSON));
+        }
+        if (page.getEvents().isEmpty() && !lagging) {
+          emitter.send(SseEmitter.event().comment("keep-alive"));
+        }
+        page = this.accountsService.getBalanceEvents(page.getEpoch(), page.getLastOffset(),
+                accountIds, STREAM_BATCH_SIZE, KEEP_ALIVE);
+      }
+      emitter.complete();
+    } catch (IOException | IllegalStateException e) {
+      // The consumer went away, or the stream timed out; it resumes by
+      // reconnecting.
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      emitter.complete();
+    } finally {
+      subscribers.decrementAndGet();
+    }
+  }
+}
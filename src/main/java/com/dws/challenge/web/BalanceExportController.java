@@ -0,0 +1,132 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.exception.SnapshotUnavailableException;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceSnapshot;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+
+/**
+ * Streams a point-in-time snapshot of every balance, for reconciliation. The
+ * response is chunked and written as the accounts are read, either as NDJSON
+ * or, when {@code application/octet-stream} is asked for, as:
+ * <pre>
+ * int    magic, "BALS"
+ * byte   format version, 1
+ * long   snapshot time, epoch milliseconds
+ * then for every account:
+ *   byte 1, the account id as by DataOutput.writeUTF, and its balance as
+ *   encoded by AtomicBalance (units of 10^-scale in the upper 61 bits,
+ *   scale in the lower 3)
+ * byte   0
+ * long   number of accounts
+ * </pre>
+ */
+@RestController
+@RequestMapping("/v1/accounts")
+@Slf4j
+public class BalanceExportController {
+
+  static final int BINARY_MAGIC = 0x42414c53;
+
+  private final AccountsService accountsService;
+
+  private final ObjectMapper objectMapper;
+
+  @Autowired
+  public BalanceExportController(AccountsService accountsService, ObjectMapper objectMapper) {
+    this.accountsService = accountsService;
+    this.objectMapper = objectMapper;
+  }
+
+  @GetMapping(path = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportNdjson(NativeWebRequest request) {
+    return export(request, MediaType.APPLICATION_NDJSON, (snapshot, body) -> {
+      JsonGenerator generator = objectMapper.getFactory().createGenerator(body);
+      long exported = accountsService.exportBalances(snapshot, (accountId, balance) -> {
+        generator.writeStartObject();
+        generator.writeStringField("accountId", accountId);
+        generator.writeNumberField("balance", AtomicBalance.decode(balance));
+        generator.writeEndObject();
+        generator.writeRaw('\n');
+      });
+      generator.flush();
+      return exported;
+    });
+  }
+
+  @GetMapping(path = "/export", produces = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+  public ResponseEntity<StreamingResponseBody> exportBinary(NativeWebRequest request) {
+    return export(request, MediaType.APPLICATION_OCTET_STREAM, (snapshot, body) -> {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(body, 1 << 16));
+      out.writeInt(BINARY_MAGIC);
+      out.writeByte(1);
+      out.writeLong(snapshot.getTakenAt().toEpochMilli());
+      long exported = accountsService.exportBalances(snapshot, (accountId, balance) -> {
+        out.writeByte(1);
+        out.writeUTF(accountId);
+        out.writeLong(balance);
+      });
+      out.writeByte(0);
+      out.writeLong(exported);
+      out.flush();
+      return exported;
+    });
+  }
+
+  private ResponseEntity<StreamingResponseBody> export(NativeWebRequest request,
+                                                       MediaType mediaType, Writer writer) {
+    BalanceSnapshot snapshot;
+    try {
+      snapshot = accountsService.openSnapshot();
+    } catch (SnapshotUnavailableException sue) {
+      byte[] message = sue.getMessage().getBytes(StandardCharsets.UTF_8);
+      return ResponseEntity.status(HttpStatus.CONFLICT).contentType(MediaType.TEXT_PLAIN)
+              .body(out -> out.write(message));
+    }
+    log.info("Exporting balances as of {}", snapshot.getTakenAt());
+    // The body closes the snapshot when it is done, but it is never run if
+    // the request times out or fails before it starts, and only one snapshot
+    // can be open at a time.
+    WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(snapshot,
+            new CallableProcessingInterceptor() {
+              @Override
+              public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                accountsService.closeSnapshot(snapshot);
+              }
+            });
+    StreamingResponseBody body = out -> {
+      long exported = writer.write(snapshot, out);
+      log.info("Exported {} balances as of {}", exported, snapshot.getTakenAt());
+    };
+    return ResponseEntity.ok().contentType(mediaType)
+            .header("Snapshot-Time", snapshot.getTakenAt().toString())
+            .body(body);
+  }
+
+  @FunctionalInterface
+  private interface Writer {
+
+    long write(BalanceSnapshot snapshot, OutputStream body) throws IOException;
+  }
+}
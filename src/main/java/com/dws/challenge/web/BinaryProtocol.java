@@ -0,0 +1,132 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.TransferStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Frames of the binary transfer protocol, all fields big-endian. Every frame
+ * starts with the length of the rest of it as an int, then the opcode as a
+ * byte and a correlation id as a long, which the response echoes. Account
+ * ids are sent as a byte length followed by that many bytes of UTF-8.
+ * <pre>
+ *   transfer request   amount units (long, 1/10,000), amount scale (byte),
+ *                      from account id, to account id
+ *   transfer response  status (byte)
+ *   balance request    account id
+ *   balance response   status (byte), balance units (long), balance scale (byte)
+ * </pre>
+ * Statuses are {@link TransferStatus} ordinals. A balance of an account that
+ * does not exist is {@link TransferStatus#UNKNOWN_ACCOUNT} with a balance of
+ * zero. Requests may be pipelined: responses come back in request order.
+ */
+public final class BinaryProtocol {
+
+  public static final byte TRANSFER = 1;
+
+  public static final byte BALANCE = 2;
+
+  public static final int MAX_ID_LENGTH = 255;
+
+  // Length, opcode and correlation id.
+  static final int HEADER_SIZE = 4 + 1 + 8;
+
+  // Longest request, length included.
+  public static final int MAX_REQUEST_SIZE = HEADER_SIZE + 8 + 1 + 2 * (1 + MAX_ID_LENGTH);
+
+  // Longest response, length included.
+  public static final int MAX_RESPONSE_SIZE = HEADER_SIZE + 1 + 8 + 1;
+
+  private static final TransferStatus[] STATUSES = TransferStatus.values();
+
+  private BinaryProtocol() {
+  }
+
+  public static void writeTransfer(ByteBuffer out, long correlationId, String fromAccountId,
+                                   String toAccountId, long units, int scale) {
+    byte[] from = id(fromAccountId);
+    byte[] to = id(toAccountId);
+    out.putInt(1 + 8 + 8 + 1 + 1 + from.length + 1 + to.length)
+            .put(TRANSFER)
+            .putLong(correlationId)
+            .putLong(units)
+            .put((byte) scale)
+            .put((byte) from.length).put(from)
+            .put((byte) to.length).put(to);
+  }
+
+  public static void writeBalance(ByteBuffer out, long correlationId, String accountId) {
+    byte[] id = id(accountId);
+    out.putInt(1 + 8 + 1 + id.length)
+            .put(BALANCE)
+            .putLong(correlationId)
+            .put((byte) id.length).put(id);
+  }
+
+  static void writeResponse(ByteBuffer out, byte opcode, long correlationId,
+                            TransferStatus status) {
+    out.putInt(1 + 8 + 1).put(opcode).putLong(correlationId).put((byte) status.ordinal());
+  }
+
+  static void writeBalanceResponse(ByteBuffer out, long correlationId, TransferStatus status,
+                                   long units, int scale) {
+    out.putInt(1 + 8 + 1 + 8 + 1)
+            .put(BALANCE)
+            .putLong(correlationId)
+            .put((byte) status.ordinal())
+            .putLong(units)
+            .put((byte) scale);
+  }
+
+  /**
+   * Reads the response at the position of the buffer, which must hold all of
+   * it.
+   */
+  public static Response readResponse(ByteBuffer in) {
+    int length = in.getInt();
+    byte opcode = in.get();
+    long correlationId = in.getLong();
+    TransferStatus status = status(in.get());
+    long units = 0;
+    int scale = 0;
+    if (opcode == BALANCE && length >= 1 + 8 + 1 + 8 + 1) {
+      units = in.getLong();
+      scale = in.get();
+    }
+    return new Response(opcode, correlationId, status, units, scale);
+  }
+
+  // Decodes the account id at the position of a heap buffer straight from
+  // its backing array, or returns null if it is not all there.
+  static String readId(ByteBuffer in) {
+    if (!in.hasRemaining()) {
+      return null;
+    }
+    int length = in.get() & 0xFF;
+    if (in.remaining() < length) {
+      return null;
+    }
+    String id = new String(in.array(), in.arrayOffset() + in.position(), length,
+            StandardCharsets.UTF_8);
+    in.position(in.position() + length);
+    return id;
+  }
+
+  static TransferStatus status(byte ordinal) {
+    return ordinal >= 0 && ordinal < STATUSES.length ? STATUSES[ordinal] : TransferStatus.MALFORMED;
+  }
+
+  private static byte[] id(String accountId) {
+    byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+    if (id.length > MAX_ID_LENGTH) {
+      throw new IllegalArgumentException("Account ids cannot be longer than " +
+              MAX_ID_LENGTH + " bytes.");
+    }
+    return id;
+  }
+
+  public record Response(byte opcode, long correlationId, TransferStatus status, long units,
+                         int scale) {
+  }
+}
@@ -0,0 +1,82 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.AtomicBalance;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking client of the {@link BinaryTransferServer}, for one thread at a
+ * time. Requests are buffered until {@link #flush()} or until the buffer is
+ * full, so that many can be pipelined before their responses are read with
+ * {@link #read()}, in request order.
+ */
+public class BinaryTransferClient implements AutoCloseable {
+
+  private final SocketChannel channel;
+
+  private final ByteBuffer out;
+
+  private final ByteBuffer in;
+
+  public BinaryTransferClient(String host, int port, int bufferSize) throws IOException {
+    this.channel = SocketChannel.open(new InetSocketAddress(host, port));
+    this.channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    this.out = ByteBuffer.allocate(Math.max(bufferSize, BinaryProtocol.MAX_REQUEST_SIZE));
+    this.in = ByteBuffer.allocate(Math.max(bufferSize, BinaryProtocol.MAX_RESPONSE_SIZE));
+    this.in.flip();
+  }
+
+  public void transfer(long correlationId, String fromAccountId, String toAccountId,
+                       BigDecimal amount) throws IOException {
+    long encoded = AtomicBalance.encode(amount);
+    reserve();
+    BinaryProtocol.writeTransfer(out, correlationId, fromAccountId, toAccountId,
+            AtomicBalance.units(encoded), AtomicBalance.scale(encoded));
+  }
+
+  public void balance(long correlationId, String accountId) throws IOException {
+    reserve();
+    BinaryProtocol.writeBalance(out, correlationId, accountId);
+  }
+
+  public void flush() throws IOException {
+    out.flip();
+    while (out.hasRemaining()) {
+      channel.write(out);
+    }
+    out.clear();
+  }
+
+  // Flushes the requests buffered so far first, if any.
+  public BinaryProtocol.Response read() throws IOException {
+    if (out.position() > 0) {
+      flush();
+    }
+    while (in.remaining() < 4 || in.remaining() < 4 + in.getInt(in.position())) {
+      in.compact();
+      int read = channel.read(in);
+      in.flip();
+      if (read < 0) {
+        throw new EOFException("Connection closed by the server.");
+      }
+    }
+    return BinaryProtocol.readResponse(in);
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void reserve() throws IOException {
+    if (out.remaining() < BinaryProtocol.MAX_REQUEST_SIZE) {
+      flush();
+    }
+  }
+}
@@ -0,0 +1,210 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.config.BinaryProtocolProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.service.AccountsService;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves transfers and balance reads in the {@link BinaryProtocol} over
+ * plain TCP, for clients that send many requests and would spend most of
+ * their time in JSON parsing and bean validation otherwise. Each connection
+ * has a virtual thread of its own, which answers requests in the order they
+ * come, decoding them in place in its read buffer.
+ * <p>
+ * A request that cannot be framed gets a {@link TransferStatus#MALFORMED}
+ * response and the connection is closed, as the next frame cannot be found.
+ * So is a connection on which a request failed unexpectedly, once the
+ * responses to the requests before it have been written.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "accounts.binary.enabled", havingValue = "true")
+public class BinaryTransferServer {
+
+  private final AccountsService accountsService;
+
+  private final int bufferSize;
+
+  private final ServerSocketChannel serverChannel;
+
+  @Getter
+  private final int port;
+
+  private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+
+  private final Thread acceptor;
+
+  @Autowired
+  public BinaryTransferServer(AccountsService accountsService,
+                              BinaryProtocolProperties properties) throws IOException {
+    if (properties.getBufferSize() < BinaryProtocol.MAX_REQUEST_SIZE) {
+      throw new IllegalStateException("The binary protocol buffer size must be at least " +
+              BinaryProtocol.MAX_REQUEST_SIZE + " bytes.");
+    }
+    this.accountsService = accountsService;
+    this.bufferSize = properties.getBufferSize();
+    this.serverChannel = ServerSocketChannel.open()
+            .bind(new InetSocketAddress(properties.getPort()));
+    this.port = ((InetSocketAddress) serverChannel.getLocalAddress()).getPort();
+    this.acceptor = Thread.ofPlatform().name("binary-acceptor").daemon().start(this::accept);
+    log.info("Binary transfer protocol listening on port {}", port);
+  }
+
+  @PreDestroy
+  public void shutdown() throws IOException, InterruptedException {
+    serverChannel.close();
+    acceptor.join();
+    for (SocketChannel connection : connections) {
+      connection.close();
+    }
+  }
+
+  private void accept() {
+    while (serverChannel.isOpen()) {
+      try {
+        SocketChannel connection = serverChannel.accept();
+        connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        connections.add(connection);
+        Thread.ofVirtual().name("binary-connection").start(() -> serve(connection));
+      } catch (ClosedChannelException e) {
+        return;
+      } catch (IOException e) {
+        log.warn("Failed to accept a binary protocol connection", e);
+      }
+    }
+  }
+
+  // Responses are only written out once every request read so far has been
+  // answered, so a client pipelining requests gets many responses per write.
+  private void serve(SocketChannel connection) {
+    ByteBuffer in = ByteBuffer.allocate(bufferSize);
+    ByteBuffer out = ByteBuffer.allocate(bufferSize);
+    try (connection) {
+      try {
+        while (connection.read(in) >= 0) {
+          in.flip();
+          boolean framed = handleRequests(connection, in, out);
+          in.compact();
+          flush(connection, out);
+          if (!framed) {
+            return;
+          }
+        }
+      } catch (RuntimeException e) {
+        log.error("Closing binary protocol connection after an unexpected error", e);
+        // Requests answered before the failing one still get their
+        // responses; the client finds the rest unanswered once it is closed.
+        flush(connection, out);
+      }
+    } catch (IOException e) {
+      log.debug("Binary protocol connection failed", e);
+    } finally {
+      connections.remove(connection);
+    }
+  }
+
+  // Answers every complete request in the buffer. Returns false if a request
+  // could not be framed.
+  private boolean handleRequests(SocketChannel connection, ByteBuffer in, ByteBuffer out)
+          throws IOException {
+    while (in.remaining() >= 4) {
+      if (out.remaining() < BinaryProtocol.MAX_RESPONSE_SIZE) {
+        flush(connection, out);
+      }
+      int length = in.getInt(in.position());
+      if (length < 1 + 8 || length > BinaryProtocol.MAX_REQUEST_SIZE - 4) {
+        BinaryProtocol.writeResponse(out, (byte) 0, 0, TransferStatus.MALFORMED);
+        return false;
+      }
+      if (in.remaining() < 4 + length) {
+        return true;
+      }
+      int end = in.position() + 4 + length;
+      int limit = in.limit();
+      in.position(in.position() + 4).limit(end);
+      try {
+        handleRequest(in, out);
+      } finally {
+        in.limit(limit).position(end);
+      }
+    }
+    return true;
+  }
+
+  private void handleRequest(ByteBuffer request, ByteBuffer out) {
+    byte opcode = request.get();
+    long correlationId = request.getLong();
+    if (opcode == BinaryProtocol.TRANSFER) {
+      BinaryProtocol.writeResponse(out, opcode, correlationId, transfer(request));
+    } else if (opcode == BinaryProtocol.BALANCE) {
+      String accountId = BinaryProtocol.readId(request);
+      Account account = accountId == null || request.hasRemaining()
+              ? null : accountsService.getAccount(accountId);
+      if (account == null) {
+        BinaryProtocol.writeBalanceResponse(out, correlationId, accountId == null
+                ? TransferStatus.MALFORMED : TransferStatus.UNKNOWN_ACCOUNT, 0, 0);
+      } else {
+        long balance = account.getBalanceState().get();
+        BinaryProtocol.writeBalanceResponse(out, correlationId, TransferStatus.OK,
+                AtomicBalance.units(balance), AtomicBalance.scale(balance));
+      }
+    } else {
+      BinaryProtocol.writeResponse(out, opcode, correlationId, TransferStatus.MALFORMED);
+    }
+  }
+
+  private TransferStatus transfer(ByteBuffer request) {
+    if (request.remaining() < 8 + 1) {
+      return TransferStatus.MALFORMED;
+    }
+    long units = request.getLong();
+    int scale = request.get();
+    String fromAccountId = BinaryProtocol.readId(request);
+    String toAccountId = BinaryProtocol.readId(request);
+    if (fromAccountId == null || toAccountId == null || request.hasRemaining()) {
+      return TransferStatus.MALFORMED;
+    }
+    BigDecimal amount;
+    try {
+      amount = AtomicBalance.decode(AtomicBalance.encode(units, scale));
+    } catch (IllegalArgumentException | ArithmeticException e) {
+      return TransferStatus.INVALID_AMOUNT;
+    }
+    try {
+      return accountsService.tryTransfer(fromAccountId, toAccountId, amount);
+    } catch (InvalidAccountException e) {
+      return TransferStatus.INVALID_ACCOUNT;
+    } catch (InvalidAmountException e) {
+      return TransferStatus.INVALID_AMOUNT;
+    }
+  }
+
+  private static void flush(SocketChannel connection, ByteBuffer out) throws IOException {
+    out.flip();
+    while (out.hasRemaining()) {
+      connection.write(out);
+    }
+    out.clear();
+  }
+}
@@ -0,0 +1,70 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferCoalescer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variant of the transfer endpoint: the request thread is
+ * released as soon as the transfer is queued with the
+ * {@link TransferCoalescer}, and the response is written once the batch the
+ * transfer ended up in has been executed.
+ */
+@RestController
+@RequestMapping("/v1/accounts")
+@Slf4j
+public class CoalescingTransfersController {
+
+  private final TransferCoalescer transferCoalescer;
+
+  private final LockWaitResponses lockWaitResponses;
+
+  @Autowired
+  public CoalescingTransfersController(TransferCoalescer transferCoalescer,
+                                       LockWaitResponses lockWaitResponses) {
+    this.transferCoalescer = transferCoalescer;
+    this.lockWaitResponses = lockWaitResponses;
+  }
+
+  @PostMapping(path = "/transferFunds/coalesced", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public Mono<ResponseEntity<Object>> transferFunds(@RequestBody FundTransferRequest fundTransferRequest) {
+    log.info("Queueing money transfer {}", fundTransferRequest);
+    return this.transferCoalescer.transfer(fundTransferRequest)
+            .map(this::response)
+            .onErrorResume(InvalidAccountException.class, e -> Mono.just(
+                    new ResponseEntity<>(e.getError(), HttpStatus.BAD_REQUEST)))
+            .onErrorResume(InvalidAmountException.class, e -> Mono.just(
+                    new ResponseEntity<>(e.getError(), HttpStatus.BAD_REQUEST)))
+            .onErrorResume(e -> Mono.just(new ResponseEntity<>(
+                    AccountsService.TRANSFER_ERROR_MESSAGE, HttpStatus.INTERNAL_SERVER_ERROR)));
+  }
+
+  private ResponseEntity<Object> response(TransferStatus status) {
+    return switch (status) {
+      case OK -> new ResponseEntity<>(HttpStatus.OK);
+      case TIMED_OUT -> lockWaitResponses.response(status, AccountsService.TIMED_OUT_MESSAGE);
+      case BUSY -> lockWaitResponses.response(status, AccountsService.BUSY_MESSAGE);
+      case INSUFFICIENT_FUNDS -> new ResponseEntity<>(AccountsService.INSUFFICIENT_FUNDS_MESSAGE,
+              HttpStatus.BAD_REQUEST);
+      case UNKNOWN_ACCOUNT -> new ResponseEntity<>(AccountsService.UNKNOWN_ACCOUNT_MESSAGE,
+              HttpStatus.BAD_REQUEST);
+      case NOT_DURABLE -> new ResponseEntity<>(AccountsService.NOT_DURABLE_MESSAGE,
+              HttpStatus.INTERNAL_SERVER_ERROR);
+      default -> new ResponseEntity<>("Invalid transfer: " + status + ".",
+              HttpStatus.BAD_REQUEST);
+    };
+  }
+}
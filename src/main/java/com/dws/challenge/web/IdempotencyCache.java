@@ -0,0 +1,206 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.config.IdempotencyProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the response given to each request carrying an Idempotency-Key,
+ * so that a retry gets the same response instead of being executed again.
+ * A retry arriving while the first attempt is still running waits for it.
+ * <p>
+ * Responses to transfers that gave up waiting for an account lock, 429 and
+ * 503, are not remembered: the transfer was certainly not applied, so
+ * retrying it is safe and useful. Every other response is, server errors
+ * included, as the transfer may have been applied before the error.
+ * Outcomes are evicted in insertion order once they are older than the
+ * configured ttl or once their estimated size exceeds the configured memory
+ * cap.
+ */
+@Component
+public class IdempotencyCache implements MeterBinder {
+
+  // Rough heap cost of an entry besides its strings: the map node, the
+  // entry, its future and the ResponseEntity.
+  private static final int ENTRY_OVERHEAD = 200;
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final ConcurrentLinkedQueue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+
+  private final ReentrantLock evictionLock = new ReentrantLock();
+
+  private final AtomicLong estimatedBytes = new AtomicLong();
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  private final LongAdder evictions = new LongAdder();
+
+  private final long ttlMillis;
+
+  private final long maxBytes;
+
+  private final Clock clock;
+
+  @Autowired
+  public IdempotencyCache(IdempotencyProperties properties) {
+    this(properties, Clock.systemUTC());
+  }
+
+  public IdempotencyCache(IdempotencyProperties properties, Clock clock) {
+    this.ttlMillis = properties.getTtl().toMillis();
+    this.maxBytes = properties.getMaxMemory().toBytes();
+    this.clock = clock;
+  }
+
+  /**
+   * Returns the response stored for {@code key}, or runs {@code action} and
+   * stores its response. {@code fingerprint} identifies the request: reusing
+   * a key for a different request is rejected with 422.
+   */
+  public ResponseEntity<Object> execute(String key, String fingerprint,
+                                        Supplier<ResponseEntity<Object>> action) {
+    long now = clock.millis();
+    Entry created = new Entry(key, fingerprint, now);
+    Entry existing = entries.putIfAbsent(key, created);
+    while (existing != null && existing.isExpired(now, ttlMillis)) {
+      if (entries.remove(key, existing)) {
+        evictions.increment();
+      }
+      existing = entries.putIfAbsent(key, created);
+    }
+
+    if (existing != null) {
+      hits.increment();
+      if (!existing.fingerprint.equals(fingerprint)) {
+        return new ResponseEntity<>("Idempotency key was already used for a " +
+                "different transfer.", HttpStatus.UNPROCESSABLE_ENTITY);
+      }
+      return existing.response.join();
+    }
+
+    misses.increment();
+    ResponseEntity<Object> response;
+    try {
+      response = action.get();
+    } catch (RuntimeException e) {
+      entries.remove(key, created);
+      created.response.completeExceptionally(e);
+      throw e;
+    }
+    if (response.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS
+            || response.getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE) {
+      entries.remove(key, created);
+    } else {
+      created.size = estimateSize(created, response);
+      estimatedBytes.addAndGet(created.size);
+      insertionOrder.add(created);
+    }
+    created.response.complete(response);
+    evict(now);
+    return response;
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  public int getSize() {
+    return entries.size();
+  }
+
+  public long getEstimatedBytes() {
+    return estimatedBytes.get();
+  }
+
+  @Override
+  public void bindTo(MeterRegistry registry) {
+    FunctionCounter.builder("idempotency.cache.requests", this, IdempotencyCache::getHitCount)
+            .tag("result", "hit").register(registry);
+    FunctionCounter.builder("idempotency.cache.requests", this, IdempotencyCache::getMissCount)
+            .tag("result", "miss").register(registry);
+    FunctionCounter.builder("idempotency.cache.evictions", this, IdempotencyCache::getEvictionCount)
+            .register(registry);
+    Gauge.builder("idempotency.cache.size", this, IdempotencyCache::getSize)
+            .register(registry);
+    Gauge.builder("idempotency.cache.memory", this, IdempotencyCache::getEstimatedBytes)
+            .baseUnit("bytes").register(registry);
+  }
+
+  // Entries are queued in creation order, so the expired ones are at the head.
+  // Only one thread evicts at a time; the others leave it to that thread.
+  private void evict(long now) {
+    if (!evictionLock.tryLock()) {
+      return;
+    }
+    try {
+      Entry head;
+      while ((head = insertionOrder.peek()) != null
+              && (estimatedBytes.get() > maxBytes || head.isExpired(now, ttlMillis))) {
+        insertionOrder.poll();
+        estimatedBytes.addAndGet(-head.size);
+        if (entries.remove(head.key, head)) {
+          evictions.increment();
+        }
+      }
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  private static long estimateSize(Entry entry, ResponseEntity<Object> response) {
+    long size = ENTRY_OVERHEAD + 2L * (entry.key.length() + entry.fingerprint.length());
+    if (response.getBody() instanceof String body) {
+      size += 2L * body.length();
+    }
+    return size;
+  }
+
+  private static final class Entry {
+
+    private final String key;
+
+    private final String fingerprint;
+
+    private final long createdAt;
+
+    private final CompletableFuture<ResponseEntity<Object>> response = new CompletableFuture<>();
+
+    private long size;
+
+    private Entry(String key, String fingerprint, long createdAt) {
+      this.key = key;
+      this.fingerprint = fingerprint;
+      this.createdAt = createdAt;
+    }
+
+    private boolean isExpired(long now, long ttlMillis) {
+      return response.isDone() && now - createdAt >= ttlMillis;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.TransferStatus;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+/**
+ * Responses to transfers that gave up waiting for an account lock: 429 when
+ * the lock wait policy rejected them as busy, 503 when their wait timed out.
+ * Both tell the client when to retry with a Retry-After header.
+ */
+@Component
+public class LockWaitResponses {
+
+  private final String retryAfterSeconds;
+
+  @Autowired
+  public LockWaitResponses(TransferProperties transferProperties) {
+    long millis = transferProperties.getLockWait().getRetryAfter().toMillis();
+    this.retryAfterSeconds = Long.toString(Math.max(1, (millis + 999) / 1000));
+  }
+
+  public static boolean gaveUp(TransferStatus status) {
+    return status == TransferStatus.BUSY || status == TransferStatus.TIMED_OUT;
+  }
+
+  public <T> ResponseEntity<T> response(TransferStatus status, T body) {
+    return ResponseEntity.status(status == TransferStatus.BUSY
+                    ? HttpStatus.TOO_MANY_REQUESTS : HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+            .body(body);
+  }
+}
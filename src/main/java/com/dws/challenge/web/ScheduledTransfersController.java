@@ -0,0 +1,69 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.ScheduleRequest;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.exception.InvalidScheduleException;
+import com.dws.challenge.service.TransferScheduler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/accounts")
+@Slf4j
+public class ScheduledTransfersController {
+
+  private final TransferScheduler transferScheduler;
+
+  @Autowired
+  public ScheduledTransfersController(TransferScheduler transferScheduler) {
+    this.transferScheduler = transferScheduler;
+  }
+
+  @PostMapping(path = "/schedules", consumes = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<Object> schedule(@RequestBody ScheduleRequest request) {
+    log.info("Scheduling money transfer {}", request);
+    try {
+      return new ResponseEntity<>(this.transferScheduler.schedule(request), HttpStatus.CREATED);
+    } catch (InvalidAccountException iae) {
+      return new ResponseEntity<>(iae.getError(), HttpStatus.BAD_REQUEST);
+    } catch (InvalidAmountException iae) {
+      return new ResponseEntity<>(iae.getError(), HttpStatus.BAD_REQUEST);
+    } catch (InvalidScheduleException ise) {
+      return new ResponseEntity<>(ise.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+  }
+
+  @GetMapping(path = "/schedules/{id}")
+  public ResponseEntity<ScheduledTransfer> getSchedule(@PathVariable long id) {
+    ScheduledTransfer schedule = this.transferScheduler.getSchedule(id);
+    return schedule == null ? new ResponseEntity<>(HttpStatus.NOT_FOUND)
+            : new ResponseEntity<>(schedule, HttpStatus.OK);
+  }
+
+  @GetMapping(path = "/{accountId}/schedules")
+  public List<ScheduledTransfer> getSchedules(@PathVariable String accountId) {
+    log.info("Retrieving scheduled transfers for id {}", accountId);
+    return this.transferScheduler.getSchedules(accountId);
+  }
+
+  @DeleteMapping(path = "/schedules/{id}")
+  public ResponseEntity<Object> cancel(@PathVariable long id) {
+    log.info("Cancelling scheduled transfer {}", id);
+    return new ResponseEntity<>(this.transferScheduler.cancel(id)
+            ? HttpStatus.NO_CONTENT : HttpStatus.NOT_FOUND);
+  }
+}
@@ -0,0 +1,61 @@
+package com.dws.challenge.web;
+
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Summary of transfer activity at {@code /actuator/transfers}: outcome
+ * counts, lock contention, the accounts whose locks are waited on the most
+ * and the state of the notification queues. Latency histograms are
+ * published as regular meters, under {@code /actuator/metrics} and
+ * {@code /actuator/prometheus}.
+ */
+@Component
+@Endpoint(id = "transfers")
+public class TransfersEndpoint {
+
+  private final TransferMetrics metrics;
+
+  private final TransferNotificationDispatcher notificationDispatcher;
+
+  @Autowired
+  public TransfersEndpoint(TransferMetrics metrics,
+                           TransferNotificationDispatcher notificationDispatcher) {
+    this.metrics = metrics;
+    this.notificationDispatcher = notificationDispatcher;
+  }
+
+  @ReadOperation
+  public Map<String, Object> transfers(@Nullable Integer hotAccounts) {
+    Map<String, Long> outcomes = new LinkedHashMap<>();
+    for (TransferStatus status : TransferStatus.values()) {
+      outcomes.put(status.name(), metrics.getTransferCount(status));
+    }
+    outcomes.put("ERROR", metrics.getFailedTransferCount());
+
+    Map<String, Object> notifications = new LinkedHashMap<>();
+    notifications.put("queueDepth", notificationDispatcher.getQueueDepth());
+    notifications.put("enqueued", notificationDispatcher.getEnqueuedCount());
+    notifications.put("dropped", notificationDispatcher.getDroppedCount());
+    notifications.put("delivered", notificationDispatcher.getDeliveredCount());
+    notifications.put("failed", notificationDispatcher.getFailedCount());
+
+    Map<String, Object> summary = new LinkedHashMap<>();
+    summary.put("outcomes", outcomes);
+    summary.put("meanLatencyMicros", metrics.getMeanLatencyMicros(TransferStatus.OK));
+    summary.put("contendedLocks", metrics.getContendedLockCount());
+    summary.put("lockWaitMillis", metrics.getLockWaitMillis());
+    summary.put("hotAccounts", metrics.getHotAccounts().top(hotAccounts == null ? 10 : hotAccounts));
+    summary.put("notifications", notifications);
+    return summary;
+  }
+}
@@ -0,0 +1,156 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+
+import com.dws.challenge.config.ImportProperties;
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountImportResult;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.AccountsRepositoryOffHeap;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountImporter;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.ImportFormat;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AccountImporterTest {
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private AccountImporter importer;
+
+  @BeforeEach
+  void setUp() {
+    dispatcher = new TransferNotificationDispatcher((account, description) -> { }, 1, 1024, 256, 0);
+    service = new AccountsService(new AccountsRepositoryInMemory(1024), dispatcher,
+            new TransferProperties(), new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    ImportProperties properties = new ImportProperties();
+    properties.setParallelism(4);
+    properties.setChunkSize(3);
+    properties.setMaxReportedErrors(2);
+    importer = new AccountImporter(service, new ObjectMapper(), properties);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void importAccounts_readsCsv() throws Exception {
+    StringBuilder csv = new StringBuilder("accountId,balance\n");
+    for (int i = 0; i < 100; i++) {
+      csv.append("Id-").append(i).append(',').append(i).append('\n');
+    }
+
+    AccountImportResult result = importer.importAccounts(new StringReader(csv.toString()),
+            ImportFormat.CSV);
+
+    assertThat(result.getRead()).isEqualTo(100);
+    assertThat(result.getCreated()).isEqualTo(100);
+    assertThat(result.getFailed()).isZero();
+    assertThat(service.getAccount("Id-42").getBalance()).isEqualByComparingTo("42");
+  }
+
+  @Test
+  void importAccounts_reportsFailedLines() throws Exception {
+    service.createAccount(new Account("Id-1", new BigDecimal("5")));
+    String ndjson = """
+            {"accountId":"Id-1","balance":10}
+            {"accountId":"Id-2","balance":20}
+
+            {"accountId":"Id-3","balance":
+            {"accountId":"Id-4","balance":-1}
+            {"accountId":"Id-5"}
+            null
+            """;
+
+    AccountImportResult result = importer.importAccounts(new StringReader(ndjson),
+            ImportFormat.NDJSON);
+
+    assertThat(result.getRead()).isEqualTo(6);
+    assertThat(result.getCreated()).isEqualTo(2);
+    assertThat(result.getFailed()).isEqualTo(4);
+    // Only the first errors reported are listed.
+    assertThat(result.getErrors()).hasSize(2);
+    assertThat(service.getAccount("Id-1").getBalance()).isEqualByComparingTo("5");
+    assertThat(service.getAccount("Id-2").getBalance()).isEqualByComparingTo("20");
+    assertThat(service.getAccount("Id-4")).isNull();
+    assertThat(service.getAccount("Id-5").getBalance()).isEqualByComparingTo("0");
+  }
+
+  @Test
+  void importAccounts_reportsAccountsThatCouldNotBeJournaled() throws Exception {
+    AccountsService failingService = new AccountsService(new AccountsRepositoryInMemory(1024),
+            dispatcher, new TransferProperties(), new NoOpTransactionJournal() {
+              @Override
+              public CompletableFuture<Void> recordCreate(Account account) {
+                return CompletableFuture.failedFuture(new IOException("No space left on device"));
+              }
+            }, new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    ImportProperties properties = new ImportProperties();
+    properties.setParallelism(1);
+    properties.setChunkSize(2);
+    AccountImporter failingImporter = new AccountImporter(failingService, new ObjectMapper(),
+            properties);
+
+    AccountImportResult result = failingImporter.importAccounts(
+            new StringReader("Id-1,1\nId-2,2\nId-2,3\n"), ImportFormat.CSV);
+    failingService.shutdown();
+
+    // The accounts exist, they are only at risk of being lost on restart.
+    assertThat(result.getCreated()).isEqualTo(2);
+    assertThat(result.getNotDurable()).isEqualTo(2);
+    assertThat(result.getFailed()).isEqualTo(1);
+    assertThat(result.getErrors()).extracting(AccountImportResult.LineError::message)
+            .containsExactly(AccountsService.ACCOUNT_NOT_DURABLE_MESSAGE,
+                    AccountsService.ACCOUNT_NOT_DURABLE_MESSAGE, "Account id Id-2 already exists!");
+    assertThat(failingService.getAccount("Id-2").getBalance()).isEqualByComparingTo("2");
+  }
+
+  @Test
+  void importAccounts_failsOnlyTheAccountsThatDoNotFit() throws Exception {
+    AccountsService smallService = new AccountsService(new AccountsRepositoryOffHeap(2),
+            dispatcher, new TransferProperties(), new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    AccountImporter smallImporter = new AccountImporter(smallService, new ObjectMapper(),
+            new ImportProperties());
+
+    AccountImportResult result = smallImporter.importAccounts(
+            new StringReader("Id-1,1\nId-2,2\nId-3,3\n"), ImportFormat.CSV);
+    smallService.shutdown();
+
+    assertThat(result.getCreated()).isEqualTo(2);
+    assertThat(result.getFailed()).isEqualTo(1);
+    assertThat(result.getErrors()).extracting(AccountImportResult.LineError::line)
+            .containsExactly(3L);
+    assertThat(smallService.getAccount("Id-2").getBalance()).isEqualByComparingTo("2");
+  }
+
+  @Test
+  void importAccounts_reportsMalformedCsvBalance() throws Exception {
+    AccountImportResult result = importer.importAccounts(new StringReader("Id-1,abc\nId-2,1\n"),
+            ImportFormat.CSV);
+
+    assertThat(result.getCreated()).isEqualTo(1);
+    assertThat(result.getErrors()).containsExactly(
+            new AccountImportResult.LineError(1, "Malformed balance abc."));
+  }
+}
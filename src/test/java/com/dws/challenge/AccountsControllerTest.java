@@ -1,9 +1,13 @@
 package com.dws.challenge;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
 
@@ -20,6 +24,7 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.context.web.WebAppConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.web.context.WebApplicationContext;
 
 @ExtendWith(SpringExtension.class)
@@ -86,10 +91,33 @@ class AccountsControllerTest {
       .content("{\"accountId\":\"Id-123\",\"balance\":-1000}")).andExpect(status().isBadRequest());
   }
 
+  @Test
+  void createAccountTooManyDecimalPlaces() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-123\",\"balance\":1.00001}")).andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.status").value("INVALID_AMOUNT"))
+      .andExpect(jsonPath("$.field").value("balance"))
+      .andExpect(jsonPath("$.message").value("Amount cannot have more than 4 decimal places."));
+
+    assertThat(accountsService.getAccount("Id-123")).isNull();
+  }
+
+  @Test
+  void createAccountBalanceOutOfRange() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
+      .content("{\"accountId\":\"Id-123\",\"balance\":1e30}")).andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.status").value("INVALID_AMOUNT"))
+      .andExpect(jsonPath("$.field").value("balance"));
+
+    assertThat(accountsService.getAccount("Id-123")).isNull();
+  }
+
   @Test
   void createAccountEmptyAccountId() throws Exception {
     this.mockMvc.perform(post("/v1/accounts").contentType(MediaType.APPLICATION_JSON)
-      .content("{\"accountId\":\"\",\"balance\":1000}")).andExpect(status().isBadRequest());
+      .content("{\"accountId\":\"\",\"balance\":1000}")).andExpect(status().isBadRequest())
+      .andExpect(jsonPath("$.status").value("INVALID_ACCOUNT"))
+      .andExpect(jsonPath("$.field").value("accountId"));
   }
 
   @Test
@@ -116,7 +144,8 @@ class AccountsControllerTest {
                     "\"toAccountId\":\"Id-123\"," +
                     "\"amount\":100}"))
             .andExpect(status().isBadRequest())
-            .andExpect(content().string("From account id and or to account id cannot be empty."));
+            .andExpect(jsonPath("$.field").value("fromAccountId"))
+            .andExpect(jsonPath("$.message").value("From account id and or to account id cannot be empty."));
   }
 
   @Test
@@ -126,7 +155,8 @@ class AccountsControllerTest {
                     "\"toAccountId\":\"\"," +
                     "\"amount\":100}"))
             .andExpect(status().isBadRequest())
-            .andExpect(content().string("From account id and or to account id cannot be empty."));
+            .andExpect(jsonPath("$.field").value("toAccountId"))
+            .andExpect(jsonPath("$.message").value("From account id and or to account id cannot be empty."));
   }
 
   @Test
@@ -136,7 +166,8 @@ class AccountsControllerTest {
                             "\"toAccountId\":\"Id-456\"," +
                             "\"amount\":-100}"))
             .andExpect(status().isBadRequest())
-            .andExpect(content().string("Amount cannot be less than or equal to zero."));
+            .andExpect(jsonPath("$.field").value("amount"))
+            .andExpect(jsonPath("$.message").value("Amount cannot be less than or equal to zero."));
   }
 
   @Test
@@ -146,7 +177,19 @@ class AccountsControllerTest {
                             "\"toAccountId\":\"Id-456\"," +
                             "\"amount\":0}"))
             .andExpect(status().isBadRequest())
-            .andExpect(content().string("Amount cannot be less than or equal to zero."));
+            .andExpect(jsonPath("$.field").value("amount"))
+            .andExpect(jsonPath("$.message").value("Amount cannot be less than or equal to zero."));
+  }
+
+  @Test
+  void transferFundsWithTooManyDecimalPlaces() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/transferFunds").contentType(MediaType.APPLICATION_JSON_VALUE)
+                    .content("{\"fromAccountId\":\"Id-123\"," +
+                            "\"toAccountId\":\"Id-456\"," +
+                            "\"amount\":0.00001}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.field").value("amount"))
+            .andExpect(jsonPath("$.message").value("Amount cannot have more than 4 decimal places."));
   }
 
   @Test
@@ -186,7 +229,8 @@ class AccountsControllerTest {
                           .content("{\"fromAccountId\":\"" + uniqueAccountId + "1\"," +
                                   "\"toAccountId\":\"" + uniqueAccountId + "2\"," +
                                   "\"amount\":100}"))
-                  .andExpect(status().isInternalServerError())
+                  .andExpect(status().isServiceUnavailable())
+                  .andExpect(header().string("Retry-After", "1"))
                   .andExpect(content().string("Your transaction has timed out. Money will not be debited from your account. Please try again in some time."));
       } catch (Exception e) {
           throw new RuntimeException(e);
@@ -217,4 +261,254 @@ class AccountsControllerTest {
     assertThat(toAccount.getAccountId()).isEqualTo(uniqueAccountId + "2");
     assertThat(toAccount.getBalance()).isEqualByComparingTo("110");
   }
+
+  @Test
+  void getTransactions() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("10")));
+    this.accountsService.makeTransfer(uniqueAccountId + "1", uniqueAccountId + "2", new BigDecimal("30"));
+    this.accountsService.makeTransfer(uniqueAccountId + "2", uniqueAccountId + "1", new BigDecimal("5"));
+
+    this.mockMvc.perform(get("/v1/accounts/" + uniqueAccountId + "1/transactions?limit=1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.transactions[0].counterpartyAccountId").value(uniqueAccountId + "2"))
+            .andExpect(jsonPath("$.transactions[0].amount").value(5))
+            .andExpect(jsonPath("$.nextCursor").isNumber());
+
+    this.mockMvc.perform(get("/v1/accounts/" + uniqueAccountId + "2/transactions"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.transactions.length()").value(2))
+            .andExpect(jsonPath("$.transactions[1].amount").value(30))
+            .andExpect(jsonPath("$.nextCursor").doesNotExist());
+
+    this.mockMvc.perform(get("/v1/accounts/Unknown/transactions"))
+            .andExpect(status().isNotFound());
+    this.mockMvc.perform(get("/v1/accounts/" + uniqueAccountId + "1/transactions?limit=0"))
+            .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void getBalances() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("10.5")));
+
+    this.mockMvc.perform(post("/v1/accounts/balances").contentType(MediaType.APPLICATION_JSON_VALUE)
+            .content("[\"" + uniqueAccountId + "2\",\"Unknown\",\"" + uniqueAccountId + "1\"]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.balances.length()").value(2))
+            .andExpect(jsonPath("$.balances[0].accountId").value(uniqueAccountId + "2"))
+            .andExpect(jsonPath("$.balances[0].balance").value(10.5))
+            .andExpect(jsonPath("$.balances[1].balance").value(100))
+            .andExpect(jsonPath("$.unknownAccountIds[0]").value("Unknown"));
+
+    StringBuilder tooMany = new StringBuilder("[");
+    for (int i = 0; i <= AccountsService.MAX_BALANCE_QUERY_SIZE; i++) {
+      tooMany.append(i == 0 ? "" : ",").append("\"Id-").append(i).append('"');
+    }
+    this.mockMvc.perform(post("/v1/accounts/balances").contentType(MediaType.APPLICATION_JSON_VALUE)
+            .content(tooMany.append(']').toString()))
+            .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void transfersEndpointReportsOutcomes() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("10")));
+    this.accountsService.makeTransfer(uniqueAccountId + "1", uniqueAccountId + "2", new BigDecimal("30"));
+
+    this.mockMvc.perform(get("/actuator/transfers"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.outcomes.OK").isNumber())
+            .andExpect(jsonPath("$.hotAccounts").isArray())
+            .andExpect(jsonPath("$.notifications.queueDepth").isNumber());
+  }
+
+  @Test
+  void transferFundsWithIdempotencyKeyIsAppliedOnce() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("10")));
+    String transfer = "{\"fromAccountId\":\"" + uniqueAccountId + "1\"," +
+            "\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60}";
+
+    for (int attempt = 0; attempt < 2; attempt++) {
+      this.mockMvc.perform(post("/v1/accounts/transferFunds").contentType(MediaType.APPLICATION_JSON_VALUE)
+              .header("Idempotency-Key", uniqueAccountId).content(transfer))
+              .andExpect(status().isOk());
+    }
+    assertThat(accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("40");
+    assertThat(accountsService.getAccount(uniqueAccountId + "2").getBalance()).isEqualByComparingTo("70");
+
+    // The same amount written differently is the same transfer.
+    this.mockMvc.perform(post("/v1/accounts/transferFunds").contentType(MediaType.APPLICATION_JSON_VALUE)
+            .header("Idempotency-Key", uniqueAccountId)
+            .content("{\"fromAccountId\":\"" + uniqueAccountId + "1\"," +
+                    "\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60.00}"))
+            .andExpect(status().isOk());
+    assertThat(accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("40");
+
+    this.mockMvc.perform(post("/v1/accounts/transferFunds").contentType(MediaType.APPLICATION_JSON_VALUE)
+            .header("Idempotency-Key", uniqueAccountId)
+            .content("{\"fromAccountId\":\"" + uniqueAccountId + "1\"," +
+                    "\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":1}"))
+            .andExpect(status().isUnprocessableEntity());
+  }
+
+  @Test
+  void transferFundsCoalesced() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("10")));
+    String transfer = "{\"fromAccountId\":\"" + uniqueAccountId + "1\"," +
+            "\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60}";
+
+    MvcResult result = this.mockMvc.perform(post("/v1/accounts/transferFunds/coalesced")
+            .contentType(MediaType.APPLICATION_JSON_VALUE).content(transfer))
+            .andExpect(request().asyncStarted()).andReturn();
+    this.mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+
+    result = this.mockMvc.perform(post("/v1/accounts/transferFunds/coalesced")
+            .contentType(MediaType.APPLICATION_JSON_VALUE).content(transfer))
+            .andExpect(request().asyncStarted()).andReturn();
+    this.mockMvc.perform(asyncDispatch(result)).andExpect(status().isBadRequest());
+
+    assertThat(accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("40");
+    assertThat(accountsService.getAccount(uniqueAccountId + "2").getBalance()).isEqualByComparingTo("70");
+  }
+
+  @Test
+  void importAccounts() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/import").contentType("text/csv")
+            .content("accountId,balance\nId-1,100\nId-2,abc\nId-1,5\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.read").value(3))
+            .andExpect(jsonPath("$.created").value(1))
+            .andExpect(jsonPath("$.failed").value(2))
+            .andExpect(jsonPath("$.errors[0].line").value(3))
+            .andExpect(jsonPath("$.errors[1].line").value(4));
+
+    this.mockMvc.perform(post("/v1/accounts/import").contentType(MediaType.APPLICATION_NDJSON)
+            .content("{\"accountId\":\"Id-3\",\"balance\":7}\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.created").value(1));
+
+    assertThat(accountsService.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+    assertThat(accountsService.getAccount("Id-3").getBalance()).isEqualByComparingTo("7");
+  }
+
+  @Test
+  void exportBalances() throws Exception {
+    this.accountsService.createAccount(new Account("Id-1", new BigDecimal("100.5")));
+
+    MvcResult result = this.mockMvc.perform(get("/v1/accounts/export").accept(MediaType.APPLICATION_NDJSON))
+            .andExpect(request().asyncStarted()).andReturn();
+    this.mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk())
+            .andExpect(content().string("{\"accountId\":\"Id-1\",\"balance\":100.5}\n"));
+  }
+
+  @Test
+  void transferFundsBatch() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("10")));
+
+    this.mockMvc.perform(post("/v1/accounts/transferFunds/batch").contentType(MediaType.APPLICATION_JSON_VALUE)
+            .content("[{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60}," +
+                    "{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60}," +
+                    "{\"fromAccountId\":\"" + uniqueAccountId + "2\",\"toAccountId\":\"" + uniqueAccountId + "1\",\"amount\":5}," +
+                    "{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"Unknown\",\"amount\":5}]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(4))
+            .andExpect(jsonPath("$.succeeded").value(2))
+            .andExpect(jsonPath("$.failures[0].index").value(1))
+            .andExpect(jsonPath("$.failures[0].status").value("INSUFFICIENT_FUNDS"))
+            .andExpect(jsonPath("$.failures[1].index").value(3))
+            .andExpect(jsonPath("$.failures[1].status").value("UNKNOWN_ACCOUNT"));
+
+    assertThat(accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("45");
+    assertThat(accountsService.getAccount(uniqueAccountId + "2").getBalance()).isEqualByComparingTo("65");
+  }
+
+  @Test
+  void transferFundsBatchAllOrNothingRollsBack() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("10")));
+
+    this.mockMvc.perform(post("/v1/accounts/transferFunds/batch?atomic=true").contentType(MediaType.APPLICATION_JSON_VALUE)
+            .content("[{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60}," +
+                    "{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60}]"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.total").value(2))
+            .andExpect(jsonPath("$.succeeded").value(0))
+            .andExpect(jsonPath("$.failures[0].status").value("INSUFFICIENT_FUNDS"));
+
+    assertThat(accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("100");
+    assertThat(accountsService.getAccount(uniqueAccountId + "2").getBalance()).isEqualByComparingTo("10");
+  }
+
+  @Test
+  void transferFundsBatchAllOrNothingNetsTransfers() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("0")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "3", new BigDecimal("0")));
+
+    // Account 2 can only pay account 3 with the money it receives in the same batch.
+    this.mockMvc.perform(post("/v1/accounts/transferFunds/batch?atomic=true").contentType(MediaType.APPLICATION_JSON_VALUE)
+            .content("[{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60}," +
+                    "{\"fromAccountId\":\"" + uniqueAccountId + "2\",\"toAccountId\":\"" + uniqueAccountId + "3\",\"amount\":50}]"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.succeeded").value(2));
+
+    assertThat(accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("40");
+    assertThat(accountsService.getAccount(uniqueAccountId + "2").getBalance()).isEqualByComparingTo("10");
+    assertThat(accountsService.getAccount(uniqueAccountId + "3").getBalance()).isEqualByComparingTo("50");
+  }
+
+  @Test
+  void transferFundsBatchAllOrNothingChecksTransfersInOrder() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("0")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "3", new BigDecimal("0")));
+
+    // The batch nets out, but account 2 would pay account 3 before it is paid.
+    this.mockMvc.perform(post("/v1/accounts/transferFunds/batch?atomic=true").contentType(MediaType.APPLICATION_JSON_VALUE)
+            .content("[{\"fromAccountId\":\"" + uniqueAccountId + "2\",\"toAccountId\":\"" + uniqueAccountId + "3\",\"amount\":50}," +
+                    "{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":60}]"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.succeeded").value(0))
+            .andExpect(jsonPath("$.failures[0].index").value(0))
+            .andExpect(jsonPath("$.failures[0].status").value("INSUFFICIENT_FUNDS"));
+
+    assertThat(accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("100");
+    assertThat(accountsService.getAccount(uniqueAccountId + "2").getBalance()).isEqualByComparingTo("0");
+    assertThat(accountsService.getAccount(uniqueAccountId + "3").getBalance()).isEqualByComparingTo("0");
+  }
+
+  @Test
+  void transferFundsBatchStreamedAsNdjson() throws Exception {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("10")));
+
+    this.mockMvc.perform(post("/v1/accounts/transferFunds/batch").contentType(MediaType.APPLICATION_NDJSON_VALUE)
+            .content("{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":30}\n" +
+                    "{\"fromAccountId\":\"" + uniqueAccountId + "2\",\"toAccountId\":\"" + uniqueAccountId + "1\",\"amount\":0}\n" +
+                    "{\"fromAccountId\":\"" + uniqueAccountId + "1\",\"toAccountId\":\"" + uniqueAccountId + "2\",\"amount\":20}\n" +
+                    "{\"fromAccountId\": oops\n"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.total").value(4))
+            .andExpect(jsonPath("$.succeeded").value(2))
+            .andExpect(jsonPath("$.failures[0].status").value("INVALID_AMOUNT"))
+            .andExpect(jsonPath("$.failures[1].index").value(3))
+            .andExpect(jsonPath("$.failures[1].status").value("MALFORMED"));
+
+    assertThat(accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("50");
+    assertThat(accountsService.getAccount(uniqueAccountId + "2").getBalance()).isEqualByComparingTo("60");
+  }
 }
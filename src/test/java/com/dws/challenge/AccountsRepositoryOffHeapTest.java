@@ -0,0 +1,223 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.exception.AccountStoreFullException;
+import com.dws.challenge.exception.DuplicateAccountIdException;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.repository.AccountsRepositoryOffHeap;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.junit.jupiter.api.Test;
+
+class AccountsRepositoryOffHeapTest {
+
+  @Test
+  void createAccount_storesAccountsOffHeap() {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(1000);
+    for (int i = 0; i < 1000; i++) {
+      repository.createAccount(new Account("Id-" + i, new BigDecimal(i + ".5")));
+    }
+
+    assertThat(repository.getAccount("Id-999").getBalance()).isEqualByComparingTo("999.5");
+    assertThat(repository.getAccount("Id-1000")).isNull();
+    AtomicInteger count = new AtomicInteger();
+    repository.forEachAccount(account -> count.incrementAndGet());
+    assertThat(count).hasValue(1000);
+
+    assertThrows(DuplicateAccountIdException.class,
+            () -> repository.createAccount(new Account("Id-1", BigDecimal.ONE)));
+    assertThrows(InvalidAccountException.class,
+            () -> repository.createAccount(new Account("", BigDecimal.ONE)));
+    assertThrows(InvalidAccountException.class,
+            () -> repository.createAccount(new Account("Id-x", new BigDecimal("-1"))));
+    assertThrows(AccountStoreFullException.class,
+            () -> repository.createAccount(new Account("Id-1000", BigDecimal.ONE)));
+
+    repository.clearAccounts();
+    assertThat(repository.getAccount("Id-1")).isNull();
+    assertThrows(AccountStoreFullException.class,
+            () -> repository.createAccount(new Account("Id-1", BigDecimal.ONE)));
+  }
+
+  @Test
+  void createAccount_givesSlotNumbersAsHandles() {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(16);
+    Account first = new Account("Id-1", BigDecimal.ONE);
+    Account second = new Account("Id-2", BigDecimal.ONE);
+    repository.createAccount(first);
+    repository.createAccount(second);
+
+    assertThat(first.getHandle()).isZero();
+    assertThat(second.getHandle()).isEqualTo(1);
+    assertThat(repository.getAccount("Id-2").getHandle()).isEqualTo(1);
+  }
+
+  @Test
+  void getAccount_handsOutOneViewPerAccount() throws Exception {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(16);
+    repository.createAccount(new Account("Id-1", new BigDecimal("10")));
+    Account first = repository.getAccount("Id-1");
+    Account second = repository.getAccount("Id-1");
+
+    assertThat(second).isSameAs(first);
+    AtomicInteger count = new AtomicInteger();
+    repository.forEachAccount(account -> {
+      assertThat(account).isSameAs(first);
+      count.incrementAndGet();
+    });
+    assertThat(count).hasValue(1);
+
+    first.setBalance(new BigDecimal("25.25"));
+    assertThat(repository.getAccount("Id-1").getBalance()).isEqualByComparingTo("25.25");
+
+    first.getLock().lock();
+    try {
+      AtomicBoolean acquired = new AtomicBoolean(true);
+      Thread other = new Thread(() -> {
+        try {
+          acquired.set(first.getLock().tryLock(10, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+      other.start();
+      other.join();
+      assertThat(acquired).isFalse();
+    } finally {
+      first.getLock().unlock();
+    }
+    assertThrows(IllegalMonitorStateException.class, () -> first.getLock().unlock());
+  }
+
+  @Test
+  void createLockedAccount_returnsStoredAccountLockedByCaller() throws Exception {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(16);
+    Account account = new Account("Id-1", new BigDecimal("10"));
+
+    Account created = repository.createLockedAccount(account);
+
+    assertThat(created).isNotSameAs(account).isSameAs(repository.getAccount("Id-1"));
+    AtomicBoolean acquired = new AtomicBoolean(true);
+    Thread other = new Thread(() -> acquired.set(created.getLock().tryLock()));
+    other.start();
+    other.join();
+    assertThat(acquired).isFalse();
+    created.getLock().unlock();
+    assertThat(created.getLock().tryLock()).isTrue();
+    created.getLock().unlock();
+  }
+
+  @Test
+  void lockCondition_wakesWaiterOnSignal() throws Exception {
+    AccountsRepositoryOffHeap repository = new AccountsRepositoryOffHeap(16);
+    repository.createAccount(new Account("Id-1", new BigDecimal("10")));
+    Account account = repository.getAccount("Id-1");
+    Condition funded = account.getLock().newCondition();
+
+    account.getLock().lock();
+    try {
+      assertThat(funded.await(10, TimeUnit.MILLISECONDS)).isFalse();
+    } finally {
+      account.getLock().unlock();
+    }
+    assertThrows(IllegalMonitorStateException.class, funded::signal);
+
+    Thread waiter = new Thread(() -> {
+      account.getLock().lock();
+      try {
+        while (account.getBalance().compareTo(new BigDecimal("10")) == 0) {
+          funded.awaitUninterruptibly();
+        }
+        account.setBalance(account.getBalance().add(BigDecimal.ONE));
+      } finally {
+        account.getLock().unlock();
+      }
+    });
+    waiter.start();
+    Thread.sleep(50);
+    account.getLock().lock();
+    try {
+      account.setBalance(new BigDecimal("20"));
+      funded.signal();
+    } finally {
+      account.getLock().unlock();
+    }
+    waiter.join(5000);
+
+    assertThat(waiter.isAlive()).isFalse();
+    assertThat(account.getBalance()).isEqualByComparingTo("21");
+  }
+
+  @Test
+  void accountsService_refusesStripedAccounts() {
+    TransferProperties properties = new TransferProperties();
+    properties.getStriping().setAccountIds(Set.of("Id-1"));
+
+    assertThrows(IllegalStateException.class, () -> new AccountsService(
+            new AccountsRepositoryOffHeap(16), null, properties, new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled()));
+  }
+
+  @Test
+  void makeTransfer_conservesMoneyUnderConcurrentTransfers() throws Exception {
+    TransferNotificationDispatcher dispatcher = new TransferNotificationDispatcher(
+            (account, description) -> { }, 1, 1024, 256, 0);
+    AccountsService service = new AccountsService(new AccountsRepositoryOffHeap(64), dispatcher,
+            new TransferProperties(), new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    int accountCount = 16;
+    for (int i = 0; i < accountCount; i++) {
+      service.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+    }
+
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < 8; thread++) {
+      int offset = thread;
+      futures.add(clients.submit(() -> {
+        for (int i = 0; i < 5000; i++) {
+          try {
+            service.makeTransfer("Id-" + (i + offset) % accountCount,
+                    "Id-" + (i * 3 + offset + 1) % accountCount, new BigDecimal("7"));
+          } catch (InsufficientFundsException | InvalidAccountException e) {
+            // Expected now and then: the money keeps moving.
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    clients.shutdown();
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (int i = 0; i < accountCount; i++) {
+      total = total.add(service.getAccount("Id-" + i).getBalance());
+    }
+    assertThat(total).isEqualByComparingTo(new BigDecimal(1000 * accountCount));
+
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+}
@@ -1,14 +1,39 @@
 package com.dws.challenge;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.junit.jupiter.api.Assertions.fail;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
 import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.BatchTransferResult;
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.TransferStatus;
 import com.dws.challenge.exception.*;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
 import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.BalanceSnapshot;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -141,6 +166,29 @@ class AccountsServiceTest {
     }
   }
 
+  @Test
+  void tryTransfer_returnsInsufficientFundsWithoutChangingBalances() {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+
+    Account fromAccount = new Account(uniqueAccountId + "1");
+    fromAccount.setBalance(new BigDecimal("10"));
+    this.accountsService.createAccount(fromAccount);
+    Account toAccount = new Account(uniqueAccountId + "2");
+    this.accountsService.createAccount(toAccount);
+
+    assertThat(this.accountsService.tryTransfer(uniqueAccountId + "1", uniqueAccountId + "2",
+            new BigDecimal("20"))).isEqualTo(TransferStatus.INSUFFICIENT_FUNDS);
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "1").getBalance())
+            .isEqualByComparingTo("10");
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "2").getBalance())
+            .isEqualByComparingTo("0");
+
+    assertThat(this.accountsService.tryTransfer(uniqueAccountId + "1", uniqueAccountId + "2",
+            new BigDecimal("10"))).isEqualTo(TransferStatus.OK);
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "2").getBalance())
+            .isEqualByComparingTo("10");
+  }
+
   @Test
   void makeTransfer() {
     String uniqueAccountId = "Id-" + System.currentTimeMillis();
@@ -161,6 +209,51 @@ class AccountsServiceTest {
     }
   }
 
+  @Test
+  void tryTransfer_reportsTransferThatCouldNotBeJournaled() throws InterruptedException {
+    TransactionJournal failingJournal = new TransactionJournal() {
+      @Override
+      public CompletableFuture<Void> recordCreate(Account account) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      @Override
+      public CompletableFuture<Void> recordTransfer(Account fromAccount, Account toAccount,
+                                                    long amount) {
+        return CompletableFuture.failedFuture(new IOException("No space left on device"));
+      }
+    };
+    TransferNotificationDispatcher dispatcher = new TransferNotificationDispatcher(
+            (account, description) -> { }, 1, 16, 16, 0);
+    AccountsService service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            new TransferProperties(), failingJournal,
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    try {
+      service.createAccount(new Account("Id-1", new BigDecimal("100")));
+      service.createAccount(new Account("Id-2", BigDecimal.ZERO));
+
+      assertThat(service.tryTransfer("Id-1", "Id-2", BigDecimal.TEN))
+              .isEqualTo(TransferStatus.NOT_DURABLE);
+      BatchTransferResult result = service.makeTransfers(List.of(
+              new FundTransferRequest("Id-1", "Id-2", BigDecimal.ONE),
+              new FundTransferRequest("Id-1", "Id-2", new BigDecimal("1000"))).iterator(), false);
+      assertThat(result.getFailures()).containsExactly(
+              new BatchTransferResult.ItemStatus(0, TransferStatus.NOT_DURABLE),
+              new BatchTransferResult.ItemStatus(1, TransferStatus.INSUFFICIENT_FUNDS));
+      try {
+        service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+        fail("Should have failed when the transfer could not be journaled");
+      } catch (TransferNotDurableException e) {
+        assertThat(e.getMessage()).isEqualTo(AccountsService.NOT_DURABLE_MESSAGE);
+      }
+      // The transfers were applied all the same.
+      assertThat(service.getAccount("Id-2").getBalance()).isEqualByComparingTo("12");
+    } finally {
+      service.shutdown();
+      dispatcher.shutdown();
+    }
+  }
+
   @Test
   void makeTransfer_GivesTimeoutExceptionIfOtherTransactionIsGoingOnFromAccount() throws InterruptedException {
     String uniqueAccountId = "Id-" + System.currentTimeMillis();
@@ -327,4 +420,238 @@ class AccountsServiceTest {
       fail("Fund transfer should be successful");
     }
   }
+
+  @Test
+  void makeTransfer_failsIfFromAndToAccountAreSame() {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+
+    Account account = new Account(uniqueAccountId + "1");
+    account.setBalance(new BigDecimal("100"));
+    this.accountsService.createAccount(account);
+
+    try {
+      this.accountsService.makeTransfer(uniqueAccountId + "1", uniqueAccountId + "1",
+              new BigDecimal("20"));
+      fail("Should have failed while performing transfer to the same account");
+    } catch (InvalidAccountException iae) {
+      assertThat(iae.getMessage()).isEqualTo("From account id and to account " +
+              "id cannot be the same.");
+    }
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualTo("100");
+  }
+
+  @Test
+  void makeTransfer_WithOpposingParallelRequestsDoesNotTimeOut() throws InterruptedException {
+    String uniqueAccountId = "Id-" + System.currentTimeMillis();
+
+    Account account1 = new Account(uniqueAccountId + "1");
+    account1.setBalance(new BigDecimal("10000"));
+    this.accountsService.createAccount(account1);
+    Account account2 = new Account(uniqueAccountId + "2");
+    account2.setBalance(new BigDecimal("10000"));
+    this.accountsService.createAccount(account2);
+
+    int threads = 8;
+    int transfersPerThread = 2000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger timeouts = new AtomicInteger();
+    AtomicInteger failures = new AtomicInteger();
+
+    for (int t = 0; t < threads; t++) {
+      // Half of the threads move money 1 -> 2, the other half 2 -> 1.
+      String from = uniqueAccountId + (t % 2 == 0 ? "1" : "2");
+      String to = uniqueAccountId + (t % 2 == 0 ? "2" : "1");
+      executor.submit(() -> {
+        try {
+          start.await();
+          for (int i = 0; i < transfersPerThread; i++) {
+            try {
+              this.accountsService.makeTransfer(from, to, BigDecimal.ONE);
+            } catch (TransactionTimeoutException tte) {
+              timeouts.incrementAndGet();
+            } catch (Exception e) {
+              failures.incrementAndGet();
+            }
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      });
+    }
+
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(timeouts.get()).isZero();
+    assertThat(failures.get()).isZero();
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "1").getBalance()
+            .add(this.accountsService.getAccount(uniqueAccountId + "2").getBalance()))
+            .isEqualByComparingTo("20000");
+  }
+
+  @Test
+  void makeTransfers_lockGivenUpOnOnlyFailsTransfersOfThatAccount() throws Exception {
+    TransferProperties properties = new TransferProperties();
+    properties.getLockWait().setDeadline(Duration.ofMillis(50));
+    TransferNotificationDispatcher dispatcher = new TransferNotificationDispatcher(
+            (account, description) -> { }, 1, 16, 16, 0);
+    AccountsService service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            properties, new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      for (int i = 1; i <= 4; i++) {
+        service.createAccount(new Account("Id-" + i, new BigDecimal("100")));
+      }
+      Account busyAccount = service.getAccount("Id-1");
+
+      // The lock is held by this thread, so the batch has to run on another.
+      busyAccount.getLock().lock();
+      BatchTransferResult result;
+      try {
+        result = executor.submit(() -> service.makeTransfers(List.of(
+                new FundTransferRequest("Id-1", "Id-2", BigDecimal.TEN),
+                new FundTransferRequest("Id-3", "Id-4", BigDecimal.TEN),
+                new FundTransferRequest("Id-4", "Id-2", BigDecimal.ONE)).iterator(), false))
+                .get();
+      } finally {
+        busyAccount.getLock().unlock();
+      }
+
+      assertThat(result.getSucceeded()).isEqualTo(2);
+      assertThat(result.getFailures()).containsExactly(new BatchTransferResult.ItemStatus(0,
+              service.getLockWaiter().getGiveUpStatus()));
+      assertThat(service.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+      assertThat(service.getAccount("Id-2").getBalance()).isEqualByComparingTo("101");
+      assertThat(service.getAccount("Id-4").getBalance()).isEqualByComparingTo("109");
+    } finally {
+      executor.shutdown();
+      service.shutdown();
+      dispatcher.shutdown();
+    }
+  }
+
+  @Test
+  void makeTransfers_allOrNothingBatchOverflowingACreditChangesNothing() {
+    String uniqueAccountId = "Id-" + System.nanoTime() + "-";
+    BigDecimal nearlyFull = AtomicBalance.MAX_AMOUNT.subtract(new BigDecimal("5"));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "3", nearlyFull));
+
+    // Both senders are due a debit before the third account is credited, and
+    // it only overflows on the sum of its credits.
+    BatchTransferResult result = this.accountsService.makeTransfers(List.of(
+            new FundTransferRequest(uniqueAccountId + "2", uniqueAccountId + "1", BigDecimal.TEN),
+            new FundTransferRequest(uniqueAccountId + "1", uniqueAccountId + "3", BigDecimal.ONE),
+            new FundTransferRequest(uniqueAccountId + "1", uniqueAccountId + "3", BigDecimal.TEN))
+            .iterator(), true);
+
+    assertThat(result.getSucceeded()).isZero();
+    assertThat(result.getFailures()).containsExactly(
+            new BatchTransferResult.ItemStatus(1, TransferStatus.INVALID_AMOUNT),
+            new BatchTransferResult.ItemStatus(2, TransferStatus.INVALID_AMOUNT));
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "1").getBalance())
+            .isEqualByComparingTo("100");
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "2").getBalance())
+            .isEqualByComparingTo("100");
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "3").getBalance())
+            .isEqualByComparingTo(nearlyFull);
+  }
+
+  @Test
+  void exportBalances_isPointInTime() throws Exception {
+    String uniqueAccountId = "Id-" + System.nanoTime();
+    this.accountsService.createAccount(new Account(uniqueAccountId + "1", new BigDecimal("100")));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "2", new BigDecimal("0")));
+
+    BalanceSnapshot snapshot = this.accountsService.openSnapshot();
+    this.accountsService.makeTransfer(uniqueAccountId + "1", uniqueAccountId + "2", new BigDecimal("30"));
+    this.accountsService.createAccount(new Account(uniqueAccountId + "3", new BigDecimal("5")));
+    try {
+      this.accountsService.openSnapshot();
+      fail("Should have failed while another export is running");
+    } catch (SnapshotUnavailableException sue) {
+      assertThat(sue.getMessage()).isEqualTo("A balance export is already running.");
+    }
+    Map<String, BigDecimal> exported = export(snapshot, uniqueAccountId);
+
+    assertThat(exported).containsOnlyKeys(uniqueAccountId + "1", uniqueAccountId + "2");
+    assertThat(exported.get(uniqueAccountId + "1")).isEqualByComparingTo("100");
+    assertThat(exported.get(uniqueAccountId + "2")).isEqualByComparingTo("0");
+    assertThat(this.accountsService.getAccount(uniqueAccountId + "1").getBalance()).isEqualByComparingTo("70");
+
+    exported = export(this.accountsService.openSnapshot(), uniqueAccountId);
+    assertThat(exported.get(uniqueAccountId + "2")).isEqualByComparingTo("30");
+    assertThat(exported.get(uniqueAccountId + "3")).isEqualByComparingTo("5");
+  }
+
+  @Test
+  void exportBalances_conservesMoneyUnderConcurrentTransfers() throws Exception {
+    String uniqueAccountId = "Id-" + System.nanoTime() + "-";
+    int accountCount = 20;
+    for (int i = 0; i < accountCount; i++) {
+      this.accountsService.createAccount(new Account(uniqueAccountId + i, new BigDecimal("100")));
+    }
+    AtomicBoolean running = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int t = 0; t < 4; t++) {
+      int offset = t;
+      executor.submit(() -> {
+        for (int i = offset; running.get(); i++) {
+          try {
+            this.accountsService.makeTransfer(uniqueAccountId + i % accountCount,
+                    uniqueAccountId + (i * 7 + 1) % accountCount, new BigDecimal("3"));
+          } catch (InsufficientFundsException | InvalidAccountException e) {
+            // Expected now and then: the money keeps moving.
+          }
+        }
+      });
+    }
+
+    try {
+      for (int round = 0; round < 20; round++) {
+        Map<String, BigDecimal> exported = export(this.accountsService.openSnapshot(), uniqueAccountId);
+        assertThat(exported).hasSize(accountCount);
+        assertThat(exported.values().stream().reduce(BigDecimal.ZERO, BigDecimal::add))
+                .isEqualByComparingTo(new BigDecimal(100 * accountCount));
+      }
+    } finally {
+      running.set(false);
+      executor.shutdown();
+      assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+    }
+  }
+
+  @Test
+  void closeSnapshot_releasesSnapshotThatWasNeverExported() throws Exception {
+    BalanceSnapshot abandoned = this.accountsService.openSnapshot();
+    try {
+      this.accountsService.openSnapshot();
+      fail("Should have failed while another snapshot is open");
+    } catch (SnapshotUnavailableException e) {
+      assertThat(e.getMessage()).isEqualTo("A balance export is already running.");
+    }
+
+    this.accountsService.closeSnapshot(abandoned);
+    BalanceSnapshot snapshot = this.accountsService.openSnapshot();
+    // Closing the abandoned snapshot again leaves the new one open.
+    this.accountsService.closeSnapshot(abandoned);
+    assertThat(catchThrowable(() -> this.accountsService.openSnapshot()))
+            .isInstanceOf(SnapshotUnavailableException.class);
+    export(snapshot, "");
+  }
+
+  private Map<String, BigDecimal> export(BalanceSnapshot snapshot, String accountIdPrefix)
+          throws Exception {
+    Map<String, BigDecimal> exported = new HashMap<>();
+    this.accountsService.exportBalances(snapshot, (accountId, balance) -> {
+      if (accountId.startsWith(accountIdPrefix)) {
+        exported.put(accountId, AtomicBalance.decode(balance));
+      }
+    });
+    return exported;
+  }
 }
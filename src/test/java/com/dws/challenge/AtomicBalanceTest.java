@@ -0,0 +1,80 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.domain.AtomicBalance;
+import org.junit.jupiter.api.Test;
+
+class AtomicBalanceTest {
+
+  @Test
+  void keepsTheScaleBigDecimalArithmeticWouldProduce() {
+    AtomicBalance balance = new AtomicBalance(new BigDecimal("20"));
+    balance.credit(AtomicBalance.encode(new BigDecimal("30")));
+    assertThat(balance.toBigDecimal()).isEqualTo("50");
+
+    balance.credit(AtomicBalance.encode(new BigDecimal("0.70")));
+    assertThat(balance.toBigDecimal()).isEqualTo("50.70");
+
+    assertThat(balance.tryDebit(AtomicBalance.encode(new BigDecimal("0.7")))).isTrue();
+    assertThat(balance.toBigDecimal()).isEqualTo("50.00");
+  }
+
+  @Test
+  void tryDebit_failsWithoutChangingTheBalanceIfFundsAreInsufficient() {
+    AtomicBalance balance = new AtomicBalance(new BigDecimal("10.5"));
+
+    assertThat(balance.tryDebit(AtomicBalance.encode(new BigDecimal("10.51")))).isFalse();
+    assertThat(balance.toBigDecimal()).isEqualTo("10.5");
+  }
+
+  @Test
+  void encode_rejectsAmountsWithTooManyDecimalPlaces() {
+    assertThatThrownBy(() -> AtomicBalance.encode(new BigDecimal("0.00001")))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessage("Amount cannot have more than 4 decimal places.");
+  }
+
+  @Test
+  void encode_rejectsAmountsOutOfRange() {
+    assertThatThrownBy(() -> AtomicBalance.encode(new BigDecimal("1E+20")))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void transfer_conservesMoneyUnderConcurrentOpposingTransfers() throws InterruptedException {
+    AtomicBalance balance1 = new AtomicBalance(new BigDecimal("1000"));
+    AtomicBalance balance2 = new AtomicBalance(new BigDecimal("1000"));
+    long amount = AtomicBalance.encode(new BigDecimal("0.25"));
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < threads; t++) {
+      AtomicBalance from = t % 2 == 0 ? balance1 : balance2;
+      AtomicBalance to = t % 2 == 0 ? balance2 : balance1;
+      executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < 100_000; i++) {
+          AtomicBalance.transfer(from, to, amount);
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(balance1.toBigDecimal().add(balance2.toBigDecimal()))
+            .isEqualByComparingTo("2000");
+    assertThat(balance1.toBigDecimal().signum()).isNotNegative();
+    assertThat(balance2.toBigDecimal().signum()).isNotNegative();
+  }
+}
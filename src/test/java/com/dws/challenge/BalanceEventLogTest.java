@@ -0,0 +1,233 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.config.BalanceEventProperties;
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.BalanceChangeEvent;
+import com.dws.challenge.domain.BalanceEventPage;
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InvalidPageRequestException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.BalanceEventLog;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BalanceEventLogTest {
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  @BeforeEach
+  void setUp() {
+    dispatcher = new TransferNotificationDispatcher((account, description) -> { }, 1, 16, 16, 0);
+    BalanceEventProperties properties = new BalanceEventProperties();
+    properties.setCapacity(8);
+    properties.setPollInterval(Duration.ofMillis(1));
+    service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            new TransferProperties(), new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), new BalanceEventLog(properties),
+            TransferMetrics.disabled());
+    service.createAccount(new Account("Id-1", new BigDecimal("100")));
+    service.createAccount(new Account("Id-2", BigDecimal.ZERO));
+    service.createAccount(new Account("Id-3", BigDecimal.ZERO));
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void events_carryTheBalanceLeftByEachTransferAndFilterByAccount() throws Exception {
+    service.makeTransfer("Id-1", "Id-2", new BigDecimal("10.50"));
+    service.makeTransfers(List.of(
+            new FundTransferRequest("Id-1", "Id-3", BigDecimal.ONE),
+            new FundTransferRequest("Id-2", "Id-3", new BigDecimal("0.5"))).iterator(), false);
+
+    BalanceEventPage all = service.getBalanceEvents(null, -1L, null, 100, Duration.ZERO);
+    assertThat(all.getEvents()).hasSize(6);
+    assertThat(all.getLastOffset()).isEqualTo(2);
+    assertThat(all.getMissed()).isZero();
+    BalanceChangeEvent debit = all.getEvents().get(0);
+    assertThat(debit.getOffset()).isZero();
+    assertThat(debit.getAccountId()).isEqualTo("Id-1");
+    assertThat(debit.getCounterpartyAccountId()).isEqualTo("Id-2");
+    assertThat(debit.getAmount()).isEqualTo("-10.50");
+    assertThat(debit.getBalance()).isEqualTo("89.50");
+
+    BalanceEventPage third = service.getBalanceEvents(null, -1L, Set.of("Id-3"), 100,
+            Duration.ZERO);
+    assertThat(third.getEvents()).extracting(BalanceChangeEvent::getBalance)
+            .containsExactly(new BigDecimal("1"), new BigDecimal("1.5"));
+    assertThat(third.getLastOffset()).isEqualTo(2);
+
+    // Both sides of a transfer are returned together.
+    BalanceEventPage limited = service.getBalanceEvents(null, -1L, null, 3, Duration.ZERO);
+    assertThat(limited.getEvents()).hasSize(2);
+    assertThat(limited.getLastOffset()).isZero();
+  }
+
+  @Test
+  void slowConsumer_isToldHowManyTransfersItMissed() throws Exception {
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+    long cursor = service.getBalanceEvents(null, null, null, 100, Duration.ZERO).getLastOffset();
+    assertThat(cursor).isZero();
+
+    for (int i = 0; i < 20; i++) {
+      service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+    }
+    BalanceEventPage page = service.getBalanceEvents(null, cursor, Set.of("Id-2"), 100,
+            Duration.ZERO);
+    // Offsets 1 to 12 were overwritten by the ring of 8.
+    assertThat(page.getMissed()).isEqualTo(12);
+    assertThat(page.getEvents()).hasSize(8);
+    assertThat(page.getEvents().get(0).getOffset()).isEqualTo(13);
+    assertThat(page.getEvents().get(7).getBalance()).isEqualTo("21");
+    assertThat(page.getLastOffset()).isEqualTo(20);
+
+    assertThatThrownBy(() -> service.getBalanceEvents(null, 21L, null, 100, Duration.ZERO))
+            .isInstanceOf(InvalidPageRequestException.class);
+  }
+
+  @Test
+  void transfer_isOnlyPublishedOnceJournaled() throws Exception {
+    CompletableFuture<Void> journaled = new CompletableFuture<>();
+    TransactionJournal journal = new TransactionJournal() {
+      @Override
+      public CompletableFuture<Void> recordCreate(Account account) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      @Override
+      public CompletableFuture<Void> recordTransfer(Account fromAccount, Account toAccount,
+                                                    long amount) {
+        return journaled;
+      }
+    };
+    BalanceEventProperties properties = new BalanceEventProperties();
+    properties.setCapacity(8);
+    AccountsService journaling = new AccountsService(new AccountsRepositoryInMemory(),
+            dispatcher, new TransferProperties(), journal,
+            new TransactionLedger(new LedgerProperties()), new BalanceEventLog(properties),
+            TransferMetrics.disabled());
+    try {
+      journaling.createAccount(new Account("Id-1", new BigDecimal("100")));
+      journaling.createAccount(new Account("Id-2", BigDecimal.ZERO));
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+        Future<TransferStatus> transfer = executor.submit(() -> journaling.tryTransfer("Id-1",
+                "Id-2", BigDecimal.ONE));
+        Thread.sleep(50);
+        assertThat(journaling.getBalanceEvents(null, -1L, null, 100, Duration.ZERO)
+                .getEvents()).isEmpty();
+
+        journaled.complete(null);
+        assertThat(transfer.get(10, TimeUnit.SECONDS)).isEqualTo(TransferStatus.OK);
+        assertThat(journaling.getBalanceEvents(null, -1L, null, 100, Duration.ZERO)
+                .getEvents()).extracting(BalanceChangeEvent::getBalance)
+                .containsExactly(new BigDecimal("99"), new BigDecimal("1"));
+      } finally {
+        executor.shutdownNow();
+      }
+    } finally {
+      journaling.shutdown();
+    }
+  }
+
+  @Test
+  void transferThatCouldNotBeJournaled_isNeverPublished() throws Exception {
+    TransactionJournal failingJournal = new TransactionJournal() {
+      @Override
+      public CompletableFuture<Void> recordCreate(Account account) {
+        return CompletableFuture.completedFuture(null);
+      }
+
+      @Override
+      public CompletableFuture<Void> recordTransfer(Account fromAccount, Account toAccount,
+                                                    long amount) {
+        return CompletableFuture.failedFuture(new IOException("No space left on device"));
+      }
+    };
+    BalanceEventProperties properties = new BalanceEventProperties();
+    properties.setCapacity(8);
+    AccountsService failing = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            new TransferProperties(), failingJournal,
+            new TransactionLedger(new LedgerProperties()), new BalanceEventLog(properties),
+            TransferMetrics.disabled());
+    try {
+      failing.createAccount(new Account("Id-1", new BigDecimal("100")));
+      failing.createAccount(new Account("Id-2", BigDecimal.ZERO));
+
+      assertThat(failing.tryTransfer("Id-1", "Id-2", BigDecimal.ONE))
+              .isEqualTo(TransferStatus.NOT_DURABLE);
+      BalanceEventPage page = failing.getBalanceEvents(null, -1L, null, 100, Duration.ZERO);
+      assertThat(page.getEvents()).isEmpty();
+      assertThat(page.getLastOffset()).isEqualTo(-1);
+    } finally {
+      failing.shutdown();
+    }
+  }
+
+  @Test
+  void offsetOfAnotherEpoch_resumesFromTheOldestEvent() throws Exception {
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+    service.makeTransfer("Id-1", "Id-3", BigDecimal.ONE);
+    BalanceEventPage current = service.getBalanceEvents(null, -1L, null, 100, Duration.ZERO);
+    assertThat(current.isReset()).isFalse();
+
+    // An offset past the head of this log, read before a restart.
+    BalanceEventPage page = service.getBalanceEvents(current.getEpoch() - 1, 5L, null, 100,
+            Duration.ofSeconds(10));
+    assertThat(page.isReset()).isTrue();
+    assertThat(page.getEpoch()).isEqualTo(current.getEpoch());
+    assertThat(page.getEvents()).hasSize(4);
+    assertThat(page.getLastOffset()).isEqualTo(1);
+
+    assertThatThrownBy(() -> service.getBalanceEvents(current.getEpoch(), 5L, null, 100,
+            Duration.ZERO)).isInstanceOf(InvalidPageRequestException.class);
+  }
+
+  @Test
+  void longPoll_waitsForTheNextTransfer() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<BalanceEventPage> poll = executor.submit(() -> service.getBalanceEvents(null,
+              null, Set.of("Id-3"), 100, Duration.ofSeconds(10)));
+      Thread.sleep(50);
+      service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+      assertThat(poll.isDone()).isFalse();
+      service.makeTransfer("Id-1", "Id-3", BigDecimal.TEN);
+
+      BalanceEventPage page = poll.get(10, TimeUnit.SECONDS);
+      assertThat(page.getEvents()).singleElement()
+              .extracting(BalanceChangeEvent::getAmount).isEqualTo(BigDecimal.TEN);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
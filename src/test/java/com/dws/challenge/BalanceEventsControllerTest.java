@@ -0,0 +1,204 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.standaloneSetup;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+import com.dws.challenge.config.BalanceEventProperties;
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.BalanceEventLog;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import com.dws.challenge.web.BalanceEventsController;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+class BalanceEventsControllerTest {
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private BalanceEventsController controller;
+
+  private MockMvc mockMvc;
+
+  private long epoch;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    dispatcher = new TransferNotificationDispatcher((account, description) -> { }, 1, 16, 16, 0);
+    BalanceEventProperties properties = new BalanceEventProperties();
+    properties.setCapacity(8);
+    properties.setPollInterval(Duration.ofMillis(1));
+    properties.setMaxSubscribers(1);
+    properties.setMaxWait(Duration.ofSeconds(2));
+    service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            new TransferProperties(), new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), new BalanceEventLog(properties),
+            TransferMetrics.disabled());
+    service.createAccount(new Account("Id-1", new BigDecimal("100")));
+    service.createAccount(new Account("Id-2", BigDecimal.ZERO));
+    controller = new BalanceEventsController(service, properties);
+    mockMvc = standaloneSetup(controller).build();
+    epoch = service.getBalanceEvents(null, null, null, 2, Duration.ZERO).getEpoch();
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    controller.shutdown();
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void getEvents_returnsChangesAfterTheOffset() throws Exception {
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.TEN);
+
+    mockMvc.perform(get("/v1/accounts/events").param("after", "0"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.epoch").value(epoch))
+            .andExpect(jsonPath("$.lastOffset").value(1))
+            .andExpect(jsonPath("$.events.length()").value(2))
+            .andExpect(jsonPath("$.events[0].balance").value(89));
+  }
+
+  @Test
+  void getEvents_boundsTheWait() throws Exception {
+    mockMvc.perform(get("/v1/accounts/events").param("wait", "3"))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("Wait must be between 0 and 2 seconds."));
+    mockMvc.perform(get("/v1/accounts/events").param("wait", "-1"))
+            .andExpect(status().isBadRequest());
+
+    long started = System.nanoTime();
+    mockMvc.perform(get("/v1/accounts/events").param("wait", "1"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.events.length()").value(0));
+    assertThat(Duration.ofNanos(System.nanoTime() - started)).isGreaterThan(Duration.ofMillis(900));
+  }
+
+  @Test
+  void getEvents_refusesToWaitPastTheSubscriberCap() throws Exception {
+    openStream();
+
+    mockMvc.perform(get("/v1/accounts/events").param("wait", "1"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(content().string("Too many event subscribers."));
+    // A request that does not wait takes no subscriber.
+    mockMvc.perform(get("/v1/accounts/events"))
+            .andExpect(status().isOk());
+    mockMvc.perform(get("/v1/accounts/events/stream"))
+            .andExpect(status().isServiceUnavailable());
+  }
+
+  @Test
+  void streamEvents_resumesFromLastEventId() throws Exception {
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.TEN);
+
+    MvcResult stream = mockMvc.perform(get("/v1/accounts/events/stream")
+                    .header("Last-Event-ID", epoch + "-0"))
+            .andExpect(request().asyncStarted()).andReturn();
+
+    String events = awaitContent(stream, "id:" + epoch + "-1\n");
+    assertThat(events).contains("event:balance").doesNotContain("id:" + epoch + "-0\n");
+  }
+
+  @Test
+  void streamEvents_rejectsMalformedLastEventId() throws Exception {
+    mockMvc.perform(get("/v1/accounts/events/stream").header("Last-Event-ID", "12"))
+            .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/v1/accounts/events/stream").header("Last-Event-ID", "x-1"))
+            .andExpect(status().isBadRequest());
+    mockMvc.perform(get("/v1/accounts/events/stream").header("Last-Event-ID", epoch + "-"))
+            .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void streamEvents_sendsLagEventToSlowConsumer() throws Exception {
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+    for (int i = 0; i < 20; i++) {
+      service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+    }
+
+    MvcResult stream = mockMvc.perform(get("/v1/accounts/events/stream")
+                    .header("Last-Event-ID", epoch + "-0"))
+            .andExpect(request().asyncStarted()).andReturn();
+
+    // Offsets 1 to 12 were overwritten by the ring of 8.
+    String events = awaitContent(stream, "id:" + epoch + "-20\n");
+    assertThat(events).contains("event:lag", "\"missed\":12", "\"reset\":false");
+  }
+
+  @Test
+  void streamEvents_sendsResetEventForAnotherEpoch() throws Exception {
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+
+    MvcResult stream = mockMvc.perform(get("/v1/accounts/events/stream")
+                    .header("Last-Event-ID", (epoch + 1) + "-5"))
+            .andExpect(request().asyncStarted()).andReturn();
+
+    String events = awaitContent(stream, "id:" + epoch + "-0\n");
+    assertThat(events).contains("event:lag", "\"reset\":true");
+  }
+
+  @Test
+  void streamEvents_releasesItsSubscriberWhenTheStreamEnds() throws Exception {
+    MvcResult stream = openStream();
+    mockMvc.perform(get("/v1/accounts/events/stream"))
+            .andExpect(status().isServiceUnavailable());
+
+    MockAsyncContext asyncContext = (MockAsyncContext) stream.getRequest().getAsyncContext();
+    for (AsyncListener listener : asyncContext.getListeners()) {
+      listener.onTimeout(new AsyncEvent(asyncContext));
+    }
+    // Wakes the stream up, which then notices it has ended.
+    service.makeTransfer("Id-1", "Id-2", BigDecimal.ONE);
+
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    int status;
+    do {
+      Thread.sleep(10);
+      status = mockMvc.perform(get("/v1/accounts/events").param("wait", "1").param("after", "0"))
+              .andReturn().getResponse().getStatus();
+    } while (status == 503 && System.nanoTime() < deadline);
+    assertThat(status).isEqualTo(200);
+  }
+
+  private MvcResult openStream() throws Exception {
+    return mockMvc.perform(get("/v1/accounts/events/stream"))
+            .andExpect(request().asyncStarted()).andReturn();
+  }
+
+  private static String awaitContent(MvcResult result, String expected) throws Exception {
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    String content = result.getResponse().getContentAsString();
+    while (!content.contains(expected) && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+      content = result.getResponse().getContentAsString();
+    }
+    assertThat(content).contains(expected);
+    return content;
+  }
+}
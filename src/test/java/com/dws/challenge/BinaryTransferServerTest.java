@@ -0,0 +1,156 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.EOFException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+import com.dws.challenge.config.BinaryProtocolProperties;
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import com.dws.challenge.web.BinaryProtocol;
+import com.dws.challenge.web.BinaryTransferClient;
+import com.dws.challenge.web.BinaryTransferServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BinaryTransferServerTest {
+
+  private AccountsService service;
+
+  private BinaryTransferServer server;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    service = new AccountsService(new AccountsRepositoryInMemory(),
+            new TransferNotificationDispatcher((account, description) -> { }, 1, 16, 16, 0),
+            new TransferProperties(), new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    service.createAccount(new Account("Id-1", new BigDecimal("100")));
+    service.createAccount(new Account("Id-2", new BigDecimal("0")));
+    BinaryProtocolProperties properties = new BinaryProtocolProperties();
+    properties.setPort(0);
+    server = new BinaryTransferServer(service, properties);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    server.shutdown();
+  }
+
+  @Test
+  void pipelinedRequestsAreAnsweredInOrder() throws Exception {
+    try (BinaryTransferClient client = new BinaryTransferClient("localhost", server.getPort(),
+            4096)) {
+      for (int i = 0; i < 100; i++) {
+        client.transfer(i, "Id-1", "Id-2", new BigDecimal("0.50"));
+      }
+      client.transfer(100, "Id-1", "Id-2", new BigDecimal("1000"));
+      client.transfer(101, "Id-1", "Missing", BigDecimal.ONE);
+      client.transfer(102, "Id-1", "Id-1", BigDecimal.ONE);
+      client.balance(103, "Id-2");
+      client.balance(104, "Missing");
+
+      for (int i = 0; i < 100; i++) {
+        BinaryProtocol.Response response = client.read();
+        assertThat(response.correlationId()).isEqualTo(i);
+        assertThat(response.status()).isEqualTo(TransferStatus.OK);
+      }
+      assertThat(client.read().status()).isEqualTo(TransferStatus.INSUFFICIENT_FUNDS);
+      assertThat(client.read().status()).isEqualTo(TransferStatus.UNKNOWN_ACCOUNT);
+      assertThat(client.read().status()).isEqualTo(TransferStatus.INVALID_ACCOUNT);
+
+      BinaryProtocol.Response balance = client.read();
+      assertThat(balance.correlationId()).isEqualTo(103);
+      assertThat(balance.status()).isEqualTo(TransferStatus.OK);
+      assertThat(balance.units()).isEqualTo(500_000);
+      assertThat(balance.scale()).isEqualTo(2);
+      assertThat(client.read().status()).isEqualTo(TransferStatus.UNKNOWN_ACCOUNT);
+    }
+    assertThat(service.getAccount("Id-1").getBalance()).isEqualTo("50.00");
+  }
+
+  @Test
+  void transfer_rejectsAmountWithMoreDigitsThanItsScale() throws Exception {
+    try (SocketChannel channel = SocketChannel.open(
+            new InetSocketAddress("localhost", server.getPort()))) {
+      ByteBuffer request = ByteBuffer.allocate(BinaryProtocol.MAX_REQUEST_SIZE);
+      // 0.0001 sent with a scale of 2.
+      BinaryProtocol.writeTransfer(request, 7, "Id-1", "Id-2", 1, 2);
+      request.flip();
+      channel.write(request);
+      ByteBuffer response = ByteBuffer.allocate(BinaryProtocol.MAX_RESPONSE_SIZE);
+      while (response.position() < 4 + 1 + 8 + 1) {
+        channel.read(response);
+      }
+      response.flip();
+      assertThat(BinaryProtocol.readResponse(response).status())
+              .isEqualTo(TransferStatus.INVALID_AMOUNT);
+    }
+  }
+
+  @Test
+  void unexpectedErrorAnswersEarlierRequestsBeforeClosing() throws Exception {
+    AccountsService failingService = new AccountsService(new AccountsRepositoryInMemory() {
+      @Override
+      public Account getAccount(String accountId) {
+        if (accountId.equals("Broken")) {
+          throw new IllegalStateException("Broken repository");
+        }
+        return super.getAccount(accountId);
+      }
+    }, new TransferNotificationDispatcher((account, description) -> { }, 1, 16, 16, 0),
+            new TransferProperties(), new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    failingService.createAccount(new Account("Id-1", new BigDecimal("100")));
+    BinaryProtocolProperties properties = new BinaryProtocolProperties();
+    properties.setPort(0);
+    BinaryTransferServer failingServer = new BinaryTransferServer(failingService, properties);
+    try (BinaryTransferClient client = new BinaryTransferClient("localhost",
+            failingServer.getPort(), 4096)) {
+      client.balance(1, "Id-1");
+      client.balance(2, "Missing");
+      client.balance(3, "Broken");
+      client.balance(4, "Id-1");
+
+      assertThat(client.read().correlationId()).isEqualTo(1);
+      assertThat(client.read().correlationId()).isEqualTo(2);
+      assertThatThrownBy(client::read).isInstanceOf(EOFException.class);
+    } finally {
+      failingServer.shutdown();
+    }
+  }
+
+  @Test
+  void unframedRequestClosesTheConnection() throws Exception {
+    try (SocketChannel channel = SocketChannel.open(
+            new InetSocketAddress("localhost", server.getPort()))) {
+      channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE));
+      ByteBuffer response = ByteBuffer.allocate(BinaryProtocol.MAX_RESPONSE_SIZE);
+      while (channel.read(response) >= 0) {
+        assertThat(response.position()).isLessThanOrEqualTo(4 + 1 + 8 + 1);
+      }
+      response.flip();
+      assertThat(BinaryProtocol.readResponse(response).status())
+              .isEqualTo(TransferStatus.MALFORMED);
+    }
+    try (BinaryTransferClient client = new BinaryTransferClient("localhost", server.getPort(),
+            4096)) {
+      client.balance(1, "Id-1");
+      assertThat(client.read().units()).isEqualTo(1_000_000);
+    }
+  }
+}
@@ -0,0 +1,179 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import com.dws.challenge.config.JournalProperties;
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.FileTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FileTransactionJournalTest {
+
+  @TempDir
+  Path directory;
+
+  private TransferNotificationDispatcher dispatcher;
+
+  @BeforeEach
+  void startDispatcher() {
+    dispatcher = new TransferNotificationDispatcher((account, description) -> { },
+            1, 1024, 256, 0);
+  }
+
+  @AfterEach
+  void stopDispatcher() throws InterruptedException {
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void recover_replaysCreationsAndTransfers() throws Exception {
+    AccountsRepository repository = new AccountsRepositoryInMemory();
+    FileTransactionJournal journal = openJournal(repository);
+    AccountsService service = newService(repository, journal);
+    service.createAccount(new Account("Id-1", new BigDecimal("100.50")));
+    service.createAccount(new Account("Id-2", new BigDecimal("10")));
+    service.makeTransfer("Id-1", "Id-2", new BigDecimal("30.25"));
+    service.makeTransfer("Id-2", "Id-1", new BigDecimal("5"));
+    journal.close();
+
+    AccountsRepository recovered = new AccountsRepositoryInMemory();
+    openJournal(recovered).close();
+
+    assertThat(recovered.getAccount("Id-1").getBalance()).isEqualTo("75.25");
+    assertThat(recovered.getAccount("Id-2").getBalance()).isEqualTo("35.25");
+  }
+
+  @Test
+  void recover_loadsSnapshotAndReplaysOnlyTheTail() throws Exception {
+    AccountsRepository repository = new AccountsRepositoryInMemory();
+    FileTransactionJournal journal = openJournal(repository);
+    AccountsService service = newService(repository, journal);
+    service.createAccount(new Account("Id-1", new BigDecimal("100")));
+    service.createAccount(new Account("Id-2", new BigDecimal("100")));
+    service.makeTransfer("Id-1", "Id-2", new BigDecimal("10"));
+    journal.snapshot();
+    service.createAccount(new Account("Id-3", new BigDecimal("0")));
+    service.makeTransfer("Id-2", "Id-3", new BigDecimal("50"));
+    journal.close();
+
+    AccountsRepository recovered = new AccountsRepositoryInMemory();
+    FileTransactionJournal reopened = openJournal(recovered);
+    AccountsService recoveredService = newService(recovered, reopened);
+    assertThat(recovered.getAccount("Id-1").getBalance()).isEqualByComparingTo("90");
+    assertThat(recovered.getAccount("Id-2").getBalance()).isEqualByComparingTo("60");
+    assertThat(recovered.getAccount("Id-3").getBalance()).isEqualByComparingTo("50");
+
+    // The recovered journal keeps working and survives another restart.
+    recoveredService.makeTransfer("Id-3", "Id-1", new BigDecimal("20"));
+    reopened.snapshot();
+    reopened.close();
+
+    AccountsRepository recoveredAgain = new AccountsRepositoryInMemory();
+    openJournal(recoveredAgain).close();
+    assertThat(recoveredAgain.getAccount("Id-1").getBalance()).isEqualByComparingTo("110");
+    assertThat(recoveredAgain.getAccount("Id-3").getBalance()).isEqualByComparingTo("30");
+    try (Stream<Path> files = Files.list(directory)) {
+      assertThat(files.filter(path -> path.toString().endsWith(".snap"))).hasSize(1);
+    }
+  }
+
+  @Test
+  void recover_dropsTornRecordAtTheEndOfTheJournal() throws Exception {
+    AccountsRepository repository = new AccountsRepositoryInMemory();
+    FileTransactionJournal journal = openJournal(repository);
+    AccountsService service = newService(repository, journal);
+    service.createAccount(new Account("Id-1", new BigDecimal("100")));
+    service.createAccount(new Account("Id-2", new BigDecimal("0")));
+    service.makeTransfer("Id-1", "Id-2", new BigDecimal("10"));
+    journal.close();
+
+    Path lastSegment;
+    try (Stream<Path> files = Files.list(directory)) {
+      List<Path> segments = files.filter(path -> path.toString().endsWith(".log"))
+              .sorted().toList();
+      lastSegment = segments.get(segments.size() - 1);
+    }
+    Files.write(lastSegment, new byte[] {0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+    AccountsRepository recovered = new AccountsRepositoryInMemory();
+    openJournal(recovered).close();
+    assertThat(recovered.getAccount("Id-1").getBalance()).isEqualByComparingTo("90");
+    assertThat(recovered.getAccount("Id-2").getBalance()).isEqualByComparingTo("10");
+  }
+
+  // Scale with -Djournal.recovery.accounts=10000000 -Djournal.recovery.entries=100000000
+  // -Djournal.recovery.max-millis=...
+  @Test
+  void recover_measuresRecoveryTime() throws Exception {
+    int accounts = Integer.getInteger("journal.recovery.accounts", 10_000);
+    long entries = Long.getLong("journal.recovery.entries", 100_000L);
+
+    AccountsRepository repository = new AccountsRepositoryInMemory();
+    FileTransactionJournal journal = openJournal(repository);
+    Account[] created = new Account[accounts];
+    for (int i = 0; i < accounts; i++) {
+      created[i] = new Account("Id-" + i, new BigDecimal("1000000"));
+      repository.createAccount(created[i]);
+      journal.recordCreate(created[i]);
+    }
+    // The journal is written directly: recovery only replays the records.
+    long amount = AtomicBalance.encode(BigDecimal.ONE);
+    for (long i = 0; i < entries; i++) {
+      journal.recordTransfer(created[(int) (i % accounts)],
+              created[(int) ((i + 1) % accounts)], amount);
+    }
+    journal.snapshot();
+    for (long i = 0; i < entries; i++) {
+      journal.recordTransfer(created[(int) (i % accounts)],
+              created[(int) ((i + 1) % accounts)], amount);
+    }
+    journal.close();
+
+    AccountsRepository recovered = new AccountsRepositoryInMemory();
+    long started = System.nanoTime();
+    openJournal(recovered).close();
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+    assertThat(elapsed).isLessThan(Long.getLong("journal.recovery.max-millis", 30_000L));
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (int i = 0; i < accounts; i++) {
+      total = total.add(recovered.getAccount("Id-" + i).getBalance());
+    }
+    assertThat(total).isEqualByComparingTo(new BigDecimal(1000000L * accounts));
+  }
+
+  private FileTransactionJournal openJournal(AccountsRepository repository) throws IOException {
+    JournalProperties properties = new JournalProperties();
+    properties.setEnabled(true);
+    properties.setDirectory(directory);
+    properties.setFsync(false);
+    return new FileTransactionJournal(repository, properties, new TransferProperties());
+  }
+
+  private AccountsService newService(AccountsRepository repository,
+                                     FileTransactionJournal journal) {
+    return new AccountsService(repository, dispatcher, new TransferProperties(), journal,
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+  }
+}
@@ -0,0 +1,128 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dws.challenge.config.IdempotencyProperties;
+import com.dws.challenge.web.IdempotencyCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.unit.DataSize;
+
+class IdempotencyCacheTest {
+
+  private final MutableClock clock = new MutableClock();
+
+  private final AtomicInteger executions = new AtomicInteger();
+
+  @Test
+  void execute_replaysStoredResponse() {
+    IdempotencyCache cache = newCache(Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+
+    assertThat(cache.execute("key", "a", this::ok).getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(cache.execute("key", "a", this::ok).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+    assertThat(executions).hasValue(1);
+    assertThat(cache.getMissCount()).isEqualTo(1);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void execute_rejectsKeyReusedForAnotherRequest() {
+    IdempotencyCache cache = newCache(Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+    cache.execute("key", "a", this::ok);
+
+    assertThat(cache.execute("key", "b", this::ok).getStatusCode())
+            .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    assertThat(executions).hasValue(1);
+  }
+
+  @Test
+  void execute_doesNotStoreLockGiveUps() {
+    IdempotencyCache cache = newCache(Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+    cache.execute("key", "a", () -> new ResponseEntity<>("Timed out",
+            HttpStatus.SERVICE_UNAVAILABLE));
+    cache.execute("key", "a", () -> new ResponseEntity<>("Busy",
+            HttpStatus.TOO_MANY_REQUESTS));
+
+    assertThat(cache.execute("key", "a", this::ok).getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(executions).hasValue(1);
+    assertThat(cache.getMissCount()).isEqualTo(3);
+  }
+
+  @Test
+  void execute_storesServerErrors() {
+    IdempotencyCache cache = newCache(Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+    cache.execute("key", "a", () -> new ResponseEntity<>("Not durable",
+            HttpStatus.INTERNAL_SERVER_ERROR));
+
+    assertThat(cache.execute("key", "a", this::ok).getStatusCode())
+            .isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    assertThat(executions).hasValue(0);
+    assertThat(cache.getHitCount()).isEqualTo(1);
+  }
+
+  @Test
+  void execute_evictsExpiredResponses() {
+    IdempotencyCache cache = newCache(Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+    cache.execute("key", "a", this::ok);
+
+    clock.advance(Duration.ofMinutes(1));
+    cache.execute("key", "a", this::ok);
+
+    assertThat(executions).hasValue(2);
+    assertThat(cache.getEvictionCount()).isEqualTo(1);
+  }
+
+  @Test
+  void execute_evictsOldestResponsesOverMemoryCap() {
+    IdempotencyCache cache = newCache(Duration.ofMinutes(1), DataSize.ofKilobytes(4));
+    for (int i = 0; i < 1000; i++) {
+      cache.execute("key-" + i, "a", this::ok);
+    }
+
+    assertThat(cache.getEstimatedBytes()).isLessThanOrEqualTo(4096);
+    assertThat(cache.getEvictionCount()).isEqualTo(1000 - cache.getSize());
+    cache.execute("key-999", "a", this::ok);
+    assertThat(executions).hasValue(1000);
+    cache.execute("key-0", "a", this::ok);
+    assertThat(executions).hasValue(1001);
+  }
+
+  @Test
+  void bindTo_exposesCacheStatistics() {
+    IdempotencyCache cache = newCache(Duration.ofMinutes(1), DataSize.ofMegabytes(1));
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    cache.bindTo(registry);
+
+    cache.execute("key", "a", this::ok);
+    cache.execute("key", "a", this::ok);
+    clock.advance(Duration.ofMinutes(1));
+    cache.execute("key", "a", this::ok);
+
+    assertThat(registry.get("idempotency.cache.requests").tag("result", "hit")
+            .functionCounter().count()).isEqualTo(1);
+    assertThat(registry.get("idempotency.cache.requests").tag("result", "miss")
+            .functionCounter().count()).isEqualTo(2);
+    assertThat(registry.get("idempotency.cache.evictions").functionCounter().count())
+            .isEqualTo(1);
+    assertThat(registry.get("idempotency.cache.size").gauge().value()).isEqualTo(1);
+    assertThat(registry.get("idempotency.cache.memory").gauge().value()).isPositive();
+  }
+
+  private ResponseEntity<Object> ok() {
+    executions.incrementAndGet();
+    return new ResponseEntity<>(HttpStatus.OK);
+  }
+
+  private IdempotencyCache newCache(Duration ttl, DataSize maxMemory) {
+    IdempotencyProperties properties = new IdempotencyProperties();
+    properties.setTtl(ttl);
+    properties.setMaxMemory(maxMemory);
+    return new IdempotencyCache(properties, clock);
+  }
+}
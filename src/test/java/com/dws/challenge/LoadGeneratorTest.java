@@ -0,0 +1,89 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.loadgen.LatencyHistogram;
+import com.dws.challenge.loadgen.LoadGenerator;
+import com.dws.challenge.loadgen.LoadOptions;
+import com.dws.challenge.loadgen.LoadReport;
+import com.dws.challenge.loadgen.LoadTarget;
+import com.dws.challenge.loadgen.ServiceLoadTarget;
+import com.dws.challenge.service.TransferMode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LoadGeneratorTest {
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void run_conservesMoneyUnderSkewedConcurrentLoad() throws Exception {
+    LoadOptions options = LoadGenerator.parse("--accounts=50", "--initial-balance=100",
+            "--skew=1.1", "--read-ratio=0.2", "--threads=8", "--operations=20000");
+
+    LoadReport report;
+    try (LoadTarget target = new ServiceLoadTarget(TransferMode.LOCKING)) {
+      report = LoadGenerator.run(options, target);
+    }
+
+    assertThat(report.getOperations()).isEqualTo(20000);
+    assertThat(report.getErrors()).isZero();
+    assertThat(report.getReads()).isBetween(3000L, 5000L);
+    assertThat(report.getTransfers().get(TransferStatus.OK)).isPositive();
+    assertThat(report.getExpectedTotal()).isEqualByComparingTo("5000");
+    assertThat(report.isMoneyConserved()).isTrue();
+  }
+
+  @Test
+  void replay_ofRecordedTraceEndsWithTheSameBalances() throws Exception {
+    Path trace = directory.resolve("trace.txt");
+    LoadOptions recording = LoadGenerator.parse("--accounts=20", "--initial-balance=50",
+            "--skew=0.8", "--threads=1", "--operations=5000", "--seed=42",
+            "--record=" + trace);
+    LoadOptions replaying = LoadGenerator.parse("--threads=1", "--replay=" + trace);
+
+    List<BigDecimal> recorded = runAndReadBalances(recording);
+    List<BigDecimal> replayed = runAndReadBalances(replaying);
+
+    assertThat(replayed).isEqualTo(recorded);
+  }
+
+  @Test
+  void parse_rejectsUnknownOptions() {
+    assertThatThrownBy(() -> LoadGenerator.parse("--acounts=10"))
+            .isInstanceOf(RuntimeException.class);
+    assertThatThrownBy(() -> LoadGenerator.parse("accounts=10"))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void latencyHistogram_percentilesAreWithinABucketOfTheRecordedValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i * 1000L);
+    }
+
+    assertThat(histogram.getPercentile(50)).isBetween(500_000L, 535_000L);
+    assertThat(histogram.getPercentile(99)).isBetween(990_000L, 1_000_000L);
+    assertThat(histogram.getPercentile(100)).isEqualTo(1_000_000L);
+  }
+
+  private static List<BigDecimal> runAndReadBalances(LoadOptions options) throws Exception {
+    List<BigDecimal> balances = new ArrayList<>();
+    try (LoadTarget target = new ServiceLoadTarget(TransferMode.LOCKING)) {
+      assertThat(LoadGenerator.run(options, target).isMoneyConserved()).isTrue();
+      for (int i = 0; i < 20; i++) {
+        balances.add(target.getBalance("Load-" + i));
+      }
+    }
+    return balances;
+  }
+}
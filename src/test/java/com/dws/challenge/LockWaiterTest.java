@@ -0,0 +1,148 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.AccountBusyException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.LockWaitPolicy;
+import com.dws.challenge.service.LockWaiter;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+class LockWaiterTest {
+
+  @Test
+  void failFast_rejectsTransferOnBusyAccountAtOnce() throws Exception {
+    TransferProperties properties = new TransferProperties();
+    properties.getLockWait().setPolicy(LockWaitPolicy.FAIL_FAST);
+    TransferMetrics metrics = new TransferMetrics(new SimpleMeterRegistry(), 0);
+    AccountsService service = newService(properties, metrics);
+    Account fromAccount = new Account("Id-1", new BigDecimal("100"));
+    service.createAccount(fromAccount);
+    service.createAccount(new Account("Id-2", BigDecimal.ZERO));
+
+    fromAccount.getLock().lock();
+    try {
+      TransferStatus status = CompletableFuture.supplyAsync(
+              () -> service.tryTransfer("Id-1", "Id-2", BigDecimal.TEN)).get(5, TimeUnit.SECONDS);
+      assertThat(status).isEqualTo(TransferStatus.BUSY);
+
+      CompletableFuture<Void> transfer = CompletableFuture.runAsync(
+              () -> service.makeTransfer("Id-1", "Id-2", BigDecimal.TEN));
+      ExecutionException e = assertThrows(ExecutionException.class,
+              () -> transfer.get(5, TimeUnit.SECONDS));
+      assertThat(e.getCause()).isInstanceOf(AccountBusyException.class);
+    } finally {
+      fromAccount.getLock().unlock();
+    }
+
+    assertThat(metrics.getLockGiveUpCount(LockWaitPolicy.FAIL_FAST)).isEqualTo(2);
+    assertThat(service.tryTransfer("Id-1", "Id-2", BigDecimal.TEN)).isEqualTo(TransferStatus.OK);
+    assertThat(service.getAccount("Id-2").getBalance()).isEqualByComparingTo("10");
+  }
+
+  @Test
+  void deadline_timesOutWithinTheConfiguredDeadline() throws Exception {
+    TransferProperties properties = new TransferProperties();
+    properties.getLockWait().setDeadline(Duration.ofMillis(200));
+    TransferMetrics metrics = new TransferMetrics(new SimpleMeterRegistry(), 0);
+    AccountsService service = newService(properties, metrics);
+    Account toAccount = new Account("Id-2", BigDecimal.ZERO);
+    service.createAccount(new Account("Id-1", new BigDecimal("100")));
+    service.createAccount(toAccount);
+
+    toAccount.getLock().lock();
+    try {
+      long started = System.nanoTime();
+      TransferStatus status = CompletableFuture.supplyAsync(
+              () -> service.tryTransfer("Id-1", "Id-2", BigDecimal.TEN)).get(5, TimeUnit.SECONDS);
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+      assertThat(status).isEqualTo(TransferStatus.TIMED_OUT);
+      assertThat(elapsedMillis).isBetween(150L, 2000L);
+    } finally {
+      toAccount.getLock().unlock();
+    }
+    assertThat(metrics.getLockGiveUpCount(LockWaitPolicy.DEADLINE)).isEqualTo(1);
+    assertThat(service.getAccount("Id-1").getBalance()).isEqualByComparingTo("100");
+  }
+
+  @Test
+  void spinThenPark_acquiresLockReleasedWhileParked() throws Exception {
+    TransferProperties.LockWait properties = new TransferProperties.LockWait();
+    properties.setPolicy(LockWaitPolicy.SPIN_THEN_PARK);
+    properties.setSpins(16);
+    LockWaiter waiter = LockWaiter.create(properties);
+    Account account = new Account("Id-1");
+
+    account.getLock().lock();
+    CompletableFuture<Boolean> acquired = CompletableFuture.supplyAsync(() -> {
+      try {
+        boolean locked = waiter.await(account, TimeUnit.SECONDS.toNanos(5));
+        if (locked) {
+          account.getLock().unlock();
+        }
+        return locked;
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    Thread.sleep(50);
+    account.getLock().unlock();
+
+    assertThat(acquired.get(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void adaptive_givesUpAfterMinTimeoutWithoutHistory() throws Exception {
+    TransferProperties.LockWait properties = new TransferProperties.LockWait();
+    properties.setPolicy(LockWaitPolicy.ADAPTIVE);
+    properties.setMinTimeout(Duration.ofMillis(50));
+    LockWaiter waiter = LockWaiter.create(properties);
+    Account account = new Account("Id-1");
+    account.setHandle(0);
+
+    account.getLock().lock();
+    try {
+      long started = System.nanoTime();
+      boolean acquired = CompletableFuture.supplyAsync(() -> {
+        try {
+          return waiter.await(account, waiter.getDeadlineNanos());
+        } catch (InterruptedException e) {
+          throw new IllegalStateException(e);
+        }
+      }).get(5, TimeUnit.SECONDS);
+      long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+      assertThat(acquired).isFalse();
+      assertThat(elapsedMillis).isBetween(40L, 2000L);
+      assertThat(waiter.getGiveUpStatus()).isEqualTo(TransferStatus.TIMED_OUT);
+    } finally {
+      account.getLock().unlock();
+    }
+  }
+
+  private static AccountsService newService(TransferProperties properties,
+                                            TransferMetrics metrics) {
+    return new AccountsService(new AccountsRepositoryInMemory(),
+            new TransferNotificationDispatcher((account, description) -> { }, 1, 16, 16, 0),
+            properties, new NoOpTransactionJournal(), new TransactionLedger(new LedgerProperties()),
+            metrics);
+  }
+}
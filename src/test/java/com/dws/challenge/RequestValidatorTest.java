@@ -0,0 +1,76 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.RequestValidator;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.domain.ValidationError;
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.exception.InvalidAmountException;
+import org.junit.jupiter.api.Test;
+
+class RequestValidatorTest {
+
+  @Test
+  void validateTransfer_acceptsValidTransfer() {
+    assertThat(RequestValidator.validateTransfer("Id-1", "Id-2", new BigDecimal("0.0001")))
+            .isNull();
+    assertThat(RequestValidator.validateTransfer("Id-1", "Id-2", AtomicBalance.MAX_AMOUNT))
+            .isNull();
+  }
+
+  @Test
+  void validateTransfer_reportsTheFirstFailedCheck() {
+    ValidationError error = RequestValidator.validateTransfer(" ", null, BigDecimal.ZERO);
+    assertThat(error.status()).isEqualTo(TransferStatus.INVALID_ACCOUNT);
+    assertThat(error.field()).isEqualTo("fromAccountId");
+
+    error = RequestValidator.validateTransfer("Id-1", "Id-1", BigDecimal.ZERO);
+    assertThat(error.status()).isEqualTo(TransferStatus.INVALID_AMOUNT);
+    assertThat(error.field()).isEqualTo("amount");
+    assertThat(error.message()).isEqualTo("Amount cannot be less than or equal to zero.");
+
+    error = RequestValidator.validateTransfer("Id-1", "Id-1", BigDecimal.ONE);
+    assertThat(error.status()).isEqualTo(TransferStatus.INVALID_ACCOUNT);
+    assertThat(error.field()).isEqualTo("toAccountId");
+  }
+
+  @Test
+  void validateTransfer_rejectsAmountsThatCannotBeEncoded() {
+    ValidationError error = RequestValidator.validateTransfer("Id-1", "Id-2",
+            new BigDecimal("0.00001"));
+    assertThat(error.status()).isEqualTo(TransferStatus.INVALID_AMOUNT);
+    assertThat(error.toException()).isInstanceOf(InvalidAmountException.class);
+    assertThat(((InvalidAmountException) error.toException()).getError()).isSameAs(error);
+
+    error = RequestValidator.validateTransfer("Id-1", "Id-2",
+            AtomicBalance.MAX_AMOUNT.add(BigDecimal.ONE));
+    assertThat(error.status()).isEqualTo(TransferStatus.INVALID_AMOUNT);
+  }
+
+  @Test
+  void validateAccount_rejectsEmptyIdAndNegativeBalance() {
+    assertThat(RequestValidator.validateAccount("Id-1", null)).isNull();
+    assertThat(RequestValidator.validateAccount("Id-1", BigDecimal.ZERO)).isNull();
+
+    ValidationError error = RequestValidator.validateAccount("", BigDecimal.TEN);
+    assertThat(error.field()).isEqualTo("accountId");
+    assertThat(error.toException()).isInstanceOf(InvalidAccountException.class)
+            .hasMessage("Account id cannot be null or empty.");
+
+    error = RequestValidator.validateAccount("Id-1", new BigDecimal("-0.01"));
+    assertThat(error.field()).isEqualTo("balance");
+    assertThat(error.message()).isEqualTo("Account balance cannot be negative.");
+
+    error = RequestValidator.validateAccount("Id-1", new BigDecimal("0.00001"));
+    assertThat(error.field()).isEqualTo("balance");
+    assertThat(error.status()).isEqualTo(TransferStatus.INVALID_AMOUNT);
+
+    error = RequestValidator.validateAccount("Id-1", AtomicBalance.MAX_AMOUNT.add(BigDecimal.ONE));
+    assertThat(error.field()).isEqualTo("balance");
+    assertThat(error.status()).isEqualTo(TransferStatus.INVALID_AMOUNT);
+  }
+}
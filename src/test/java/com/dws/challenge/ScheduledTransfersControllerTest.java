@@ -0,0 +1,168 @@
+package com.dws.challenge;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.setup.MockMvcBuilders.webAppContextSetup;
+
+import java.math.BigDecimal;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AccountsService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.web.WebAppConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.WebApplicationContext;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@WebAppConfiguration
+class ScheduledTransfersControllerTest {
+
+  private MockMvc mockMvc;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  @Autowired
+  private WebApplicationContext webApplicationContext;
+
+  private String fromAccountId;
+
+  private String toAccountId;
+
+  @BeforeEach
+  void prepareMockMvc() {
+    this.mockMvc = webAppContextSetup(this.webApplicationContext).build();
+
+    // Reset the existing accounts before each test.
+    accountsService.getAccountsRepository().clearAccounts();
+    String uniqueAccountId = "Id-" + System.nanoTime();
+    fromAccountId = uniqueAccountId + "1";
+    toAccountId = uniqueAccountId + "2";
+    accountsService.createAccount(new Account(fromAccountId, new BigDecimal("100")));
+    accountsService.createAccount(new Account(toAccountId, BigDecimal.ZERO));
+  }
+
+  @Test
+  void scheduleGetAndCancel() throws Exception {
+    String created = this.mockMvc.perform(post("/v1/accounts/schedules")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(schedule("10", "\"2099-01-01T00:00:00Z\"", "\"PT1H\"", "3")))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.fromAccountId").value(fromAccountId))
+            .andExpect(jsonPath("$.amount").value(10))
+            .andExpect(jsonPath("$.nextExecution").value("2099-01-01T00:00:00Z"))
+            .andExpect(jsonPath("$.interval").value("PT1H"))
+            .andExpect(jsonPath("$.remainingOccurrences").value(3))
+            .andExpect(jsonPath("$.executions").value(0))
+            .andReturn().getResponse().getContentAsString();
+    long id = JsonPath.<Number>read(created, "$.id").longValue();
+
+    this.mockMvc.perform(get("/v1/accounts/schedules/" + id))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.id").value(id))
+            .andExpect(jsonPath("$.toAccountId").value(toAccountId));
+    this.mockMvc.perform(get("/v1/accounts/" + fromAccountId + "/schedules"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(1))
+            .andExpect(jsonPath("$[0].id").value(id));
+
+    this.mockMvc.perform(delete("/v1/accounts/schedules/" + id))
+            .andExpect(status().isNoContent());
+    this.mockMvc.perform(get("/v1/accounts/schedules/" + id))
+            .andExpect(status().isNotFound());
+    this.mockMvc.perform(delete("/v1/accounts/schedules/" + id))
+            .andExpect(status().isNotFound());
+    this.mockMvc.perform(get("/v1/accounts/" + fromAccountId + "/schedules"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.length()").value(0));
+  }
+
+  @Test
+  void scheduleOnceWithoutIntervalOrTime() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content(schedule("10", "null", "null", "null")))
+            .andExpect(status().isCreated())
+            .andExpect(jsonPath("$.interval").isEmpty())
+            .andExpect(jsonPath("$.remainingOccurrences").value(1));
+  }
+
+  @Test
+  void scheduleInvalidRequestReturnsValidationError() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content(schedule("0", "null", "null", "null")))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value("INVALID_AMOUNT"))
+            .andExpect(jsonPath("$.field").value("amount"));
+
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"fromAccountId\":\"\",\"toAccountId\":\"" + toAccountId +
+                            "\",\"amount\":10}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value("INVALID_ACCOUNT"))
+            .andExpect(jsonPath("$.field").value("fromAccountId"));
+
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"fromAccountId\":\"" + fromAccountId +
+                            "\",\"toAccountId\":\"Id-unknown\",\"amount\":10}"))
+            .andExpect(status().isBadRequest())
+            .andExpect(jsonPath("$.status").value("INVALID_ACCOUNT"))
+            .andExpect(jsonPath("$.message").value(AccountsService.UNKNOWN_ACCOUNT_MESSAGE));
+  }
+
+  @Test
+  void scheduleInvalidTimingReturnsMessage() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content(schedule("10", "null", "\"PT0.5S\"", "null")))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("Interval must be at least 1000 milliseconds."));
+
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content(schedule("10", "\"2000-01-01T00:00:00Z\"", "null", "null")))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("Execution time cannot be more than 60000 " +
+                    "milliseconds in the past."));
+
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content(schedule("10", "null", "null", "2")))
+            .andExpect(status().isBadRequest())
+            .andExpect(content().string("A transfer that occurs more than once needs an " +
+                    "interval."));
+  }
+
+  @Test
+  void scheduleMalformedTimeOrInterval() throws Exception {
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content(schedule("10", "\"tomorrow\"", "null", "null")))
+            .andExpect(status().isBadRequest());
+    this.mockMvc.perform(post("/v1/accounts/schedules").contentType(MediaType.APPLICATION_JSON)
+                    .content(schedule("10", "null", "\"hourly\"", "null")))
+            .andExpect(status().isBadRequest());
+  }
+
+  @Test
+  void getUnknownSchedule() throws Exception {
+    this.mockMvc.perform(get("/v1/accounts/schedules/" + Long.MAX_VALUE))
+            .andExpect(status().isNotFound());
+  }
+
+  private String schedule(String amount, String executeAt, String interval, String occurrences) {
+    return "{\"fromAccountId\":\"" + fromAccountId + "\"," +
+            "\"toAccountId\":\"" + toAccountId + "\"," +
+            "\"amount\":" + amount + "," +
+            "\"executeAt\":" + executeAt + "," +
+            "\"interval\":" + interval + "," +
+            "\"occurrences\":" + occurrences + "}";
+  }
+}
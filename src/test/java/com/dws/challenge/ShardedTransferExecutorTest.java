@@ -0,0 +1,154 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InsufficientFundsException;
+import com.dws.challenge.exception.InvalidBatchException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.ShardedTransferExecutor;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferMode;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.junit.jupiter.api.Test;
+
+class ShardedTransferExecutorTest {
+
+  @Test
+  void transfer_movesMoneyAcrossShards() throws Exception {
+    ShardedTransferExecutor executor = new ShardedTransferExecutor(4);
+    Account fromAccount = new Account("Id-1", new BigDecimal("100"));
+    Account toAccount = new Account("Id-2", new BigDecimal("0"));
+
+    assertThat(executor.transfer(fromAccount, toAccount, amount("60")).join())
+            .isEqualTo(TransferStatus.OK);
+    assertThat(executor.transfer(fromAccount, toAccount, amount("60")).join())
+            .isEqualTo(TransferStatus.INSUFFICIENT_FUNDS);
+    executor.shutdown();
+
+    assertThat(fromAccount.getBalance()).isEqualByComparingTo("40");
+    assertThat(toAccount.getBalance()).isEqualByComparingTo("60");
+  }
+
+  @Test
+  void transfer_refundsCreditThatWouldOverflow() throws Exception {
+    ShardedTransferExecutor executor = new ShardedTransferExecutor(2);
+    Account fromAccount = new Account("Id-1", new BigDecimal("100"));
+    Account toAccount = new Account("Id-2", new BigDecimal("0"));
+    toAccount.getBalanceState().set(AtomicBalance.encode(Long.MAX_VALUE >> 3, 0));
+
+    assertThat(executor.transfer(fromAccount, toAccount, amount("1")).join())
+            .isEqualTo(TransferStatus.INVALID_AMOUNT);
+    executor.shutdown();
+
+    assertThat(fromAccount.getBalance()).isEqualByComparingTo("100");
+  }
+
+  @Test
+  void makeTransfer_conservesMoneyUnderConcurrentTransfers() throws Exception {
+    TransferProperties properties = new TransferProperties();
+    properties.setMode(TransferMode.SHARDED);
+    properties.setShards(4);
+    TransferNotificationDispatcher dispatcher = new TransferNotificationDispatcher(
+            (account, description) -> { }, 1, 1024, 256, 0);
+    AccountsService service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            properties, new NoOpTransactionJournal(), new TransactionLedger(new LedgerProperties()),
+            TransferMetrics.disabled());
+    int accountCount = 16;
+    for (int i = 0; i < accountCount; i++) {
+      service.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+    }
+
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < 8; thread++) {
+      int offset = thread;
+      futures.add(clients.submit(() -> {
+        for (int i = 0; i < 2000; i++) {
+          try {
+            service.makeTransfer("Id-" + (i + offset) % accountCount,
+                    "Id-" + (i + offset + 1) % accountCount, new BigDecimal("7"));
+          } catch (InsufficientFundsException e) {
+            // Expected now and then: the money keeps moving.
+          }
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    clients.shutdown();
+
+    BigDecimal total = BigDecimal.ZERO;
+    for (int i = 0; i < accountCount; i++) {
+      BigDecimal balance = service.getAccount("Id-" + i).getBalance();
+      assertThat(balance).isNotNegative();
+      total = total.add(balance);
+    }
+    assertThat(total).isEqualByComparingTo(new BigDecimal(1000 * accountCount));
+    assertThrows(InsufficientFundsException.class,
+            () -> service.makeTransfer("Id-0", "Id-1", new BigDecimal("1000000")));
+
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void makeTransfers_journalsPerItemBatchesAndRejectsAllOrNothingOnes() throws Exception {
+    TransferProperties properties = new TransferProperties();
+    properties.setMode(TransferMode.SHARDED);
+    properties.setShards(2);
+    TransferNotificationDispatcher dispatcher = new TransferNotificationDispatcher(
+            (account, description) -> { }, 1, 16, 16, 0);
+    AtomicInteger journaled = new AtomicInteger();
+    TransactionJournal journal = new NoOpTransactionJournal() {
+      @Override
+      public CompletableFuture<Void> recordTransfer(Account fromAccount, Account toAccount,
+                                                    long amount) {
+        journaled.incrementAndGet();
+        return super.recordTransfer(fromAccount, toAccount, amount);
+      }
+    };
+    AccountsService service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            properties, journal, new TransactionLedger(new LedgerProperties()),
+            TransferMetrics.disabled());
+    service.createAccount(new Account("Id-1", new BigDecimal("100")));
+    service.createAccount(new Account("Id-2", new BigDecimal("0")));
+    List<FundTransferRequest> batch = List.of(
+            new FundTransferRequest("Id-1", "Id-2", new BigDecimal("60")),
+            new FundTransferRequest("Id-1", "Id-2", new BigDecimal("60")),
+            new FundTransferRequest("Id-2", "Id-1", new BigDecimal("10")));
+
+    assertThat(service.makeTransfers(batch.iterator(), false).getSucceeded()).isEqualTo(2);
+    assertThat(journaled).hasValue(2);
+    assertThrows(InvalidBatchException.class,
+            () -> service.makeTransfers(batch.iterator(), true));
+    assertThat(service.getAccount("Id-1").getBalance()).isEqualByComparingTo("50");
+
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  private static long amount(String value) {
+    return AtomicBalance.encode(new BigDecimal(value));
+  }
+}
@@ -0,0 +1,137 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.StripedBalance;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.SnapshotUnavailableException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.junit.jupiter.api.Test;
+
+class StripedBalanceTest {
+
+  @Test
+  void tryDebit_borrowsAcrossStripes() throws InterruptedException {
+    StripedBalance balance = new StripedBalance(BigDecimal.ZERO, 4);
+    // Credits from different threads are spread over the stripes.
+    int threads = 16;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    for (int t = 0; t < threads; t++) {
+      executor.submit(() -> balance.credit(AtomicBalance.encode(BigDecimal.TEN)));
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(balance.toBigDecimal()).isEqualTo("160");
+
+    assertThat(balance.tryDebit(AtomicBalance.encode(new BigDecimal("155.5")))).isTrue();
+    assertThat(balance.toBigDecimal()).isEqualTo("4.5");
+    assertThat(balance.tryDebit(AtomicBalance.encode(new BigDecimal("4.51")))).isFalse();
+    assertThat(balance.toBigDecimal()).isEqualTo("4.5");
+  }
+
+  @Test
+  void set_replacesEveryStripe() throws InterruptedException {
+    StripedBalance balance = new StripedBalance(BigDecimal.ZERO, 4);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    for (int t = 0; t < 8; t++) {
+      executor.submit(() -> balance.credit(AtomicBalance.encode(new BigDecimal("1.25"))));
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    balance.set(AtomicBalance.encode(new BigDecimal("3")));
+    assertThat(balance.toBigDecimal()).isEqualTo("3");
+    assertThat(balance.tryDebit(AtomicBalance.encode(new BigDecimal("3")))).isTrue();
+    assertThat(balance.getUnits()).isZero();
+  }
+
+  @Test
+  void rejectsStripesThatAreNotAPowerOfTwo() {
+    assertThatThrownBy(() -> new StripedBalance(BigDecimal.ZERO, 3))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void concurrentCreditsAndDebitsConserveMoney() throws InterruptedException {
+    StripedBalance balance = new StripedBalance(new BigDecimal("100000"), 8);
+    long amount = AtomicBalance.encode(new BigDecimal("0.25"));
+
+    int threads = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    for (int t = 0; t < threads; t++) {
+      boolean credits = t % 2 == 0;
+      executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < 100_000; i++) {
+          if (credits) {
+            balance.credit(amount);
+          } else {
+            assertThat(balance.tryDebit(amount)).isTrue();
+          }
+        }
+        return null;
+      });
+    }
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(balance.toBigDecimal()).isEqualTo("100000.00");
+  }
+
+  @Test
+  void transfersToStripedAccountReportTheAggregateBalance() throws InterruptedException {
+    TransferProperties properties = new TransferProperties();
+    properties.getStriping().setAccountIds(Set.of("Collector"));
+    properties.getStriping().setStripes(4);
+    AccountsService service = new AccountsService(new AccountsRepositoryInMemory(),
+            new TransferNotificationDispatcher((account, description) -> { }, 1, 16, 16, 0),
+            properties, new NoOpTransactionJournal(), new TransactionLedger(new LedgerProperties()),
+            TransferMetrics.disabled());
+    Account collector = service.createAccount(new Account("Collector", BigDecimal.ZERO));
+    int senders = 8;
+    for (int i = 0; i < senders; i++) {
+      service.createAccount(new Account("Id-" + i, new BigDecimal("1000")));
+    }
+    assertThat(collector).isSameAs(service.getAccount("Collector"));
+    assertThat(collector.getBalanceState()).isInstanceOf(StripedBalance.class);
+
+    ExecutorService executor = Executors.newFixedThreadPool(senders);
+    for (int t = 0; t < senders; t++) {
+      String sender = "Id-" + t;
+      executor.submit(() -> {
+        for (int i = 0; i < 1000; i++) {
+          service.makeTransfer(sender, "Collector", BigDecimal.ONE);
+        }
+      });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(service.getAccount("Collector").getBalance()).isEqualTo("8000");
+    assertThat(service.tryTransfer("Collector", "Id-0", new BigDecimal("7999.99")))
+            .isEqualTo(TransferStatus.OK);
+    assertThat(service.getAccount("Collector").getBalance()).isEqualTo("0.01");
+    assertThat(service.tryTransfer("Collector", "Id-0", BigDecimal.ONE))
+            .isEqualTo(TransferStatus.INSUFFICIENT_FUNDS);
+    assertThatThrownBy(service::openSnapshot).isInstanceOf(SnapshotUnavailableException.class);
+  }
+}
@@ -0,0 +1,154 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.AccountTransaction;
+import com.dws.challenge.domain.AtomicBalance;
+import com.dws.challenge.domain.TransactionPage;
+import com.dws.challenge.exception.InvalidPageRequestException;
+import com.dws.challenge.repository.AccountsRepository;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.TransactionLedger;
+import org.junit.jupiter.api.Test;
+
+class TransactionLedgerTest {
+
+  private final MutableClock clock = new MutableClock();
+
+  private final AccountsRepository accountsRepository = new AccountsRepositoryInMemory();
+
+  @Test
+  void read_pagesThroughHistoryNewestFirst() {
+    TransactionLedger ledger = newLedger(1024, 4);
+    ledger.append(account("Id-1"), account("Id-2"), amount("10"));
+    ledger.append(account("Id-2"), account("Id-3"), amount("2.5"));
+    ledger.append(account("Id-3"), account("Id-1"), amount("1"));
+
+    TransactionPage first = ledger.read("Id-1", null, null, null, 1);
+    assertThat(first.getTransactions()).extracting(AccountTransaction::getCounterpartyAccountId)
+            .containsExactly("Id-3");
+    assertThat(first.getTransactions().get(0).getAmount()).isEqualByComparingTo("1");
+
+    TransactionPage second = ledger.read("Id-1", first.getNextCursor(), null, null, 1);
+    assertThat(second.getTransactions()).extracting(AccountTransaction::getCounterpartyAccountId)
+            .containsExactly("Id-2");
+    assertThat(second.getTransactions().get(0).getAmount()).isEqualByComparingTo("-10");
+    assertThat(second.getNextCursor()).isNull();
+
+    assertThat(ledger.read("Id-2", null, null, null, 10).getTransactions())
+            .extracting(AccountTransaction::getAmount)
+            .containsExactly(new BigDecimal("-2.5"), new BigDecimal("10"));
+  }
+
+  @Test
+  void read_filtersByTimeRange() {
+    TransactionLedger ledger = newLedger(1024, 4);
+    Instant start = clock.instant();
+    for (int i = 0; i < 10; i++) {
+      ledger.append(account("Id-1"), account("Id-2"), amount(Integer.toString(i + 1)));
+      clock.advance(Duration.ofMinutes(1));
+    }
+
+    TransactionPage page = ledger.read("Id-2", null, start.plus(Duration.ofMinutes(3)),
+            start.plus(Duration.ofMinutes(5)), 10);
+    assertThat(page.getTransactions()).extracting(AccountTransaction::getAmount)
+            .containsExactly(new BigDecimal("6"), new BigDecimal("5"), new BigDecimal("4"));
+    assertThat(page.getNextCursor()).isNull();
+  }
+
+  @Test
+  void read_endsAtOverwrittenEntries() {
+    TransactionLedger ledger = newLedger(8, 4);
+    for (int i = 0; i < 20; i++) {
+      ledger.append(account("Id-1"), account("Id-2"), amount("1"));
+    }
+
+    assertThat(ledger.getEntryCount()).isEqualTo(8);
+    assertThat(ledger.read("Id-1", null, null, null, 100).getTransactions())
+            .extracting(AccountTransaction::getId)
+            .containsExactly(19L, 18L, 17L, 16L, 15L, 14L, 13L, 12L);
+    assertThrows(InvalidPageRequestException.class,
+            () -> ledger.read("Id-1", 3L, null, null, 10));
+  }
+
+  @Test
+  void read_rejectsCursorOfAnotherAccount() {
+    TransactionLedger ledger = newLedger(1024, 4);
+    ledger.append(account("Id-1"), account("Id-2"), amount("1"));
+    long id = ledger.append(account("Id-3"), account("Id-4"), amount("1"));
+
+    assertThrows(InvalidPageRequestException.class,
+            () -> ledger.read("Id-1", id, null, null, 10));
+  }
+
+  @Test
+  void append_rejectsAccountWithoutHandle() {
+    TransactionLedger ledger = newLedger(1024, 4);
+
+    assertThrows(IllegalArgumentException.class,
+            () -> ledger.append(account("Id-1"), new Account("Id-2"), amount("1")));
+    assertThat(ledger.getEntryCount()).isZero();
+  }
+
+  @Test
+  void append_keepsEveryConcurrentEntry() throws Exception {
+    TransactionLedger ledger = newLedger(1 << 20, 4096);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int thread = 0; thread < 8; thread++) {
+      Account hot = account("Hot");
+      Account counterparty = account("Id-" + thread);
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < 10_000; i++) {
+          ledger.append(hot, counterparty, amount("1"));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    int count = 0;
+    Long cursor = null;
+    do {
+      TransactionPage page = ledger.read("Hot", cursor, null, null, 1000);
+      count += page.getTransactions().size();
+      cursor = page.getNextCursor();
+    } while (cursor != null);
+    assertThat(count).isEqualTo(80_000);
+    assertThat(ledger.read("Id-5", null, null, null, 1000).getNextCursor()).isNotNull();
+  }
+
+  private TransactionLedger newLedger(long maxEntries, int chunkEntries) {
+    LedgerProperties properties = new LedgerProperties();
+    properties.setChunkEntries(chunkEntries);
+    properties.setMaxEntries(maxEntries);
+    return new TransactionLedger(properties, clock);
+  }
+
+  private Account account(String accountId) {
+    Account account = accountsRepository.getAccount(accountId);
+    if (account == null) {
+      account = new Account(accountId);
+      accountsRepository.createAccount(account);
+    }
+    return account;
+  }
+
+  private static long amount(String value) {
+    return AtomicBalance.encode(new BigDecimal(value));
+  }
+}
@@ -0,0 +1,124 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.FundTransferRequest;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferCoalescer;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TransferCoalescerTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private TransferCoalescer coalescer;
+
+  @BeforeEach
+  void setUp() {
+    dispatcher = new TransferNotificationDispatcher((account, description) -> { }, 1, 1024, 256, 0);
+    TransferProperties properties = new TransferProperties();
+    TransferMetrics metrics = new TransferMetrics(registry, 0);
+    service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher, properties,
+            new NoOpTransactionJournal(), new TransactionLedger(new LedgerProperties()),
+            metrics);
+    coalescer = new TransferCoalescer(service, properties, metrics);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    coalescer.shutdown();
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void transfer_coalescesTransfersQueuedWhileSenderIsLocked() throws Exception {
+    Account treasury = new Account("Treasury", new BigDecimal("150"));
+    service.createAccount(treasury);
+    for (int i = 0; i < 4; i++) {
+      service.createAccount(new Account("Id-" + i, new BigDecimal("0")));
+    }
+
+    List<CompletableFuture<TransferStatus>> results = new ArrayList<>();
+    treasury.getLock().lock();
+    try {
+      for (int i = 0; i < 200; i++) {
+        results.add(coalescer.transfer(new FundTransferRequest("Treasury", "Id-" + i % 4,
+                BigDecimal.ONE)).toFuture());
+      }
+    } finally {
+      treasury.getLock().unlock();
+    }
+
+    int succeeded = 0;
+    for (CompletableFuture<TransferStatus> result : results) {
+      TransferStatus status = result.get(10, TimeUnit.SECONDS);
+      assertThat(status).isIn(TransferStatus.OK, TransferStatus.INSUFFICIENT_FUNDS);
+      if (status == TransferStatus.OK) {
+        succeeded++;
+      }
+    }
+    assertThat(succeeded).isEqualTo(150);
+    assertThat(treasury.getBalance()).isEqualByComparingTo("0");
+    // The first transfer may start a batch of its own before the rest queue up.
+    assertThat(registry.get("transfers.batch.latency").timer().count()).isLessThanOrEqualTo(2);
+    // Yet every transfer is recorded on its own, and its outcome only once.
+    assertThat(registry.get("transfers.latency").tag("outcome", "ok").timer().count())
+            .isEqualTo(150);
+    assertThat(registry.get("transfers.latency").tag("outcome", "insufficient_funds").timer()
+            .count()).isEqualTo(50);
+    assertThat(registry.get("transfers.insufficient.funds").counter().count()).isEqualTo(50);
+  }
+
+  @Test
+  void transfer_reportsInvalidTransfersIndividually() {
+    service.createAccount(new Account("Id-1", new BigDecimal("10")));
+    service.createAccount(new Account("Id-2", new BigDecimal("0")));
+
+    assertThat(coalescer.transfer(new FundTransferRequest("Id-1", "Id-2", BigDecimal.ONE))
+            .block()).isEqualTo(TransferStatus.OK);
+    assertThatThrownBy(() -> coalescer.transfer(new FundTransferRequest("Id-1", "Id-1",
+            BigDecimal.ONE)).block()).isInstanceOf(InvalidAccountException.class);
+    assertThat(coalescer.transfer(new FundTransferRequest("Id-1", "Id-3", BigDecimal.ONE))
+            .block()).isEqualTo(TransferStatus.UNKNOWN_ACCOUNT);
+    assertThat(coalescer.transfer(new FundTransferRequest("Id-3", "Id-1", BigDecimal.ONE))
+            .block()).isEqualTo(TransferStatus.UNKNOWN_ACCOUNT);
+    assertThatThrownBy(() -> coalescer.transfer(new FundTransferRequest("Id-1", "Id-2",
+            BigDecimal.ZERO)).block()).isInstanceOf(InvalidAmountException.class)
+            .hasMessage("Amount cannot be less than or equal to zero.");
+
+    assertThat(registry.get("transfers.latency").tag("outcome", "ok").timer().count())
+            .isEqualTo(1);
+    assertThat(registry.get("transfers.latency").tag("outcome", "unknown_account").timer()
+            .count()).isEqualTo(2);
+    assertThat(registry.get("transfers.latency").tag("outcome", "invalid_account").timer()
+            .count()).isEqualTo(1);
+    assertThat(registry.get("transfers.latency").tag("outcome", "invalid_amount").timer()
+            .count()).isEqualTo(1);
+  }
+}
@@ -0,0 +1,73 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.service.HotAccountTracker;
+import com.dws.challenge.service.TransferMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+class TransferMetricsTest {
+
+  @Test
+  void recordTransfer_countsOutcomes() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    TransferMetrics metrics = new TransferMetrics(registry, 16);
+
+    metrics.recordTransfer(TransferStatus.OK, TimeUnit.MICROSECONDS.toNanos(20));
+    metrics.recordTransfer(TransferStatus.OK, TimeUnit.MICROSECONDS.toNanos(40));
+    metrics.recordTransfer(TransferStatus.INSUFFICIENT_FUNDS, 1000);
+    metrics.recordTransfer(null, 1000);
+    metrics.recordOutcome(TransferStatus.TIMED_OUT);
+
+    assertThat(metrics.getTransferCount(TransferStatus.OK)).isEqualTo(2);
+    assertThat(metrics.getMeanLatencyMicros(TransferStatus.OK)).isEqualTo(30);
+    assertThat(metrics.getFailedTransferCount()).isEqualTo(1);
+    assertThat(registry.get("transfers.insufficient.funds").counter().count()).isEqualTo(1);
+    assertThat(registry.get("transfers.timeouts").counter().count()).isEqualTo(1);
+    assertThat(registry.get("transfers.latency").tag("outcome", "ok").timer().count())
+            .isEqualTo(2);
+  }
+
+  @Test
+  void recordLockWait_reportsHottestAccounts() {
+    TransferMetrics metrics = new TransferMetrics(new SimpleMeterRegistry(), 16);
+    for (int i = 0; i < 100; i++) {
+      metrics.recordLockWait("Hot", TimeUnit.MILLISECONDS.toNanos(1));
+      metrics.recordLockWait("Warm-" + (i % 2), 0);
+      metrics.recordLockWait("Cold-" + i, 0);
+    }
+
+    assertThat(metrics.getContendedLockCount()).isEqualTo(300);
+    assertThat(metrics.getHotAccounts().top(3))
+            .extracting(HotAccountTracker.HotAccount::accountId)
+            .containsExactlyInAnyOrder("Hot", "Warm-0", "Warm-1");
+    assertThat(metrics.getHotAccounts().top(1).get(0).accountId()).isEqualTo("Hot");
+    assertThat(metrics.getHotAccounts().top(1).get(0).waitMillis()).isEqualTo(100);
+  }
+
+  @Test
+  void hotAccountTracker_staysWithinCapacity() {
+    HotAccountTracker tracker = new HotAccountTracker(4);
+    for (int i = 0; i < 1000; i++) {
+      tracker.record("Id-" + i, 0);
+    }
+    tracker.record("Id-999", 0);
+
+    assertThat(tracker.top(10)).hasSize(4);
+    assertThat(tracker.top(1).get(0).accountId()).isEqualTo("Id-999");
+  }
+
+  @Test
+  void disabled_recordsNothing() {
+    TransferMetrics metrics = TransferMetrics.disabled();
+    metrics.recordTransfer(TransferStatus.OK, 1000);
+    metrics.recordLockWait("Hot", 1000);
+
+    assertThat(metrics.getTransferCount(TransferStatus.OK)).isZero();
+    assertThat(metrics.getHotAccounts().top(10)).isEmpty();
+  }
+}
@@ -0,0 +1,107 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.NotificationService;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import org.junit.jupiter.api.Test;
+
+class TransferNotificationDispatcherTest {
+
+  @Test
+  void dispatch_batchesNotificationsPerAccount() throws InterruptedException {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    List<String> delivered = new CopyOnWriteArrayList<>();
+    NotificationService notificationService = (account, description) -> {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      delivered.add(account.getAccountId() + ":" + description);
+    };
+    TransferNotificationDispatcher dispatcher =
+            new TransferNotificationDispatcher(notificationService, 1, 100, 100, 50);
+
+    Account account1 = new Account("Id-1");
+    Account account2 = new Account("Id-2");
+    // The first notification keeps the worker busy while the rest queue up.
+    dispatcher.dispatch(account1, "first");
+    assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+    dispatcher.dispatch(account1, "debit 1");
+    dispatcher.dispatch(account2, "credit 1");
+    dispatcher.dispatch(account1, "debit 2");
+    release.countDown();
+
+    waitUntil(() -> dispatcher.getDeliveredCount() == 4);
+    assertThat(delivered).containsExactly("Id-1:first", "Id-1:debit 1\ndebit 2",
+            "Id-2:credit 1");
+    assertThat(dispatcher.getDroppedCount()).isZero();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void dispatch_dropsWhenQueueIsFull() throws InterruptedException {
+    CountDownLatch entered = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    NotificationService notificationService = (account, description) -> {
+      entered.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    };
+    TransferNotificationDispatcher dispatcher =
+            new TransferNotificationDispatcher(notificationService, 1, 2, 10, 0);
+
+    Account account = new Account("Id-1");
+    assertThat(dispatcher.dispatch(account, "in flight")).isTrue();
+    assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(dispatcher.dispatch(account, "queued 1")).isTrue();
+    assertThat(dispatcher.dispatch(account, "queued 2")).isTrue();
+    assertThat(dispatcher.dispatch(account, "dropped")).isFalse();
+
+    assertThat(dispatcher.getQueueDepth()).isEqualTo(2);
+    assertThat(dispatcher.getDroppedCount()).isEqualTo(1);
+    release.countDown();
+    dispatcher.shutdown();
+    assertThat(dispatcher.getDeliveredCount()).isEqualTo(3);
+  }
+
+  @Test
+  void dispatchDebitAndCredit_describeTransferOnDelivery() throws InterruptedException {
+    List<String> delivered = new CopyOnWriteArrayList<>();
+    TransferNotificationDispatcher dispatcher = new TransferNotificationDispatcher(
+            (account, description) -> delivered.add(account.getAccountId() + ":" + description),
+            1, 100, 100, 50);
+
+    assertThat(dispatcher.dispatchDebit(new Account("Id-1"), new BigDecimal("20.70"))).isTrue();
+    assertThat(dispatcher.dispatchCredit(new Account("Id-2"), new BigDecimal("20.70"))).isTrue();
+
+    waitUntil(() -> dispatcher.getDeliveredCount() == 2);
+    assertThat(delivered).containsExactly(
+            "Id-1:Funds 20.70 has been debited from your account.",
+            "Id-2:Funds 20.70 has been credited to your account.");
+    dispatcher.shutdown();
+  }
+
+  private static void waitUntil(BooleanSupplier condition)
+          throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (!condition.getAsBoolean()) {
+      assertThat(System.nanoTime()).isLessThan(deadline);
+      Thread.sleep(5);
+    }
+  }
+}
@@ -0,0 +1,208 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.dws.challenge.config.LedgerProperties;
+import com.dws.challenge.config.ScheduleProperties;
+import com.dws.challenge.config.TransferProperties;
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.domain.ScheduleRequest;
+import com.dws.challenge.domain.ScheduledTransfer;
+import com.dws.challenge.domain.TransferStatus;
+import com.dws.challenge.exception.InvalidAccountException;
+import com.dws.challenge.exception.InvalidAmountException;
+import com.dws.challenge.exception.InvalidScheduleException;
+import com.dws.challenge.repository.AccountsRepositoryInMemory;
+import com.dws.challenge.repository.NoOpTransactionJournal;
+import com.dws.challenge.repository.TransactionLedger;
+import com.dws.challenge.service.AccountsService;
+import com.dws.challenge.service.TransferMetrics;
+import com.dws.challenge.service.TransferNotificationDispatcher;
+import com.dws.challenge.service.TransferScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TransferSchedulerTest {
+
+  private final MutableClock clock = new MutableClock();
+
+  private TransferNotificationDispatcher dispatcher;
+
+  private AccountsService service;
+
+  private TransferScheduler scheduler;
+
+  @BeforeEach
+  void setUp() {
+    dispatcher = new TransferNotificationDispatcher((account, description) -> { }, 1, 16, 16, 0);
+    TransferProperties transferProperties = new TransferProperties();
+    transferProperties.getLockWait().setDeadline(Duration.ofMillis(10));
+    service = new AccountsService(new AccountsRepositoryInMemory(), dispatcher,
+            transferProperties, new NoOpTransactionJournal(),
+            new TransactionLedger(new LedgerProperties()), TransferMetrics.disabled());
+    service.createAccount(new Account("Id-1", new BigDecimal("100")));
+    service.createAccount(new Account("Id-2", BigDecimal.ZERO));
+    ScheduleProperties properties = new ScheduleProperties();
+    properties.setPollInterval(Duration.ZERO);
+    properties.setBatchSize(2);
+    scheduler = new TransferScheduler(service, properties, clock);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    scheduler.shutdown();
+    service.shutdown();
+    dispatcher.shutdown();
+  }
+
+  @Test
+  void futureDatedTransfer_isExecutedOnceItFallsDue() {
+    ScheduledTransfer scheduled = scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.TEN, clock.instant().plusSeconds(60), null, null));
+    assertThat(scheduled.getRemainingOccurrences()).isEqualTo(1);
+
+    clock.advance(Duration.ofSeconds(59));
+    assertThat(scheduler.executeDue()).isZero();
+    assertThat(service.getAccount("Id-2").getBalance()).isEqualTo("0");
+
+    clock.advance(Duration.ofSeconds(1));
+    assertThat(scheduler.executeDue()).isEqualTo(1);
+    assertThat(service.getAccount("Id-2").getBalance()).isEqualTo("10");
+    assertThat(scheduler.getSchedule(scheduled.getId())).isNull();
+    assertThat(scheduler.getSchedules("Id-1")).isEmpty();
+  }
+
+  @Test
+  void recurringTransfer_skipsToItsLatestMissedOccurrence() {
+    Instant start = clock.instant();
+    ScheduledTransfer scheduled = scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.ONE, start, Duration.ofDays(1), 5));
+    scheduler.schedule(new ScheduleRequest("Id-1", "Id-2", new BigDecimal("0.5"), null,
+            Duration.ofDays(7), null));
+
+    clock.advance(Duration.ofDays(2));
+    // The third daily occurrence, the two before it being missed, and the
+    // first weekly one.
+    assertThat(scheduler.executeDue()).isEqualTo(2);
+    assertThat(service.getAccount("Id-2").getBalance()).isEqualTo("1.5");
+
+    ScheduledTransfer daily = scheduler.getSchedule(scheduled.getId());
+    assertThat(daily.getExecutions()).isEqualTo(1);
+    assertThat(daily.getMissedOccurrences()).isEqualTo(2);
+    assertThat(daily.getRemainingOccurrences()).isEqualTo(2);
+    assertThat(daily.getNextExecution()).isEqualTo(start.plus(Duration.ofDays(3)));
+    assertThat(daily.getLastStatus()).isEqualTo(TransferStatus.OK);
+    assertThat(scheduler.getSchedules("Id-1")).extracting(ScheduledTransfer::getId)
+            .containsExactly(scheduled.getId(), scheduled.getId() + 1);
+
+    assertThat(scheduler.cancel(scheduled.getId())).isTrue();
+    assertThat(scheduler.cancel(scheduled.getId())).isFalse();
+    clock.advance(Duration.ofDays(30));
+    // Only the weekly transfer is left, four occurrences behind.
+    assertThat(scheduler.executeDue()).isEqualTo(1);
+    assertThat(service.getAccount("Id-2").getBalance()).isEqualTo("2.0");
+    assertThat(scheduler.getPendingCount()).isEqualTo(1);
+    assertThat(scheduler.getSchedules("Id-1").get(0).getMissedOccurrences()).isEqualTo(3);
+  }
+
+  @Test
+  void recurringTransfer_executesItsLastOccurrenceEvenWhenMissed() {
+    ScheduledTransfer scheduled = scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.ONE, null, Duration.ofHours(1), 3));
+
+    clock.advance(Duration.ofDays(1));
+    assertThat(scheduler.executeDue()).isEqualTo(1);
+    assertThat(service.getAccount("Id-2").getBalance()).isEqualTo("1");
+    assertThat(scheduler.getSchedule(scheduled.getId())).isNull();
+  }
+
+  @Test
+  void transferThatTimesOut_isRetriedWithBackoff() throws Exception {
+    ScheduledTransfer scheduled = scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.TEN, null, null, null));
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    ExecutorService holder = Executors.newSingleThreadExecutor();
+    Future<?> holding = holder.submit(() -> {
+      service.getAccount("Id-1").getLock().lock();
+      try {
+        locked.countDown();
+        release.await();
+      } finally {
+        service.getAccount("Id-1").getLock().unlock();
+      }
+      return null;
+    });
+    locked.await();
+
+    assertThat(scheduler.executeDue()).isEqualTo(1);
+    clock.advance(Duration.ofSeconds(1));
+    assertThat(scheduler.executeDue()).isEqualTo(1);
+    ScheduledTransfer retried = scheduler.getSchedule(scheduled.getId());
+    assertThat(retried.getAttempts()).isEqualTo(2);
+    assertThat(retried.getLastStatus()).isEqualTo(TransferStatus.TIMED_OUT);
+    // Backoff doubles after every attempt.
+    assertThat(retried.getNextExecution()).isEqualTo(clock.instant().plusSeconds(2));
+
+    release.countDown();
+    holding.get();
+    holder.shutdown();
+    clock.advance(Duration.ofSeconds(1));
+    assertThat(scheduler.executeDue()).isZero();
+    clock.advance(Duration.ofSeconds(1));
+    assertThat(scheduler.executeDue()).isEqualTo(1);
+    assertThat(service.getAccount("Id-2").getBalance()).isEqualTo("10");
+    assertThat(scheduler.getPendingCount()).isZero();
+  }
+
+  @Test
+  void schedule_rejectsInvalidRequests() {
+    assertThatThrownBy(() -> scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.ZERO, null, null, null))).isInstanceOf(InvalidAmountException.class);
+    assertThatThrownBy(() -> scheduler.schedule(new ScheduleRequest("Id-1", "Missing",
+            BigDecimal.ONE, null, null, null))).isInstanceOf(InvalidAccountException.class);
+    assertThatThrownBy(() -> scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.ONE, null, null, 2))).isInstanceOf(InvalidScheduleException.class);
+    assertThatThrownBy(() -> scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.ONE, null, Duration.ZERO, null)))
+            .isInstanceOf(InvalidScheduleException.class);
+    // Would be kept as zero milliseconds.
+    assertThatThrownBy(() -> scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.ONE, null, Duration.parse("PT0.0005S"), null)))
+            .isInstanceOf(InvalidScheduleException.class);
+    assertThatThrownBy(() -> scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.ONE, null, Duration.ofMillis(999), null)))
+            .isInstanceOf(InvalidScheduleException.class);
+    assertThatThrownBy(() -> scheduler.schedule(new ScheduleRequest("Id-1", "Id-2",
+            BigDecimal.ONE, clock.instant().minus(Duration.ofMinutes(2)), Duration.ofDays(1),
+            null))).isInstanceOf(InvalidScheduleException.class);
+    assertThat(scheduler.getPendingCount()).isZero();
+
+    scheduler.schedule(new ScheduleRequest("Id-1", "Id-2", BigDecimal.ONE,
+            clock.instant().minusSeconds(30), null, null));
+    assertThat(scheduler.getPendingCount()).isEqualTo(1);
+  }
+
+  @Test
+  void constructor_rejectsIntervalsAndBackoffsUnderAMillisecond() {
+    ScheduleProperties properties = new ScheduleProperties();
+    properties.setMinInterval(Duration.ofNanos(500_000));
+    assertThatThrownBy(() -> new TransferScheduler(service, properties, clock))
+            .isInstanceOf(IllegalStateException.class);
+
+    properties.setMinInterval(Duration.ofSeconds(1));
+    properties.getRetry().setInitialBackoff(Duration.ofNanos(500_000));
+    assertThatThrownBy(() -> new TransferScheduler(service, properties, clock))
+            .isInstanceOf(IllegalStateException.class);
+  }
+}
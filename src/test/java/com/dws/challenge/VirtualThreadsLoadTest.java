@@ -0,0 +1,95 @@
+package com.dws.challenge;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.dws.challenge.domain.Account;
+import com.dws.challenge.service.AccountsService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+// Saturates one account with more waiting requests than Tomcat has platform
+// worker threads, and checks that transfers between other accounts still go
+// through. How many go through, against a pool of platform threads, is
+// measured by VirtualThreadsBenchmark.
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "accounts.web.virtual-threads=true")
+class VirtualThreadsLoadTest {
+
+  private static final int HOT_REQUESTS = 400;
+
+  private static final int COLD_REQUESTS = 200;
+
+  @LocalServerPort
+  private int port;
+
+  @Autowired
+  private AccountsService accountsService;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @Test
+  void unrelatedTransfersProceedWhileHotAccountIsSaturated() throws Exception {
+    accountsService.getAccountsRepository().clearAccounts();
+    Account hot = new Account("Hot", new BigDecimal("1000000"));
+    accountsService.createAccount(hot);
+    accountsService.createAccount(new Account("Sink", new BigDecimal("0")));
+    for (int i = 0; i < 8; i++) {
+      accountsService.createAccount(new Account("Cold-" + i, new BigDecimal("1000")));
+    }
+
+    ReentrantLock hotLock = (ReentrantLock) hot.getLock();
+    List<CompletableFuture<HttpResponse<String>>> hotResponses = new ArrayList<>();
+    hotLock.lock();
+    try {
+      for (int i = 0; i < HOT_REQUESTS; i++) {
+        hotResponses.add(transfer("Hot", "Sink"));
+      }
+      long waitingUntil = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (hotLock.getQueueLength() < HOT_REQUESTS && System.nanoTime() < waitingUntil) {
+        Thread.sleep(10);
+      }
+      assertThat(hotLock.getQueueLength()).isEqualTo(HOT_REQUESTS);
+
+      List<CompletableFuture<HttpResponse<String>>> coldResponses = new ArrayList<>();
+      for (int i = 0; i < COLD_REQUESTS; i++) {
+        coldResponses.add(transfer("Cold-" + i % 8, "Cold-" + (i + 1) % 8));
+      }
+      for (CompletableFuture<HttpResponse<String>> response : coldResponses) {
+        assertThat(response.get(5, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+      }
+    } finally {
+      hotLock.unlock();
+    }
+
+    for (CompletableFuture<HttpResponse<String>> response : hotResponses) {
+      assertThat(response.get(10, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+    }
+    assertThat(accountsService.getAccount("Sink").getBalance())
+            .isEqualByComparingTo(new BigDecimal(HOT_REQUESTS));
+  }
+
+  private CompletableFuture<HttpResponse<String>> transfer(String fromAccountId, String toAccountId) {
+    HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/v1/accounts/transferFunds"))
+            .timeout(Duration.ofSeconds(30))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString("{\"fromAccountId\":\"" + fromAccountId
+                    + "\",\"toAccountId\":\"" + toAccountId + "\",\"amount\":1}"))
+            .build();
+    return client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+  }
+}